@@ -0,0 +1,187 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Locks the branches of a <i>Gitflow</i> job that are modified by a <i>Gitflow</i> action. A build holds the locks from
+ * loading the latest Gitflow plugin data of its job until its changes have been merged into that data (when the build
+ * has completed). Thus concurrent builds of the same job can run <i>Gitflow</i> actions on different branches, while the
+ * actions on the same branch are serialised.
+ * <p>
+ * The locks are semaphores (not owned by a thread), because they are acquired and released in different phases of a
+ * build. They are always acquired in the order of the branch names, so builds that lock several branches cannot deadlock.
+ * Each holder acquires its locks at once and releases all of them at once. The lock of a branch is dropped as soon as no
+ * holder holds or waits for it anymore, so the locks of deleted branches and jobs don't pile up.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public final class GitflowBranchLocks {
+
+    private static final String MSG_PATTERN_WAITING_FOR_BRANCH_LOCK = "Gitflow - Waiting for branch %s - it's locked by another Gitflow action%n";
+
+    // The map is guarded by itself, because the reference counts of the locks are updated together with the map.
+    private static final Map<String, BranchLock> LOCKS = new HashMap<String, BranchLock>();
+    private static final ConcurrentMap<String, List<BranchLock>> HELD_LOCKS = new ConcurrentHashMap<String, List<BranchLock>>();
+
+    private GitflowBranchLocks() {
+        // Utility class.
+    }
+
+    /**
+     * Acquires the locks for the given branches of a job, waiting until they are released by other holders.
+     *
+     * @param holder the unique ID of the lock holder (e.g. the externalizable ID of a build).
+     * @param jobName the full name of the job.
+     * @param branchNames the simple names of the branches to be locked.
+     * @param consoleLogger the logger to print messages about waiting to.
+     * @throws InterruptedException if the holder is interrupted while waiting - no locks are held then.
+     */
+    public static void acquire(final String holder, final String jobName, final Collection<String> branchNames, final PrintStream consoleLogger)
+            throws InterruptedException {
+        final List<BranchLock> acquiredLocks = new ArrayList<BranchLock>(branchNames.size());
+        for (final String branchName : sorted(branchNames)) {
+            final BranchLock lock = reference(jobName, branchName);
+            try {
+                if (!lock.semaphore.tryAcquire()) {
+                    consoleLogger.printf(MSG_PATTERN_WAITING_FOR_BRANCH_LOCK, branchName);
+                    lock.semaphore.acquire();
+                }
+            } catch (final InterruptedException ie) {
+                unreference(lock);
+                releaseAll(acquiredLocks);
+                throw ie;
+            }
+            acquiredLocks.add(lock);
+        }
+        HELD_LOCKS.put(holder, acquiredLocks);
+    }
+
+    /**
+     * Acquires the locks for the given branches of a job, if none of them is held by another holder.
+     *
+     * @param holder the unique ID of the lock holder.
+     * @param jobName the full name of the job.
+     * @param branchNames the simple names of the branches to be locked.
+     * @return {@code true} if all locks have been acquired, {@code false} if no lock has been acquired.
+     */
+    public static boolean tryAcquire(final String holder, final String jobName, final Collection<String> branchNames) {
+        final List<BranchLock> acquiredLocks = new ArrayList<BranchLock>(branchNames.size());
+        for (final String branchName : sorted(branchNames)) {
+            final BranchLock lock = reference(jobName, branchName);
+            if (!lock.semaphore.tryAcquire()) {
+                unreference(lock);
+                releaseAll(acquiredLocks);
+                return false;
+            }
+            acquiredLocks.add(lock);
+        }
+        HELD_LOCKS.put(holder, acquiredLocks);
+        return true;
+    }
+
+    /**
+     * Checks if any of the given branches of a job is locked by a holder. The result may be outdated as soon as it's
+     * returned, so it can only be used to postpone an action (e.g. as the cause of blockage of a queue task).
+     *
+     * @param jobName the full name of the job.
+     * @param branchNames the simple names of the branches to be checked.
+     * @return {@code true} if at least one of the branches is locked.
+     */
+    public static boolean isLocked(final String jobName, final Collection<String> branchNames) {
+        synchronized (LOCKS) {
+            for (final String branchName : branchNames) {
+                final BranchLock lock = LOCKS.get(key(jobName, branchName));
+                if (lock != null && lock.semaphore.availablePermits() == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases all locks held by the given holder. Nothing happens if the holder doesn't hold any locks.
+     *
+     * @param holder the unique ID of the lock holder.
+     */
+    public static void release(final String holder) {
+        final List<BranchLock> heldLocks = HELD_LOCKS.remove(holder);
+        if (heldLocks != null) {
+            releaseAll(heldLocks);
+        }
+    }
+
+    /**
+     * Returns the number of branch locks that are held or waited for.
+     *
+     * @return the number of branch locks.
+     */
+    static int getLockCount() {
+        synchronized (LOCKS) {
+            return LOCKS.size();
+        }
+    }
+
+    private static SortedSet<String> sorted(final Collection<String> branchNames) {
+        return new TreeSet<String>(branchNames);
+    }
+
+    private static String key(final String jobName, final String branchName) {
+        return jobName + '#' + branchName;
+    }
+
+    private static BranchLock reference(final String jobName, final String branchName) {
+        final String key = key(jobName, branchName);
+        synchronized (LOCKS) {
+            BranchLock lock = LOCKS.get(key);
+            if (lock == null) {
+                lock = new BranchLock(key);
+                LOCKS.put(key, lock);
+            }
+            lock.references++;
+            return lock;
+        }
+    }
+
+    private static void unreference(final BranchLock lock) {
+        synchronized (LOCKS) {
+            lock.references--;
+            if (lock.references == 0) {
+                LOCKS.remove(lock.key);
+            }
+        }
+    }
+
+    private static void releaseAll(final List<BranchLock> locks) {
+        for (final BranchLock lock : locks) {
+            lock.semaphore.release();
+            unreference(lock);
+        }
+    }
+
+    /**
+     * The lock of a branch with the number of holders that hold or wait for it.
+     */
+    private static final class BranchLock {
+
+        private final String key;
+        private final Semaphore semaphore = new Semaphore(1, true);
+
+        // Guarded by LOCKS.
+        private int references;
+
+        private BranchLock(final String key) {
+            this.key = key;
+        }
+    }
+}
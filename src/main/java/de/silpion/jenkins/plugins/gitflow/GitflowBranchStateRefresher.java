@@ -0,0 +1,102 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import de.silpion.jenkins.plugins.gitflow.action.WorkspaceLessFinisher;
+import de.silpion.jenkins.plugins.gitflow.proxy.git.GitSCMProxy;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteHeadsCache;
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.StreamBuildListener;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import jenkins.model.Jenkins;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically refreshes the remote branch heads for all jobs that use the {@link GitflowBuildWrapper}, so that the
+ * {@link GitflowProjectAction} can be rendered from the cached snapshots without accessing the remote repositories.
+ * <p>
+ * The remote heads are listed only once per remote URL (regardless of the number of jobs using it) and only when the
+ * cached snapshot has expired. The recurrence period doesn't exceed the TTL of the {@link RemoteHeadsCache}, so that URLs that
+ * have been listed by builds in the meantime are skipped. The number of concurrent listings is bounded.
+ * <p>
+ * The heads are listed from the scratch repository of a job on the master (see {@link WorkspaceLessFinisher}) with the
+ * credentials of the job - the workspaces of the builds may be located on agents that are offline or busy.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+@Extension
+public class GitflowBranchStateRefresher extends AsyncPeriodicWork {
+
+    private static final long RECURRENCE_PERIOD = TimeUnit.SECONDS.toMillis(Long.getLong(GitflowBranchStateRefresher.class.getName() + ".recurrenceSeconds", 60L));
+    private static final int MAX_CONCURRENT_REFRESHES = Integer.getInteger(GitflowBranchStateRefresher.class.getName() + ".maxConcurrentRefreshes", 4);
+
+    private static final String MSG_PATTERN_REFRESH_FAILED = "Gitflow - Refreshing the remote heads of %s failed: %s";
+
+    public GitflowBranchStateRefresher() {
+        super("Gitflow branch state refresh");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+
+        // Snapshots must not expire before the next run - otherwise each run would list all remote URLs again.
+        return Math.min(RECURRENCE_PERIOD, RemoteHeadsCache.getTtlMillis());
+    }
+
+    @Override
+    protected void execute(final TaskListener listener) throws IOException, InterruptedException {
+
+        // Collect one build per expired remote URL - the build is required to create a Git client with the job's configuration.
+        final Map<String, AbstractBuild<?, ?>> buildsByRemoteUrl = new LinkedHashMap<String, AbstractBuild<?, ?>>();
+        for (final AbstractProject<?, ?> job : Jenkins.getInstance().getAllItems(AbstractProject.class)) {
+            if (GitflowBuildWrapper.isGitflowJob(job)) {
+                final String remoteUrl = GitSCMProxy.getConfiguredRemoteUrl(job);
+                final AbstractBuild<?, ?> lastBuild = job.getLastBuild();
+                if (remoteUrl != null && lastBuild != null && !buildsByRemoteUrl.containsKey(remoteUrl) && !RemoteHeadsCache.isValid(remoteUrl)) {
+                    buildsByRemoteUrl.put(remoteUrl, lastBuild);
+                }
+            }
+        }
+        if (buildsByRemoteUrl.isEmpty()) {
+            return;
+        }
+
+        // Refresh the snapshots with a bounded number of threads.
+        final List<Callable<Void>> refreshTasks = new ArrayList<Callable<Void>>(buildsByRemoteUrl.size());
+        for (final Map.Entry<String, AbstractBuild<?, ?>> buildByRemoteUrl : buildsByRemoteUrl.entrySet()) {
+            refreshTasks.add(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    try {
+                        // The snapshot is cached for the configured URL, because the Gitflow page looks it up by that URL.
+                        final AbstractBuild<?, ?> build = buildByRemoteUrl.getValue();
+                        final String remoteUrl = buildByRemoteUrl.getKey();
+                        WorkspaceLessFinisher.createScratchClient(build.getProject(), build, new StreamBuildListener(listener.getLogger()), remoteUrl)
+                                             .refreshRemoteRefSnapshot(remoteUrl);
+                    } catch (final IOException | RuntimeException e) {
+                        listener.getLogger().println(String.format(MSG_PATTERN_REFRESH_FAILED, buildByRemoteUrl.getKey(), e.getMessage()));
+                    }
+                    return null;
+                }
+            });
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(MAX_CONCURRENT_REFRESHES, refreshTasks.size()), new DaemonThreadFactory());
+        try {
+            executorService.invokeAll(refreshTasks);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
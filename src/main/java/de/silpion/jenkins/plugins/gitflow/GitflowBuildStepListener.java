@@ -0,0 +1,36 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.BuildStepListener;
+import hudson.tasks.BuildStep;
+import hudson.tasks.Publisher;
+
+/**
+ * Joins the asynchronous <i>Gitflow</i> actions after the main build (see {@link GitflowPostBuildStage}) before a
+ * publisher is performed that depends on them - and after the last publisher that runs before the build result is
+ * finalised, so the result of the actions is applied while the build is in progress.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+@Extension
+public class GitflowBuildStepListener extends BuildStepListener {
+
+    /** {@inheritDoc} */
+    @Override
+    public void started(@SuppressWarnings("rawtypes") final AbstractBuild build, final BuildStep buildStep, final BuildListener listener) {
+        if (buildStep instanceof Publisher && !GitflowPostBuildStage.isIndependent(buildStep)) {
+            GitflowPostBuildStage.join(build, listener.getLogger());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void finished(@SuppressWarnings("rawtypes") final AbstractBuild build, final BuildStep buildStep, final BuildListener listener,
+                         final boolean canContinue) {
+        if (buildStep instanceof Publisher && GitflowPostBuildStage.isLastPublisherBeforeFinalization(build.getProject(), buildStep)) {
+            GitflowPostBuildStage.join(build, listener.getLogger());
+        }
+    }
+}
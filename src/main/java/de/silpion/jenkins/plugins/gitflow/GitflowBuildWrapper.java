@@ -3,6 +3,9 @@ package de.silpion.jenkins.plugins.gitflow;
 import de.silpion.jenkins.plugins.gitflow.action.AbstractGitflowAction;
 import de.silpion.jenkins.plugins.gitflow.action.GitflowActionFactory;
 import de.silpion.jenkins.plugins.gitflow.cause.AbstractGitflowCause;
+import de.silpion.jenkins.plugins.gitflow.proxy.git.GitSCMProxy;
+import de.silpion.jenkins.plugins.gitflow.proxy.git.ObjectMirrorCache;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteHeadsFilter;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.Extension;
 import hudson.Launcher;
@@ -10,6 +13,7 @@ import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.Action;
 import hudson.model.BuildListener;
+import hudson.model.BuildableItemWithBuildWrappers;
 import hudson.model.Item;
 import hudson.plugins.git.GitSCM;
 import hudson.security.Permission;
@@ -24,8 +28,11 @@ import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.StaplerRequest;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -36,6 +43,8 @@ import java.util.Map;
  */
 public class GitflowBuildWrapper extends BuildWrapper {
 
+    private static final String MSG_PATTERN_OBJECT_MIRROR_CACHE_FAILED = "Gitflow - Object mirror cache: Cannot prepare the workspace (%s) - continuing without mirror%n";
+
     @DataBoundConstructor
     public GitflowBuildWrapper() {
         // No job config params so far.
@@ -51,6 +60,16 @@ public class GitflowBuildWrapper extends BuildWrapper {
         if (gitflowCause != null && gitflowCause.isOmitMainBuild()) {
             build.addAction(new OmitMainBuildParametersAction());
         }
+
+        // Let the workspace borrow the objects of the node-local mirror of the remote repository. The mirror is only an optimization.
+        final DescriptorImpl descriptor = getGitflowBuildWrapperDescriptor();
+        if (descriptor.isObjectMirrorCacheEnabled()) {
+            try {
+                new ObjectMirrorCache(new GitSCMProxy(build), descriptor.getObjectMirrorCacheSizeLimit()).prepareWorkspace(build, listener);
+            } catch (final IOException ioe) {
+                listener.getLogger().printf(MSG_PATTERN_OBJECT_MIRROR_CACHE_FAILED, ioe.getMessage());
+            }
+        }
     }
 
     @Override
@@ -58,6 +77,12 @@ public class GitflowBuildWrapper extends BuildWrapper {
             throws IOException, InterruptedException {
         final Environment buildEnvironment;
 
+        // Lock the branches that are modified by the Gitflow action - they are released when the build has completed.
+        final AbstractGitflowCause gitflowCause = (AbstractGitflowCause) build.getCause(AbstractGitflowCause.class);
+        if (gitflowCause != null && !gitflowCause.getAffectedBranches().isEmpty()) {
+            GitflowBranchLocks.acquire(build.getExternalizableId(), build.getProject().getFullName(), gitflowCause.getAffectedBranches(), listener.getLogger());
+        }
+
         final AbstractGitflowAction<?, ?> gitflowAction = GitflowActionFactory.newInstance(build, launcher, listener);
 
         gitflowAction.beforeMainBuild();
@@ -81,7 +106,8 @@ public class GitflowBuildWrapper extends BuildWrapper {
             public boolean tearDown(@SuppressWarnings({ "hiding", "rawtypes" }) final AbstractBuild build,
                                     @SuppressWarnings("hiding") final BuildListener listener) throws IOException, InterruptedException {
 
-                gitflowAction.afterMainBuild();
+                // Let the actions after the main build overlap with the publishers that don't depend on them.
+                GitflowPostBuildStage.afterMainBuild(build, gitflowAction, getGitflowBuildWrapperDescriptor().isAsyncAfterMainBuild(), listener.getLogger());
 
                 return true;
             }
@@ -94,6 +120,17 @@ public class GitflowBuildWrapper extends BuildWrapper {
         return job.hasPermission(DescriptorImpl.EXECUTE_GITFLOW);
     }
 
+    /**
+     * Checks if the given job is configured to use the {@link GitflowBuildWrapper}.
+     *
+     * @param job the job to be checked.
+     * @return {@code true} if the given job is configured to use the {@link GitflowBuildWrapper}.
+     */
+    public static boolean isGitflowJob(final AbstractProject<?, ?> job) {
+        return job instanceof BuildableItemWithBuildWrappers
+               && ((BuildableItemWithBuildWrappers) job).getBuildWrappersList().get(GitflowBuildWrapper.class) != null;
+    }
+
     @Override
     public Collection<? extends Action> getProjectActions(@SuppressWarnings("rawtypes") final AbstractProject job) {
         return Collections.singletonList(new GitflowProjectAction(job));
@@ -122,6 +159,12 @@ public class GitflowBuildWrapper extends BuildWrapper {
         public static final Permission EXECUTE_GITFLOW = new Permission(Item.PERMISSIONS, "Gitflow", new NonLocalizable("Gitflow"), Jenkins.ADMINISTER,
                                                                         PermissionScope.ITEM);
 
+        /** The default for the maximal size of the object mirrors on a node (in megabytes). */
+        public static final long DEFAULT_OBJECT_MIRROR_CACHE_SIZE_LIMIT = 4096L;
+
+        /** The default patterns for the ignored cache directories that are kept when the working directory is cleaned up. */
+        public static final String DEFAULT_CACHE_DIRECTORY_PATTERNS = "target/\nnode_modules/\n.gradle/";
+
         private String masterBranch = "master";
         private String developBranch = "develop";
         private String releaseBranchPrefix = "release/";
@@ -129,6 +172,17 @@ public class GitflowBuildWrapper extends BuildWrapper {
         private String featureBranchPrefix = "feature/";
         private String versionTagPrefix = "";
         private boolean markSuccessfulBuildUnstableOnBrokenBranches = false;
+        private boolean objectMirrorCacheEnabled = false;
+        private long objectMirrorCacheSizeLimit = DEFAULT_OBJECT_MIRROR_CACHE_SIZE_LIMIT;
+        private boolean filteredRemoteListing = false;
+        private boolean keepCacheDirectories = false;
+        private String cacheDirectoryPatterns = DEFAULT_CACHE_DIRECTORY_PATTERNS;
+        private boolean workspaceLessFinish = false;
+        private boolean lightweightOmitMainBuild = false;
+        private boolean asyncAfterMainBuild = false;
+        private boolean skipPluginCommits = false;
+        private boolean reuseVerifiedReleaseBuilds = false;
+        private boolean changeAwareReactor = false;
 
         public DescriptorImpl() {
             super(GitflowBuildWrapper.class);
@@ -149,6 +203,17 @@ public class GitflowBuildWrapper extends BuildWrapper {
             this.versionTagPrefix = json.getString("versionTagPrefix");
             this.featureBranchPrefix = json.getString("featureBranchPrefix");
             this.markSuccessfulBuildUnstableOnBrokenBranches = json.getBoolean("markSuccessfulBuildUnstableOnBrokenBranches");
+            this.objectMirrorCacheEnabled = json.getBoolean("objectMirrorCacheEnabled");
+            this.objectMirrorCacheSizeLimit = json.optLong("objectMirrorCacheSizeLimit", DEFAULT_OBJECT_MIRROR_CACHE_SIZE_LIMIT);
+            this.filteredRemoteListing = json.getBoolean("filteredRemoteListing");
+            this.keepCacheDirectories = json.getBoolean("keepCacheDirectories");
+            this.cacheDirectoryPatterns = json.getString("cacheDirectoryPatterns");
+            this.workspaceLessFinish = json.getBoolean("workspaceLessFinish");
+            this.lightweightOmitMainBuild = json.getBoolean("lightweightOmitMainBuild");
+            this.asyncAfterMainBuild = json.getBoolean("asyncAfterMainBuild");
+            this.skipPluginCommits = json.getBoolean("skipPluginCommits");
+            this.reuseVerifiedReleaseBuilds = json.getBoolean("reuseVerifiedReleaseBuilds");
+            this.changeAwareReactor = json.getBoolean("changeAwareReactor");
 
             this.save();
             return true; // everything is alright so far
@@ -209,5 +274,78 @@ public class GitflowBuildWrapper extends BuildWrapper {
         public boolean isMarkSuccessfulBuildUnstableOnBrokenBranches() {
             return this.markSuccessfulBuildUnstableOnBrokenBranches;
         }
+
+        public boolean isObjectMirrorCacheEnabled() {
+            return this.objectMirrorCacheEnabled;
+        }
+
+        public long getObjectMirrorCacheSizeLimit() {
+            return this.objectMirrorCacheSizeLimit;
+        }
+
+        public boolean isFilteredRemoteListing() {
+            return this.filteredRemoteListing;
+        }
+
+        public boolean isKeepCacheDirectories() {
+            return this.keepCacheDirectories;
+        }
+
+        public String getCacheDirectoryPatterns() {
+            return this.cacheDirectoryPatterns;
+        }
+
+        public boolean isWorkspaceLessFinish() {
+            return this.workspaceLessFinish;
+        }
+
+        public boolean isLightweightOmitMainBuild() {
+            return this.lightweightOmitMainBuild;
+        }
+
+        public boolean isAsyncAfterMainBuild() {
+            return this.asyncAfterMainBuild;
+        }
+
+        public boolean isSkipPluginCommits() {
+            return this.skipPluginCommits;
+        }
+
+        public boolean isReuseVerifiedReleaseBuilds() {
+            return this.reuseVerifiedReleaseBuilds;
+        }
+
+        public boolean isChangeAwareReactor() {
+            return this.changeAwareReactor;
+        }
+
+        /**
+         * Returns the patterns for the ignored cache directories that are kept when the working directory is cleaned up.
+         *
+         * @return the patterns (one per line in the configuration) without blank lines and comments.
+         */
+        public List<String> getCacheDirectoryPatternList() {
+            final List<String> cacheDirectoryPatternList = new ArrayList<String>();
+            for (final String cacheDirectoryPattern : StringUtils.split(StringUtils.defaultString(this.cacheDirectoryPatterns), "\r\n")) {
+                if (StringUtils.isNotBlank(cacheDirectoryPattern) && !cacheDirectoryPattern.trim().startsWith("#")) {
+                    cacheDirectoryPatternList.add(cacheDirectoryPattern.trim());
+                }
+            }
+            return cacheDirectoryPatternList;
+        }
+
+        /**
+         * Returns the filter for the listing of the remote heads, that matches the configured <i>Gitflow</i> branches and branch prefixes.
+         *
+         * @return the filter or {@code null} if the filtered remote listing is disabled or a branch prefix is empty (matching all branches).
+         */
+        public RemoteHeadsFilter getRemoteHeadsFilter() {
+            if (!this.filteredRemoteListing
+                || StringUtils.isEmpty(this.releaseBranchPrefix) || StringUtils.isEmpty(this.hotfixBranchPrefix) || StringUtils.isEmpty(this.featureBranchPrefix)) {
+                return null;
+            }
+            return new RemoteHeadsFilter(Arrays.asList(this.masterBranch, this.developBranch),
+                                         Arrays.asList(this.releaseBranchPrefix, this.hotfixBranchPrefix, this.featureBranchPrefix));
+        }
     }
 }
@@ -0,0 +1,147 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import de.silpion.jenkins.plugins.gitflow.cause.AbstractGitflowCause;
+import de.silpion.jenkins.plugins.gitflow.cause.StartHotfixCause;
+import hudson.model.AbstractProject;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.ResourceList;
+import hudson.model.queue.CauseOfBlockage;
+import hudson.model.queue.SubTask;
+import org.acegisecurity.Authentication;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
+
+/**
+ * A queue task that runs a build of a <i>Gitflow</i> job on a flyweight executor, i.e. without occupying an executor slot.
+ * <p>
+ * It's used for the <i>Gitflow</i> actions that omit the main build: those builds are interrupted right after the
+ * <i>Gitflow</i> action has been executed, so they don't need a regular executor. The build is a normal build of the job
+ * (recorded in the build history, with the job's build wrappers and SCM) - only the executor it runs on is different.
+ * The task respects the label restriction of the job and is blocked while the job is building (unless concurrent builds are allowed).
+ * Jobs without label restriction are built on the node of their last build, because flyweight tasks would otherwise
+ * prefer the master. The task belongs to the job, so it's authenticated like the builds of the job.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitflowFlyweightTask implements Queue.FlyweightTask, Queue.TransientTask {
+
+    private final AbstractProject<?, ?> job;
+
+    /**
+     * Creates a new task.
+     *
+     * @param job the job to be built on a flyweight executor.
+     */
+    public GitflowFlyweightTask(final AbstractProject<?, ?> job) {
+        this.job = job;
+    }
+
+    /**
+     * Checks if the build for the given cause can (and shall) be executed on a flyweight executor. That's the case for
+     * all actions that omit the main build, except for <i>Start Hotfix</i>: it may launch the build tool to update the
+     * versions in the project files. Jobs that neither have a label restriction nor have been built yet are built on
+     * a regular executor, because it's unknown which nodes they may use.
+     *
+     * @param gitflowCause the <i>Gitflow</i> cause for the build to be executed.
+     * @param job the job to be built.
+     * @return {@code true} if the build for the given cause can be executed on a flyweight executor.
+     */
+    public static boolean isApplicable(final AbstractGitflowCause gitflowCause, final AbstractProject<?, ?> job) {
+        return gitflowCause.isOmitMainBuild() && !(gitflowCause instanceof StartHotfixCause)
+               && getGitflowBuildWrapperDescriptor().isLightweightOmitMainBuild() && getLabel(job) != null;
+    }
+
+    private static Label getLabel(final AbstractProject<?, ?> job) {
+        final Label label = job.getAssignedLabel();
+        final Node lastBuiltOn = label == null ? job.getLastBuiltOn() : null;
+        return lastBuiltOn == null ? label : lastBuiltOn.getSelfLabel();
+    }
+
+    public boolean isBuildBlocked() {
+        return this.getCauseOfBlockage() != null;
+    }
+
+    public String getWhyBlocked() {
+        final CauseOfBlockage causeOfBlockage = this.getCauseOfBlockage();
+        return causeOfBlockage == null ? null : causeOfBlockage.getShortDescription();
+    }
+
+    public CauseOfBlockage getCauseOfBlockage() {
+        return this.job.getCauseOfBlockage();
+    }
+
+    public String getName() {
+        return this.job.getName();
+    }
+
+    public String getFullDisplayName() {
+        return this.job.getFullDisplayName();
+    }
+
+    public String getDisplayName() {
+        return this.job.getDisplayName();
+    }
+
+    public void checkAbortPermission() {
+        this.job.checkAbortPermission();
+    }
+
+    public boolean hasAbortPermission() {
+        return this.job.hasAbortPermission();
+    }
+
+    public String getUrl() {
+        return this.job.getUrl();
+    }
+
+    public boolean isConcurrentBuild() {
+        return this.job.isConcurrentBuild();
+    }
+
+    public Collection<? extends SubTask> getSubTasks() {
+        return Collections.singleton(this);
+    }
+
+    public Queue.Task getOwnerTask() {
+        return this.job;
+    }
+
+    public Object getSameNodeConstraint() {
+        return null;
+    }
+
+    public Authentication getDefaultAuthentication() {
+        return this.job.getDefaultAuthentication();
+    }
+
+    public Authentication getDefaultAuthentication(final Queue.Item item) {
+        return this.job.getDefaultAuthentication(item);
+    }
+
+    public Label getAssignedLabel() {
+        return getLabel(this.job);
+    }
+
+    public Node getLastBuiltOn() {
+        return this.job.getLastBuiltOn();
+    }
+
+    public long getEstimatedDuration() {
+        // The job's estimation includes the main build.
+        return -1;
+    }
+
+    public Queue.Executable createExecutable() throws IOException {
+        return this.job.createExecutable();
+    }
+
+    public ResourceList getResourceList() {
+        return this.job.getResourceList();
+    }
+}
@@ -0,0 +1,140 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts the Gitflow plugin data in the build histories that have been recorded by older versions of the plugin, where
+ * every build persisted the full data. The builds are rewritten as deltas against periodic checkpoint builds (see
+ * {@link GitflowPluginData}).
+ * <p>
+ * The compaction is done once per job - a marker file in the root directory of the job prevents repeated runs.
+ * <p>
+ * The deltas against a checkpoint build are rewritten in the same way before the checkpoint build is deleted (see
+ * {@link GitflowRunListener#onDeleted(AbstractBuild)}).
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+@Extension
+public class GitflowHistoryCompactor extends AsyncPeriodicWork {
+
+    private static final String MARKER_FILE_NAME = "gitflow-plugin-data.compacted";
+
+    private static final String MSG_PATTERN_COMPACTED_HISTORY = "Gitflow - Compacted the plugin data of %d build(s) of %s";
+    private static final String MSG_PATTERN_COMPACTION_FAILED = "Gitflow - Compacting the plugin data of %s failed: %s";
+
+    public GitflowHistoryCompactor() {
+        super("Gitflow history compaction");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return TimeUnit.HOURS.toMillis(1L);
+    }
+
+    @Override
+    public long getInitialDelay() {
+        return TimeUnit.MINUTES.toMillis(1L);
+    }
+
+    @Override
+    protected void execute(final TaskListener listener) throws IOException, InterruptedException {
+        for (final AbstractProject<?, ?> job : Jenkins.getInstance().getAllItems(AbstractProject.class)) {
+            final File markerFile = new File(job.getRootDir(), MARKER_FILE_NAME);
+            if (GitflowBuildWrapper.isGitflowJob(job) && !markerFile.exists()) {
+                try {
+                    final int compactedBuilds = compact(job);
+                    if (compactedBuilds > 0) {
+                        listener.getLogger().println(String.format(MSG_PATTERN_COMPACTED_HISTORY, compactedBuilds, job.getFullName()));
+                    }
+                    if (!markerFile.createNewFile() && !markerFile.exists()) {
+                        throw new IOException("Cannot create " + markerFile);
+                    }
+                } catch (final IOException | RuntimeException e) {
+                    listener.getLogger().println(String.format(MSG_PATTERN_COMPACTION_FAILED, job.getFullName(), e.getMessage()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites the Gitflow plugin data of the builds of the given job that has been recorded by older versions of the
+     * plugin as deltas against periodic checkpoints.
+     *
+     * @param job the job to be compacted.
+     * @return the number of rewritten builds.
+     * @throws IOException if a build cannot be saved.
+     */
+    static int compact(final AbstractProject<?, ?> job) throws IOException {
+        int compactedBuilds = 0;
+
+        GitflowPluginData baseline = null;
+        for (AbstractBuild<?, ?> build = job.getFirstBuild(); build != null && !build.isBuilding(); build = build.getNextBuild()) {
+            final GitflowPluginData gitflowPluginData = build.getAction(GitflowPluginData.class);
+            if (gitflowPluginData == null) {
+                continue;
+            }
+
+            // Data persisted by older plugin versions: rewrite it as delta against the previous build or make it a checkpoint.
+            if (gitflowPluginData.getCheckpointBuildNumber() == null) {
+                rewrite(build, gitflowPluginData, baseline);
+                compactedBuilds++;
+            }
+            baseline = gitflowPluginData;
+        }
+
+        return compactedBuilds;
+    }
+
+    /**
+     * Rewrites the Gitflow plugin data of the builds that are persisted as deltas against the given checkpoint build. The
+     * first of them becomes the new checkpoint. This must be done before the checkpoint build is deleted, because the full
+     * view of the deltas is rebuilt from the checkpoint.
+     *
+     * @param checkpointBuild the checkpoint build that is about to be deleted.
+     * @return the number of rewritten builds.
+     * @throws IOException if a build cannot be saved.
+     */
+    static int rewriteDeltasOf(final AbstractBuild<?, ?> checkpointBuild) throws IOException {
+        int rewrittenBuilds = 0;
+
+        GitflowPluginData baseline = null;
+        for (AbstractBuild<?, ?> build = checkpointBuild.getNextBuild(); build != null; build = build.getNextBuild()) {
+            final GitflowPluginData gitflowPluginData = build.getAction(GitflowPluginData.class);
+            if (gitflowPluginData == null) {
+                continue;
+            } else if (!Integer.valueOf(checkpointBuild.getNumber()).equals(gitflowPluginData.getCheckpointBuildNumber())) {
+                break;
+            }
+
+            // Rebuild the full view while the checkpoint is still available.
+            gitflowPluginData.getRemoteBranches();
+            if (build.isBuilding()) {
+
+                // The data of running builds is still changed - their delta is updated when they are saved.
+                gitflowPluginData.trackDeltaAgainst(build.getNumber(), baseline);
+            } else {
+                rewrite(build, gitflowPluginData, baseline);
+            }
+            rewrittenBuilds++;
+            baseline = gitflowPluginData;
+        }
+
+        return rewrittenBuilds;
+    }
+
+    private static void rewrite(final AbstractBuild<?, ?> build, final GitflowPluginData gitflowPluginData, final GitflowPluginData baseline) throws IOException {
+        gitflowPluginData.trackDeltaAgainst(build.getNumber(), baseline);
+        gitflowPluginData.freezeDelta();
+        build.save();
+    }
+}
@@ -0,0 +1,219 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import de.silpion.jenkins.plugins.gitflow.action.AbstractGitflowAction;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.tasks.BuildStep;
+import hudson.tasks.Publisher;
+import hudson.tasks.Recorder;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the <i>Gitflow</i> actions after the main build (tagging, updating the versions, pushing) asynchronously, so that
+ * they overlap with the publishers of the build.
+ * <p>
+ * The stage is started when the build environment is torn down - if the job has publishers that can run concurrently
+ * with it and if the actions don't need to write to the working tree, which is read by the publishers (see
+ * {@link AbstractGitflowAction#prepareConcurrentAfterMainBuild()}). It's joined before the first publisher that may depend on it (see {@link #isIndependent(BuildStep)}) and
+ * after the last publisher that runs before the build result is finalised. So it's always joined while the build is in
+ * progress: an error in the stage sets the result of the build, which reports the same result as if the actions had
+ * been executed synchronously, and the next build of the job can't start before the changes have been pushed. The
+ * publishers that ran concurrently have recorded the outputs of the successful main build then.
+ * <p>
+ * When the build is interrupted while a publisher runs, the stage is joined when the build has completed, before its
+ * Gitflow plugin data is recorded. The stage is cancelled then if the build has been aborted.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public final class GitflowPostBuildStage {
+
+    private static final String MSG_PATTERN_STARTED = "Gitflow - %s: Running the actions after the main build concurrently with the publishers%n";
+    private static final String MSG_PATTERN_WAITING = "Gitflow - %s: Waiting for the actions after the main build to complete%n";
+    private static final String MSG_PATTERN_FAILED = "Gitflow - %s: The actions after the main build failed - %s%n";
+    private static final String MSG_PATTERN_INTERRUPTED = "Gitflow - %s: The actions after the main build have been interrupted%n";
+    private static final String MSG_PATTERN_CANCELLED = "Gitflow - %s: Cancelled the actions after the main build, because the build has been aborted%n";
+
+    private static final ExecutorService EXECUTOR_SERVICE = Executors.newCachedThreadPool(new NamingThreadFactory(new DaemonThreadFactory(),
+                                                                                                                 "Gitflow post-build stage"));
+
+    private static final ConcurrentMap<String, PendingStage> PENDING_STAGES = new ConcurrentHashMap<String, PendingStage>();
+
+    private GitflowPostBuildStage() {
+        // Utility class.
+    }
+
+    /**
+     * Runs the <i>Gitflow</i> actions after the main build of the given build. They are started asynchronously when
+     * requested, the job has publishers that can run concurrently and the actions can be prepared not to write to the
+     * working tree - otherwise the actions are executed synchronously.
+     *
+     * @param build the build in progress.
+     * @param gitflowAction the <i>Gitflow</i> action of the build.
+     * @param async {@code true} if the actions should be executed asynchronously.
+     * @param consoleLogger the logger to print messages to.
+     * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public static void afterMainBuild(final AbstractBuild<?, ?> build, final AbstractGitflowAction<?, ?> gitflowAction, final boolean async,
+                                      final PrintStream consoleLogger) throws IOException, InterruptedException {
+        if (async && hasIndependentPublisher(build.getProject()) && gitflowAction.prepareConcurrentAfterMainBuild()) {
+            start(build, gitflowAction, consoleLogger);
+        } else {
+            gitflowAction.afterMainBuild();
+        }
+    }
+
+    /**
+     * Starts the <i>Gitflow</i> actions after the main build of the given build asynchronously. The result of the main
+     * build is recorded before, so the actions don't see results that are set by concurrent publishers.
+     *
+     * @param build the build in progress.
+     * @param gitflowAction the <i>Gitflow</i> action of the build.
+     * @param consoleLogger the logger to print messages to.
+     */
+    static void start(final AbstractBuild<?, ?> build, final AbstractGitflowAction<?, ?> gitflowAction, final PrintStream consoleLogger) {
+        gitflowAction.recordMainBuildResult();
+        start(build.getExternalizableId(), gitflowAction.getActionName(), new Callable<Void>() {
+
+            /** {@inheritDoc} */
+            public Void call() throws Exception {
+                gitflowAction.afterMainBuild();
+                return null;
+            }
+        }, consoleLogger);
+    }
+
+    static void start(final String buildId, final String actionName, final Callable<Void> stage, final PrintStream consoleLogger) {
+        consoleLogger.printf(MSG_PATTERN_STARTED, actionName);
+        PENDING_STAGES.put(buildId, new PendingStage(actionName, EXECUTOR_SERVICE.submit(stage)));
+    }
+
+    /**
+     * Checks if the given build step can run concurrently with the <i>Gitflow</i> actions after the main build.
+     * <p>
+     * That's the case for recorders that don't need to run after the build result has been finalised: they record
+     * outputs of the main build (like archives and test reports). Notifiers tell the outside world about the build (e.g.
+     * by sending mails or triggering downstream builds), so they depend on the final result and on the pushed commits.
+     *
+     * @param buildStep the build step to be checked.
+     * @return {@code true} if the build step doesn't depend on the <i>Gitflow</i> actions after the main build.
+     */
+    public static boolean isIndependent(final BuildStep buildStep) {
+        return buildStep instanceof Recorder && !((Recorder) buildStep).needsToRunAfterFinalized();
+    }
+
+    private static boolean hasIndependentPublisher(final AbstractProject<?, ?> job) {
+        for (final Publisher publisher : job.getPublishersList()) {
+            if (isIndependent(publisher)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the given build step is the last publisher of the given job that runs before the build result is
+     * finalised. The <i>Gitflow</i> actions after the main build must be joined after it, because the result can't be
+     * changed and the next build of the job may start afterwards.
+     *
+     * @param job the job of the build in progress.
+     * @param buildStep the build step to be checked.
+     * @return {@code true} if the build step is the last publisher that runs before the build result is finalised.
+     */
+    public static boolean isLastPublisherBeforeFinalization(final AbstractProject<?, ?> job, final BuildStep buildStep) {
+        Publisher lastPublisher = null;
+        for (final Publisher publisher : job.getPublishersList()) {
+            if (!publisher.needsToRunAfterFinalized()) {
+                lastPublisher = publisher;
+            }
+        }
+        return lastPublisher != null && lastPublisher == buildStep;
+    }
+
+    /**
+     * Waits until the <i>Gitflow</i> actions after the main build of the given build have been completed - if they have
+     * been started asynchronously and not been joined yet - and applies their result to the build. When the build has been
+     * aborted, the actions are cancelled instead.
+     *
+     * @param build the build in progress.
+     * @param consoleLogger the logger to print messages to.
+     */
+    public static void join(final AbstractBuild<?, ?> build, final PrintStream consoleLogger) {
+        final Result result = join(build.getExternalizableId(), build.getResult() == Result.ABORTED, consoleLogger);
+        if (result != null) {
+            build.setResult(result);
+        }
+    }
+
+    /**
+     * Waits for the stage of the given build and returns the result to be set for the build.
+     *
+     * @return the result to be set for the build or {@code null} if the stage doesn't affect the result.
+     */
+    static Result join(final String buildId, final PrintStream consoleLogger) {
+        return join(buildId, false, consoleLogger);
+    }
+
+    /**
+     * Waits for the stage of the given build - or cancels it if it's still running and the build has been aborted - and
+     * returns the result to be set for the build.
+     *
+     * @return the result to be set for the build or {@code null} if the stage doesn't affect the result.
+     */
+    static Result join(final String buildId, final boolean aborted, final PrintStream consoleLogger) {
+        final PendingStage pendingStage = PENDING_STAGES.remove(buildId);
+        if (pendingStage == null) {
+            return null;
+        }
+
+        if (aborted && pendingStage.future.cancel(true)) {
+            consoleLogger.printf(MSG_PATTERN_CANCELLED, pendingStage.actionName);
+            return Result.ABORTED;
+        }
+
+        if (!pendingStage.future.isDone()) {
+            consoleLogger.printf(MSG_PATTERN_WAITING, pendingStage.actionName);
+        }
+        try {
+            pendingStage.future.get();
+            return null;
+        } catch (final InterruptedException ie) {
+            pendingStage.future.cancel(true);
+            consoleLogger.printf(MSG_PATTERN_INTERRUPTED, pendingStage.actionName);
+            Thread.currentThread().interrupt();
+            return Result.ABORTED;
+        } catch (final ExecutionException ee) {
+            final Throwable cause = ee.getCause();
+            if (cause instanceof InterruptedException) {
+                consoleLogger.printf(MSG_PATTERN_INTERRUPTED, pendingStage.actionName);
+                return Result.ABORTED;
+            }
+            consoleLogger.printf(MSG_PATTERN_FAILED, pendingStage.actionName, cause.getMessage());
+            cause.printStackTrace(consoleLogger);
+            return Result.FAILURE;
+        }
+    }
+
+    private static final class PendingStage {
+
+        private final String actionName;
+        private final Future<Void> future;
+
+        private PendingStage(final String actionName, final Future<Void> future) {
+            this.actionName = actionName;
+            this.future = future;
+        }
+    }
+}
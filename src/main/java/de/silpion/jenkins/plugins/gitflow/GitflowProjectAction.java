@@ -1,6 +1,8 @@
 package de.silpion.jenkins.plugins.gitflow;
 
 import com.google.common.annotations.VisibleForTesting;
+import de.silpion.jenkins.plugins.gitflow.action.WorkspaceLessFinishTask;
+import de.silpion.jenkins.plugins.gitflow.action.WorkspaceLessFinisher;
 import de.silpion.jenkins.plugins.gitflow.cause.AbstractGitflowCause;
 import de.silpion.jenkins.plugins.gitflow.cause.HotfixBranchCauseGroup;
 import de.silpion.jenkins.plugins.gitflow.cause.ReleaseBranchCauseGroup;
@@ -8,15 +10,23 @@ import de.silpion.jenkins.plugins.gitflow.cause.StartHotfixCause;
 import de.silpion.jenkins.plugins.gitflow.cause.StartReleaseCause;
 import de.silpion.jenkins.plugins.gitflow.cause.TestHotfixCause;
 import de.silpion.jenkins.plugins.gitflow.cause.TestReleaseCause;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowJobState;
 import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
 import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
-import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.GitClientProxy;
+import de.silpion.jenkins.plugins.gitflow.plan.GitflowPlan;
+import de.silpion.jenkins.plugins.gitflow.plan.GitflowPlanFactory;
+import de.silpion.jenkins.plugins.gitflow.proxy.git.GitSCMProxy;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteHeadsCache;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteRefSnapshot;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
+import hudson.model.CauseAction;
 import hudson.model.PermalinkProjectAction;
-import hudson.model.StreamBuildListener;
-import hudson.util.NullStream;
+import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
+import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -40,6 +50,7 @@ public class GitflowProjectAction implements PermalinkProjectAction {
     @VisibleForTesting static final String KEY_ACTION = "action";
     @VisibleForTesting static final String KEY_VALUE = "value";
     @VisibleForTesting static final String KEY_DRY_RUN = "dryRun";
+    @VisibleForTesting static final String KEY_PLAN_ONLY = "planOnly";
 
     @VisibleForTesting static final String KEY_PREFIX_START_RELEASE = "startRelease";
     @VisibleForTesting static final String KEY_PREFIX_TEST_RELEASE = "testRelease";
@@ -82,51 +93,78 @@ public class GitflowProjectAction implements PermalinkProjectAction {
     private final AbstractProject<?, ?> job;
 
     private StartReleaseCause startReleaseCause;
-    private Map<String, ReleaseBranchCauseGroup> releaseBranchCauseGroupsByVersion = new TreeMap<String, ReleaseBranchCauseGroup>(VERSION_NUMBER_COMPARATOR);
+    private Map<String, ReleaseBranchCauseGroup> releaseBranchCauseGroupsByVersion;
 
     private StartHotfixCause startHotfixCause;
-    private Map<String, HotfixBranchCauseGroup> hotfixBranchCauseGroupsByVersion = new TreeMap<String, HotfixBranchCauseGroup>(VERSION_NUMBER_COMPARATOR);
+    private Map<String, HotfixBranchCauseGroup> hotfixBranchCauseGroupsByVersion;
+
+    private Integer causesBuildNumber;
+    private RemoteRefSnapshot causesRemoteRefSnapshot;
+    private long causesJobStateVersion;
 
     /**
      * Initialises a new {@link GitflowProjectAction}.
+     * <p>
+     * The Gitflow causes are not created here, because this constructor is called whenever Jenkins (re)creates the transient
+     * actions of the job. They are created lazily - when the Gitflow page is rendered or the Gitflow form is submitted.
+     * The existence of the remote branches is checked against the snapshot that is refreshed by the {@link GitflowBranchStateRefresher}.
      *
      * @param job the job/project that the Gitflow actions can be applied to.
      */
     public GitflowProjectAction(final AbstractProject<?, ?> job) {
         this.job = job;
+    }
+
+    /**
+     * Creates the Gitflow causes from the recorded remote branch information, unless they have already been created
+     * for the current last build of the job, the current version of the recorded job state (which is also changed by
+     * workspace-less <i>Finish</i> actions) and the current snapshot of the remote branch heads.
+     */
+    private synchronized void loadCauses() {
+        final AbstractBuild<?, ?> jobLastBuild = this.job.getLastBuild();
+        final Integer lastBuildNumber = jobLastBuild == null ? null : jobLastBuild.getNumber();
+        final String remoteUrl = GitSCMProxy.getConfiguredRemoteUrl(this.job);
+        final RemoteRefSnapshot remoteRefSnapshot = remoteUrl == null ? null : RemoteHeadsCache.peek(remoteUrl);
+        final long jobStateVersion = GitflowJobState.getVersion();
+        if (this.releaseBranchCauseGroupsByVersion != null && ObjectUtils.equals(this.causesBuildNumber, lastBuildNumber)
+            && this.causesJobStateVersion == jobStateVersion && this.causesRemoteRefSnapshot == remoteRefSnapshot) {
+            return;
+        }
 
-        // Try to get the action object that holds the data for the Gitflow plugin and extract the recorded remote branch information.
-        for (AbstractBuild<?, ?> lastBuild = job.getLastBuild(); lastBuild != null; lastBuild = lastBuild.getPreviousBuild()) {
-            final GitflowPluginData gitflowPluginData = lastBuild.getAction(GitflowPluginData.class);
-            if (gitflowPluginData != null) {
-
-                // The action form should only offer actions on the recorded remote branches that still exist.
-                // NOTE that proper error handling for Git client problems is not possible here. That's why the methods
-                // 'createGitClient' and 'isExistingBlessedRemoteBranch' swallow exceptions instead of handling them in any way.
-                final GitClientProxy git = createGitClient(job);
-                for (final RemoteBranch remoteBranch : gitflowPluginData.getRemoteBranches()) {
-                    final String branchName = remoteBranch.getBranchName();
-                    if (git == null || isExistingBlessedRemoteBranch(git, branchName)) {
-
-                        final String branchType = GitflowBuildWrapper.getGitflowBuildWrapperDescriptor().getBranchType(branchName);
-                        if ("develop".equals(branchType)) {
-                            this.startReleaseCause = new StartReleaseCause(remoteBranch);
-                        } else if ("release".equals(branchType)) {
-                            final ReleaseBranchCauseGroup releaseBranchCauseGroup = new ReleaseBranchCauseGroup(remoteBranch);
-                            this.releaseBranchCauseGroupsByVersion.put(releaseBranchCauseGroup.getReleaseVersion(), releaseBranchCauseGroup);
-                        } else if ("master".equals(branchType) && remoteBranch.getBaseReleaseVersion() != null) {
-                            // When the master branch has a snapshot version, we assume an initial commit and not a published release.
-                            if (!StringUtils.endsWith(remoteBranch.getLastBuildVersion(), "-SNAPSHOT")) {
-                                this.startHotfixCause = new StartHotfixCause(remoteBranch);
-                            }
-                        } else if ("hotfix".equals(branchType)) {
-                            final HotfixBranchCauseGroup hotfixBranchCauseGroup = new HotfixBranchCauseGroup(remoteBranch);
-                            this.hotfixBranchCauseGroupsByVersion.put(hotfixBranchCauseGroup.getHotfixVersion(), hotfixBranchCauseGroup);
+        this.causesBuildNumber = lastBuildNumber;
+        this.causesJobStateVersion = jobStateVersion;
+        this.causesRemoteRefSnapshot = remoteRefSnapshot;
+        this.startReleaseCause = null;
+        this.releaseBranchCauseGroupsByVersion = new TreeMap<String, ReleaseBranchCauseGroup>(VERSION_NUMBER_COMPARATOR);
+        this.startHotfixCause = null;
+        this.hotfixBranchCauseGroupsByVersion = new TreeMap<String, HotfixBranchCauseGroup>(VERSION_NUMBER_COMPARATOR);
+
+        // Get the latest recorded data for the Gitflow plugin and extract the recorded remote branch information.
+        final GitflowPluginData gitflowPluginData = GitflowJobState.loadLatest(this.job);
+        if (gitflowPluginData != null) {
+
+            // The action form should only offer actions on the recorded remote branches that still exist.
+            // When the remote branch heads haven't been refreshed yet, all recorded remote branches are offered.
+            for (final RemoteBranch remoteBranch : gitflowPluginData.getRemoteBranches()) {
+                final String branchName = remoteBranch.getBranchName();
+                if (remoteRefSnapshot == null || !remoteRefSnapshot.covers(branchName) || remoteRefSnapshot.getHeadRev(branchName) != null) {
+
+                    final String branchType = GitflowBuildWrapper.getGitflowBuildWrapperDescriptor().getBranchType(branchName);
+                    if ("develop".equals(branchType)) {
+                        this.startReleaseCause = new StartReleaseCause(remoteBranch);
+                    } else if ("release".equals(branchType)) {
+                        final ReleaseBranchCauseGroup releaseBranchCauseGroup = new ReleaseBranchCauseGroup(remoteBranch);
+                        this.releaseBranchCauseGroupsByVersion.put(releaseBranchCauseGroup.getReleaseVersion(), releaseBranchCauseGroup);
+                    } else if ("master".equals(branchType) && remoteBranch.getBaseReleaseVersion() != null) {
+                        // When the master branch has a snapshot version, we assume an initial commit and not a published release.
+                        if (!StringUtils.endsWith(remoteBranch.getLastBuildVersion(), "-SNAPSHOT")) {
+                            this.startHotfixCause = new StartHotfixCause(remoteBranch);
                         }
+                    } else if ("hotfix".equals(branchType)) {
+                        final HotfixBranchCauseGroup hotfixBranchCauseGroup = new HotfixBranchCauseGroup(remoteBranch);
+                        this.hotfixBranchCauseGroupsByVersion.put(hotfixBranchCauseGroup.getHotfixVersion(), hotfixBranchCauseGroup);
                     }
                 }
-
-                break;
             }
         }
 
@@ -139,32 +177,6 @@ public class GitflowProjectAction implements PermalinkProjectAction {
         }
     }
 
-    private static GitClientProxy createGitClient(final AbstractProject<?, ?> job) {
-        GitClientProxy gitClientProxy = null;
-
-        final AbstractBuild<?, ?> lastBuild = job.getLastBuild();
-        if (lastBuild != null) {
-            try {
-                gitClientProxy = new GitClientProxy(lastBuild, new StreamBuildListener(new NullStream()), false);
-            } catch (final Exception ignored) {
-                // NOTE that proper error handling for Git client problems is not possible here.
-                // That's why exceptions are swallowed instead of being handled in any way.
-            }
-        }
-
-        return gitClientProxy;
-    }
-
-    private static boolean isExistingBlessedRemoteBranch(final GitClientProxy git, final String branchName) {
-        try {
-            return git.getHeadRev(branchName) != null;
-        } catch (final Exception ignored) {
-            // NOTE that proper error handling for Git client problems is not possible here.
-            // That's why exceptions are swallowed instead of being handled in any way.
-            return true;
-        }
-    }
-
     public List<Permalink> getPermalinks() {
         return Collections.emptyList();
     }
@@ -186,9 +198,11 @@ public class GitflowProjectAction implements PermalinkProjectAction {
     }
 
     @SuppressWarnings("UnusedDeclaration")
+    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
     public void doSubmit(final StaplerRequest request, final StaplerResponse response) throws IOException, ServletException {
 
         // Identify the cause object for the selected action and overwrite the fields that can be changed by the user.
+        this.loadCauses();
         final JSONObject submittedForm = request.getSubmittedForm();
         final JSONObject submittedAction = submittedForm.getJSONObject(KEY_ACTION);
         final String action = submittedAction.getString(KEY_VALUE);
@@ -234,30 +248,72 @@ public class GitflowProjectAction implements PermalinkProjectAction {
         }
         gitflowCause.setDryRun(submittedForm.getBoolean(KEY_DRY_RUN));
 
-        // Start a build.
-        this.job.scheduleBuild(0, gitflowCause);
+        // Show the plan of the action instead of executing it - it's derived from the recorded data only.
+        if (submittedForm.optBoolean(KEY_PLAN_ONLY)) {
+            request.setAttribute("plan", this.createPlan(gitflowCause));
+            request.getView(this, "plan.jelly").forward(request, response);
+            return;
+        }
+
+        // Start a build - or queue a task that deletes the branch for Finish actions that are executed without a build.
+        // Builds that omit the main build may run on a flyweight executor.
+        if (WorkspaceLessFinisher.isApplicable(gitflowCause)) {
+            Jenkins.getInstance().getQueue().schedule2(new WorkspaceLessFinishTask(this.job, gitflowCause, Jenkins.getAuthentication().getName()), 0);
+        } else if (GitflowFlyweightTask.isApplicable(gitflowCause, this.job)) {
+            Jenkins.getInstance().getQueue().schedule2(new GitflowFlyweightTask(this.job), 0, new CauseAction(gitflowCause));
+        } else {
+            this.job.scheduleBuild(0, gitflowCause);
+        }
 
         // Return to the main page of the job.
         response.sendRedirect(request.getContextPath() + '/' + this.job.getUrl());
     }
 
+    /**
+     * Creates the plan for the Gitflow action of the given cause, based on the latest recorded Gitflow plugin data of the job
+     * and the snapshot of the remote branch heads that the offered actions are based on.
+     *
+     * @param gitflowCause the <i>Gitflow</i> cause for the action to be planned.
+     * @return the plan for the Gitflow action.
+     * @throws IOException if there is no Gitflow action for the given cause.
+     */
+    @VisibleForTesting
+    GitflowPlan createPlan(final AbstractGitflowCause gitflowCause) throws IOException {
+        return GitflowPlanFactory.newInstance(this.job, gitflowCause, GitflowJobState.loadLatest(this.job), this.causesRemoteRefSnapshot);
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     public StartReleaseCause getStartReleaseCause() {
+        this.loadCauses();
         return this.startReleaseCause;
     }
 
     @SuppressWarnings("UnusedDeclaration")
     public Collection<ReleaseBranchCauseGroup> getReleaseBranchCauseGroups() {
+        this.loadCauses();
         return this.releaseBranchCauseGroupsByVersion.values();
     }
 
     @SuppressWarnings("UnusedDeclaration")
     public StartHotfixCause getStartHotfixCause() {
+        this.loadCauses();
         return this.startHotfixCause;
     }
 
     @SuppressWarnings("UnusedDeclaration")
     public Collection<HotfixBranchCauseGroup> getHotfixBranchCauseGroups() {
+        this.loadCauses();
         return this.hotfixBranchCauseGroupsByVersion.values();
     }
+
+    /**
+     * Returns the age of the remote branch heads snapshot that the offered Gitflow actions are based on.
+     *
+     * @return the age of the remote branch heads snapshot as human readable time span or {@code null} if there is no snapshot yet.
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    public String getBranchStateAge() {
+        this.loadCauses();
+        return this.causesRemoteRefSnapshot == null ? null : Util.getTimeSpanString(this.causesRemoteRefSnapshot.getAge());
+    }
 }
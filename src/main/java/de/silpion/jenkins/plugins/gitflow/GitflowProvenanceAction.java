@@ -0,0 +1,107 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import hudson.model.Action;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * Records the provenance of the archives of a release build: the commit they have been built from, the normalised hash of
+ * its source tree and the release build that verified (tested) these sources. When the sources have already been verified
+ * by a previous release build, the verification is skipped and the verifying build differs from the build itself.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitflowProvenanceAction implements Action, RunAction2 {
+
+    private transient Run<?, ?> run;
+
+    private final String branch;
+    private final String version;
+    private final String builtCommit;
+    private final String treeHash;
+    private final int verifiedBuildNumber;
+
+    /**
+     * Creates a new provenance record.
+     *
+     * @param branch the simple name of the release branch.
+     * @param version the release version.
+     * @param builtCommit the commit the archives have been built from.
+     * @param treeHash the normalised hash of the source tree.
+     * @param verifiedBuildNumber the number of the release build that verified the sources.
+     */
+    public GitflowProvenanceAction(final String branch, final String version, final String builtCommit, final String treeHash, final int verifiedBuildNumber) {
+        this.branch = branch;
+        this.version = version;
+        this.builtCommit = builtCommit;
+        this.treeHash = treeHash;
+        this.verifiedBuildNumber = verifiedBuildNumber;
+    }
+
+    /** {@inheritDoc} */
+    public String getDisplayName() {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    public String getIconFileName() {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    public String getUrlName() {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    public void onAttached(final Run<?, ?> run) {
+        this.run = run;
+    }
+
+    /** {@inheritDoc} */
+    public void onLoad(final Run<?, ?> run) {
+        this.run = run;
+    }
+
+    /**
+     * Tells if the verification of the sources has been skipped, because they have been verified by a previous release build.
+     *
+     * @return {@code true} if the verification of a previous release build has been reused.
+     */
+    public boolean isVerificationReused() {
+        return this.run != null && this.run.getNumber() != this.verifiedBuildNumber;
+    }
+
+    public Run<?, ?> getRun() {
+        return this.run;
+    }
+
+    /**
+     * Returns the release build that verified the sources of the archives.
+     *
+     * @return the verifying build or {@code null} if it has been deleted.
+     */
+    public Run<?, ?> getVerifiedBuild() {
+        return this.run == null ? null : this.run.getParent().getBuildByNumber(this.verifiedBuildNumber);
+    }
+
+    public String getBranch() {
+        return this.branch;
+    }
+
+    public String getVersion() {
+        return this.version;
+    }
+
+    public String getBuiltCommit() {
+        return this.builtCommit;
+    }
+
+    public String getTreeHash() {
+        return this.treeHash;
+    }
+
+    public int getVerifiedBuildNumber() {
+        return this.verifiedBuildNumber;
+    }
+}
@@ -0,0 +1,132 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import de.silpion.jenkins.plugins.gitflow.data.GitflowCommitLedger;
+import de.silpion.jenkins.plugins.gitflow.proxy.git.GitSCMProxy;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteHeadsCache;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteRefSnapshot;
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Cause;
+import hudson.model.CauseAction;
+import hudson.model.Queue;
+import hudson.plugins.git.BranchSpec;
+import hudson.plugins.git.GitSCM;
+import hudson.plugins.git.util.BuildData;
+import hudson.triggers.SCMTrigger;
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
+
+/**
+ * Vetoes the builds that SCM polling schedules for a <i>Gitflow</i> job when the only unbuilt branch heads are version
+ * updates pushed by <i>Gitflow</i> actions of the job (see {@link GitflowCommitLedger}). The build is never scheduled
+ * then, so neither an executor nor a checkout is wasted on it.
+ * <p>
+ * The decision is made while the queue is locked, so the remote heads aren't listed here: the cached snapshot (see
+ * {@link RemoteHeadsCache}) is used, and only if it's still valid and covers all branches the job builds. Otherwise
+ * the build is scheduled. A snapshot that misses a newer head only defers the build to the next poll, because the
+ * unbuilt head is detected again then. Builds that are started by other triggers are never vetoed.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+@Extension
+public class GitflowQueueDecisionHandler extends Queue.QueueDecisionHandler {
+
+    private static final Logger LOGGER = Logger.getLogger(GitflowQueueDecisionHandler.class.getName());
+
+    private static final String HEADS_PREFIX = "refs/heads/";
+    private static final String REMOTE_PREFIX = "origin/";
+    private static final String ANY_REMOTE_PREFIX = "*/";
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean shouldSchedule(final Queue.Task task, final List<Action> actions) {
+        if (task instanceof AbstractProject && isTriggeredByPollingOnly(actions)) {
+            final AbstractProject<?, ?> job = (AbstractProject<?, ?>) task;
+            if (GitflowBuildWrapper.isGitflowJob(job) && getGitflowBuildWrapperDescriptor().isSkipPluginCommits() && hasOnlyUnbuiltVersionUpdates(job)) {
+                LOGGER.log(Level.FINE, "Gitflow - Not scheduling {0}: the unbuilt branch heads only contain version updates.", job.getFullName());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isTriggeredByPollingOnly(final List<Action> actions) {
+        boolean triggeredByPolling = false;
+        for (final Action action : actions) {
+            if (action instanceof CauseAction) {
+                for (final Cause cause : ((CauseAction) action).getCauses()) {
+                    if (!(cause instanceof SCMTrigger.SCMTriggerCause)) {
+                        return false;
+                    }
+                    triggeredByPolling = true;
+                }
+            }
+        }
+        return triggeredByPolling;
+    }
+
+    /**
+     * Checks if all heads of the branches built by the given job that haven't been built yet are version updates recorded
+     * in the ledger of the job.
+     *
+     * @param job the job to be checked.
+     * @return {@code true} if there's at least one unbuilt head and all unbuilt heads are version updates.
+     */
+    static boolean hasOnlyUnbuiltVersionUpdates(final AbstractProject<?, ?> job) {
+        final String remoteUrl = GitSCMProxy.getConfiguredRemoteUrl(job);
+        final RemoteRefSnapshot remoteRefSnapshot = remoteUrl == null ? null : RemoteHeadsCache.peek(remoteUrl);
+        final AbstractBuild<?, ?> lastBuild = job.getLastBuild();
+        final BuildData buildData = lastBuild == null ? null : lastBuild.getAction(BuildData.class);
+        if (remoteRefSnapshot == null || !RemoteHeadsCache.isValid(remoteUrl) || buildData == null) {
+            return false;
+        }
+
+        final List<BranchSpec> branchSpecs = ((GitSCM) job.getScm()).getBranches();
+        for (final BranchSpec branchSpec : branchSpecs) {
+            if (!isCovered(remoteRefSnapshot, branchSpec)) {
+                return false;
+            }
+        }
+
+        boolean unbuiltVersionUpdates = false;
+        for (final String branch : remoteRefSnapshot.getBranchNames()) {
+            final ObjectId headRev = remoteRefSnapshot.getHeadRev(branch);
+            if (headRev == null || buildData.hasBeenBuilt(headRev) || !matches(branchSpecs, branch)) {
+                continue;
+            }
+
+            final GitflowCommitLedger.Entry ledgerEntry = GitflowCommitLedger.get(job, headRev.getName());
+            if (ledgerEntry == null || !ledgerEntry.isVersionUpdate()) {
+                return false;
+            }
+            unbuiltVersionUpdates = true;
+        }
+        return unbuiltVersionUpdates;
+    }
+
+    private static boolean matches(final List<BranchSpec> branchSpecs, final String branch) {
+        for (final BranchSpec branchSpec : branchSpecs) {
+            if (branchSpec.matches(REMOTE_PREFIX + branch)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Only the fixed part of the branch name pattern (before the first wildcard or variable) can be checked against the snapshot.
+    private static boolean isCovered(final RemoteRefSnapshot remoteRefSnapshot, final BranchSpec branchSpec) {
+        String branchPattern = StringUtils.removeStart(branchSpec.getName(), HEADS_PREFIX);
+        branchPattern = StringUtils.removeStart(branchPattern, ANY_REMOTE_PREFIX);
+        branchPattern = StringUtils.removeStart(branchPattern, REMOTE_PREFIX);
+        final int wildcardIndex = StringUtils.indexOfAny(branchPattern, "*?$:");
+        return remoteRefSnapshot.covers(wildcardIndex < 0 ? branchPattern : branchPattern.substring(0, wildcardIndex));
+    }
+}
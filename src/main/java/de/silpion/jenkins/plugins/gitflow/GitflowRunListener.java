@@ -0,0 +1,56 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import de.silpion.jenkins.plugins.gitflow.data.GitflowJobState;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records the Gitflow plugin data of completed builds as the latest state of their jobs (see {@link GitflowJobState})
+ * and releases the branch locks of the builds afterwards (see {@link GitflowBranchLocks}). Asynchronous Gitflow actions
+ * after the main build that haven't been joined by the publishers (e.g. because the build has been interrupted) are
+ * joined before (see {@link GitflowPostBuildStage}).
+ * <p>
+ * Before a checkpoint build of the Gitflow plugin data is deleted, the deltas against it are rewritten (see {@link GitflowHistoryCompactor}).
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+@Extension
+public class GitflowRunListener extends RunListener<AbstractBuild<?, ?>> {
+
+    private static final Logger LOGGER = Logger.getLogger(GitflowRunListener.class.getName());
+
+    /** {@inheritDoc} */
+    @Override
+    public void onCompleted(final AbstractBuild<?, ?> build, final TaskListener listener) {
+        try {
+            GitflowPostBuildStage.join(build, listener.getLogger());
+
+            final GitflowPluginData gitflowPluginData = build.getAction(GitflowPluginData.class);
+            if (gitflowPluginData != null) {
+                GitflowJobState.save(build, gitflowPluginData);
+            }
+        } finally {
+            GitflowBranchLocks.release(build.getExternalizableId());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onDeleted(final AbstractBuild<?, ?> build) {
+        final GitflowPluginData gitflowPluginData = build.getAction(GitflowPluginData.class);
+        if (gitflowPluginData != null && Integer.valueOf(build.getNumber()).equals(gitflowPluginData.getCheckpointBuildNumber())) {
+            try {
+                GitflowHistoryCompactor.rewriteDeltasOf(build);
+            } catch (final IOException ioe) {
+                LOGGER.log(Level.WARNING, "Gitflow - Rewriting the deltas of checkpoint build " + build + " failed.", ioe);
+            }
+        }
+    }
+}
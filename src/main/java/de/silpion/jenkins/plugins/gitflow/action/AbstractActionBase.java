@@ -46,16 +46,26 @@ public abstract class AbstractActionBase<B extends AbstractBuild<?, ?>> {
         return new Formatter().format(messageFormat, messageArguments).toString();
     }
 
+    /**
+     * Returns the result of the build that is in progress.
+     *
+     * @return the result of the build that is in progress - may be {@code null}.
+     * @see hudson.model.Run#getResult()
+     */
+    protected Result getBuildResult() {
+        return this.build.getResult();
+    }
+
     /**
      * Returns the result of the build that is in progress. When an error occurs in an early state
      * of the build, {@link hudson.model.Run#getResult()} may return {@code null}. In those cases,
      * <b>this</b> method will return {@link Result#FAILURE}.
      *
      * @return the result of the build that is in progress
-     * @see hudson.model.Run#getResult()
+     * @see #getBuildResult()
      */
     protected Result getBuildResultNonNull() {
-        final Result result = this.build.getResult();
+        final Result result = this.getBuildResult();
         if (result == null) {
             return Result.FAILURE;
         } else {
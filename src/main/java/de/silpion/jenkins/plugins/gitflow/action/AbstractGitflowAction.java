@@ -3,27 +3,43 @@ package de.silpion.jenkins.plugins.gitflow.action;
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import de.silpion.jenkins.plugins.gitflow.GitflowBadgeAction;
+import de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper;
+import de.silpion.jenkins.plugins.gitflow.GitflowProvenanceAction;
 import de.silpion.jenkins.plugins.gitflow.action.buildtype.AbstractBuildTypeAction;
 import de.silpion.jenkins.plugins.gitflow.action.buildtype.BuildTypeActionFactory;
 import de.silpion.jenkins.plugins.gitflow.cause.AbstractGitflowCause;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowCommitLedger;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowJobState;
 import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
 import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.FileContentRewriter;
 import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.GitClientProxy;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteRefSnapshot;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.UnsupportedMergeException;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
 import hudson.model.Result;
 import hudson.plugins.git.Branch;
+import hudson.plugins.git.Revision;
+import hudson.plugins.git.util.Build;
+import hudson.plugins.git.util.BuildData;
 import org.apache.commons.collections.MapUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
+import static de.silpion.jenkins.plugins.gitflow.proxy.gitclient.merge.GenericMergeCommand.StrategyOption.THEIRS;
+import static org.eclipse.jgit.api.MergeCommand.FastForwardMode.NO_FF;
+import static org.jenkinsci.plugins.gitclient.MergeCommand.Strategy.RECURSIVE;
 
 /**
  * Abstract base class for the different Gitflow actions to be executed - before and after the main build.
@@ -35,7 +51,11 @@ import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowB
 public abstract class AbstractGitflowAction<B extends AbstractBuild<?, ?>, C extends AbstractGitflowCause> extends AbstractActionBase<B> {
 
     private static final String MSG_PATTERN_CLEANED_UP_WORKING_DIRECTORY = "Gitflow - %s: Cleaned up working/checkout directory%n";
+    private static final String MSG_PATTERN_CLEANED_UP_WORKING_DIRECTORY_KEEPING_CACHES = "Gitflow - %s: Cleaned up working/checkout directory, kept cache directories %s%n";
     private static final String MSG_PATTERN_DELETED_BRANCH = "Gitflow - %s: Deleted branch %s%n";
+    private static final String MSG_PATTERN_MERGE_IN_WORKING_TREE = "Gitflow - %s: Cannot merge in memory (%s) - merging in the working tree with the command line Git client and the strategy option 'theirs'%n";
+    private static final String MSG_PATTERN_MERGE_NOT_SUPPORTED = "Cannot merge in memory (%s), and the configured Git client doesn't support the strategy option 'theirs' for a merge in the working tree - use the command line Git client or merge %s into %s manually";
+    private static final String MSG_PATTERN_REUSING_VERIFIED_BUILD = "Gitflow - %s: Sources are unchanged since the release build #%d (normalised tree %s) - skipping the verification%n";
     private static final String MSG_PATTERN_RESULT_TO_UNSTABLE = "Gitflow - %s: Changing result of successful build to unstable, because there are unstable branches: %s%n";
 
     private static final Function<Branch, String> BRANCH_TO_NAME_FUNCTION = new Function<Branch, String>() {
@@ -55,6 +75,14 @@ public abstract class AbstractGitflowAction<B extends AbstractBuild<?, ?>, C ext
 
     protected Map<String, String> additionalBuildEnvVars = new HashMap<String, String>();
 
+    private boolean mainBuildResultRecorded;
+    private Result mainBuildResult;
+
+    private boolean headDetached;
+
+    private ObjectId verifiedTreeHash;
+    private int verifiedBuildNumber;
+
     /**
      * Initialises a new Gitflow action.
      *
@@ -79,46 +107,61 @@ public abstract class AbstractGitflowAction<B extends AbstractBuild<?, ?>, C ext
         this.gitflowPluginData = build.getAction(GitflowPluginData.class);
         if (this.gitflowPluginData == null) {
 
-            // Try to find the action object in one of the previous builds and clone it to a new one.
-            for (AbstractBuild<?, ?> previousBuild = build.getPreviousBuild(); previousBuild != null; previousBuild = previousBuild.getPreviousBuild()) {
-                final GitflowPluginData previousGitflowPluginData = previousBuild.getAction(GitflowPluginData.class);
-                if (previousGitflowPluginData != null) {
-
-                    // Clone the Gitflow plugin data from the previous build.
-                    try {
-                        this.gitflowPluginData = previousGitflowPluginData.clone();
-                    } catch (final CloneNotSupportedException cnse) {
-                        throw new IOException("Cloning of " + previousGitflowPluginData.getClass().getName() + " is not supported but should be.", cnse);
-                    }
-
-                    // Collect remote branches that don't exist anymore.
-                    final List<RemoteBranch> removeRemoteBranches = new LinkedList<RemoteBranch>();
-                    for (final RemoteBranch remoteBranch : this.gitflowPluginData.getRemoteBranches()) {
-                        if (this.git.getHeadRev(remoteBranch.getBranchName()) == null) {
-                            removeRemoteBranches.add(remoteBranch);
-                        }
-                    }
-
-                    // Remove the obsolte remote branches from the Gitflow plugin data.
-                    if (!removeRemoteBranches.isEmpty()) {
-                        this.gitflowPluginData.removeRemoteBranches(removeRemoteBranches, true);
-                    }
-
-                    break;
+            // Load the latest recorded Gitflow plugin data of the job and clone it to a new one.
+            final GitflowPluginData previousGitflowPluginData = GitflowJobState.loadLatest(build.getProject());
+            if (previousGitflowPluginData != null) {
+
+                // Clone the Gitflow plugin data from the previous build.
+                try {
+                    this.gitflowPluginData = previousGitflowPluginData.clone();
+                    this.gitflowPluginData.recordStartState(previousGitflowPluginData);
+                } catch (final CloneNotSupportedException cnse) {
+                    throw new IOException("Cloning of " + previousGitflowPluginData.getClass().getName() + " is not supported but should be.", cnse);
+                }
+
+                // Collect remote branches that don't exist anymore (resolved against one snapshot of the remote heads).
+                List<RemoteBranch> removeRemoteBranches = this.collectMissingRemoteBranches(this.git.getRemoteRefSnapshot());
+                if (!removeRemoteBranches.isEmpty()) {
+
+                    // The cached snapshot might be older than a recently created branch, so the removal must be confirmed by a fresh listing.
+                    removeRemoteBranches = this.collectMissingRemoteBranches(this.git.refreshRemoteRefSnapshot());
+                }
+
+                // Remove the obsolte remote branches from the Gitflow plugin data.
+                if (!removeRemoteBranches.isEmpty()) {
+                    this.gitflowPluginData.removeRemoteBranches(removeRemoteBranches, true);
                 }
             }
 
-            // Create a new action object if none was found in the previous builds.
+            // Create a new action object if no data has been recorded for the job so far.
             if (this.gitflowPluginData == null) {
                 this.gitflowPluginData = new GitflowPluginData();
+                try {
+                    this.gitflowPluginData.recordStartState(null);
+                } catch (final CloneNotSupportedException cnse) {
+                    throw new IOException("Cloning of " + RemoteBranch.class.getName() + " is not supported but should be.", cnse);
+                }
             }
 
+            // The build persists the changes against the last checkpoint build or becomes a new checkpoint.
+            this.gitflowPluginData.trackDeltaAgainst(build.getNumber(), previousGitflowPluginData);
+
             // Add the new action object to the build.
             build.addAction(this.gitflowPluginData);
         }
         this.gitflowPluginData.setDryRun(gitflowCause.isDryRun());
     }
 
+    private List<RemoteBranch> collectMissingRemoteBranches(final RemoteRefSnapshot remoteRefSnapshot) {
+        final List<RemoteBranch> missingRemoteBranches = new LinkedList<RemoteBranch>();
+        for (final RemoteBranch remoteBranch : this.gitflowPluginData.getRemoteBranches()) {
+            if (remoteRefSnapshot.covers(remoteBranch.getBranchName()) && remoteRefSnapshot.getHeadRev(remoteBranch.getBranchName()) == null) {
+                missingRemoteBranches.add(remoteBranch);
+            }
+        }
+        return missingRemoteBranches;
+    }
+
     /**
      * Runs the Gitflow actions that must be executed before the main build.
      *
@@ -164,6 +207,62 @@ public abstract class AbstractGitflowAction<B extends AbstractBuild<?, ?>, C ext
         }
     }
 
+    /**
+     * Prepares the actions after the main build to run concurrently with the publishers of the build. The publishers may read
+     * the working tree (e.g. to record archives and test reports), so the actions must not write to it then. All preparations
+     * that touch the working tree are done here - before the actions are started.
+     * <p>
+     * The default implementation doesn't prepare anything, because most actions don't write to the working tree after the
+     * main build.
+     *
+     * @return {@code true} if the actions can run concurrently or {@code false} if they must be executed synchronously,
+     *         because they need to write to the working tree.
+     * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public boolean prepareConcurrentAfterMainBuild() throws IOException, InterruptedException {
+        return true;
+    }
+
+    /**
+     * Detaches {@code HEAD} from the checked out branch, so that subsequent version updates of the branch are committed in
+     * the Git object database instead of the working tree (see {@link #commitVersionUpdate(String, String, String, String)}).
+     * That's only possible when the build type can rewrite its project files in memory.
+     *
+     * @param version the version the checked out branch will be updated to.
+     * @return {@code true} if {@code HEAD} has been detached or {@code false} if the branch must be updated in the working tree.
+     * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    protected boolean detachHeadForVersionUpdate(final String version) throws IOException, InterruptedException {
+        if (this.buildTypeAction.createVersionRewriter(version) == null) {
+            return false;
+        }
+        this.git.detachHead();
+        this.headDetached = true;
+        return true;
+    }
+
+    /**
+     * Records the current result of the build as the result of the main build. When the actions after the main build are
+     * executed asynchronously, they must not depend on results that are set by the concurrent publishers.
+     */
+    public final void recordMainBuildResult() {
+        this.mainBuildResult = this.build.getResult();
+        this.mainBuildResultRecorded = true;
+    }
+
+    /**
+     * Returns the {@link #recordMainBuildResult() recorded} result of the main build - or the current result of the build
+     * if it hasn't been recorded.
+     *
+     * @return the result of the main build.
+     */
+    @Override
+    protected Result getBuildResult() {
+        return this.mainBuildResultRecorded ? this.mainBuildResult : super.getBuildResult();
+    }
+
     /**
      * Runs the Gitflow actions that must be executed before the main build.
      *
@@ -197,14 +296,243 @@ public abstract class AbstractGitflowAction<B extends AbstractBuild<?, ?>, C ext
         }
     }
 
+    /**
+     * Updates the version numbers in the project files and commits the changes to the given branch.
+     * <p>
+     * When a start point is provided and the build type can rewrite the project files in memory, the commit is created directly
+     * in the Git object database, based on the start point - neither the index nor the working tree are touched then. Otherwise
+     * the branch is checked out (if a start point is provided) and the project files are updated, staged and committed in the
+     * working tree. Updates of the currently checked out branch are committed in the working tree - unless {@code HEAD} has
+     * been detached from it (see {@link #detachHeadForVersionUpdate(String)}), then they are based on {@code HEAD}.
+     * <p>
+     * <b>Please note</b> that this method must not be used when the main build requires the updated files in the working tree.
+     *
+     * @param branch the simple name of the branch to commit the version update to.
+     * @param startPoint the start point for the branch - either a commit ref or a branch, or {@code null} for the currently checked out branch.
+     * @param version the version to be set in the project files.
+     * @param commitMessage the commit message.
+     * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    protected void commitVersionUpdate(final String branch, final String startPoint, final String version, final String commitMessage)
+            throws IOException, InterruptedException {
+
+        // The checked out branch is updated in the working tree - moving it in the object database would leave the working tree behind.
+        final String commitStartPoint = startPoint == null && this.headDetached ? Constants.HEAD : startPoint;
+        final FileContentRewriter versionRewriter = commitStartPoint == null ? null : this.buildTypeAction.createVersionRewriter(version);
+        if (versionRewriter == null) {
+            if (commitStartPoint != null) {
+                this.git.checkoutBranch(branch, commitStartPoint);
+            }
+            this.addFilesToGitStage(this.buildTypeAction.updateVersion(version));
+            this.git.commit(commitMessage);
+        } else {
+            this.git.commitRewrittenFiles(branch, commitStartPoint, versionRewriter, commitMessage);
+        }
+    }
+
+    /**
+     * Updates the version numbers in the project files of the checked out release or hotfix branch to the given release version.
+     * <p>
+     * When the change-aware reactor is enabled and the branch has already been released, only the modules that changed since
+     * the last release (and the modules that depend on them) get the new version and are built in the main build. The other
+     * modules keep their released versions.
+     *
+     * @param branch the simple name of the release or hotfix branch.
+     * @param version the release version.
+     * @return the files that were modified during the update.
+     * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    protected List<String> updateReleaseVersion(final String branch, final String version) throws IOException, InterruptedException {
+        final RemoteBranch remoteBranch = this.gitflowPluginData.getRemoteBranch(branch);
+        if (isChangeAwareRelease(remoteBranch)) {
+            final FileContentRewriter versionNormalizer = this.buildTypeAction.createVersionNormalizer();
+            if (versionNormalizer != null) {
+                final String lastReleaseCommit = remoteBranch.getLastReleaseVersionCommit().getName();
+                final List<String> changedPaths = this.git.getChangedPaths(lastReleaseCommit, Constants.HEAD, versionNormalizer);
+                final Map<String, byte[]> releasedVersionFiles = this.git.readFiles(lastReleaseCommit, versionNormalizer.getFilePaths());
+                return this.buildTypeAction.updateVersionOfChangedModules(version, changedPaths, releasedVersionFiles);
+            }
+        }
+        return this.buildTypeAction.updateVersion(version);
+    }
+
+    /**
+     * Checks if the change-aware reactor applies to a release of the given branch, i.e. if it's enabled and the branch has
+     * already been released. The build type may still fall back to updating all modules when it can't normalise its versions.
+     *
+     * @param remoteBranch the recorded data of the release or hotfix branch - may be {@code null}.
+     * @return {@code true} if only the modules that changed since the last release get the new version.
+     */
+    public static boolean isChangeAwareRelease(final RemoteBranch remoteBranch) {
+        return getGitflowBuildWrapperDescriptor().isChangeAwareReactor() && remoteBranch != null && remoteBranch.getLastReleaseVersionCommit() != null;
+    }
+
+    /**
+     * Merges the given commit into the given branch, preferring the changes of the merged commit on conflicts, and creates a
+     * merge commit (even when a fast forward would be possible).
+     * <p>
+     * The merge is computed in memory and the merge commit is written directly to the Git object database - the branch isn't
+     * checked out. Only if the in-memory merge doesn't support the conflicts (e.g. for histories with multiple merge bases),
+     * the branch is checked out and merged in the working tree. That requires the command line Git client, because the other
+     * clients don't resolve conflicts in favour of the merged commit - the merge fails with a clear message then.
+     *
+     * @param branch the simple name of the branch to merge into.
+     * @param mergedCommit the commit to be merged.
+     * @param commitMessage the message for the merge commit.
+     * @return the merge commit.
+     * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    protected ObjectId mergeIntoBranch(final String branch, final ObjectId mergedCommit, final String commitMessage) throws IOException, InterruptedException {
+        final ObjectId branchRev = this.git.getHeadRev(branch);
+
+        ObjectId mergeCommit;
+        try {
+            mergeCommit = this.git.mergeInCore(branch, branchRev, mergedCommit, commitMessage);
+        } catch (final UnsupportedMergeException ume) {
+            if (!this.git.isMergeStrategyOptionSupported()) {
+                throw new IOException(formatPattern(MSG_PATTERN_MERGE_NOT_SUPPORTED, ume.getMessage(), mergedCommit.getName(), branch), ume);
+            }
+            this.consoleLogger.printf(MSG_PATTERN_MERGE_IN_WORKING_TREE, this.getActionName(), ume.getMessage());
+            this.git.checkoutBranch(branch, branchRev.getName());
+            this.git.merge(mergedCommit, NO_FF, RECURSIVE, THEIRS, false);
+            this.git.commit(commitMessage);
+            mergeCommit = this.git.revParse(Constants.HEAD);
+        }
+
+        return mergeCommit;
+    }
+
+    /**
+     * Computes the normalised tree hash of the checked out release (see {@link GitClientProxy#getNormalizedTreeHash(String, FileContentRewriter)})
+     * when the reuse of verified release builds is enabled. If the same tree has already been verified by a previous release build
+     * of the branch, the verification is skipped in the main build. In both cases the provenance of the built archives is recorded.
+     * <p>
+     * Must be called after the release version has been committed.
+     *
+     * @param branch the simple name of the release branch.
+     * @param version the release version.
+     * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    protected void reuseVerifiedBuild(final String branch, final String version) throws IOException, InterruptedException {
+        if (!getGitflowBuildWrapperDescriptor().isReuseVerifiedReleaseBuilds()) {
+            return;
+        }
+
+        // The tree hash can only be normalised when the build type can normalise the versions in its project files.
+        final FileContentRewriter versionNormalizer = this.buildTypeAction.createVersionNormalizer();
+        if (versionNormalizer == null) {
+            return;
+        }
+
+        this.verifiedTreeHash = this.git.getNormalizedTreeHash(Constants.HEAD, versionNormalizer);
+        this.verifiedBuildNumber = this.build.getNumber();
+
+        final RemoteBranch remoteBranch = this.gitflowPluginData.getRemoteBranch(branch);
+        if (hasVerifiedBuild(remoteBranch) && this.verifiedTreeHash.equals(remoteBranch.getLastVerifiedTreeHash())
+            && this.buildTypeAction.skipVerification(this.additionalBuildEnvVars)) {
+            this.verifiedBuildNumber = remoteBranch.getLastVerifiedBuildNumber();
+            this.consoleLogger.printf(MSG_PATTERN_REUSING_VERIFIED_BUILD, this.getActionName(), this.verifiedBuildNumber, this.verifiedTreeHash.getName());
+        }
+
+        final ObjectId builtCommit = this.git.revParse(Constants.HEAD);
+        this.build.addAction(new GitflowProvenanceAction(branch, version, builtCommit.getName(), this.verifiedTreeHash.getName(), this.verifiedBuildNumber));
+    }
+
+    /**
+     * Checks if a release build of the given branch may reuse the verification of a previous release build, i.e. if the
+     * reuse is enabled and a verified tree has been recorded for the branch. It's reused if the sources are unchanged.
+     *
+     * @param remoteBranch the recorded data of the release or hotfix branch - may be {@code null}.
+     * @return {@code true} if the verification of a previous release build may be reused.
+     */
+    public static boolean hasVerifiedBuild(final RemoteBranch remoteBranch) {
+        return getGitflowBuildWrapperDescriptor().isReuseVerifiedReleaseBuilds() && remoteBranch != null && remoteBranch.getLastVerifiedTreeHash() != null;
+    }
+
+    /**
+     * Records the normalised tree hash of a successful release build for the given branch, so that subsequent release builds
+     * of the same sources can skip the verification (see {@link #reuseVerifiedBuild(String, String)}).
+     *
+     * @param branch the simple name of the release branch.
+     */
+    protected void recordVerifiedBuild(final String branch) {
+        if (this.verifiedTreeHash != null) {
+            this.gitflowPluginData.getOrAddRemoteBranch(branch).setLastVerifiedTree(this.verifiedTreeHash, this.verifiedBuildNumber);
+        }
+    }
+
+    /**
+     * Records a commit that has been pushed by this action in the {@link GitflowCommitLedger} of the job. Nothing is recorded
+     * on <i>Dry Run</i>, because nothing has been pushed then.
+     * <p>
+     * The commit is flagged as version update when its diff against its single parent only changes the versions in the
+     * project files. When the plugin is configured to skip its own commits, such a commit is also marked as built, so that
+     * SCM polling doesn't schedule a new build for it. Other commits (e.g. merges) are built as usual.
+     *
+     * @param branch the simple name of the branch the commit has been pushed to.
+     * @param commit the pushed commit.
+     * @throws IOException if the commit cannot be read.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    protected void recordPluginCommit(final String branch, final ObjectId commit) throws IOException, InterruptedException {
+        if (!this.gitflowCause.isDryRun()) {
+            final FileContentRewriter versionNormalizer = this.buildTypeAction.createVersionNormalizer();
+            final boolean versionUpdate = versionNormalizer != null && this.git.isVersionUpdateCommit(commit.getName(), versionNormalizer);
+            GitflowCommitLedger.record(this.build.getProject(), branch, commit, this.build.getNumber(), versionUpdate);
+            if (versionUpdate && getGitflowBuildWrapperDescriptor().isSkipPluginCommits()) {
+                this.markCommitAsBuilt(branch, commit, this.build.getNumber());
+            }
+        }
+    }
+
+    /**
+     * Records a merge commit on the master branch that has been pushed by this action in the {@link GitflowCommitLedger}
+     * of the job and marks it as built, because it contains a release that has already been built. Nothing is recorded
+     * on <i>Dry Run</i>, because nothing has been pushed then.
+     *
+     * @param branch the simple name of the branch the commit has been pushed to.
+     * @param commit the pushed merge commit.
+     */
+    protected void recordReleaseMergeCommit(final String branch, final ObjectId commit) {
+        if (!this.gitflowCause.isDryRun()) {
+            GitflowCommitLedger.record(this.build.getProject(), branch, commit, this.build.getNumber(), false);
+            this.markCommitAsBuilt(branch, commit, this.build.getNumber());
+        }
+    }
+
+    /**
+     * Sets the given commit in the build data of the Git plugin, so that it won't be scheduled for a new build by SCM polling.
+     *
+     * @param branch the simple name of the branch that contains the commit.
+     * @param commit the commit to be marked as built.
+     * @param buildNumber the number of the build that created the commit.
+     */
+    protected void markCommitAsBuilt(final String branch, final ObjectId commit, final int buildNumber) {
+        final BuildData buildData = this.build.getAction(BuildData.class);
+        if (buildData != null) {
+            final List<Branch> branches = Collections.singletonList(new Branch(branch, commit));
+            buildData.getBuildsByBranchName().put(branch, new Build(new Revision(commit, branches), buildNumber, Result.SUCCESS));
+        }
+    }
+
     /**
      * Before entering the {@link #beforeMainBuildInternal()}, the checkout directory is cleaned up so that there a no modified files.
      *
      * @throws InterruptedException if the build is interrupted during execution.
      */
     protected void cleanCheckout() throws InterruptedException {
-        this.git.clean();
-        this.consoleLogger.printf(MSG_PATTERN_CLEANED_UP_WORKING_DIRECTORY, this.getActionName());
+        final GitflowBuildWrapper.DescriptorImpl buildWrapperDescriptor = getGitflowBuildWrapperDescriptor();
+        if (buildWrapperDescriptor.isKeepCacheDirectories()) {
+            final List<String> keptPaths = this.git.clean(buildWrapperDescriptor.getCacheDirectoryPatternList());
+            this.consoleLogger.printf(MSG_PATTERN_CLEANED_UP_WORKING_DIRECTORY_KEEPING_CACHES, this.getActionName(), keptPaths);
+        } else {
+            this.git.clean();
+            this.consoleLogger.printf(MSG_PATTERN_CLEANED_UP_WORKING_DIRECTORY, this.getActionName());
+        }
     }
 
     /**
@@ -1,11 +1,13 @@
 package de.silpion.jenkins.plugins.gitflow.action;
 
 import de.silpion.jenkins.plugins.gitflow.cause.NoGitflowCause;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowCommitLedger;
 import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
 import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.GitClientProxy;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
+import hudson.plugins.git.util.BuildData;
 import org.apache.commons.lang.StringUtils;
 
 import java.io.IOException;
@@ -23,6 +25,8 @@ public class NoGitflowAction<B extends AbstractBuild<?, ?>> extends AbstractGitf
 
     private static final String ACTION_NAME = "default build";
 
+    private List<String> branchesForCurrentlyBuiltCommit;
+
     /**
      * Initialises a new action for a non-Gitflow build.
      *
@@ -57,6 +61,17 @@ public class NoGitflowAction<B extends AbstractBuild<?, ?>> extends AbstractGitf
         this.additionalBuildEnvVars.put("GIT_SIMPLE_BRANCH_NAME", simpleBranchName);
         this.additionalBuildEnvVars.put("GIT_REMOTE_BRANCH_NAME", remoteBranchName);
         this.additionalBuildEnvVars.put("GIT_BRANCH_TYPE", getGitflowBuildWrapperDescriptor().getBranchType(simpleBranchName));
+
+        // The build data of the Git plugin is copied from the previous build. When builds run concurrently, the previous build might
+        // have been started before the latest version updates were pushed - mark them as built again, so that SCM polling ignores them.
+        final BuildData buildData = this.build.getAction(BuildData.class);
+        if (buildData != null && getGitflowBuildWrapperDescriptor().isSkipPluginCommits()) {
+            for (final GitflowCommitLedger.Entry ledgerEntry : GitflowCommitLedger.getLatestEntriesByBranch(this.build.getProject()).values()) {
+                if (ledgerEntry.isVersionUpdate() && !buildData.hasBeenBuilt(ledgerEntry.getCommit())) {
+                    this.markCommitAsBuilt(ledgerEntry.getBranch(), ledgerEntry.getCommit(), ledgerEntry.getBuildNumber());
+                }
+            }
+        }
     }
 
     @Override
@@ -74,7 +89,12 @@ public class NoGitflowAction<B extends AbstractBuild<?, ?>> extends AbstractGitf
     }
 
     private List<String> getBranchesForCurrentlyBuiltCommit() throws IOException, InterruptedException {
-        final String gitCommit = this.build.getEnvironment(this.listener).get("GIT_COMMIT");
-        return this.git.getRemoteBranchNamesContaining(gitCommit);
+
+        // The built commit doesn't change during the build, hence the branches only need to be determined once.
+        if (this.branchesForCurrentlyBuiltCommit == null) {
+            final String gitCommit = this.build.getEnvironment(this.listener).get("GIT_COMMIT");
+            this.branchesForCurrentlyBuiltCommit = this.git.getRemoteBranchNamesContaining(gitCommit);
+        }
+        return this.branchesForCurrentlyBuiltCommit;
     }
 }
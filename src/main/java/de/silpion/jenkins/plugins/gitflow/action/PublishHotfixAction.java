@@ -6,21 +6,12 @@ import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.GitClientProxy;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
-import hudson.plugins.git.Branch;
-import hudson.plugins.git.Revision;
-import hudson.plugins.git.util.Build;
-import hudson.plugins.git.util.BuildData;
 import org.eclipse.jgit.lib.ObjectId;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.List;
 
 import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
-import static de.silpion.jenkins.plugins.gitflow.proxy.gitclient.merge.GenericMergeCommand.StrategyOption.THEIRS;
 import static hudson.model.Result.SUCCESS;
-import static org.eclipse.jgit.api.MergeCommand.FastForwardMode.NO_FF;
-import static org.jenkinsci.plugins.gitclient.MergeCommand.Strategy.RECURSIVE;
 
 /**
  * This class executes the required steps for the Gitflow action <i>Publish Hotfix</i>.
@@ -32,7 +23,6 @@ public class PublishHotfixAction<B extends AbstractBuild<?, ?>> extends Abstract
 
     private static final String ACTION_NAME = "Publish Hotfix";
 
-    private static final String MSG_PATTERN_CHECKOUT_BRANCH = "Gitflow - %s: Checked out branch %s%n";
     private static final String MSG_PATTERN_MERGED_LAST_PATCH_RELEASE = "Gitflow - %s: Merged last patch release %s to branch %s%n";
 
     /**
@@ -62,18 +52,12 @@ public class PublishHotfixAction<B extends AbstractBuild<?, ?>> extends Abstract
     @Override
     protected void beforeMainBuildInternal() throws IOException, InterruptedException {
 
-        // Checkout the master branch.
+        // Merge the last patch release to the master branch (without checking it out).
         final String masterBranch = getGitflowBuildWrapperDescriptor().getMasterBranch();
-        final ObjectId targetBranchRev = this.git.getHeadRev(masterBranch);
-        this.git.checkoutBranch(masterBranch, targetBranchRev.getName());
-        this.consoleLogger.printf(MSG_PATTERN_CHECKOUT_BRANCH, ACTION_NAME, masterBranch);
-
-        // Merge the last patch release to the master branch.
         final ObjectId lastPatchReleaseCommit = this.gitflowCause.getLastPatchReleaseCommit();
-        this.git.merge(lastPatchReleaseCommit, NO_FF, RECURSIVE, THEIRS, false);
         final String lastPatchReleaseVersion = this.gitflowCause.getLastPatchReleaseVersion();
         final String msgMergedLastPatchRelease = formatPattern(MSG_PATTERN_MERGED_LAST_PATCH_RELEASE, ACTION_NAME, lastPatchReleaseVersion, masterBranch);
-        this.git.commit(msgMergedLastPatchRelease);
+        final ObjectId masterMergeCommit = this.mergeIntoBranch(masterBranch, lastPatchReleaseCommit, msgMergedLastPatchRelease);
         this.consoleLogger.print(msgMergedLastPatchRelease);
 
         // Push the master branch with the new merge commit.
@@ -89,13 +73,9 @@ public class PublishHotfixAction<B extends AbstractBuild<?, ?>> extends Abstract
         remoteBranchMaster.setLastReleaseVersion(lastPatchReleaseVersion);
         remoteBranchMaster.setLastReleaseVersionCommit(this.gitflowCause.getLastPatchReleaseCommit());
 
-        // Set the build data with the merge commit on the master branch, so that it won't be scheduled for a new build.
+        // Mark the merge commit on the master branch as built, so that it won't be scheduled for a new build.
         // Otherwise Jenkins might try to rebuild an already existing release and deploy it to the (Maven) repository manager.
-        final ObjectId masterMergeCommit = this.git.getHeadRev(masterBranch);
-        final String remoteBranchNameMaster = remoteBranchMaster.toString();
-        final List<Branch> branches = Collections.singletonList(new Branch(remoteBranchNameMaster, masterMergeCommit));
-        final Build masterBuild = new Build(new Revision(masterMergeCommit, branches), this.build.getNumber(), SUCCESS);
-        this.build.getAction(BuildData.class).getBuildsByBranchName().put(remoteBranchNameMaster, masterBuild);
+        this.recordReleaseMergeCommit(masterBranch, masterMergeCommit);
 
         // Add environment and property variables
         this.additionalBuildEnvVars.put("GIT_SIMPLE_BRANCH_NAME", masterBranch);
@@ -7,21 +7,12 @@ import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.GitClientProxy;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
-import hudson.plugins.git.Branch;
-import hudson.plugins.git.Revision;
-import hudson.plugins.git.util.Build;
-import hudson.plugins.git.util.BuildData;
 import org.eclipse.jgit.lib.ObjectId;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.List;
 
 import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
-import static de.silpion.jenkins.plugins.gitflow.proxy.gitclient.merge.GenericMergeCommand.StrategyOption.THEIRS;
 import static hudson.model.Result.SUCCESS;
-import static org.eclipse.jgit.api.MergeCommand.FastForwardMode.NO_FF;
-import static org.jenkinsci.plugins.gitclient.MergeCommand.Strategy.RECURSIVE;
 
 /**
  * This class executes the required steps for the Gitflow action <i>Publish Release</i>.
@@ -33,7 +24,6 @@ public class PublishReleaseAction<B extends AbstractBuild<?, ?>> extends Abstrac
 
     private static final String ACTION_NAME = "Publish Release";
 
-    private static final String MSG_PATTERN_CHECKOUT_BRANCH = "Gitflow - %s: Checked out branch %s%n";
     private static final String MSG_PATTERN_MERGED_LAST_PATCH_RELEASE = "Gitflow - %s: Merged last patch release %s to branch %s%n";
 
     /**
@@ -63,19 +53,13 @@ public class PublishReleaseAction<B extends AbstractBuild<?, ?>> extends Abstrac
     @Override
     protected void beforeMainBuildInternal() throws IOException, InterruptedException {
 
-        // Checkout the master branch.
+        // Merge the last fixes release to the master branch (without checking it out).
         final GitflowBuildWrapper.DescriptorImpl buildWrapperDescriptor = getGitflowBuildWrapperDescriptor();
         final String masterBranch = buildWrapperDescriptor.getMasterBranch();
-        final ObjectId targetBranchRev = this.git.getHeadRev(masterBranch);
-        this.git.checkoutBranch(masterBranch, targetBranchRev.getName());
-        this.consoleLogger.printf(MSG_PATTERN_CHECKOUT_BRANCH, ACTION_NAME, masterBranch);
-
-        // Merge the last fixes release to the master branch.
         final ObjectId lastFixesReleaseCommit = this.gitflowCause.getLastPatchReleaseCommit();
-        this.git.merge(lastFixesReleaseCommit, NO_FF, RECURSIVE, THEIRS, false);
         final String lastFixesReleaseVersion = this.gitflowCause.getLastPatchReleaseVersion();
         final String msgMergedLastFixesRelease = formatPattern(MSG_PATTERN_MERGED_LAST_PATCH_RELEASE, ACTION_NAME, lastFixesReleaseVersion, masterBranch);
-        this.git.commit(msgMergedLastFixesRelease);
+        final ObjectId masterMergeCommit = this.mergeIntoBranch(masterBranch, lastFixesReleaseCommit, msgMergedLastFixesRelease);
         this.consoleLogger.print(msgMergedLastFixesRelease);
 
         // Push the master branch with the new merge commit.
@@ -91,13 +75,9 @@ public class PublishReleaseAction<B extends AbstractBuild<?, ?>> extends Abstrac
         remoteBranchMaster.setLastReleaseVersion(lastFixesReleaseVersion);
         remoteBranchMaster.setLastReleaseVersionCommit(this.gitflowCause.getLastPatchReleaseCommit());
 
-        // Set the build data with the merge commit on the master branch, so that it won't be scheduled for a new build.
+        // Mark the merge commit on the master branch as built, so that it won't be scheduled for a new build.
         // Otherwise Jenkins might try to rebuild an already existing release and deploy it to the (Maven) repository manager.
-        final ObjectId masterMergeCommit = this.git.getHeadRev(masterBranch);
-        final String remoteBranchNameMaster = remoteBranchMaster.toString();
-        final List<Branch> branches = Collections.singletonList(new Branch(remoteBranchNameMaster, masterMergeCommit));
-        final Build masterBuild = new Build(new Revision(masterMergeCommit, branches), this.build.getNumber(), SUCCESS);
-        this.build.getAction(BuildData.class).getBuildsByBranchName().put(remoteBranchNameMaster, masterBuild);
+        this.recordReleaseMergeCommit(masterBranch, masterMergeCommit);
 
         // Add environment and property variables
         this.additionalBuildEnvVars.put("GIT_SIMPLE_BRANCH_NAME", masterBranch);
@@ -50,21 +50,19 @@ public class StartHotfixAction<B extends AbstractBuild<?, ?>> extends AbstractGi
     @Override
     protected void beforeMainBuildInternal() throws IOException, InterruptedException {
 
-        // Create a new hotfix branch based on the master branch.
+        // Create a new hotfix branch based on the master branch and update the version numbers in the project files to the hotfix version.
+        // The main build is omitted for this action, so the new branch doesn't need to be checked out (when the build type supports it).
         final String hotfixBranch = this.gitflowCause.getHotfixBranch();
         final String masterBranch = getGitflowBuildWrapperDescriptor().getMasterBranch();
-        this.git.checkoutBranch(hotfixBranch, "origin/" + masterBranch);
-        this.consoleLogger.printf(MSG_PATTERN_CREATED_BRANCH_BASED_ON_OTHER, this.getActionName(), hotfixBranch, masterBranch);
-
-        // Update the version numbers in the project files to the hotfix version.
         final String nextPatchDevelopmentVersion = this.gitflowCause.getNextPatchDevelopmentVersion();
-        this.addFilesToGitStage(this.buildTypeAction.updateVersion(nextPatchDevelopmentVersion));
         final String msgUpadtedReleaseVersion = formatPattern(MSG_PATTERN_UPDATED_NEXT_PATCH_DEVELOPMENT_VERSION, ACTION_NAME, nextPatchDevelopmentVersion);
-        this.git.commit(msgUpadtedReleaseVersion);
+        this.commitVersionUpdate(hotfixBranch, "origin/" + masterBranch, nextPatchDevelopmentVersion, msgUpadtedReleaseVersion);
+        this.consoleLogger.printf(MSG_PATTERN_CREATED_BRANCH_BASED_ON_OTHER, this.getActionName(), hotfixBranch, masterBranch);
         this.consoleLogger.print(msgUpadtedReleaseVersion);
 
         // Push the new hotfix branch.
         this.git.push("origin", "refs/heads/" + hotfixBranch + ":refs/heads/" + hotfixBranch);
+        this.recordPluginCommit(hotfixBranch, this.git.revParse("refs/heads/" + hotfixBranch));
 
         // Record the information about the state of the new hotfix branch.
         final RemoteBranch remoteBranchRef = this.gitflowPluginData.getRemoteBranch(masterBranch);
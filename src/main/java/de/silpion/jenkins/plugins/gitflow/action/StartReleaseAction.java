@@ -3,6 +3,7 @@ package de.silpion.jenkins.plugins.gitflow.action;
 import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
 import de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper;
@@ -70,6 +71,7 @@ public class StartReleaseAction<B extends AbstractBuild<?, ?>> extends AbstractG
 
         // Tell the main build that it will perform a release build.
         this.buildTypeAction.prepareForReleaseBuild();
+        this.reuseVerifiedBuild(releaseBranch, releaseVersion);
 
         // Add environment and property variables
         this.additionalBuildEnvVars.put("GIT_SIMPLE_BRANCH_NAME", releaseBranch);
@@ -77,9 +79,20 @@ public class StartReleaseAction<B extends AbstractBuild<?, ?>> extends AbstractG
         this.additionalBuildEnvVars.put("GIT_BRANCH_TYPE", buildWrapperDescriptor.getBranchType(releaseBranch));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The release branch is updated to the next development version after the main build. That's done in the Git object
+     * database when {@code HEAD} can be detached from the branch - otherwise the actions must be executed synchronously.
+     */
+    @Override
+    public boolean prepareConcurrentAfterMainBuild() throws IOException, InterruptedException {
+        return this.detachHeadForVersionUpdate(this.gitflowCause.getNextPatchDevelopmentVersion());
+    }
+
     @Override
     protected void afterMainBuildInternal() throws IOException, InterruptedException {
-        if (this.build.getResult() == Result.SUCCESS) {
+        if (this.getBuildResult() == Result.SUCCESS) {
             this.afterSuccessfulMainBuild();
         } else {
             this.afterUnsuccessfulMainBuild();
@@ -97,26 +110,25 @@ public class StartReleaseAction<B extends AbstractBuild<?, ?>> extends AbstractG
         this.consoleLogger.print(msgCreatedReleaseTag);
 
         // Update the project files to the development version for the release fixes.
+        final String releaseBranch = this.gitflowCause.getReleaseBranch();
         final String nextPatchDevelopmentVersion = this.gitflowCause.getNextPatchDevelopmentVersion();
-        this.addFilesToGitStage(this.buildTypeAction.updateVersion(nextPatchDevelopmentVersion));
         final String msgUpdatedFixesVersion = formatPattern(MSG_PATTERN_UPDATED_NEXT_PATCH_DEVELOPMENT_VERSION, ACTION_NAME, nextPatchDevelopmentVersion);
-        this.git.commit(msgUpdatedFixesVersion);
+        this.commitVersionUpdate(releaseBranch, null, nextPatchDevelopmentVersion, msgUpdatedFixesVersion);
         this.consoleLogger.print(msgUpdatedFixesVersion);
 
         // Update the project files in the develop branch to the development version for the next release.
         final String developBranch = buildWrapperDescriptor.getDevelopBranch();
-        this.git.checkoutBranch(developBranch, "origin/" + developBranch);
         final String nextReleaseDevelopmentVersion = this.gitflowCause.getNextReleaseDevelopmentVersion();
-        this.addFilesToGitStage(this.buildTypeAction.updateVersion(nextReleaseDevelopmentVersion));
         final String msgUpdatedNextVersion = formatPattern(MSG_PATTERN_UPDATED_NEXT_RELEASE_DEVELOPMENT_VERSION, ACTION_NAME, developBranch, nextReleaseDevelopmentVersion);
-        this.git.commit(msgUpdatedNextVersion);
+        this.commitVersionUpdate(developBranch, "origin/" + developBranch, nextReleaseDevelopmentVersion, msgUpdatedNextVersion);
         this.consoleLogger.print(msgUpdatedNextVersion);
 
-        // Push everything - the new release branch and its commits, the new tag and the commit on the develop branch.
-        final String releaseBranch = this.gitflowCause.getReleaseBranch();
-        this.git.push("origin", "refs/tags/" + tagName + ":refs/tags/" + tagName);
-        this.git.push("origin", "refs/heads/" + releaseBranch + ":refs/heads/" + releaseBranch);
-        this.git.push("origin", "refs/heads/" + developBranch + ":refs/heads/" + developBranch);
+        // Push everything at once - the new release branch and its commits, the new tag and the commit on the develop branch.
+        this.git.push("origin", Arrays.asList("refs/tags/" + tagName + ":refs/tags/" + tagName,
+                                              "refs/heads/" + releaseBranch + ":refs/heads/" + releaseBranch,
+                                              "refs/heads/" + developBranch + ":refs/heads/" + developBranch));
+        this.recordPluginCommit(releaseBranch, this.git.revParse("refs/heads/" + releaseBranch));
+        this.recordPluginCommit(developBranch, this.git.revParse("refs/heads/" + developBranch));
 
         // Record the information about the state of the release branch.
         final RemoteBranch remoteBranchRelease = this.gitflowPluginData.getOrAddRemoteBranch(releaseBranch);
@@ -125,6 +137,7 @@ public class StartReleaseAction<B extends AbstractBuild<?, ?>> extends AbstractG
         remoteBranchRelease.setBaseReleaseVersion(releaseVersion);
         remoteBranchRelease.setLastReleaseVersion(releaseVersion);
         remoteBranchRelease.setLastReleaseVersionCommit(this.git.revParse(tagName));
+        this.recordVerifiedBuild(releaseBranch);
 
         // Record the information about the state of the develop branch.
         final RemoteBranch remoteBranchDevelop = this.gitflowPluginData.getOrAddRemoteBranch(developBranch);
@@ -3,6 +3,7 @@ package de.silpion.jenkins.plugins.gitflow.action;
 import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import de.silpion.jenkins.plugins.gitflow.cause.TestHotfixCause;
 import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
@@ -62,13 +63,14 @@ public class TestHotfixAction<B extends AbstractBuild<?, ?>> extends AbstractGit
 
         // Update the project files to the minor release number
         final String patchReleaseVersion = this.gitflowCause.getPatchReleaseVersion();
-        addFilesToGitStage(buildTypeAction.updateVersion(patchReleaseVersion));
+        this.addFilesToGitStage(this.updateReleaseVersion(hotfixBranch, patchReleaseVersion));
         final String msgUpdatedReleaseVersion = formatPattern(MSG_PATTERN_UPDATED_PATCH_RELEASE_VERSION, ACTION_NAME, patchReleaseVersion);
         git.commit(msgUpdatedReleaseVersion);
         this.consoleLogger.print(msgUpdatedReleaseVersion);
 
-        // Tell the main build that it will perform a release build.
+        // Tell the main build that it will perform a release build (skipping the verification if the sources have already been verified).
         this.buildTypeAction.prepareForReleaseBuild();
+        this.reuseVerifiedBuild(hotfixBranch, patchReleaseVersion);
 
         // Add environment and property variables
         this.additionalBuildEnvVars.put("GIT_SIMPLE_BRANCH_NAME", hotfixBranch);
@@ -76,9 +78,20 @@ public class TestHotfixAction<B extends AbstractBuild<?, ?>> extends AbstractGit
         this.additionalBuildEnvVars.put("GIT_BRANCH_TYPE", getGitflowBuildWrapperDescriptor().getBranchType(hotfixBranch));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The hotfix branch is updated to the next development version after the main build. That's done in the Git object
+     * database when {@code HEAD} can be detached from the branch - otherwise the actions must be executed synchronously.
+     */
+    @Override
+    public boolean prepareConcurrentAfterMainBuild() throws IOException, InterruptedException {
+        return this.detachHeadForVersionUpdate(this.gitflowCause.getNextPatchDevelopmentVersion());
+    }
+
     @Override
     protected void afterMainBuildInternal() throws IOException, InterruptedException {
-        if (build.getResult() == Result.SUCCESS) {
+        if (this.getBuildResult() == Result.SUCCESS) {
             afterSuccessfulMainBuild();
         } else {
             afterUnsuccessfulMainBuild();
@@ -95,16 +108,16 @@ public class TestHotfixAction<B extends AbstractBuild<?, ?>> extends AbstractGit
         this.consoleLogger.print(msgCreatedReleaseTag);
 
         // Update and commit the project files to the next version for the next hotfix
+        final String hotfixBranch = this.gitflowCause.getHotfixBranch();
         final String nextPatchDevelopmentVersion = this.gitflowCause.getNextPatchDevelopmentVersion();
-        addFilesToGitStage(buildTypeAction.updateVersion(nextPatchDevelopmentVersion));
         final String msgUpdatedFixesVersion = formatPattern(MSG_PATTERN_UPDATED_NEXT_PATCH_DEVELOPMENT_VERSION, ACTION_NAME, nextPatchDevelopmentVersion);
-        git.commit(msgUpdatedFixesVersion);
+        this.commitVersionUpdate(hotfixBranch, null, nextPatchDevelopmentVersion, msgUpdatedFixesVersion);
         this.consoleLogger.print(msgUpdatedFixesVersion);
 
-        // Push everything - the hotfix branch and its commits and the new tag.
-        String hotfixBranch = this.gitflowCause.getHotfixBranch();
-        this.git.push("origin", "refs/tags/" + tagName + ":refs/tags/" + tagName);
-        this.git.push("origin", "refs/heads/" + hotfixBranch + ":refs/heads/" + hotfixBranch);
+        // Push everything at once - the hotfix branch and its commits and the new tag.
+        this.git.push("origin", Arrays.asList("refs/tags/" + tagName + ":refs/tags/" + tagName,
+                                              "refs/heads/" + hotfixBranch + ":refs/heads/" + hotfixBranch));
+        this.recordPluginCommit(hotfixBranch, this.git.revParse("refs/heads/" + hotfixBranch));
 
         // Record the information about the state of the hotfix branch.
         final RemoteBranch remoteBranchHotfix = this.gitflowPluginData.getRemoteBranch(hotfixBranch);
@@ -112,6 +125,7 @@ public class TestHotfixAction<B extends AbstractBuild<?, ?>> extends AbstractGit
         remoteBranchHotfix.setLastBuildVersion(nextPatchDevelopmentVersion);
         remoteBranchHotfix.setLastReleaseVersion(patchReleaseVersion);
         remoteBranchHotfix.setLastReleaseVersionCommit(this.git.revParse(tagName));
+        this.recordVerifiedBuild(hotfixBranch);
     }
 
     private void afterUnsuccessfulMainBuild() {
@@ -10,6 +10,7 @@ import hudson.model.Result;
 import org.eclipse.jgit.lib.ObjectId;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
 
@@ -61,13 +62,14 @@ public class TestReleaseAction<B extends AbstractBuild<?, ?>> extends AbstractGi
 
         // Update the project files to the minor release number
         final String patchReleaseVersion = this.gitflowCause.getPatchReleaseVersion();
-        this.addFilesToGitStage(this.buildTypeAction.updateVersion(patchReleaseVersion));
+        this.addFilesToGitStage(this.updateReleaseVersion(releaseBranch, patchReleaseVersion));
         final String msgUpdatedReleaseVersion = formatPattern(MSG_PATTERN_UPDATED_PATCH_RELEASE_VERSION, ACTION_NAME, patchReleaseVersion);
         this.git.commit(msgUpdatedReleaseVersion);
         this.consoleLogger.print(msgUpdatedReleaseVersion);
 
-        // Tell the main build that it will perform a release build.
+        // Tell the main build that it will perform a release build (skipping the verification if the sources have already been verified).
         this.buildTypeAction.prepareForReleaseBuild();
+        this.reuseVerifiedBuild(releaseBranch, patchReleaseVersion);
 
         // Add environment and property variables
         this.additionalBuildEnvVars.put("GIT_SIMPLE_BRANCH_NAME", releaseBranch);
@@ -75,9 +77,20 @@ public class TestReleaseAction<B extends AbstractBuild<?, ?>> extends AbstractGi
         this.additionalBuildEnvVars.put("GIT_BRANCH_TYPE", getGitflowBuildWrapperDescriptor().getBranchType(releaseBranch));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The release branch is updated to the next development version after the main build. That's done in the Git object
+     * database when {@code HEAD} can be detached from the branch - otherwise the actions must be executed synchronously.
+     */
+    @Override
+    public boolean prepareConcurrentAfterMainBuild() throws IOException, InterruptedException {
+        return this.detachHeadForVersionUpdate(this.gitflowCause.getNextPatchDevelopmentVersion());
+    }
+
     @Override
     protected void afterMainBuildInternal() throws IOException, InterruptedException {
-        if (this.build.getResult() == Result.SUCCESS) {
+        if (this.getBuildResult() == Result.SUCCESS) {
             this.afterSuccessfulMainBuild();
         } else {
             this.afterUnsuccessfulMainBuild();
@@ -94,16 +107,16 @@ public class TestReleaseAction<B extends AbstractBuild<?, ?>> extends AbstractGi
         this.consoleLogger.print(msgCreatedReleaseTag);
 
         // Update and commit the project files to the minor version for the next release
+        final String releaseBranch = this.gitflowCause.getReleaseBranch();
         final String nextPatchDevelopmentVersion = this.gitflowCause.getNextPatchDevelopmentVersion();
-        this.addFilesToGitStage(this.buildTypeAction.updateVersion(nextPatchDevelopmentVersion));
         final String msgUpdatedFixesVersion = formatPattern(MSG_PATTERN_UPDATED_NEXT_PATCH_DEVELOPMENT_VERSION, ACTION_NAME, nextPatchDevelopmentVersion);
-        this.git.commit(msgUpdatedFixesVersion);
+        this.commitVersionUpdate(releaseBranch, null, nextPatchDevelopmentVersion, msgUpdatedFixesVersion);
         this.consoleLogger.print(msgUpdatedFixesVersion);
 
-        // Push everything - the release branch and its commits and the new tag.
-        final String releaseBranch = this.gitflowCause.getReleaseBranch();
-        this.git.push("origin", "refs/tags/" + tagName + ":refs/tags/" + tagName);
-        this.git.push("origin", "refs/heads/" + releaseBranch + ":refs/heads/" + releaseBranch);
+        // Push everything at once - the release branch and its commits and the new tag.
+        this.git.push("origin", Arrays.asList("refs/tags/" + tagName + ":refs/tags/" + tagName,
+                                              "refs/heads/" + releaseBranch + ":refs/heads/" + releaseBranch));
+        this.recordPluginCommit(releaseBranch, this.git.revParse("refs/heads/" + releaseBranch));
 
         // Record the information about the state of the release branch.
         final RemoteBranch remoteBranchRelease = this.gitflowPluginData.getRemoteBranch(releaseBranch);
@@ -111,6 +124,7 @@ public class TestReleaseAction<B extends AbstractBuild<?, ?>> extends AbstractGi
         remoteBranchRelease.setLastBuildVersion(nextPatchDevelopmentVersion);
         remoteBranchRelease.setLastReleaseVersion(patchReleaseVersion);
         remoteBranchRelease.setLastReleaseVersionCommit(this.git.revParse(tagName));
+        this.recordVerifiedBuild(releaseBranch);
     }
 
     private void afterUnsuccessfulMainBuild() {
@@ -0,0 +1,260 @@
+package de.silpion.jenkins.plugins.gitflow.action;
+
+import de.silpion.jenkins.plugins.gitflow.GitflowBranchLocks;
+import de.silpion.jenkins.plugins.gitflow.cause.AbstractGitflowCause;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.ResourceList;
+import hudson.model.StreamBuildListener;
+import hudson.model.queue.CauseOfBlockage;
+import hudson.model.queue.SubTask;
+import jenkins.model.Jenkins;
+import org.acegisecurity.Authentication;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * A queue task that executes a {@link WorkspaceLessFinisher workspace-less} <i>Finish</i> action on a flyweight executor
+ * of the master, so the branch isn't deleted in the request thread that submitted the action and the Git client is
+ * configured for the node it runs on.
+ * <p>
+ * There is no build, so each execution is appended to a log file in the root directory of the job - it names the user
+ * who submitted the action and contains the output of the Git client (or the error that made the action fail). When the
+ * log file exceeds {@value #MAX_LOG_FILE_SIZE} bytes, it's rotated, keeping one previous log file.
+ * <p>
+ * The task waits in the queue while another <i>Gitflow</i> action of the job holds the lock of the branch.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class WorkspaceLessFinishTask implements Queue.FlyweightTask, Queue.TransientTask {
+
+    public static final String LOG_FILE_NAME = "gitflow-workspace-less-finish.log";
+
+    static final long MAX_LOG_FILE_SIZE = 1024 * 1024;
+
+    private static final String MSG_PATTERN_STARTED = "Gitflow - %s (workspace-less): Started by %s on %tc%n";
+    private static final String MSG_PATTERN_FAILED = "Gitflow - %s (workspace-less): Failed: %s%n";
+    private static final String MSG_PATTERN_BRANCH_LOCKED = "Gitflow - %s (workspace-less): Waiting for branches %s - they are locked by another Gitflow action";
+
+    private final AbstractProject<?, ?> job;
+    private final AbstractGitflowCause gitflowCause;
+    private final String userName;
+
+    /**
+     * Creates a new task.
+     *
+     * @param job the job to execute the <i>Finish</i> action for.
+     * @param gitflowCause the <i>Finish Release</i> or <i>Finish Hotfix</i> cause.
+     * @param userName the name of the user who submitted the action.
+     */
+    public WorkspaceLessFinishTask(final AbstractProject<?, ?> job, final AbstractGitflowCause gitflowCause, final String userName) {
+        this.job = job;
+        this.gitflowCause = gitflowCause;
+        this.userName = userName;
+    }
+
+    /**
+     * Returns the log file of the workspace-less <i>Finish</i> actions of the given job.
+     *
+     * @param job the job.
+     * @return the log file in the root directory of the job.
+     */
+    public static File getLogFile(final AbstractProject<?, ?> job) {
+        return new File(job.getRootDir(), LOG_FILE_NAME);
+    }
+
+    /**
+     * Returns the previous log file of the workspace-less <i>Finish</i> actions of the given job, which has been rotated
+     * when the log file became too large.
+     *
+     * @param job the job.
+     * @return the previous log file in the root directory of the job.
+     */
+    static File getPreviousLogFile(final AbstractProject<?, ?> job) {
+        return new File(job.getRootDir(), LOG_FILE_NAME + ".1");
+    }
+
+    public boolean isBuildBlocked() {
+        return this.getCauseOfBlockage() != null;
+    }
+
+    public String getWhyBlocked() {
+        final CauseOfBlockage causeOfBlockage = this.getCauseOfBlockage();
+        return causeOfBlockage == null ? null : causeOfBlockage.getShortDescription();
+    }
+
+    /** The task is blocked while another Gitflow action holds the lock of the branch, so it doesn't fail on contention. */
+    public CauseOfBlockage getCauseOfBlockage() {
+        if (GitflowBranchLocks.isLocked(this.job.getFullName(), this.gitflowCause.getAffectedBranches())) {
+            final String actionName = WorkspaceLessFinisher.getActionName(this.gitflowCause);
+            return new BranchLockedBlockage(String.format(MSG_PATTERN_BRANCH_LOCKED, actionName, this.gitflowCause.getAffectedBranches()));
+        }
+        return null;
+    }
+
+    public String getName() {
+        return this.job.getName();
+    }
+
+    public String getFullDisplayName() {
+        return this.job.getFullDisplayName() + " - " + WorkspaceLessFinisher.getActionName(this.gitflowCause);
+    }
+
+    public String getDisplayName() {
+        return this.job.getDisplayName();
+    }
+
+    public void checkAbortPermission() {
+        this.job.checkAbortPermission();
+    }
+
+    public boolean hasAbortPermission() {
+        return this.job.hasAbortPermission();
+    }
+
+    public String getUrl() {
+        return this.job.getUrl();
+    }
+
+    public boolean isConcurrentBuild() {
+        return true;
+    }
+
+    public Collection<? extends SubTask> getSubTasks() {
+        return Collections.singleton(this);
+    }
+
+    /** The task belongs to the job, e.g. for the authentication of queue items. */
+    public Queue.Task getOwnerTask() {
+        return this.job;
+    }
+
+    public Object getSameNodeConstraint() {
+        return null;
+    }
+
+    public Authentication getDefaultAuthentication() {
+        return this.job.getDefaultAuthentication();
+    }
+
+    public Authentication getDefaultAuthentication(final Queue.Item item) {
+        return this.job.getDefaultAuthentication(item);
+    }
+
+    /** The Git client is created for the master, where the scratch repository is located. */
+    public Label getAssignedLabel() {
+        return Jenkins.getInstance().getSelfLabel();
+    }
+
+    public Node getLastBuiltOn() {
+        return Jenkins.getInstance();
+    }
+
+    public long getEstimatedDuration() {
+        return -1;
+    }
+
+    public Queue.Executable createExecutable() throws IOException {
+        return new Execution(this);
+    }
+
+    public ResourceList getResourceList() {
+        return ResourceList.EMPTY;
+    }
+
+    /**
+     * The cause of blockage while the branch is locked.
+     */
+    private static final class BranchLockedBlockage extends CauseOfBlockage {
+
+        private final String shortDescription;
+
+        private BranchLockedBlockage(final String shortDescription) {
+            this.shortDescription = shortDescription;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String getShortDescription() {
+            return this.shortDescription;
+        }
+    }
+
+    /**
+     * The execution of the task: the branch is deleted and the output is appended to the log file of the job.
+     */
+    static class Execution implements Queue.Executable {
+
+        private final WorkspaceLessFinishTask task;
+
+        Execution(final WorkspaceLessFinishTask task) {
+            this.task = task;
+        }
+
+        /** {@inheritDoc} */
+        public SubTask getParent() {
+            return this.task;
+        }
+
+        /** {@inheritDoc} */
+        public long getEstimatedDuration() {
+            return -1;
+        }
+
+        /** {@inheritDoc} */
+        public void run() {
+            final String actionName = WorkspaceLessFinisher.getActionName(this.task.gitflowCause);
+            try {
+                final BuildListener listener = new StreamBuildListener(new FileOutputStream(rotateLogFile(this.task.job), true));
+                try {
+                    listener.getLogger().printf(MSG_PATTERN_STARTED, actionName, this.task.userName, new Date());
+                    try {
+                        new WorkspaceLessFinisher(this.task.job).finish(this.task.gitflowCause, listener);
+                    } catch (final IOException ioe) {
+                        listener.getLogger().printf(MSG_PATTERN_FAILED, actionName, ioe.getMessage());
+                    } catch (final RuntimeException re) {
+
+                        // The Git client reports its errors as GitException.
+                        listener.getLogger().printf(MSG_PATTERN_FAILED, actionName, re.getMessage());
+                        re.printStackTrace(listener.getLogger());
+                    }
+                } finally {
+                    listener.getLogger().close();
+                }
+            } catch (final IOException ioe) {
+                throw new IllegalStateException("Cannot write " + getLogFile(this.task.job), ioe);
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Moves the log file of the given job to the previous log file when it exceeds the maximum size.
+         *
+         * @return the log file to append to.
+         */
+        static File rotateLogFile(final AbstractProject<?, ?> job) throws IOException {
+            final File logFile = getLogFile(job);
+            if (logFile.length() > MAX_LOG_FILE_SIZE) {
+                final File previousLogFile = getPreviousLogFile(job);
+                if (previousLogFile.exists() && !previousLogFile.delete() || !logFile.renameTo(previousLogFile)) {
+                    throw new IOException("Cannot rotate " + logFile + " to " + previousLogFile);
+                }
+            }
+            return logFile;
+        }
+
+        @Override
+        public String toString() {
+            return this.task.getFullDisplayName();
+        }
+    }
+}
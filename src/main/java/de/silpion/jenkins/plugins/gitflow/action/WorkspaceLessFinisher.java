@@ -0,0 +1,152 @@
+package de.silpion.jenkins.plugins.gitflow.action;
+
+import de.silpion.jenkins.plugins.gitflow.GitflowBranchLocks;
+import de.silpion.jenkins.plugins.gitflow.cause.AbstractGitflowCause;
+import de.silpion.jenkins.plugins.gitflow.cause.FinishHotfixCause;
+import de.silpion.jenkins.plugins.gitflow.cause.FinishReleaseCause;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowJobState;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
+import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
+import de.silpion.jenkins.plugins.gitflow.proxy.git.GitSCMProxy;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.GitClientProxy;
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+
+import java.io.File;
+import java.io.IOException;
+
+import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
+
+/**
+ * Executes the <i>Finish Release</i> and <i>Finish Hotfix</i> actions without a build: The branch is deleted by pushing a
+ * delete refspec from a scratch repository on the master and the {@link GitflowPluginData} of the job is updated.
+ * <p>
+ * No workspace, no executor slot and no checkout are required, so the actions don't queue behind busy nodes. They are
+ * executed by a {@link WorkspaceLessFinishTask} on a flyweight executor of the master. The scratch repository never
+ * contains any objects - it's only needed because Git clients push from a local repository.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class WorkspaceLessFinisher {
+
+    static final String SCRATCH_REPOSITORY_DIR_NAME = "gitflow-scratch";
+
+    private static final String MSG_PATTERN_DELETED_BRANCH = "Gitflow - %s (workspace-less): Deleted branch %s%n";
+
+    private final AbstractProject<?, ?> job;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param job the job to execute the <i>Finish</i> actions for.
+     */
+    public WorkspaceLessFinisher(final AbstractProject<?, ?> job) {
+        this.job = job;
+    }
+
+    /**
+     * Checks if the action for the given cause can (and shall) be executed without a build. Actions in <i>Dry Run</i>
+     * mode are always executed as builds, because their console output is all they produce.
+     *
+     * @param gitflowCause the <i>Gitflow</i> cause for the action to be executed.
+     * @return {@code true} if the action for the given cause can be executed without a build.
+     */
+    public static boolean isApplicable(final AbstractGitflowCause gitflowCause) {
+        return (gitflowCause instanceof FinishReleaseCause || gitflowCause instanceof FinishHotfixCause)
+               && !gitflowCause.isDryRun() && getGitflowBuildWrapperDescriptor().isWorkspaceLessFinish();
+    }
+
+    /**
+     * Creates a Git client for the scratch repository of the given job, which is located in the root directory of the job
+     * on the master. The repository is initialised with the given remote URL, if necessary. The client is configured like
+     * the one for the workspace of the given build (e.g. with the credentials of the job), but it never accesses the workspace.
+     *
+     * @param job the job that owns the scratch repository.
+     * @param build a build of the job that provides the configuration of the Git client.
+     * @param listener receives the output of the Git client.
+     * @param remoteUrl the URL of the remote repository {@code origin}.
+     * @return the Git client for the scratch repository.
+     * @throws IOException if the version of the Git or the Git Client plugin is not supported.
+     * @throws InterruptedException if the execution is interrupted.
+     */
+    public static GitClientProxy createScratchClient(final AbstractProject<?, ?> job, final AbstractBuild<?, ?> build, final BuildListener listener,
+                                                     final String remoteUrl) throws IOException, InterruptedException {
+        final FilePath scratchDirectory = new FilePath(new File(job.getRootDir(), SCRATCH_REPOSITORY_DIR_NAME));
+        final GitClientProxy git = new GitClientProxy(build, listener, scratchDirectory, false);
+        git.initRepository(remoteUrl);
+        return git;
+    }
+
+    /**
+     * Returns the name of the <i>Finish</i> action for the given cause.
+     *
+     * @param gitflowCause the <i>Finish Release</i> or <i>Finish Hotfix</i> cause.
+     * @return the name of the action.
+     */
+    static String getActionName(final AbstractGitflowCause gitflowCause) {
+        return gitflowCause instanceof FinishHotfixCause ? "Finish Hotfix" : "Finish Release";
+    }
+
+    /**
+     * Deletes the remote branch of the given <i>Finish</i> cause and removes it from the Gitflow plugin data of the job.
+     *
+     * @param gitflowCause the <i>Finish Release</i> or <i>Finish Hotfix</i> cause.
+     * @param listener receives the output of the Git client.
+     * @throws IOException if the branch cannot be deleted.
+     * @throws InterruptedException if the execution is interrupted.
+     */
+    public void finish(final AbstractGitflowCause gitflowCause, final BuildListener listener) throws IOException, InterruptedException {
+        final String actionName = getActionName(gitflowCause);
+        final String branchName;
+        if (gitflowCause instanceof FinishReleaseCause) {
+            branchName = ((FinishReleaseCause) gitflowCause).getReleaseBranch();
+        } else if (gitflowCause instanceof FinishHotfixCause) {
+            branchName = ((FinishHotfixCause) gitflowCause).getHotfixBranch();
+        } else {
+            throw new IOException("Gitflow action for " + gitflowCause.getClass().getSimpleName() + " cannot be executed without a build");
+        }
+
+        // The last build is required to create a Git client with the job's configuration (e.g. the credentials).
+        final AbstractBuild<?, ?> lastBuild = this.job.getLastBuild();
+        final String remoteUrl = GitSCMProxy.getConfiguredRemoteUrl(this.job);
+        if (lastBuild == null || remoteUrl == null) {
+            throw new IOException("Gitflow - " + actionName + ": Cannot delete branch " + branchName + " of " + this.job.getFullName() + " without a build");
+        }
+
+        // Don't interfere with a running Gitflow action on the same branch - the task waits in the queue while the branch is locked.
+        final String lockHolder = "workspace-less " + actionName + " " + this.job.getFullName() + " " + branchName;
+        GitflowBranchLocks.acquire(lockHolder, this.job.getFullName(), gitflowCause.getAffectedBranches(), listener.getLogger());
+        try {
+            this.deleteBranch(actionName, branchName, lastBuild, remoteUrl, listener);
+        } finally {
+            GitflowBranchLocks.release(lockHolder);
+        }
+    }
+
+    private void deleteBranch(final String actionName, final String branchName, final AbstractBuild<?, ?> lastBuild, final String remoteUrl,
+                              final BuildListener listener) throws IOException, InterruptedException {
+
+        // Delete the remote branch using the scratch repository - the remote ref snapshots are updated by the push.
+        final GitClientProxy git = createScratchClient(this.job, lastBuild, listener, remoteUrl);
+        git.setGitflowActionName(actionName);
+        git.push("origin", ":refs/heads/" + branchName);
+        listener.getLogger().printf(MSG_PATTERN_DELETED_BRANCH, actionName, branchName);
+
+        // Remove the recorded data of the deleted remote branch.
+        final GitflowPluginData latestGitflowPluginData = GitflowJobState.loadLatest(this.job);
+        if (latestGitflowPluginData != null && latestGitflowPluginData.getRemoteBranch(branchName) != null) {
+            final GitflowPluginData gitflowPluginData;
+            try {
+                gitflowPluginData = latestGitflowPluginData.clone();
+                gitflowPluginData.recordStartState(latestGitflowPluginData);
+            } catch (final CloneNotSupportedException cnse) {
+                throw new IOException("Cloning of " + latestGitflowPluginData.getClass().getName() + " is not supported but should be.", cnse);
+            }
+            final RemoteBranch remoteBranch = gitflowPluginData.getRemoteBranch(branchName);
+            gitflowPluginData.removeRemoteBranch(remoteBranch, false);
+            GitflowJobState.update(this.job, gitflowPluginData);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package de.silpion.jenkins.plugins.gitflow.action.buildtype;
 
 import de.silpion.jenkins.plugins.gitflow.action.AbstractActionBase;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.FileContentRewriter;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.Launcher;
 import hudson.console.ConsoleNote;
@@ -15,6 +16,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -48,8 +50,10 @@ public abstract class AbstractBuildTypeAction<T extends AbstractBuild<?, ?>> ext
      * Returns the current version number of the project files.
      *
      * @return the current version number of the project files.
+     * @throws IOException if the project files cannot be read.
+     * @throws InterruptedException if the build is interrupted during execution.
      */
-    public abstract String getCurrentVersion();
+    public abstract String getCurrentVersion() throws IOException, InterruptedException;
 
     /**
      * Update the version numbers in the project files to the provided version.
@@ -61,6 +65,65 @@ public abstract class AbstractBuildTypeAction<T extends AbstractBuild<?, ?>> ext
      */
     public abstract List<String> updateVersion(final String version) throws IOException, InterruptedException;
 
+    /**
+     * Returns a rewriter that updates the version numbers in the project files in memory, so that the version update can be
+     * committed directly to the Git object database, without checking out the files.
+     * <p>
+     * The default implementation returns {@code null}, which means that the build type doesn't support this. The version is
+     * updated with {@link #updateVersion(String)} in the working tree then.
+     *
+     * @param version the version to be set in the project files.
+     * @return the rewriter for the project files or {@code null} if the version can only be updated in the working tree.
+     * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public FileContentRewriter createVersionRewriter(final String version) throws IOException, InterruptedException {
+        return null;
+    }
+
+    /**
+     * Update the version numbers in the project files of the modules that changed since the last release (and of the modules
+     * that depend on them) to the provided version. The other modules keep their released versions and are excluded from the
+     * main build.
+     * <p>
+     * The default implementation updates the version of the whole project with {@link #updateVersion(String)}, which means
+     * that the build type doesn't support this.
+     *
+     * @param version the version to be set in the project files of the changed modules.
+     * @param changedPaths the paths of the files that changed since the last release (see {@link #createVersionNormalizer()}).
+     * @param releasedVersionFiles the contents of the project files in the last release, mapped by their paths.
+     * @return the files that were modified during the update.
+     * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public List<String> updateVersionOfChangedModules(final String version, final Collection<String> changedPaths, final Map<String, byte[]> releasedVersionFiles)
+            throws IOException, InterruptedException {
+        return this.updateVersion(version);
+    }
+
+    /**
+     * Returns a rewriter that replaces the version numbers in the project files with a placeholder, so that changes of the
+     * project files that only consist of version updates can be ignored when the changes since the last release are determined.
+     * <p>
+     * The default implementation returns {@code null}, which means that the build type doesn't support this.
+     *
+     * @return the normalising rewriter for the project files or {@code null} if the versions cannot be normalised.
+     */
+    public FileContentRewriter createVersionNormalizer() {
+        return null;
+    }
+
+    /**
+     * Returns the paths of the project files that contain the version of the project.
+     * <p>
+     * The default implementation returns {@code null}, which means that the build type doesn't know its version files.
+     *
+     * @return the paths of the version files, relative to the root of the repository - or {@code null} if they are unknown.
+     */
+    public List<String> getVersionFilePaths() {
+        return null;
+    }
+
     /**
      * Add configurations and settings to the main build, that change the behaviour of the main build so that it performs a release build.
      *
@@ -77,8 +140,22 @@ public abstract class AbstractBuildTypeAction<T extends AbstractBuild<?, ?>> ext
      *
      * @param buildEnvVars the map to add to environmental variables to.
      * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
      */
-    public abstract void preventArchivePublication(final Map<String, String> buildEnvVars) throws IOException;
+    public abstract void preventArchivePublication(final Map<String, String> buildEnvVars) throws IOException, InterruptedException;
+
+    /**
+     * Add environmental variables to the given map that change the behaviour of the build so that it skips the verification
+     * (e.g. the tests) of the built archives, because the same sources have already been verified by another build.
+     * <p>
+     * The default implementation doesn't add anything, which means that the build type doesn't support this.
+     *
+     * @param buildEnvVars the map to add to environmental variables to.
+     * @return {@code true} if the verification is skipped.
+     */
+    public boolean skipVerification(final Map<String, String> buildEnvVars) {
+        return false;
+    }
 
     /**
      * {@link BuildListener} delegate omitting the Jenkins console output and redirecting it to a file.
@@ -4,6 +4,7 @@ import hudson.Launcher;
 import hudson.maven.MavenModuleSetBuild;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
+import jenkins.model.Jenkins;
 
 /**
  * Factory class to create instances for the build-type-specific actions regarding to the type of a build.
@@ -12,6 +13,8 @@ import hudson.model.BuildListener;
  */
 public class BuildTypeActionFactory {
 
+    private static final String GRADLE_PLUGIN_NAME = "gradle";
+
     /**
      * Creates an instance for the build-type-specific actions regarding to the type of the build in progress.
      *
@@ -26,10 +29,17 @@ public class BuildTypeActionFactory {
 
         if (build instanceof MavenModuleSetBuild) {
             abstractBuildTypeAction = new MavenBuildTypeAction((MavenModuleSetBuild) build, launcher, listener, gitflowActionName);
+        } else if (isGradlePluginInstalled() && GradleBuildTypeAction.isGradleBuild(build)) {
+            abstractBuildTypeAction = new GradleBuildTypeAction(build, launcher, listener, gitflowActionName);
         } else {
             abstractBuildTypeAction = new UnknownBuildTypeAction(build, launcher, listener, gitflowActionName);
         }
 
         return abstractBuildTypeAction;
     }
+
+    // The Gradle plugin is an optional dependency - its classes must not be loaded when it isn't installed.
+    private static boolean isGradlePluginInstalled() {
+        return Jenkins.getInstance().getPlugin(GRADLE_PLUGIN_NAME) != null;
+    }
 }
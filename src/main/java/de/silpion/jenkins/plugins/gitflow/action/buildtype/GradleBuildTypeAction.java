@@ -0,0 +1,208 @@
+package de.silpion.jenkins.plugins.gitflow.action.buildtype;
+
+import de.silpion.jenkins.plugins.gitflow.cause.AbstractGitflowCause;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.Project;
+import hudson.plugins.gradle.Gradle;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.WorkspaceList;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class implements the different actions, that are required to apply the <i>Gitflow</i> to Gradle projects (freestyle
+ * projects with a <i>Invoke Gradle script</i> build step).
+ * <p>
+ * The version is updated in the {@code gradle.properties} and the build script of the root project, without starting Gradle.
+ * The publishing tasks are disabled with an init script that must be applied by the switches of the Gradle build step.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GradleBuildTypeAction extends AbstractBuildTypeAction<AbstractBuild<?, ?>> {
+
+    private static final String BUILD_GRADLE = "build.gradle";
+    private static final String BUILD_GRADLE_KTS = "build.gradle.kts";
+
+    private static final String MSG_PATTERN_UPDATED_GRADLE_FILES = "Gitflow - %s: Updated %d Gradle file(s) to version %s%n";
+
+    // Gradle sets project properties from environment variables with this prefix.
+    private static final String GRADLE_PROJECT_PROPERTY_ENV_VAR_PREFIX = "ORG_GRADLE_PROJECT_";
+    private static final String GRADLE_PROPERTY_SKIP_PUBLICATION = "skipPublication";
+    private static final String PROPERTY_VALUE_TRUE = Boolean.TRUE.toString();
+
+    // The init script that disables the publishing tasks is provided in the temporary directory of the workspace.
+    static final String ENV_VAR_SKIP_PUBLICATION_INIT_SCRIPT = "GITFLOW_SKIP_PUBLICATION_INIT_SCRIPT";
+    private static final String SKIP_PUBLICATION_INIT_SCRIPT = "skip-publication.gradle";
+
+    private static final String UNKNOWN_VERSION = "unknown";
+    private static final String VERSION_PLACEHOLDER = "@gitflow.version@";
+
+    /**
+     * Reads the version of the project from the first version file in the workspace that declares a version. All files are
+     * read where the workspace is located.
+     */
+    static class ReadVersionCallable extends MasterToSlaveFileCallable<String> {
+
+        private static final long serialVersionUID = -2410316519283417096L;
+
+        private final List<String> versionFilePaths;
+
+        ReadVersionCallable(final List<String> versionFilePaths) {
+            this.versionFilePaths = versionFilePaths;
+        }
+
+        /** {@inheritDoc} */
+        public String invoke(final File workspace, final VirtualChannel channel) throws IOException, InterruptedException {
+            for (final String versionFilePath : this.versionFilePaths) {
+                final File versionFile = new File(workspace, versionFilePath);
+                if (versionFile.isFile()) {
+                    final String version = GradleVersionRewriter.getVersion(versionFilePath, FileUtils.readFileToByteArray(versionFile));
+                    if (version != null) {
+                        return version;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Initialises a new Gradle build type action.
+     *
+     * @param build the <i>Gitflow</i> build that is in progress.
+     * @param launcher can be used to launch processes for this build - even if the build runs remotely.
+     * @param listener can be used to send any message.
+     * @param gitflowActionName the name of the <i>Gitflow</i> action for the build in progress.
+     */
+    public GradleBuildTypeAction(final AbstractBuild<?, ?> build, final Launcher launcher, final BuildListener listener, final String gitflowActionName) {
+        super(build, launcher, listener, gitflowActionName);
+    }
+
+    /**
+     * Checks if the given build is a Gradle build. <b>Please note</b> that the <i>Gradle</i> plugin must be installed, when
+     * this method is called.
+     *
+     * @param build the build to be checked.
+     * @return {@code true} if the project of the build has a Gradle build step.
+     */
+    public static boolean isGradleBuild(final AbstractBuild<?, ?> build) {
+        return getGradleBuilder(build.getProject()) != null;
+    }
+
+    private static Gradle getGradleBuilder(final AbstractProject<?, ?> project) {
+        return project instanceof Project ? ((Project<?, ?>) project).getBuildersList().get(Gradle.class) : null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+    public String getCurrentVersion() throws IOException, InterruptedException {
+        final String currentVersion = this.build.getWorkspace().act(new ReadVersionCallable(this.getVersionFilePaths()));
+        return currentVersion == null ? UNKNOWN_VERSION : currentVersion;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+    public List<String> updateVersion(final String version) throws IOException, InterruptedException {
+
+        // Rewrite all version files with a single call - the workspace might be located on a remote agent.
+        final List<String> modifiedFiles = this.build.getWorkspace().act(new RewriteFilesCallable(this.createVersionRewriter(version)));
+        this.consoleLogger.printf(MSG_PATTERN_UPDATED_GRADLE_FILES, this.gitflowActionName, modifiedFiles.size(), version);
+        return modifiedFiles;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public GradleVersionRewriter createVersionRewriter(final String version) {
+        return new GradleVersionRewriter(this.getVersionFilePaths(), version);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the version declarations of the project are normalised - other versions in the build scripts (e.g. of
+     * dependencies) are kept.
+     */
+    @Override
+    public GradleVersionRewriter createVersionNormalizer() {
+        return this.createVersionRewriter(VERSION_PLACEHOLDER);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String> getVersionFilePaths() {
+        final Gradle gradleBuilder = getGradleBuilder(this.build.getProject());
+        final String rootBuildScriptDir = gradleBuilder == null ? null : StringUtils.strip(gradleBuilder.getRootBuildScriptDir(), "/");
+        final String rootPath = StringUtils.isBlank(rootBuildScriptDir) || ".".equals(rootBuildScriptDir) ? "" : rootBuildScriptDir + "/";
+
+        // The properties file has precedence - the build scripts usually read the version from there.
+        final List<String> versionFilePaths = new ArrayList<String>();
+        versionFilePaths.add(rootPath + GradleVersionRewriter.GRADLE_PROPERTIES);
+        final String buildFile = gradleBuilder == null ? null : gradleBuilder.getBuildFile();
+        if (StringUtils.isBlank(buildFile)) {
+            versionFilePaths.addAll(Arrays.asList(rootPath + BUILD_GRADLE, rootPath + BUILD_GRADLE_KTS));
+        } else {
+            versionFilePaths.add(rootPath + buildFile);
+        }
+        return versionFilePaths;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void prepareForReleaseBuild() throws IOException {
+        // Nothing to do - Gradle has no common convention for release builds (like the release profile for Maven).
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+    public void preventArchivePublication(final Map<String, String> buildEnvVars) throws IOException, InterruptedException {
+
+        // The Gradle build step isn't executed when the main build is omitted.
+        final AbstractGitflowCause gitflowCause = this.build.getCause(AbstractGitflowCause.class);
+        if (gitflowCause != null && gitflowCause.isOmitMainBuild()) {
+            return;
+        }
+
+        // Gradle has no built-in property to skip the publishing tasks, so they are disabled by an init script. It can only be applied by the build step.
+        final Gradle gradleBuilder = getGradleBuilder(this.build.getProject());
+        if (gradleBuilder == null || !appliesSkipPublicationInitScript(gradleBuilder.getSwitches())) {
+            throw new IOException("Cannot skip the publishing tasks for the build step 'Invoke Gradle script'. Please add the switch"
+                                  + " '--init-script ${" + ENV_VAR_SKIP_PUBLICATION_INIT_SCRIPT + "}' to that build step in the job configuration.");
+        }
+
+        final FilePath initScript = WorkspaceList.tempDir(this.build.getWorkspace()).child(SKIP_PUBLICATION_INIT_SCRIPT);
+        final InputStream initScriptContent = GradleBuildTypeAction.class.getResourceAsStream(SKIP_PUBLICATION_INIT_SCRIPT);
+        try {
+            initScript.getParent().mkdirs();
+            initScript.copyFrom(initScriptContent);
+        } finally {
+            IOUtils.closeQuietly(initScriptContent);
+        }
+        buildEnvVars.put(ENV_VAR_SKIP_PUBLICATION_INIT_SCRIPT, initScript.getRemote());
+
+        // Build scripts with custom publishing tasks may also check the project property 'skipPublication'.
+        buildEnvVars.put(GRADLE_PROJECT_PROPERTY_ENV_VAR_PREFIX + GRADLE_PROPERTY_SKIP_PUBLICATION, PROPERTY_VALUE_TRUE);
+    }
+
+    private static boolean appliesSkipPublicationInitScript(final String switches) {
+        return StringUtils.contains(switches, "${" + ENV_VAR_SKIP_PUBLICATION_INIT_SCRIPT + "}")
+               || StringUtils.contains(switches, "$" + ENV_VAR_SKIP_PUBLICATION_INIT_SCRIPT);
+    }
+}
@@ -0,0 +1,103 @@
+package de.silpion.jenkins.plugins.gitflow.action.buildtype;
+
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.FileContentRewriter;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the version of a Gradle project in its {@code gradle.properties} and build scripts ({@code build.gradle} or
+ * {@code build.gradle.kts}), preserving the formatting of the files. Gradle isn't started for this.
+ * <p>
+ * Only the following declarations are rewritten:
+ * <ul>
+ * <li>the {@code version} property in properties files (e.g. {@code version=1.0-SNAPSHOT}),</li>
+ * <li>assignments of string literals to the {@code version} in build scripts (e.g. {@code version = '1.0-SNAPSHOT'},
+ * {@code project.version = "1.0-SNAPSHOT"} or {@code version '1.0-SNAPSHOT'}).</li>
+ * </ul>
+ * Versions that are defined by expressions or interpolated strings (e.g. <code>"${baseVersion}-SNAPSHOT"</code>) are not touched.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GradleVersionRewriter implements FileContentRewriter {
+
+    private static final long serialVersionUID = -6431979528432474785L;
+
+    static final String GRADLE_PROPERTIES = "gradle.properties";
+
+    private static final Pattern PROPERTIES_VERSION_PATTERN = Pattern.compile("(?m)^([ \\t\\f]*version[ \\t\\f]*[=:][ \\t\\f]*)([^\\s\\\\]+)([ \\t\\f]*)$");
+    private static final Pattern SCRIPT_VERSION_PATTERN = Pattern.compile("(?m)^([ \\t]*(?:project\\.)?version[ \\t]*(?:=[ \\t]*|[ \\t]))(['\"])([^'\"$\\\\\\r\\n]+)\\2");
+
+    // The bytes of the files are mapped one-to-one to characters, so that the rewriting doesn't depend on their encoding.
+    private static final Charset BYTE_CHARSET = Charset.forName("ISO-8859-1");
+
+    private final List<String> filePaths;
+    private final String newVersion;
+
+    /**
+     * Creates a new rewriter.
+     *
+     * @param filePaths the paths of the properties files and build scripts to be rewritten.
+     * @param newVersion the new version for the project.
+     */
+    public GradleVersionRewriter(final List<String> filePaths, final String newVersion) {
+        this.filePaths = new ArrayList<String>(filePaths);
+        this.newVersion = newVersion;
+    }
+
+    /** {@inheritDoc} */
+    public List<String> getFilePaths() {
+        return this.filePaths;
+    }
+
+    /** {@inheritDoc} */
+    public FileContentRewriter prepare(final Map<String, byte[]> contents) {
+
+        // The files are rewritten independently of each other.
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    public byte[] rewrite(final String path, final byte[] content) throws IOException {
+        final String file = new String(content, BYTE_CHARSET);
+        final Matcher versionMatcher = getVersionPattern(path).matcher(file);
+        final StringBuffer rewrittenFile = new StringBuffer(file.length());
+        while (versionMatcher.find()) {
+            versionMatcher.appendReplacement(rewrittenFile, Matcher.quoteReplacement(this.replaceVersion(versionMatcher)));
+        }
+        versionMatcher.appendTail(rewrittenFile);
+        return rewrittenFile.toString().equals(file) ? null : rewrittenFile.toString().getBytes(BYTE_CHARSET);
+    }
+
+    private String replaceVersion(final Matcher versionMatcher) {
+        if (versionMatcher.pattern() == PROPERTIES_VERSION_PATTERN) {
+            return versionMatcher.group(1) + this.newVersion + versionMatcher.group(3);
+        } else {
+            return versionMatcher.group(1) + versionMatcher.group(2) + this.newVersion + versionMatcher.group(2);
+        }
+    }
+
+    /**
+     * Returns the version declared in the given properties file or build script.
+     *
+     * @param path the path of the file - the file name decides whether it's a properties file or a build script.
+     * @param content the content of the file.
+     * @return the first declared version or {@code null} if the file doesn't declare a version.
+     */
+    public static String getVersion(final String path, final byte[] content) {
+        final Matcher versionMatcher = getVersionPattern(path).matcher(new String(content, BYTE_CHARSET));
+        if (versionMatcher.find()) {
+            return versionMatcher.pattern() == PROPERTIES_VERSION_PATTERN ? versionMatcher.group(2) : versionMatcher.group(3);
+        }
+        return null;
+    }
+
+    private static Pattern getVersionPattern(final String path) {
+        return path.endsWith(".properties") ? PROPERTIES_VERSION_PATTERN : SCRIPT_VERSION_PATTERN;
+    }
+}
@@ -1,26 +1,35 @@
 package de.silpion.jenkins.plugins.gitflow.action.buildtype;
 
 import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.FileContentRewriter;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.Launcher;
 import hudson.maven.MavenArgumentInterceptorAction;
 import hudson.maven.MavenModule;
-import hudson.maven.MavenModuleSet;
 import hudson.maven.MavenModuleSetBuild;
+import hudson.maven.ModuleDependency;
 import hudson.maven.RedeployPublisher;
 import hudson.model.BuildListener;
-import hudson.tasks.Maven;
+import hudson.remoting.VirtualChannel;
 import hudson.tasks.Publisher;
 import hudson.util.ArgumentListBuilder;
+import jenkins.MasterToSlaveFileCallable;
 import org.apache.commons.collections.MapUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
 
@@ -39,11 +48,17 @@ public class MavenBuildTypeAction extends AbstractBuildTypeAction<MavenModuleSet
             + " - The builds are declared unstable when there are unstable branches (see global configuration).%n"
             + " - The option 'Deploy even if the build is unstable' of the post build action 'Deploy artifacts to Maven repository' is not activated (see job configuration).%n";
 
-    private static final String CMD_PATTERN_SET_POM_VERSION = "org.codehaus.mojo:versions-maven-plugin:2.1:set -DnewVersion=%s -DgenerateBackupPoms=false";
-
     private static final String POM_XML = "pom.xml";
 
+    private static final String MSG_PATTERN_UPDATED_POMS = "Gitflow - %s: Updated %d POM(s) to version %s%n";
+    private static final String MSG_PATTERN_BUILDING_ALL_MODULES = "Gitflow - %s: %s - building all modules%n";
+    private static final String MSG_PATTERN_BUILDING_CHANGED_MODULES =
+            "Gitflow - %s: Building %d of %d modules (changed since the last release or depending on changed modules): %s%n";
+
+    private static final String VERSION_PLACEHOLDER = "@gitflow.version@";
+
     private static final String MAVEN_PROPERTY_SKIP_DEPLOYMENT = "maven.deploy.skip";
+    private static final String MAVEN_PROPERTY_SKIP_TESTS = "skipTests";
     private static final String PROPERTY_VALUE_TRUE = Boolean.TRUE.toString();
 
     private static final MavenArgumentInterceptorAction RELEASE_BUILD_ARGUMENT_INTERCEPTOR_ACTION = new MavenArgumentInterceptorAction() {
@@ -74,6 +89,74 @@ public class MavenBuildTypeAction extends AbstractBuildTypeAction<MavenModuleSet
         }
     };
 
+    /**
+     * {@link MavenArgumentInterceptorAction} that restricts the main build to the given reactor modules ({@code -pl}). The other
+     * modules are resolved from the repository - with their released versions.
+     */
+    static class ProjectListArgumentInterceptorAction implements MavenArgumentInterceptorAction {
+
+        private final List<String> projects;
+
+        ProjectListArgumentInterceptorAction(final Collection<String> projects) {
+            this.projects = new ArrayList<String>(projects);
+        }
+
+        /** {@inheritDoc} */
+        public String getGoalsAndOptions(final MavenModuleSetBuild build) {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public ArgumentListBuilder intercept(final ArgumentListBuilder mavenargs, final MavenModuleSetBuild build) {
+            return mavenargs.add("-pl", StringUtils.join(this.projects, ','));
+        }
+
+        /** {@inheritDoc} */
+        public String getIconFileName() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public String getDisplayName() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public String getUrlName() {
+            return null;
+        }
+    }
+
+    /**
+     * Determines the parents of the POMs in the workspace that inherit their versions from the parent (see
+     * {@link PomVersionRewriter#getVersionParent(byte[])}). All POMs are read where the workspace is located.
+     */
+    static class VersionParentsCallable extends MasterToSlaveFileCallable<Map<String, String>> {
+
+        private static final long serialVersionUID = 8254512402924870413L;
+
+        private final List<String> pomPaths;
+
+        VersionParentsCallable(final List<String> pomPaths) {
+            this.pomPaths = pomPaths;
+        }
+
+        /** {@inheritDoc} */
+        public Map<String, String> invoke(final File workspace, final VirtualChannel channel) throws IOException, InterruptedException {
+            final Map<String, String> versionParents = new HashMap<String, String>();
+            for (final String pomPath : this.pomPaths) {
+                final File pomFile = new File(workspace, pomPath);
+                if (pomFile.isFile()) {
+                    final String versionParent = PomVersionRewriter.getVersionParent(FileUtils.readFileToByteArray(pomFile));
+                    if (versionParent != null) {
+                        versionParents.put(pomPath, versionParent);
+                    }
+                }
+            }
+            return versionParents;
+        }
+    }
+
     /**
      * Initialises a new Maven build type action.
      *
@@ -94,45 +177,210 @@ public class MavenBuildTypeAction extends AbstractBuildTypeAction<MavenModuleSet
 
     /** {@inheritDoc} */
     @Override
-    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
     public List<String> updateVersion(final String version) throws IOException, InterruptedException {
-        final List<String> modifiedFiles;
+        return this.rewritePoms(this.createVersionRewriter(version), version);
+    }
 
-        // Run a Maven build that updates the project versions in the POMs.
-        this.executeMaven("set-version_" + version + ".log", formatPattern(CMD_PATTERN_SET_POM_VERSION, version));
+    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+    private List<String> rewritePoms(final PomVersionRewriter pomVersionRewriter, final String version) throws IOException, InterruptedException {
+
+        // Rewrite all modules' POMs with a single call - the workspace might be located on a remote agent.
+        final List<String> modifiedFiles = this.build.getWorkspace().act(new RewriteFilesCallable(pomVersionRewriter));
+        this.consoleLogger.printf(MSG_PATTERN_UPDATED_POMS, this.gitflowActionName, modifiedFiles.size(), version);
+        return modifiedFiles;
+    }
 
-        // Each modules' POM should have been modified.
+    /** {@inheritDoc} */
+    @Override
+    public List<String> updateVersionOfChangedModules(final String version, final Collection<String> changedPaths, final Map<String, byte[]> releasedVersionFiles)
+            throws IOException, InterruptedException {
         final Collection<MavenModule> modules = this.build.getProject().getModules();
-        modifiedFiles = new ArrayList<String>(modules.size());
+        final Map<String, String> pomModules = new HashMap<String, String>(modules.size() * 4 / 3 + 1);
+        final Map<String, String> reactorVersions = new HashMap<String, String>(modules.size() * 4 / 3 + 1);
+        final Map<String, String> releasedVersions = new HashMap<String, String>(modules.size() * 4 / 3 + 1);
+        final Set<String> buildModules = new TreeSet<String>();
         for (final MavenModule module : modules) {
-            final String moduleRelativePath = module.getRelativePath();
-            final String modulePomFile = (StringUtils.isBlank(moduleRelativePath) ? "" : moduleRelativePath + "/") + POM_XML;
-            if (this.build.getWorkspace().child(modulePomFile).exists()) {
-                modifiedFiles.add(modulePomFile);
+            final String moduleName = module.getModuleName().toString();
+            final String pomPath = getPomPath(module);
+            pomModules.put(pomPath, moduleName);
+            reactorVersions.put(moduleName, module.getVersion()); // Replaced with the versions in the workspace when the POMs are rewritten.
+
+            // Modules that didn't exist in the last release must be built anyway.
+            final byte[] releasedPom = releasedVersionFiles.get(pomPath);
+            final String releasedVersion = releasedPom == null ? null : PomVersionRewriter.getProjectVersion(releasedPom);
+            if (releasedVersion == null) {
+                buildModules.add(moduleName);
+            } else {
+                releasedVersions.put(moduleName, releasedVersion);
+            }
+        }
+
+        // Each changed file belongs to the module with the longest matching path.
+        for (final String changedPath : changedPaths) {
+            String changedModule = null;
+            int changedModulePathLength = -1;
+            for (final MavenModule module : modules) {
+                final String modulePath = StringUtils.defaultString(module.getRelativePath());
+                if (modulePath.length() > changedModulePathLength
+                    && (modulePath.isEmpty() || changedPath.startsWith(modulePath + "/"))) {
+                    changedModule = module.getModuleName().toString();
+                    changedModulePathLength = modulePath.length();
+                }
+            }
+            if (changedModule != null) {
+                buildModules.add(changedModule);
             }
         }
+        if (buildModules.isEmpty()) {
+            this.consoleLogger.printf(MSG_PATTERN_BUILDING_ALL_MODULES, this.gitflowActionName, "No module changed since the last release");
+            return this.updateVersion(version);
+        }
+
+        // Add the modules that are affected by the changes, and the parents the built modules inherit their versions from.
+        final Map<String, String> versionParents = this.getVersionParents(pomModules);
+        addAffectedModules(buildModules, this.getRelatedModules(modules, versionParents), versionParents);
+        if (buildModules.size() == modules.size()) {
+            this.consoleLogger.printf(MSG_PATTERN_BUILDING_ALL_MODULES, this.gitflowActionName, "All modules are affected by the changes since the last release");
+            return this.updateVersion(version);
+        }
+
+        // The built modules get the new version, the other modules keep their released versions.
+        final Map<String, String> newModuleVersions = new HashMap<String, String>(releasedVersions);
+        for (final String buildModule : buildModules) {
+            newModuleVersions.put(buildModule, version);
+        }
+        final List<String> modifiedFiles = this.rewritePoms(new PomVersionRewriter(pomModules, reactorVersions, newModuleVersions), version);
 
+        this.build.addAction(new ProjectListArgumentInterceptorAction(buildModules));
+        this.consoleLogger.printf(MSG_PATTERN_BUILDING_CHANGED_MODULES, this.gitflowActionName, buildModules.size(), modules.size(), buildModules);
         return modifiedFiles;
     }
 
-    private void executeMaven(final String logFileName, final String... arguments) throws IOException, InterruptedException {
+    /**
+     * Adds the modules that are affected by the changes of the given modules to them: the modules that depend on a changed
+     * module and the modules that inherit from a changed module. A built module that inherits its version needs the new
+     * version of its parent, so the parent is added as well - but the other modules inheriting from a parent that is only
+     * built for the version aren't affected and keep their released versions.
+     *
+     * @param buildModules the changed modules - the affected modules are added.
+     * @param relatedModules the modules that are affected by the changes of a module, mapped by the module.
+     * @param versionParents the parents of the modules that inherit their versions, mapped by the modules.
+     */
+    static void addAffectedModules(final Set<String> buildModules, final Map<String, Set<String>> relatedModules, final Map<String, String> versionParents) {
+        final Set<String> affectedModules = new HashSet<String>(buildModules);
+        final Deque<String> uncheckedModules = new ArrayDeque<String>(buildModules);
+        while (!uncheckedModules.isEmpty()) {
+            final String module = uncheckedModules.poll();
+            final Set<String> moduleRelatives = relatedModules.get(module);
+            if (moduleRelatives != null) {
+                for (final String relatedModule : moduleRelatives) {
+                    if (affectedModules.add(relatedModule)) {
+                        buildModules.add(relatedModule);
+                        uncheckedModules.add(relatedModule);
+                    }
+                }
+            }
 
-        final MavenModuleSet mavenProject = this.build.getProject();
-        final String mavenInstallation = mavenProject.getMaven().getName();
-        final String pom = mavenProject.getRootPOM(this.build.getEnvironment(this.listener));
+            // The parents get the new version, up to the first one that declares its own version or is built anyway.
+            String versionParent = versionParents.get(module);
+            while (versionParent != null && buildModules.add(versionParent)) {
+                versionParent = versionParents.get(versionParent);
+            }
+        }
+    }
+
+    /**
+     * Maps each module to the modules that are affected by its changes: the modules that depend on it and the modules that
+     * inherit their versions from it.
+     */
+    private Map<String, Set<String>> getRelatedModules(final Collection<MavenModule> modules, final Map<String, String> versionParents) {
+        final Map<String, Set<String>> relatedModules = new HashMap<String, Set<String>>(modules.size() * 4 / 3 + 1);
+        final Set<String> moduleNames = new HashSet<String>(modules.size() * 4 / 3 + 1);
+        for (final MavenModule module : modules) {
+            moduleNames.add(module.getModuleName().toString());
+        }
+        for (final MavenModule module : modules) {
+            final String moduleName = module.getModuleName().toString();
+            for (final ModuleDependency dependency : module.getDependencies()) {
+                addRelatedModule(relatedModules, dependency.toModuleName().toString(), moduleName, moduleNames);
+            }
+        }
+        for (final Map.Entry<String, String> versionParent : versionParents.entrySet()) {
+            addRelatedModule(relatedModules, versionParent.getValue(), versionParent.getKey(), moduleNames);
+        }
+        return relatedModules;
+    }
 
-        // Use a BuildListener delegate to redirect the Maven output to a file (instead of being displayed in the Jenkins console).
-        final File outputLogFile = new File(this.build.getRootDir(), "gitflow-log/" + logFileName);
-        final BuildListener buildListener = new BuildListenerDelegate(this.listener, outputLogFile);
+    /**
+     * Returns the parents of the modules that inherit their versions from a parent in the reactor, mapped by the modules.
+     */
+    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+    private Map<String, String> getVersionParents(final Map<String, String> pomModules) throws IOException, InterruptedException {
+
+        // Read the POMs with a single call - the workspace might be located on a remote agent.
+        final Map<String, String> pomVersionParents = this.build.getWorkspace().act(new VersionParentsCallable(new ArrayList<String>(pomModules.keySet())));
+        final Map<String, String> versionParents = new HashMap<String, String>(pomVersionParents.size() * 4 / 3 + 1);
+        for (final Map.Entry<String, String> pomVersionParent : pomVersionParents.entrySet()) {
+            if (pomModules.containsValue(pomVersionParent.getValue())) {
+                versionParents.put(pomModules.get(pomVersionParent.getKey()), pomVersionParent.getValue());
+            }
+        }
+        return versionParents;
+    }
 
-        // Execute Maven and throw an Exception when it returns with an error.
-        final String argumentsString = StringUtils.join(arguments, " ");
-        final boolean success = new Maven(argumentsString, mavenInstallation, pom, null, null).perform(this.build, this.launcher, buildListener);
-        if (!success) {
-            throw new IOException("Error while executing mvn " + argumentsString);
+    private static void addRelatedModule(final Map<String, Set<String>> relatedModules, final String module, final String relatedModule, final Set<String> moduleNames) {
+        if (moduleNames.contains(module) && moduleNames.contains(relatedModule)) {
+            Set<String> moduleRelatives = relatedModules.get(module);
+            if (moduleRelatives == null) {
+                moduleRelatives = new HashSet<String>();
+                relatedModules.put(module, moduleRelatives);
+            }
+            moduleRelatives.add(relatedModule);
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public FileContentRewriter createVersionNormalizer() {
+        final Collection<MavenModule> modules = this.build.getProject().getModules();
+        final List<String> reactorModules = new ArrayList<String>(modules.size());
+        for (final MavenModule module : modules) {
+            reactorModules.add(module.getModuleName().toString());
+        }
+        return PomVersionRewriter.newVersionNormalizer(this.getVersionFilePaths(), reactorModules, VERSION_PLACEHOLDER);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PomVersionRewriter createVersionRewriter(final String version) {
+
+        // The POMs of all reactor modules are rewritten. The versions of the modules are required to identify the reactor dependencies.
+        // The versions from the last parsing of the POMs are only defaults - the rewriter takes them from the POMs being rewritten.
+        final Collection<MavenModule> modules = this.build.getProject().getModules();
+        final Map<String, String> reactorVersions = new HashMap<String, String>(modules.size() * 4 / 3 + 1);
+        for (final MavenModule module : modules) {
+            reactorVersions.put(module.getModuleName().toString(), module.getVersion());
+        }
+
+        return new PomVersionRewriter(this.getVersionFilePaths(), reactorVersions, version);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String> getVersionFilePaths() {
+        final Collection<MavenModule> modules = this.build.getProject().getModules();
+        final List<String> pomPaths = new ArrayList<String>(modules.size());
+        for (final MavenModule module : modules) {
+            pomPaths.add(getPomPath(module));
+        }
+        return pomPaths;
+    }
+
+    private static String getPomPath(final MavenModule module) {
+        final String moduleRelativePath = module.getRelativePath();
+        return (StringUtils.isBlank(moduleRelativePath) ? "" : moduleRelativePath + "/") + POM_XML;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void prepareForReleaseBuild() throws IOException {
@@ -178,6 +426,15 @@ public class MavenBuildTypeAction extends AbstractBuildTypeAction<MavenModuleSet
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean skipVerification(final Map<String, String> buildEnvVars) {
+
+        // The tests are compiled but not executed - the archives are still built and published.
+        buildEnvVars.put(MAVEN_PROPERTY_SKIP_TESTS, PROPERTY_VALUE_TRUE);
+        return true;
+    }
+
     private RedeployPublisher getConfiguredRedeployPublisher() {
         for (final Publisher publisher : this.build.getProject().getPublishers()) {
             if (publisher instanceof RedeployPublisher) {
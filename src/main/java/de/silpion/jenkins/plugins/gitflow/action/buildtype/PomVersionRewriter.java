@@ -0,0 +1,426 @@
+package de.silpion.jenkins.plugins.gitflow.action.buildtype;
+
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.FileContentRewriter;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the versions in the POMs of a Maven reactor, preserving the formatting of the files.
+ * <p>
+ * The POMs are processed with a single streaming pass over the XML text, without building a DOM. Only the text of the following
+ * elements is replaced with the new version:
+ * <ul>
+ * <li>the version of the project ({@code /project/version}),</li>
+ * <li>the version of the parent ({@code /project/parent/version}), if the parent is a module of the reactor,</li>
+ * <li>the versions of dependencies on modules of the reactor, if they match the current version of the module.</li>
+ * </ul>
+ * Versions that are defined by properties (e.g. <code>${project.version}</code>) are not touched.
+ * <p>
+ * Either all modules get the same new version, or each module gets an individual new version (modules without a new version
+ * are left untouched then). A module that inherits its version from its parent gets its own new version in the parent
+ * element, so that a module keeping its released version still refers to the released parent. The current versions of
+ * the modules are taken from the POMs being rewritten (see {@link #prepare(Map)}). A rewriter created with
+ * {@link #newVersionNormalizer(List, Collection, String)} replaces all versions of reactor modules with a placeholder,
+ * regardless of their current versions.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class PomVersionRewriter implements FileContentRewriter {
+
+    private static final long serialVersionUID = 2427164658046131284L;
+
+    private static final Pattern XML_ENCODING_PATTERN = Pattern.compile("^\\uFEFF?<\\?xml[^>]*encoding\\s*=\\s*[\"']([A-Za-z0-9._-]+)[\"']");
+    private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+    private static final String ELEMENT_PROJECT = "project";
+    private static final String ELEMENT_PARENT = "parent";
+    private static final String ELEMENT_DEPENDENCIES = "dependencies";
+    private static final String ELEMENT_DEPENDENCY = "dependency";
+    private static final String ELEMENT_GROUP_ID = "groupId";
+    private static final String ELEMENT_ARTIFACT_ID = "artifactId";
+    private static final String ELEMENT_VERSION = "version";
+
+    private final List<String> pomPaths;
+    private final Map<String, String> pomModules;
+    private final Map<String, String> reactorVersions;
+    private final String newVersion;
+    private final Map<String, String> newModuleVersions;
+    private final boolean anyReactorVersion;
+
+    /**
+     * Creates a new rewriter that sets the same version for all reactor modules.
+     *
+     * @param pomPaths the paths of the module POMs to be rewritten.
+     * @param reactorVersions the current versions of the reactor modules, mapped by their {@code groupId:artifactId}.
+     * @param newVersion the new version for the reactor modules.
+     */
+    public PomVersionRewriter(final List<String> pomPaths, final Map<String, String> reactorVersions, final String newVersion) {
+        this(pomPaths, null, reactorVersions, newVersion, null, false);
+    }
+
+    /**
+     * Creates a new rewriter that sets individual versions for the reactor modules.
+     *
+     * @param pomModules the {@code groupId:artifactId} of the reactor modules, mapped by the paths of their POMs.
+     * @param reactorVersions the current versions of the reactor modules, mapped by their {@code groupId:artifactId}.
+     * @param newModuleVersions the new versions for the reactor modules, mapped by their {@code groupId:artifactId}.
+     */
+    public PomVersionRewriter(final Map<String, String> pomModules, final Map<String, String> reactorVersions, final Map<String, String> newModuleVersions) {
+        this(new ArrayList<String>(pomModules.keySet()), new HashMap<String, String>(pomModules), reactorVersions, null,
+             new HashMap<String, String>(newModuleVersions), false);
+    }
+
+    private PomVersionRewriter(final List<String> pomPaths, final Map<String, String> pomModules, final Map<String, String> reactorVersions,
+                               final String newVersion, final Map<String, String> newModuleVersions, final boolean anyReactorVersion) {
+        this.pomPaths = new ArrayList<String>(pomPaths);
+        this.pomModules = pomModules;
+        this.reactorVersions = new HashMap<String, String>(reactorVersions);
+        this.newVersion = newVersion;
+        this.newModuleVersions = newModuleVersions;
+        this.anyReactorVersion = anyReactorVersion;
+    }
+
+    /**
+     * Creates a rewriter that replaces the versions of the reactor modules with a placeholder - also the versions of dependencies
+     * that don't match the current version of the module. Thus POMs that only differ in the versions of the reactor modules
+     * are equal after they have been normalised.
+     *
+     * @param pomPaths the paths of the module POMs to be normalised.
+     * @param reactorModules the {@code groupId:artifactId} of the reactor modules.
+     * @param placeholder the placeholder for the versions.
+     * @return the normalising rewriter.
+     */
+    public static PomVersionRewriter newVersionNormalizer(final List<String> pomPaths, final Collection<String> reactorModules, final String placeholder) {
+        final Map<String, String> reactorVersions = new HashMap<String, String>(reactorModules.size() * 4 / 3 + 1);
+        for (final String reactorModule : reactorModules) {
+            reactorVersions.put(reactorModule, placeholder);
+        }
+        return new PomVersionRewriter(pomPaths, null, reactorVersions, placeholder, null, true);
+    }
+
+    /** {@inheritDoc} */
+    public List<String> getFilePaths() {
+        return this.pomPaths;
+    }
+
+    /**
+     * Returns a rewriter that uses the versions of the reactor modules that are declared in the given POMs, instead of the
+     * versions this rewriter has been created with. The versions of dependencies on reactor modules are only rewritten when
+     * they match the current version of the module - and the given POMs are the ones being rewritten.
+     *
+     * @param contents the current contents of the POMs, mapped by their paths.
+     * @return the rewriter for the given POMs.
+     * @throws IOException if a POM is not well-formed.
+     */
+    public PomVersionRewriter prepare(final Map<String, byte[]> contents) throws IOException {
+        if (this.anyReactorVersion) {
+            return this;
+        }
+
+        final Map<String, String> currentReactorVersions = new HashMap<String, String>(this.reactorVersions);
+        for (final byte[] content : contents.values()) {
+            final ProjectInfo projectInfo = scanProject(new String(content, detectCharset(content)));
+            final String module = projectInfo.getModule();
+            final String version = projectInfo.getVersion();
+            if (currentReactorVersions.containsKey(module) && version != null) {
+                currentReactorVersions.put(module, version);
+            }
+        }
+        return new PomVersionRewriter(this.pomPaths, this.pomModules, currentReactorVersions, this.newVersion, this.newModuleVersions, false);
+    }
+
+    /** {@inheritDoc} */
+    public byte[] rewrite(final String path, final byte[] content) throws IOException {
+        final Charset charset = detectCharset(content);
+        final String pom = new String(content, charset);
+        final String rewrittenPom = this.rewritePom(pom, this.getNewVersion(this.pomModules == null ? null : this.pomModules.get(path)));
+        return rewrittenPom.equals(pom) ? null : rewrittenPom.getBytes(charset);
+    }
+
+    private static Charset detectCharset(final byte[] content) {
+        final String prolog = new String(content, 0, Math.min(content.length, 200), DEFAULT_CHARSET);
+        final Matcher encodingMatcher = XML_ENCODING_PATTERN.matcher(prolog);
+        return encodingMatcher.find() && Charset.isSupported(encodingMatcher.group(1)) ? Charset.forName(encodingMatcher.group(1)) : DEFAULT_CHARSET;
+    }
+
+    private String getNewVersion(final String module) {
+        return this.newModuleVersions == null ? this.newVersion : this.newModuleVersions.get(module);
+    }
+
+    /**
+     * Rewrites the versions in the given POM.
+     *
+     * @param pom the content of the POM.
+     * @return the rewritten content of the POM.
+     * @throws IOException if the POM is not well-formed.
+     */
+    public String rewritePom(final String pom) throws IOException {
+        return this.rewritePom(pom, this.newVersion);
+    }
+
+    /**
+     * Returns the {@code groupId:artifactId} of the parent of the given POM, if the POM inherits its version from the parent.
+     *
+     * @param content the content of the POM file.
+     * @return the {@code groupId:artifactId} of the parent or {@code null} if the POM declares its own version (or has no parent).
+     * @throws IOException if the POM is not well-formed.
+     */
+    public static String getVersionParent(final byte[] content) throws IOException {
+        final String pom = new String(content, detectCharset(content));
+        final ProjectInfo projectInfo = scanProject(pom);
+        return projectInfo.version == null ? projectInfo.parent : null;
+    }
+
+    /**
+     * Returns the version of the given POM - either the declared version or the version inherited from the parent.
+     *
+     * @param content the content of the POM file.
+     * @return the version of the POM or {@code null} if it neither declares nor inherits a version.
+     * @throws IOException if the POM is not well-formed.
+     */
+    public static String getProjectVersion(final byte[] content) throws IOException {
+        final String pom = new String(content, detectCharset(content));
+        return scanProject(pom).getVersion();
+    }
+
+    private static ProjectInfo scanProject(final String pom) throws IOException {
+        final ProjectInfo projectInfo = new ProjectInfo();
+        new PomVersionRewriter(new ArrayList<String>(), new HashMap<String, String>(), null).collectVersionRegions(pom, null, new ArrayList<VersionRegion>(), projectInfo);
+        return projectInfo;
+    }
+
+    private String rewritePom(final String pom, final String projectVersion) throws IOException {
+        final List<VersionRegion> versionRegions = new ArrayList<VersionRegion>();
+        final ProjectInfo projectInfo = new ProjectInfo();
+        this.collectVersionRegions(pom, projectVersion, versionRegions, projectInfo);
+
+        // The version of the parent is the version of a module that inherits its version - the parent might be built for other modules only.
+        if (projectInfo.version == null && projectInfo.parentVersionRegion != null && projectVersion != null) {
+            final int parentVersionRegionIndex = versionRegions.indexOf(projectInfo.parentVersionRegion);
+            versionRegions.set(parentVersionRegionIndex, new VersionRegion(projectInfo.parentVersionRegion, projectVersion));
+        }
+
+        // Replace the versions - starting at the end, so that the positions of the remaining regions stay valid.
+        final StringBuilder rewrittenPom = new StringBuilder(pom);
+        for (int i = versionRegions.size() - 1; i >= 0; i--) {
+            final VersionRegion versionRegion = versionRegions.get(i);
+            final String currentVersion = pom.substring(versionRegion.start, versionRegion.end);
+            if (versionRegion.newVersion != null && !currentVersion.contains("${")) {
+                rewrittenPom.replace(versionRegion.start, versionRegion.end, versionRegion.newVersion);
+            }
+        }
+        return rewrittenPom.toString();
+    }
+
+    private void collectVersionRegions(final String pom, final String projectVersion, final List<VersionRegion> versionRegions, final ProjectInfo projectInfo)
+            throws IOException {
+
+        final List<String> elementPath = new ArrayList<String>();
+        CoordinatesBlock coordinatesBlock = null;
+        int textStart = -1;
+        int position = pom.indexOf('<');
+        while (position >= 0) {
+            final int nextPosition;
+            if (pom.startsWith("<!--", position)) {
+                nextPosition = indexAfter(pom, "-->", position);
+                textStart = -1; // Comments in version elements are not supported - leave those elements untouched.
+            } else if (pom.startsWith("<![CDATA[", position)) {
+                nextPosition = indexAfter(pom, "]]>", position);
+                textStart = -1;
+            } else if (pom.startsWith("<?", position)) {
+                nextPosition = indexAfter(pom, "?>", position);
+            } else if (pom.startsWith("<!", position)) {
+                final int internalSubsetStart = pom.indexOf('[', position);
+                final int tagEnd = indexAfter(pom, ">", position);
+                nextPosition = internalSubsetStart >= 0 && internalSubsetStart < tagEnd ? indexAfter(pom, "]>", internalSubsetStart) : tagEnd;
+            } else if (pom.startsWith("</", position)) {
+                nextPosition = indexAfter(pom, ">", position);
+                if (elementPath.isEmpty()) {
+                    throw new IOException("Unexpected end tag at position " + position);
+                }
+
+                // Handle the text of an element that doesn't contain any child elements.
+                final int depth = elementPath.size();
+                final String elementName = elementPath.get(depth - 1);
+                if (textStart >= 0) {
+                    final int[] textRegion = trimmedRegion(pom, textStart, position);
+                    if (depth == 2 && ELEMENT_VERSION.equals(elementName)) {
+                        versionRegions.add(new VersionRegion(textRegion, projectVersion));
+                        projectInfo.version = pom.substring(textRegion[0], textRegion[1]);
+                    } else if (depth == 2 && ELEMENT_GROUP_ID.equals(elementName)) {
+                        projectInfo.groupId = pom.substring(textRegion[0], textRegion[1]);
+                    } else if (depth == 2 && ELEMENT_ARTIFACT_ID.equals(elementName)) {
+                        projectInfo.artifactId = pom.substring(textRegion[0], textRegion[1]);
+                    } else if (coordinatesBlock != null && depth == coordinatesBlock.depth + 1) {
+                        coordinatesBlock.setCoordinate(elementName, pom.substring(textRegion[0], textRegion[1]), textRegion);
+                    }
+                }
+
+                // Decide about the version of a completed parent/dependency block.
+                if (coordinatesBlock != null && depth == coordinatesBlock.depth) {
+                    final String module = coordinatesBlock.groupId + ":" + coordinatesBlock.artifactId;
+                    final String reactorVersion = this.reactorVersions.get(module);
+                    if (reactorVersion != null && coordinatesBlock.versionRegion != null
+                        && (coordinatesBlock.isParent || this.anyReactorVersion || reactorVersion.equals(coordinatesBlock.version))) {
+                        final VersionRegion versionRegion = new VersionRegion(coordinatesBlock.versionRegion, this.getNewVersion(module));
+                        versionRegions.add(versionRegion);
+                        if (coordinatesBlock.isParent) {
+                            projectInfo.parentVersionRegion = versionRegion;
+                        }
+                    }
+                    if (coordinatesBlock.isParent) {
+                        projectInfo.parent = module;
+                        projectInfo.parentGroupId = coordinatesBlock.groupId;
+                        projectInfo.parentVersion = coordinatesBlock.version;
+                    }
+                    coordinatesBlock = null;
+                }
+
+                elementPath.remove(depth - 1);
+                textStart = -1;
+            } else {
+                nextPosition = indexAfterStartTag(pom, position);
+                final String qualifiedName = pom.substring(position + 1, nextPosition - 1).trim().split("[\\s/]", 2)[0];
+                final boolean emptyElement = pom.charAt(nextPosition - 2) == '/';
+                elementPath.add(qualifiedName.substring(qualifiedName.indexOf(':') + 1));
+
+                // Start collecting the coordinates of a parent or a dependency.
+                final int depth = elementPath.size();
+                if (!emptyElement && depth == 2 && ELEMENT_PARENT.equals(elementPath.get(1)) && ELEMENT_PROJECT.equals(elementPath.get(0))) {
+                    coordinatesBlock = new CoordinatesBlock(depth, true);
+                } else if (!emptyElement && depth > 2 && ELEMENT_DEPENDENCY.equals(elementPath.get(depth - 1)) && ELEMENT_DEPENDENCIES.equals(elementPath.get(depth - 2))) {
+                    coordinatesBlock = new CoordinatesBlock(depth, false);
+                }
+
+                if (emptyElement) {
+                    elementPath.remove(depth - 1);
+                    textStart = -1;
+                } else {
+                    textStart = nextPosition;
+                }
+            }
+            position = pom.indexOf('<', nextPosition);
+        }
+    }
+
+    private static int indexAfter(final String pom, final String token, final int fromIndex) throws IOException {
+        final int index = pom.indexOf(token, fromIndex);
+        if (index < 0) {
+            throw new IOException("Missing '" + token + "' after position " + fromIndex);
+        }
+        return index + token.length();
+    }
+
+    private static int indexAfterStartTag(final String pom, final int tagStart) throws IOException {
+        char quote = 0;
+        for (int i = tagStart + 1; i < pom.length(); i++) {
+            final char c = pom.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        throw new IOException("Unterminated start tag at position " + tagStart);
+    }
+
+    private static int[] trimmedRegion(final String pom, final int start, final int end) {
+        int trimmedStart = start;
+        int trimmedEnd = end;
+        while (trimmedStart < trimmedEnd && Character.isWhitespace(pom.charAt(trimmedStart))) {
+            trimmedStart++;
+        }
+        while (trimmedEnd > trimmedStart && Character.isWhitespace(pom.charAt(trimmedEnd - 1))) {
+            trimmedEnd--;
+        }
+        return new int[] { trimmedStart, trimmedEnd };
+    }
+
+    /**
+     * The region of a version in a POM and the new version for it.
+     */
+    private static class VersionRegion {
+
+        private final int start;
+        private final int end;
+        private final String newVersion;
+
+        VersionRegion(final int[] region, final String newVersion) {
+            this.start = region[0];
+            this.end = region[1];
+            this.newVersion = newVersion;
+        }
+
+        VersionRegion(final VersionRegion versionRegion, final String newVersion) {
+            this.start = versionRegion.start;
+            this.end = versionRegion.end;
+            this.newVersion = newVersion;
+        }
+    }
+
+    /**
+     * The coordinates and the parent of a POM.
+     */
+    private static class ProjectInfo {
+
+        private String groupId;
+        private String artifactId;
+        private String version;
+        private String parent;
+        private String parentGroupId;
+        private String parentVersion;
+        private VersionRegion parentVersionRegion;
+
+        /** Returns the {@code groupId:artifactId} of the project - the group ID might be inherited from the parent. */
+        String getModule() {
+            return (this.groupId == null ? this.parentGroupId : this.groupId) + ":" + this.artifactId;
+        }
+
+        /** Returns the version of the project - it might be inherited from the parent. */
+        String getVersion() {
+            return this.version == null ? this.parentVersion : this.version;
+        }
+    }
+
+    /**
+     * The coordinates collected for a parent or a dependency element.
+     */
+    private static class CoordinatesBlock {
+
+        private final int depth;
+        private final boolean isParent;
+
+        private String groupId;
+        private String artifactId;
+        private String version;
+        private int[] versionRegion;
+
+        CoordinatesBlock(final int depth, final boolean isParent) {
+            this.depth = depth;
+            this.isParent = isParent;
+        }
+
+        void setCoordinate(final String elementName, final String value, final int[] region) {
+            if (ELEMENT_GROUP_ID.equals(elementName)) {
+                this.groupId = value;
+            } else if (ELEMENT_ARTIFACT_ID.equals(elementName)) {
+                this.artifactId = value;
+            } else if (ELEMENT_VERSION.equals(elementName)) {
+                this.version = value;
+                this.versionRegion = region;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.silpion.jenkins.plugins.gitflow.action.buildtype;
+
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.FileContentRewriter;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites the project files in the workspace with a {@link FileContentRewriter}. All files are read, rewritten and written
+ * where the workspace is located (which might be a remote agent), so that a version update only requires a single remote call.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class RewriteFilesCallable extends MasterToSlaveFileCallable<List<String>> {
+
+    private static final long serialVersionUID = -4969254781160834135L;
+
+    private final FileContentRewriter rewriter;
+
+    /**
+     * Creates a new callable.
+     *
+     * @param rewriter rewrites the project files.
+     */
+    RewriteFilesCallable(final FileContentRewriter rewriter) {
+        this.rewriter = rewriter;
+    }
+
+    /**
+     * Rewrites the project files.
+     *
+     * @return the paths of the files that have been modified, relative to the workspace.
+     */
+    public List<String> invoke(final File workspace, final VirtualChannel channel) throws IOException, InterruptedException {
+        final List<String> filePaths = this.rewriter.getFilePaths();
+        final Map<String, byte[]> contents = new LinkedHashMap<String, byte[]>(filePaths.size() * 4 / 3 + 1);
+        for (final String filePath : filePaths) {
+            final File file = new File(workspace, filePath);
+            if (file.isFile()) {
+                contents.put(filePath, FileUtils.readFileToByteArray(file));
+            }
+        }
+
+        // All files are read before the first one is rewritten - the rewriter is prepared with their current contents.
+        final FileContentRewriter preparedRewriter = this.rewriter.prepare(contents);
+        final List<String> modifiedFiles = new ArrayList<String>(contents.size());
+        for (final Map.Entry<String, byte[]> content : contents.entrySet()) {
+            final byte[] rewrittenContent = preparedRewriter.rewrite(content.getKey(), content.getValue());
+            if (rewrittenContent != null) {
+                FileUtils.writeByteArrayToFile(new File(workspace, content.getKey()), rewrittenContent);
+                modifiedFiles.add(content.getKey());
+            }
+        }
+        return modifiedFiles;
+    }
+}
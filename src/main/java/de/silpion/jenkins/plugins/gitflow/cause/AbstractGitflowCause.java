@@ -2,6 +2,9 @@ package de.silpion.jenkins.plugins.gitflow.cause;
 
 import hudson.model.Cause;
 
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * The {@link Cause} object for the executed Gitflow actions.
  *
@@ -47,6 +50,16 @@ public abstract class AbstractGitflowCause extends Cause {
         return this.omitMainBuild;
     }
 
+    /**
+     * Returns the simple names of the branches that are modified by the regarding Gitflow action. They are locked while
+     * the action is executed, so that concurrent Gitflow actions on the same branches are serialised.
+     *
+     * @return the simple names of the branches that are modified by the regarding Gitflow action.
+     */
+    public Collection<String> getAffectedBranches() {
+        return Collections.emptyList();
+    }
+
     /**
      * Returns the version number to be displayed as tool tip for the build badges.
      *
@@ -3,6 +3,9 @@ package de.silpion.jenkins.plugins.gitflow.cause;
 import de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper;
 import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
 
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * The {@link hudson.model.Cause Cause} object for Gitflow actions, that are based on a hotfix branch.
  *
@@ -28,4 +31,10 @@ public abstract class AbstractHotfixBranchCause extends AbstractGitflowCause {
     public String getHotfixBranch() {
         return this.hotfixBranch;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public Collection<String> getAffectedBranches() {
+        return Collections.singletonList(this.hotfixBranch);
+    }
 }
@@ -3,6 +3,9 @@ package de.silpion.jenkins.plugins.gitflow.cause;
 import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
 import de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper;
 
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * The {@link hudson.model.Cause Cause} object for Gitflow actions, that are based on a release branch.
  *
@@ -28,4 +31,10 @@ public abstract class AbstractReleaseBranchCause extends AbstractGitflowCause {
     public String getReleaseBranch() {
         return this.releaseBranch;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public Collection<String> getAffectedBranches() {
+        return Collections.singletonList(this.releaseBranch);
+    }
 }
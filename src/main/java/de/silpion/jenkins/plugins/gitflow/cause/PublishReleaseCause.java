@@ -3,6 +3,11 @@ package de.silpion.jenkins.plugins.gitflow.cause;
 import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
 import org.eclipse.jgit.lib.ObjectId;
 
+import java.util.Arrays;
+import java.util.Collection;
+
+import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
+
 /**
  * The {@link hudson.model.Cause Cause} object for the <i>Publish Release</i> action to be executed.
  *
@@ -30,6 +35,12 @@ public class PublishReleaseCause extends AbstractReleaseBranchCause {
         return this.lastPatchReleaseVersion;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Collection<String> getAffectedBranches() {
+        return Arrays.asList(this.getReleaseBranch(), getGitflowBuildWrapperDescriptor().getMasterBranch());
+    }
+
     public String getLastPatchReleaseVersion() {
         return this.lastPatchReleaseVersion;
     }
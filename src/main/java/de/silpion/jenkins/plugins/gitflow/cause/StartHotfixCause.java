@@ -6,6 +6,9 @@ import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
 import org.apache.commons.lang.StringUtils;
 import org.semver.Version;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 /**
  * The {@link hudson.model.Cause Cause} object for the <i>Start Hotfix</i> action to be executed.
  *
@@ -45,6 +48,12 @@ public class StartHotfixCause extends AbstractGitflowCause {
         return getGitflowBuildWrapperDescriptor().getHotfixBranchPrefix() + this.hotfixVersion;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Collection<String> getAffectedBranches() {
+        return Arrays.asList(this.getHotfixBranch(), getGitflowBuildWrapperDescriptor().getMasterBranch());
+    }
+
     public String getHotfixVersion() {
         return this.hotfixVersion;
     }
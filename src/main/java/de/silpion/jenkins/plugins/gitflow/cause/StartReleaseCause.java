@@ -6,6 +6,9 @@ import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
 import org.apache.commons.lang.StringUtils;
 import org.semver.Version;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 /**
  * The {@link hudson.model.Cause Cause} object for the <i>Start Release</i> action to be executed.
  *
@@ -43,6 +46,12 @@ public class StartReleaseCause extends AbstractGitflowCause {
         return getGitflowBuildWrapperDescriptor().getReleaseBranchPrefix() + StringUtils.substringBeforeLast(this.releaseVersion, ".");
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Collection<String> getAffectedBranches() {
+        return Arrays.asList(this.getReleaseBranch(), getGitflowBuildWrapperDescriptor().getDevelopBranch());
+    }
+
     public String getReleaseVersion() {
         return this.releaseVersion;
     }
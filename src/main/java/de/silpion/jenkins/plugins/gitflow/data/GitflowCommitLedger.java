@@ -0,0 +1,186 @@
+package de.silpion.jenkins.plugins.gitflow.data;
+
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The ledger of the commits that have been created and pushed by the <i>Gitflow</i> actions of a Jenkins job/project
+ * (version updates and merges), persisted in a file in the root directory of the job.
+ * <p>
+ * The version updates don't contain any changes that need to be built - they only prepare the next development version.
+ * They are flagged as such when their diff against their (single) parent only changes versions. The ledger allows to
+ * recognise them when SCM polling would start a new build for them. Merge commits are recorded, but never flagged,
+ * because they may contain changes that haven't been built on the target branch. Only the latest commits are kept,
+ * because older commits won't be built by polling anyway.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitflowCommitLedger {
+
+    static final String FILE_NAME = "gitflow-commit-ledger.xml";
+    static final int MAX_ENTRIES = 500;
+
+    private static final Logger LOGGER = Logger.getLogger(GitflowCommitLedger.class.getName());
+
+    private static final Object LEDGER_LOCK = new Object();
+
+    /**
+     * A commit that has been pushed by a <i>Gitflow</i> action.
+     */
+    public static class Entry {
+
+        private final String commit;
+        private final String branch;
+        private final int buildNumber;
+        private final boolean versionUpdate;
+
+        Entry(final String commit, final String branch, final int buildNumber, final boolean versionUpdate) {
+            this.commit = commit;
+            this.branch = branch;
+            this.buildNumber = buildNumber;
+            this.versionUpdate = versionUpdate;
+        }
+
+        /**
+         * Returns the pushed commit.
+         *
+         * @return the pushed commit.
+         */
+        public ObjectId getCommit() {
+            return ObjectId.fromString(this.commit);
+        }
+
+        /**
+         * Returns the simple name of the branch the commit has been pushed to.
+         *
+         * @return the simple name of the branch the commit has been pushed to.
+         */
+        public String getBranch() {
+            return this.branch;
+        }
+
+        /**
+         * Returns the number of the build that pushed the commit.
+         *
+         * @return the number of the build that pushed the commit.
+         */
+        public int getBuildNumber() {
+            return this.buildNumber;
+        }
+
+        /**
+         * Tells if the commit only updates versions, i.e. if it has a single parent and its diff against that parent
+         * only changes the versions in the project files.
+         *
+         * @return {@code true} if the commit only updates versions.
+         */
+        public boolean isVersionUpdate() {
+            return this.versionUpdate;
+        }
+    }
+
+    // The entries are mapped by the commit IDs, in the order they have been recorded.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    private GitflowCommitLedger() {
+        // Instances are only created by this class and by XStream.
+    }
+
+    /**
+     * Records a commit that has been pushed by a <i>Gitflow</i> action of the given job.
+     *
+     * @param job the job of the <i>Gitflow</i> action.
+     * @param branch the simple name of the branch the commit has been pushed to.
+     * @param commit the pushed commit.
+     * @param buildNumber the number of the build that pushed the commit.
+     * @param versionUpdate if the commit only updates versions (see {@link Entry#isVersionUpdate()}).
+     */
+    public static void record(final AbstractProject<?, ?> job, final String branch, final ObjectId commit, final int buildNumber, final boolean versionUpdate) {
+        synchronized (LEDGER_LOCK) {
+            final GitflowCommitLedger ledger = read(job);
+            ledger.entries.remove(commit.getName());
+            ledger.entries.put(commit.getName(), new Entry(commit.getName(), branch, buildNumber, versionUpdate));
+
+            // Evict the oldest entries.
+            final Iterator<String> commitIterator = ledger.entries.keySet().iterator();
+            while (ledger.entries.size() > MAX_ENTRIES) {
+                commitIterator.next();
+                commitIterator.remove();
+            }
+
+            write(job, ledger);
+        }
+    }
+
+    /**
+     * Returns the ledger entry for the given commit.
+     *
+     * @param job the job to check the ledger for.
+     * @param commit the ID of the commit to be checked.
+     * @return the ledger entry if the commit has been pushed by a <i>Gitflow</i> action of the job, otherwise {@code null}.
+     */
+    public static Entry get(final AbstractProject<?, ?> job, final String commit) {
+        synchronized (LEDGER_LOCK) {
+            return commit == null ? null : read(job).entries.get(commit);
+        }
+    }
+
+    /**
+     * Returns the entries for the latest commits pushed by <i>Gitflow</i> actions of the given job, mapped by the branches
+     * they have been pushed to.
+     *
+     * @param job the job to return the latest commits for.
+     * @return the entries for the latest pushed commits, mapped by the simple branch names.
+     */
+    public static Map<String, Entry> getLatestEntriesByBranch(final AbstractProject<?, ?> job) {
+        final Map<String, Entry> latestEntries = new LinkedHashMap<String, Entry>();
+        synchronized (LEDGER_LOCK) {
+            for (final Entry entry : read(job).entries.values()) {
+                latestEntries.put(entry.getBranch(), entry);
+            }
+        }
+        return Collections.unmodifiableMap(latestEntries);
+    }
+
+    private static GitflowCommitLedger read(final AbstractProject<?, ?> job) {
+        final XmlFile ledgerFile = getLedgerFile(job);
+        if (ledgerFile != null && ledgerFile.exists()) {
+            try {
+                final Object loaded = ledgerFile.read();
+                if (loaded instanceof GitflowCommitLedger && ((GitflowCommitLedger) loaded).entries != null) {
+                    return (GitflowCommitLedger) loaded;
+                }
+            } catch (final IOException ioe) {
+                LOGGER.log(Level.WARNING, "Gitflow - Reading " + ledgerFile + " failed - starting a new commit ledger.", ioe);
+            }
+        }
+        return new GitflowCommitLedger();
+    }
+
+    private static void write(final AbstractProject<?, ?> job, final GitflowCommitLedger ledger) {
+        final XmlFile ledgerFile = getLedgerFile(job);
+        if (ledgerFile != null) {
+            try {
+                ledgerFile.write(ledger);
+            } catch (final IOException ioe) {
+                LOGGER.log(Level.WARNING, "Gitflow - Writing " + ledgerFile + " failed.", ioe);
+            }
+        }
+    }
+
+    private static XmlFile getLedgerFile(final AbstractProject<?, ?> job) {
+        final File rootDir = job.getRootDir();
+        return rootDir == null ? null : new XmlFile(Run.XSTREAM2, new File(rootDir, FILE_NAME));
+    }
+}
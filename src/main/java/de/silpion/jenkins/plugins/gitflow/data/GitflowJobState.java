@@ -0,0 +1,169 @@
+package de.silpion.jenkins.plugins.gitflow.data;
+
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The latest Gitflow plugin data of a Jenkins job/project, persisted in a file in the root directory of the job.
+ * <p>
+ * The file is updated whenever a build that carries {@link GitflowPluginData} completes. It's the source of truth for the
+ * latest branch state, so finding that state costs a single file read - regardless of the length of the build history.
+ * For jobs that have been built with older versions of the plugin, the build history is walked once and the file is
+ * created from the result.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitflowJobState {
+
+    static final String FILE_NAME = "gitflow-plugin-data.xml";
+
+    private static final Logger LOGGER = Logger.getLogger(GitflowJobState.class.getName());
+
+    private static final Object SAVE_LOCK = new Object();
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private final int buildNumber;
+    private final GitflowPluginData gitflowPluginData;
+
+    private GitflowJobState(final int buildNumber, final GitflowPluginData gitflowPluginData) {
+        this.buildNumber = buildNumber;
+        this.gitflowPluginData = gitflowPluginData;
+    }
+
+    /**
+     * Returns the latest Gitflow plugin data of the given job.
+     * <p>
+     * The returned object must not be modified, because it might be the object that is attached to a build. Callers
+     * that want to modify the data must work on a {@link GitflowPluginData#clone() clone}.
+     *
+     * @param job the job to return the Gitflow plugin data for.
+     * @return the latest Gitflow plugin data of the given job or {@code null} if no data has been recorded yet.
+     */
+    public static GitflowPluginData loadLatest(final AbstractProject<?, ?> job) {
+        GitflowJobState jobState = read(job);
+
+        // Fall back to the build history when the state file doesn't exist (yet) and migrate the found data.
+        if (jobState == null) {
+            for (AbstractBuild<?, ?> build = job.getLastBuild(); build != null; build = build.getPreviousBuild()) {
+                final GitflowPluginData gitflowPluginData = build.getAction(GitflowPluginData.class);
+                if (gitflowPluginData != null) {
+                    jobState = new GitflowJobState(build.getNumber(), gitflowPluginData);
+                    if (!build.isBuilding()) {
+                        write(job, jobState);
+                    }
+                    break;
+                }
+            }
+        }
+
+        return jobState == null ? null : jobState.gitflowPluginData;
+    }
+
+    /**
+     * Returns the version of the recorded states. It's incremented whenever the state file of a job is written, so
+     * objects derived from a recorded state can tell whether they are outdated without reading the file.
+     *
+     * @return the version of the recorded states.
+     */
+    public static long getVersion() {
+        return VERSION.get();
+    }
+
+    /**
+     * Records the Gitflow plugin data of the given (completed) build as the latest state of its job.
+     * <p>
+     * When the start state of the data is known, only the branches that have been changed or removed by the build are
+     * merged into the recorded state, so the changes of concurrent builds (on other branches) are retained. Otherwise
+     * the data replaces the recorded state - unless a state from a more recent build has already been recorded.
+     *
+     * @param build the completed build.
+     * @param gitflowPluginData the Gitflow plugin data of the build.
+     */
+    public static void save(final AbstractBuild<?, ?> build, final GitflowPluginData gitflowPluginData) {
+        final AbstractProject<?, ?> job = build.getProject();
+        synchronized (SAVE_LOCK) {
+            final GitflowJobState recordedJobState = read(job);
+            if (recordedJobState == null) {
+                write(job, new GitflowJobState(build.getNumber(), gitflowPluginData));
+            } else if (gitflowPluginData.isMergeable()) {
+                merge(job, Math.max(recordedJobState.buildNumber, build.getNumber()), gitflowPluginData, recordedJobState.gitflowPluginData);
+            } else if (recordedJobState.buildNumber <= build.getNumber()) {
+                write(job, new GitflowJobState(build.getNumber(), gitflowPluginData));
+            }
+        }
+    }
+
+    /**
+     * Records Gitflow plugin data that has been changed without a build (e.g. by a workspace-less <i>Finish</i> action)
+     * as the latest state of the given job. The changes since the recorded start state of the data are merged into the
+     * recorded state, which keeps the number of the build it's based on.
+     *
+     * @param job the job to record the Gitflow plugin data for.
+     * @param gitflowPluginData the changed Gitflow plugin data.
+     */
+    public static void update(final AbstractProject<?, ?> job, final GitflowPluginData gitflowPluginData) {
+        synchronized (SAVE_LOCK) {
+            final GitflowJobState recordedJobState = read(job);
+            if (recordedJobState == null) {
+                write(job, new GitflowJobState(0, gitflowPluginData));
+            } else {
+                merge(job, recordedJobState.buildNumber, gitflowPluginData, recordedJobState.gitflowPluginData);
+            }
+        }
+    }
+
+    private static void merge(final AbstractProject<?, ?> job, final int buildNumber, final GitflowPluginData gitflowPluginData, final GitflowPluginData recordedGitflowPluginData) {
+        try {
+            write(job, new GitflowJobState(buildNumber, gitflowPluginData.mergeChangesInto(recordedGitflowPluginData)));
+        } catch (final CloneNotSupportedException cnse) {
+            LOGGER.log(Level.WARNING, "Gitflow - Cloning of " + GitflowPluginData.class.getName() + " is not supported but should be.", cnse);
+        }
+    }
+
+    private static GitflowJobState read(final AbstractProject<?, ?> job) {
+        GitflowJobState jobState = null;
+
+        final XmlFile stateFile = getStateFile(job);
+        if (stateFile != null && stateFile.exists()) {
+            try {
+                final Object loaded = stateFile.read();
+                if (loaded instanceof GitflowJobState && ((GitflowJobState) loaded).gitflowPluginData != null) {
+                    jobState = (GitflowJobState) loaded;
+                }
+            } catch (final IOException ioe) {
+                LOGGER.log(Level.WARNING, "Gitflow - Reading " + stateFile + " failed - falling back to the build history.", ioe);
+            }
+        }
+
+        return jobState;
+    }
+
+    private static void write(final AbstractProject<?, ?> job, final GitflowJobState jobState) {
+        final XmlFile stateFile = getStateFile(job);
+        if (stateFile != null) {
+            try {
+                // The build's own data object might be persisted as delta - the state file must contain the full data.
+                stateFile.write(new GitflowJobState(jobState.buildNumber, jobState.gitflowPluginData.clone()));
+                VERSION.incrementAndGet();
+            } catch (final CloneNotSupportedException cnse) {
+                LOGGER.log(Level.WARNING, "Gitflow - Cloning of " + GitflowPluginData.class.getName() + " is not supported but should be.", cnse);
+            } catch (final IOException ioe) {
+                LOGGER.log(Level.WARNING, "Gitflow - Writing " + stateFile + " failed.", ioe);
+            }
+        }
+    }
+
+    private static XmlFile getStateFile(final AbstractProject<?, ?> job) {
+        final File rootDir = job.getRootDir();
+        return rootDir == null ? null : new XmlFile(Run.XSTREAM2, new File(rootDir, FILE_NAME));
+    }
+}
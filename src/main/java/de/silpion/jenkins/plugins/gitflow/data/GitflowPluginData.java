@@ -3,29 +3,42 @@ package de.silpion.jenkins.plugins.gitflow.data;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Maps;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import hudson.model.Action;
 import hudson.model.Result;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.logging.Logger;
 
 /**
  * The root (action) object holding the Gitflow plugin data of a Jenkins job/project.
+ * <p>
+ * Each build carries the full view of the data in memory, but only a periodic checkpoint build persists all remote branches.
+ * The other builds persist a delta against the last checkpoint: the branches that have been changed and the names of the
+ * branches that have been removed since then. The full view of a delta is rebuilt from its checkpoint when it's requested.
  *
  * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
  */
-public class GitflowPluginData implements Action, Serializable, Cloneable {
+public class GitflowPluginData implements RunAction2, Serializable, Cloneable {
 
     private static final long serialVersionUID = 7613596093574533990L;
 
+    private static final Logger LOGGER = Logger.getLogger(GitflowPluginData.class.getName());
+
+    private static final int CHECKPOINT_INTERVAL = Integer.getInteger(GitflowPluginData.class.getName() + ".checkpointInterval", 50);
+
     private static final Comparator<Result> RESULT_SEVERITY_COMPARATOR = new Comparator<Result>() {
 
         /** {@inheritDoc} */
@@ -45,11 +58,310 @@ public class GitflowPluginData implements Action, Serializable, Cloneable {
         }
     };
 
-    // No SortedSet because it would cause the comparator to be written to the XML. We sort the list when it needs to be sorted.
-    private List<RemoteBranch> remoteBranches = new LinkedList<RemoteBranch>();
+    // No SortedSet because it would cause the comparator to be written to the XML. The list is kept sorted on insertion.
+    private List<RemoteBranch> remoteBranches = new ArrayList<RemoteBranch>();
+
+    // Index for the lookup of remote branches by name - rebuilt lazily after deserialisation and cloning.
+    private transient Map<String, RemoteBranch> remoteBranchesByName;
+
+    // The build that persists the full data this data is based on (the own build for checkpoints, 'null' for data persisted by older versions).
+    private Integer checkpointBuildNumber;
+
+    // The names of the branches that have been changed or removed since the checkpoint build.
+    private Set<String> deltaBranchNames;
+    private Set<String> removedBranchNames;
 
     private transient boolean dryRun;
 
+    private transient Run<?, ?> run;
+    private transient GitflowPluginData baseline;
+    private transient boolean unresolvedDelta;
+
+    // The remote branches when the build started - the changes since then are merged into the latest data of the job.
+    private transient Map<String, RemoteBranch> startRemoteBranchesByName;
+
+    /**
+     * Converts the remote branches list from older data (which used a {@link LinkedList}) and ensures that it's sorted.
+     *
+     * @return this object.
+     */
+    protected Object readResolve() {
+        final List<RemoteBranch> loadedRemoteBranches = this.remoteBranches;
+        this.remoteBranches = new ArrayList<RemoteBranch>();
+        if (loadedRemoteBranches != null) {
+            for (final RemoteBranch remoteBranch : loadedRemoteBranches) {
+                if (remoteBranch.getBranchName() != null) {
+                    this.remoteBranches.add(remoteBranch);
+                }
+            }
+            Collections.sort(this.remoteBranches);
+        }
+        return this;
+    }
+
+    private Map<String, RemoteBranch> getRemoteBranchesByName() {
+        if (this.remoteBranchesByName == null) {
+            this.remoteBranchesByName = new HashMap<String, RemoteBranch>(this.remoteBranches.size() * 4 / 3 + 1);
+            for (final RemoteBranch remoteBranch : this.remoteBranches) {
+                if (remoteBranch.getBranchName() != null) {
+                    this.remoteBranchesByName.put(remoteBranch.getBranchName(), remoteBranch);
+                }
+            }
+        }
+        return this.remoteBranchesByName;
+    }
+
+    /**
+     * Replaces the data to be persisted for a delta build with a copy that only contains the branches that have been
+     * changed since the checkpoint build.
+     *
+     * @return this object or the delta copy of it.
+     */
+    protected Object writeReplace() {
+        Object replacement = this;
+
+        if (this.run != null && this.checkpointBuildNumber != null && this.checkpointBuildNumber != this.run.getNumber()) {
+            this.updateDelta();
+            final Set<String> changedNames = this.deltaBranchNames == null ? Collections.<String>emptySet() : this.deltaBranchNames;
+            try {
+                final GitflowPluginData delta = (GitflowPluginData) super.clone();
+                delta.remoteBranches = new ArrayList<RemoteBranch>(changedNames.size());
+                for (final RemoteBranch remoteBranch : this.remoteBranches) {
+                    if (changedNames.contains(remoteBranch.getBranchName())) {
+                        delta.remoteBranches.add(remoteBranch);
+                    }
+                }
+                delta.remoteBranchesByName = null;
+                delta.run = null;
+                delta.baseline = null;
+                replacement = delta;
+            } catch (final CloneNotSupportedException ignore) {
+                // Should not happen. But even if it happens, the full data can be persisted.
+            }
+        }
+
+        return replacement;
+    }
+
+    /**
+     * Prepares the data for a new build. Unless the checkpoint interval is exceeded or the delta became too large, the
+     * data will be persisted as delta against the checkpoint of the given baseline. Otherwise the build becomes a new checkpoint.
+     *
+     * @param buildNumber the number of the build that this data belongs to.
+     * @param baseline the data of the previous build (this data is a clone of) or {@code null} if there's no previous data.
+     */
+    public void trackDeltaAgainst(final int buildNumber, final GitflowPluginData baseline) {
+        final Integer baselineCheckpointBuildNumber = baseline == null ? null : baseline.checkpointBuildNumber;
+        if (baselineCheckpointBuildNumber == null || buildNumber - baselineCheckpointBuildNumber >= CHECKPOINT_INTERVAL
+            || 2 * (size(baseline.deltaBranchNames) + size(baseline.removedBranchNames)) > baseline.remoteBranches.size()) {
+            this.checkpointBuildNumber = buildNumber;
+            this.deltaBranchNames = null;
+            this.removedBranchNames = null;
+            this.baseline = null;
+        } else {
+            this.checkpointBuildNumber = baselineCheckpointBuildNumber;
+            this.baseline = baseline;
+            this.updateDelta();
+        }
+    }
+
+    private static int size(final Set<String> branchNames) {
+        return branchNames == null ? 0 : branchNames.size();
+    }
+
+    /**
+     * Updates the names of the changed and removed branches by comparing the data with its baseline.
+     */
+    private void updateDelta() {
+        if (this.baseline != null) {
+            this.baseline.resolveDelta();
+            final Set<String> changedNames = this.baseline.deltaBranchNames == null ? new HashSet<String>() : new HashSet<String>(this.baseline.deltaBranchNames);
+            final Set<String> removedNames = this.baseline.removedBranchNames == null ? new HashSet<String>() : new HashSet<String>(this.baseline.removedBranchNames);
+
+            final Map<String, RemoteBranch> baselineRemoteBranchesByName = this.baseline.getRemoteBranchesByName();
+            for (final RemoteBranch remoteBranch : this.remoteBranches) {
+                final RemoteBranch baselineRemoteBranch = baselineRemoteBranchesByName.get(remoteBranch.getBranchName());
+                if (baselineRemoteBranch == null || !remoteBranch.hasSameState(baselineRemoteBranch)) {
+                    changedNames.add(remoteBranch.getBranchName());
+                }
+                removedNames.remove(remoteBranch.getBranchName());
+            }
+            for (final String baselineBranchName : baselineRemoteBranchesByName.keySet()) {
+                if (!this.getRemoteBranchesByName().containsKey(baselineBranchName)) {
+                    changedNames.remove(baselineBranchName);
+                    removedNames.add(baselineBranchName);
+                }
+            }
+
+            this.deltaBranchNames = changedNames;
+            this.removedBranchNames = removedNames;
+        }
+    }
+
+    /**
+     * Rebuilds the full view of data that has been loaded as delta, using the data of its checkpoint build. The deltas
+     * against a checkpoint are rewritten before the checkpoint build is deleted (e.g. by a build discarder), so the
+     * checkpoint is only missing when the build history has been modified outside of Jenkins.
+     * <p>
+     * The method is synchronized, because the data of a build might be read by several request threads at the same time.
+     */
+    private synchronized void resolveDelta() {
+        if (this.unresolvedDelta) {
+            this.unresolvedDelta = false;
+
+            final Run<?, ?> checkpointBuild = this.run.getParent().getBuildByNumber(this.checkpointBuildNumber);
+            final GitflowPluginData checkpoint = checkpointBuild == null ? null : checkpointBuild.getAction(GitflowPluginData.class);
+            if (checkpoint == null) {
+                LOGGER.warning(String.format("Gitflow - Checkpoint build #%d for %s is missing - only the branches changed by this build are available.",
+                                             this.checkpointBuildNumber, this.run));
+            } else {
+                final Set<String> changedNames = this.deltaBranchNames == null ? Collections.<String>emptySet() : this.deltaBranchNames;
+                final Set<String> removedNames = this.removedBranchNames == null ? Collections.<String>emptySet() : this.removedBranchNames;
+
+                // The resolved list replaces the loaded list, so that views returned before aren't modified underneath their readers.
+                final List<RemoteBranch> resolvedRemoteBranches = new ArrayList<RemoteBranch>(this.remoteBranches);
+                for (final RemoteBranch checkpointRemoteBranch : checkpoint.getRemoteBranches()) {
+                    final String branchName = checkpointRemoteBranch.getBranchName();
+                    if (!changedNames.contains(branchName) && !removedNames.contains(branchName)) {
+                        try {
+                            resolvedRemoteBranches.add(checkpointRemoteBranch.clone());
+                        } catch (final CloneNotSupportedException cnse) {
+                            throw new IllegalStateException("Cloning of " + RemoteBranch.class.getName() + " is not supported but should be.", cnse);
+                        }
+                    }
+                }
+                Collections.sort(resolvedRemoteBranches);
+                this.remoteBranchesByName = null;
+                this.remoteBranches = resolvedRemoteBranches;
+            }
+        }
+    }
+
+    /**
+     * Computes the delta of data that won't be changed anymore (e.g. of a completed build that is rewritten) and releases
+     * the baseline, so that rewriting a build history doesn't chain the data of all builds in memory.
+     */
+    public void freezeDelta() {
+        this.updateDelta();
+        this.baseline = null;
+    }
+
+    /**
+     * Records the state the changes of a build are based on. Only the branches that are changed or removed after this
+     * call will be {@link #mergeChangesInto(GitflowPluginData) merged} into the latest data of the job.
+     *
+     * @param startData the data this data has been cloned from or {@code null} if there's no previous data.
+     * @throws CloneNotSupportedException if the remote branches cannot be cloned (should not happen).
+     */
+    public void recordStartState(final GitflowPluginData startData) throws CloneNotSupportedException {
+        final Map<String, RemoteBranch> startRemoteBranches = new HashMap<String, RemoteBranch>();
+        if (startData != null) {
+            for (final RemoteBranch remoteBranch : startData.getRemoteBranches()) {
+                startRemoteBranches.put(remoteBranch.getBranchName(), remoteBranch.clone());
+            }
+        }
+        this.startRemoteBranchesByName = startRemoteBranches;
+    }
+
+    /**
+     * Tells if the start state of this data has been recorded, so that its changes can be merged into other data.
+     *
+     * @return {@code true} if the changes of this data can be merged into other data.
+     */
+    public boolean isMergeable() {
+        return this.startRemoteBranchesByName != null;
+    }
+
+    /**
+     * Applies the changes of this data since its {@link #recordStartState(GitflowPluginData) start state} to a copy of
+     * the given data. Branches that haven't been changed keep the state of the given data, so the changes of builds that
+     * completed in the meantime (on other branches) are not lost.
+     *
+     * @param latestData the latest data of the job, e.g. recorded by a concurrent build.
+     * @return the merged copy of the given data - or this data, if its start state hasn't been recorded.
+     * @throws CloneNotSupportedException if the data cannot be cloned (should not happen).
+     */
+    public GitflowPluginData mergeChangesInto(final GitflowPluginData latestData) throws CloneNotSupportedException {
+        if (this.startRemoteBranchesByName == null) {
+            return this;
+        }
+        this.resolveDelta();
+
+        final Set<String> changedNames = new HashSet<String>();
+        final Set<String> removedNames = new HashSet<String>();
+        for (final RemoteBranch remoteBranch : this.remoteBranches) {
+            final RemoteBranch startRemoteBranch = this.startRemoteBranchesByName.get(remoteBranch.getBranchName());
+            if (startRemoteBranch == null || !remoteBranch.hasSameState(startRemoteBranch)) {
+                changedNames.add(remoteBranch.getBranchName());
+            }
+        }
+        for (final String startBranchName : this.startRemoteBranchesByName.keySet()) {
+            if (!this.getRemoteBranchesByName().containsKey(startBranchName)) {
+                removedNames.add(startBranchName);
+            }
+        }
+
+        final GitflowPluginData mergedData = latestData.clone();
+        mergedData.dryRun = false;
+        final List<RemoteBranch> removeRemoteBranches = new ArrayList<RemoteBranch>(removedNames.size());
+        for (final String removedName : removedNames) {
+            removeRemoteBranches.add(new RemoteBranch(removedName));
+        }
+        mergedData.removeRemoteBranches(removeRemoteBranches, true);
+        for (final String changedName : changedNames) {
+            mergedData.putRemoteBranch(this.getRemoteBranchesByName().get(changedName).clone());
+        }
+
+        // The merged branches must be part of the delta, otherwise the next build would restore them from the checkpoint.
+        if (mergedData.checkpointBuildNumber != null) {
+            if (mergedData.deltaBranchNames == null) {
+                mergedData.deltaBranchNames = new HashSet<String>();
+            }
+            if (mergedData.removedBranchNames == null) {
+                mergedData.removedBranchNames = new HashSet<String>();
+            }
+            mergedData.deltaBranchNames.addAll(changedNames);
+            mergedData.deltaBranchNames.removeAll(removedNames);
+            mergedData.removedBranchNames.addAll(removedNames);
+            mergedData.removedBranchNames.removeAll(changedNames);
+        }
+
+        return mergedData;
+    }
+
+    /**
+     * Adds the given remote branch or replaces the one with the same name, keeping the list sorted.
+     */
+    private void putRemoteBranch(final RemoteBranch remoteBranch) {
+        final int searchIndex = Collections.binarySearch(this.remoteBranches, remoteBranch);
+        if (searchIndex < 0) {
+            this.remoteBranches.add(-searchIndex - 1, remoteBranch);
+        } else {
+            this.remoteBranches.set(searchIndex, remoteBranch);
+        }
+        this.getRemoteBranchesByName().put(remoteBranch.getBranchName(), remoteBranch);
+    }
+
+    /** {@inheritDoc} */
+    public void onAttached(final Run<?, ?> run) {
+        this.run = run;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized void onLoad(final Run<?, ?> run) {
+        this.run = run;
+        this.unresolvedDelta = this.checkpointBuildNumber != null && this.checkpointBuildNumber != run.getNumber();
+    }
+
+    /**
+     * Returns the number of the checkpoint build that persists the full data this data is based on.
+     *
+     * @return the number of the checkpoint build or {@code null} if the data has been persisted by an older plugin version.
+     */
+    public Integer getCheckpointBuildNumber() {
+        return this.checkpointBuildNumber;
+    }
+
     /** {@inheritDoc} */
     public String getDisplayName() {
         return null;
@@ -68,10 +380,18 @@ public class GitflowPluginData implements Action, Serializable, Cloneable {
     /** {@inheritDoc} */
     @Override
     public GitflowPluginData clone() throws CloneNotSupportedException {
+        this.resolveDelta();
+        this.updateDelta();
         final GitflowPluginData clone = (GitflowPluginData) super.clone();
+        clone.run = null;
+        clone.baseline = null;
+        clone.startRemoteBranchesByName = null;
+        clone.deltaBranchNames = this.deltaBranchNames == null ? null : new HashSet<String>(this.deltaBranchNames);
+        clone.removedBranchNames = this.removedBranchNames == null ? null : new HashSet<String>(this.removedBranchNames);
 
         // Only clone valid remote branches.
-        clone.remoteBranches = new LinkedList<RemoteBranch>();
+        clone.remoteBranches = new ArrayList<RemoteBranch>(this.remoteBranches.size());
+        clone.remoteBranchesByName = null;
         for (final RemoteBranch remoteBranch : this.remoteBranches) {
             if (remoteBranch.getBranchName() != null) {
                 clone.remoteBranches.add(remoteBranch.clone());
@@ -99,14 +419,22 @@ public class GitflowPluginData implements Action, Serializable, Cloneable {
      */
     public void removeRemoteBranches(final Collection<RemoteBranch> removeRemoteBranches, final boolean evenOnDryRun) {
         if (evenOnDryRun || !this.dryRun) {
-            for (final Iterator<RemoteBranch> branchIterator = this.remoteBranches.iterator(); branchIterator.hasNext(); ) {
-                final RemoteBranch branch = branchIterator.next();
-                for (final RemoteBranch removeBranch : removeRemoteBranches) {
-                    if (branch.getBranchName().equals(removeBranch.getBranchName())) {
-                        branchIterator.remove();
-                    }
+            this.resolveDelta();
+            final Set<String> removeBranchNames = new HashSet<String>(removeRemoteBranches.size() * 4 / 3 + 1);
+            for (final RemoteBranch removeBranch : removeRemoteBranches) {
+                removeBranchNames.add(removeBranch.getBranchName());
+            }
+
+            // Rebuild the list in a single pass - the sort order is retained.
+            final List<RemoteBranch> remainingRemoteBranches = new ArrayList<RemoteBranch>(this.remoteBranches.size());
+            for (final RemoteBranch branch : this.remoteBranches) {
+                if (removeBranchNames.contains(branch.getBranchName())) {
+                    this.getRemoteBranchesByName().remove(branch.getBranchName());
+                } else {
+                    remainingRemoteBranches.add(branch);
                 }
             }
+            this.remoteBranches = remainingRemoteBranches;
         }
     }
 
@@ -121,6 +449,7 @@ public class GitflowPluginData implements Action, Serializable, Cloneable {
     }
 
     private Map<Result, Collection<RemoteBranch>> getRemoteBranchesGroupedByResult() {
+        this.resolveDelta();
         final Map<Result, Collection<RemoteBranch>> remoteBranchesGroupedByResult = new TreeMap<Result, Collection<RemoteBranch>>(RESULT_SEVERITY_COMPARATOR);
 
         for (final RemoteBranch remoteBranch : this.remoteBranches) {
@@ -150,8 +479,9 @@ public class GitflowPluginData implements Action, Serializable, Cloneable {
         if (remoteBranch == null) {
             remoteBranch = new RemoteBranch(branchName);
             if (!this.dryRun) {
-                this.remoteBranches.add(remoteBranch);
-                Collections.sort(this.remoteBranches);
+                final int searchIndex = Collections.binarySearch(this.remoteBranches, remoteBranch);
+                this.remoteBranches.add(searchIndex < 0 ? -searchIndex - 1 : searchIndex, remoteBranch);
+                this.getRemoteBranchesByName().put(branchName, remoteBranch);
             }
         }
         return remoteBranch;
@@ -166,28 +496,30 @@ public class GitflowPluginData implements Action, Serializable, Cloneable {
      * @return the {@link RemoteBranch} with the given remote alias and name or {@code null}.
      */
     public RemoteBranch getRemoteBranch(final String branchName) {
-        RemoteBranch requestedRemoteBranch = null;
+        this.resolveDelta();
+        RemoteBranch requestedRemoteBranch = this.getRemoteBranchesByName().get(branchName);
 
-        for (final RemoteBranch remoteBranch : this.remoteBranches) {
-            if (remoteBranch.getBranchName().equals(branchName)) {
-                if (this.dryRun) {
-                    try {
-                        requestedRemoteBranch = remoteBranch.clone();
-                    } catch (final CloneNotSupportedException ignore) {
-                        // Should not happen. But even if it happens it's not important, because on dry run the object won't be dropped anyway.
-                        requestedRemoteBranch = new RemoteBranch(branchName);
-                    }
-                } else {
-                    requestedRemoteBranch = remoteBranch;
-                }
+        if (requestedRemoteBranch != null && this.dryRun) {
+            try {
+                requestedRemoteBranch = requestedRemoteBranch.clone();
+            } catch (final CloneNotSupportedException ignore) {
+                // Should not happen. But even if it happens it's not important, because on dry run the object won't be dropped anyway.
+                requestedRemoteBranch = new RemoteBranch(branchName);
             }
         }
 
         return requestedRemoteBranch;
     }
 
+    /**
+     * Returns the recorded remote branches, sorted by name. Use {@link #getOrAddRemoteBranch(String)} and
+     * {@link #removeRemoteBranches(Collection, boolean)} to modify them.
+     *
+     * @return an unmodifiable view of the recorded remote branches.
+     */
     public List<RemoteBranch> getRemoteBranches() {
-        return this.remoteBranches;
+        this.resolveDelta();
+        return Collections.unmodifiableList(this.remoteBranches);
     }
 
     public void setDryRun(final boolean dryRun) {
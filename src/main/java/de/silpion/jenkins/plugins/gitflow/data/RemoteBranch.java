@@ -2,6 +2,7 @@ package de.silpion.jenkins.plugins.gitflow.data;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.model.Result;
+import org.apache.commons.lang.ObjectUtils;
 import org.eclipse.jgit.lib.ObjectId;
 
 import java.io.Serializable;
@@ -25,6 +26,9 @@ public class RemoteBranch implements Serializable, Cloneable, Comparable<RemoteB
     private String lastReleaseVersion;
     private ObjectId lastReleaseVersionCommit;
 
+    private ObjectId lastVerifiedTreeHash;
+    private int lastVerifiedBuildNumber;
+
     /**
      * Constructor for a new {@link RemoteBranch} object.
      *
@@ -46,6 +50,23 @@ public class RemoteBranch implements Serializable, Cloneable, Comparable<RemoteB
         return String.CASE_INSENSITIVE_ORDER.compare(this.getBranchName(), remoteBranch.getBranchName());
     }
 
+    /**
+     * Checks if the given remote branch has the same name and holds the same information as this remote branch.
+     *
+     * @param remoteBranch the remote branch to compare this remote branch with.
+     * @return {@code true} if the given remote branch has the same name and holds the same information.
+     */
+    boolean hasSameState(final RemoteBranch remoteBranch) {
+        return ObjectUtils.equals(this.branchName, remoteBranch.branchName)
+               && ObjectUtils.equals(this.lastBuildResult, remoteBranch.lastBuildResult)
+               && ObjectUtils.equals(this.lastBuildVersion, remoteBranch.lastBuildVersion)
+               && ObjectUtils.equals(this.baseReleaseVersion, remoteBranch.baseReleaseVersion)
+               && ObjectUtils.equals(this.lastReleaseVersion, remoteBranch.lastReleaseVersion)
+               && ObjectUtils.equals(this.lastReleaseVersionCommit, remoteBranch.lastReleaseVersionCommit)
+               && ObjectUtils.equals(this.lastVerifiedTreeHash, remoteBranch.lastVerifiedTreeHash)
+               && this.lastVerifiedBuildNumber == remoteBranch.lastVerifiedBuildNumber;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString() {
@@ -95,4 +116,24 @@ public class RemoteBranch implements Serializable, Cloneable, Comparable<RemoteB
     public ObjectId getLastReleaseVersionCommit() {
         return this.lastReleaseVersionCommit;
     }
+
+    /**
+     * Sets the hash of the source tree (with the versions in the project files normalised) that has been verified by the
+     * last successful release build of this branch, and the number of that build.
+     *
+     * @param lastVerifiedTreeHash the normalised tree hash of the verified release build.
+     * @param lastVerifiedBuildNumber the number of the build that verified the tree.
+     */
+    public void setLastVerifiedTree(final ObjectId lastVerifiedTreeHash, final int lastVerifiedBuildNumber) {
+        this.lastVerifiedTreeHash = lastVerifiedTreeHash;
+        this.lastVerifiedBuildNumber = lastVerifiedBuildNumber;
+    }
+
+    public ObjectId getLastVerifiedTreeHash() {
+        return this.lastVerifiedTreeHash;
+    }
+
+    public int getLastVerifiedBuildNumber() {
+        return this.lastVerifiedBuildNumber;
+    }
 }
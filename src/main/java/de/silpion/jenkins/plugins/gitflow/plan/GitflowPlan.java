@@ -0,0 +1,138 @@
+package de.silpion.jenkins.plugins.gitflow.plan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * The plan of a <i>Gitflow</i> action: the refs, tags, version transitions, merges and branch deletions that the action
+ * would execute. It's derived from the recorded remote branch data only, so it can be shown before a build is started.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitflowPlan {
+
+    /**
+     * The kinds of steps of a <i>Gitflow</i> action.
+     */
+    public enum StepKind {
+
+        BRANCH("Branch"),
+        VERSION("Version"),
+        BUILD("Build"),
+        TAG("Tag"),
+        MERGE("Merge"),
+        PUSH("Push"),
+        DELETE("Delete"),
+        RECORD("Record");
+
+        private final String displayName;
+
+        StepKind(final String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return this.displayName;
+        }
+    }
+
+    /**
+     * A single step of a <i>Gitflow</i> action.
+     */
+    public static class Step {
+
+        private final StepKind kind;
+        private final String description;
+        private final boolean afterSuccessfulMainBuild;
+        private final boolean skipped;
+
+        Step(final StepKind kind, final String description, final boolean afterSuccessfulMainBuild, final boolean skipped) {
+            this.kind = kind;
+            this.description = description;
+            this.afterSuccessfulMainBuild = afterSuccessfulMainBuild;
+            this.skipped = skipped;
+        }
+
+        public StepKind getKind() {
+            return this.kind;
+        }
+
+        public String getDescription() {
+            return this.description;
+        }
+
+        /**
+         * Tells if the step is only executed when the main build succeeds.
+         *
+         * @return {@code true} if the step is only executed when the main build succeeds.
+         */
+        public boolean isAfterSuccessfulMainBuild() {
+            return this.afterSuccessfulMainBuild;
+        }
+
+        /**
+         * Tells if the step is skipped, because the action would be executed in <i>Dry Run</i> mode.
+         *
+         * @return {@code true} if the step is skipped.
+         */
+        public boolean isSkipped() {
+            return this.skipped;
+        }
+
+        @Override
+        public String toString() {
+            return this.kind.getDisplayName() + ": " + this.description;
+        }
+    }
+
+    private final String actionName;
+    private final boolean dryRun;
+
+    private final List<Step> steps = new ArrayList<Step>();
+    private final List<String> warnings = new ArrayList<String>();
+
+    private boolean afterSuccessfulMainBuild;
+
+    GitflowPlan(final String actionName, final boolean dryRun) {
+        this.actionName = actionName;
+        this.dryRun = dryRun;
+    }
+
+    void addStep(final StepKind kind, final String descriptionPattern, final Object... descriptionArguments) {
+        final boolean skipped = this.dryRun && (kind == StepKind.PUSH || kind == StepKind.RECORD);
+        this.steps.add(new Step(kind, format(descriptionPattern, descriptionArguments), this.afterSuccessfulMainBuild, skipped));
+    }
+
+    void addWarning(final String warningPattern, final Object... warningArguments) {
+        this.warnings.add(format(warningPattern, warningArguments));
+    }
+
+    /**
+     * Marks the subsequently added steps as steps that are only executed when the main build succeeds.
+     */
+    void afterSuccessfulMainBuild() {
+        this.afterSuccessfulMainBuild = true;
+    }
+
+    public String getActionName() {
+        return this.actionName;
+    }
+
+    public boolean isDryRun() {
+        return this.dryRun;
+    }
+
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(this.steps);
+    }
+
+    public List<String> getWarnings() {
+        return Collections.unmodifiableList(this.warnings);
+    }
+
+    private static String format(final String pattern, final Object... arguments) {
+        return new Formatter().format(pattern, arguments).toString();
+    }
+}
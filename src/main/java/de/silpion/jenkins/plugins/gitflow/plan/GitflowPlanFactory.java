@@ -0,0 +1,251 @@
+package de.silpion.jenkins.plugins.gitflow.plan;
+
+import de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper;
+import de.silpion.jenkins.plugins.gitflow.GitflowFlyweightTask;
+import de.silpion.jenkins.plugins.gitflow.action.AbstractGitflowAction;
+import de.silpion.jenkins.plugins.gitflow.action.WorkspaceLessFinishTask;
+import de.silpion.jenkins.plugins.gitflow.action.WorkspaceLessFinisher;
+import de.silpion.jenkins.plugins.gitflow.cause.AbstractGitflowCause;
+import de.silpion.jenkins.plugins.gitflow.cause.FinishHotfixCause;
+import de.silpion.jenkins.plugins.gitflow.cause.FinishReleaseCause;
+import de.silpion.jenkins.plugins.gitflow.cause.PublishHotfixCause;
+import de.silpion.jenkins.plugins.gitflow.cause.PublishReleaseCause;
+import de.silpion.jenkins.plugins.gitflow.cause.StartHotfixCause;
+import de.silpion.jenkins.plugins.gitflow.cause.StartReleaseCause;
+import de.silpion.jenkins.plugins.gitflow.cause.TestHotfixCause;
+import de.silpion.jenkins.plugins.gitflow.cause.TestReleaseCause;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
+import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteRefSnapshot;
+import hudson.model.AbstractProject;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.IOException;
+
+import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
+import static de.silpion.jenkins.plugins.gitflow.plan.GitflowPlan.StepKind.BRANCH;
+import static de.silpion.jenkins.plugins.gitflow.plan.GitflowPlan.StepKind.BUILD;
+import static de.silpion.jenkins.plugins.gitflow.plan.GitflowPlan.StepKind.DELETE;
+import static de.silpion.jenkins.plugins.gitflow.plan.GitflowPlan.StepKind.MERGE;
+import static de.silpion.jenkins.plugins.gitflow.plan.GitflowPlan.StepKind.PUSH;
+import static de.silpion.jenkins.plugins.gitflow.plan.GitflowPlan.StepKind.RECORD;
+import static de.silpion.jenkins.plugins.gitflow.plan.GitflowPlan.StepKind.TAG;
+import static de.silpion.jenkins.plugins.gitflow.plan.GitflowPlan.StepKind.VERSION;
+
+/**
+ * Creates the {@link GitflowPlan} for a <i>Gitflow</i> cause - the same steps the corresponding Gitflow action would
+ * execute, derived from the recorded {@link RemoteBranch} data and the snapshot of the remote branch heads.
+ * <p>
+ * Creating a plan doesn't require a workspace, a Git client or a build tool, so it's executed on the master right away.
+ * Where the actions depend on the configuration, the plan is based on the same decisions: how the action is executed
+ * (see {@link WorkspaceLessFinisher#isApplicable(AbstractGitflowCause)} and
+ * {@link GitflowFlyweightTask#isApplicable(AbstractGitflowCause, AbstractProject)}), which modules get a release version
+ * (see {@link AbstractGitflowAction#isChangeAwareRelease(RemoteBranch)}) and if the verification of a previous release
+ * build may be reused (see {@link AbstractGitflowAction#hasVerifiedBuild(RemoteBranch)}).
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitflowPlanFactory {
+
+    private static final String UNKNOWN_VERSION = "(unknown version)";
+
+    private final AbstractProject<?, ?> job;
+    private final GitflowPluginData gitflowPluginData;
+    private final RemoteRefSnapshot remoteRefSnapshot;
+    private final GitflowBuildWrapper.DescriptorImpl buildWrapperDescriptor;
+
+    private GitflowPlanFactory(final AbstractProject<?, ?> job, final GitflowPluginData gitflowPluginData, final RemoteRefSnapshot remoteRefSnapshot) {
+        this.job = job;
+        this.gitflowPluginData = gitflowPluginData;
+        this.remoteRefSnapshot = remoteRefSnapshot;
+        this.buildWrapperDescriptor = getGitflowBuildWrapperDescriptor();
+    }
+
+    /**
+     * Creates the plan for the Gitflow action of the given cause.
+     *
+     * @param job the job to execute the Gitflow action for.
+     * @param gitflowCause the <i>Gitflow</i> cause (with the versions entered by the user).
+     * @param gitflowPluginData the latest Gitflow plugin data of the job - may be {@code null}.
+     * @param remoteRefSnapshot the snapshot of the remote branch heads - may be {@code null} if the branches haven't been checked yet.
+     * @return the plan for the Gitflow action.
+     * @throws IOException if there is no Gitflow action for the given cause.
+     */
+    public static GitflowPlan newInstance(final AbstractProject<?, ?> job, final AbstractGitflowCause gitflowCause, final GitflowPluginData gitflowPluginData,
+                                          final RemoteRefSnapshot remoteRefSnapshot) throws IOException {
+        final GitflowPlanFactory planFactory = new GitflowPlanFactory(job, gitflowPluginData, remoteRefSnapshot);
+
+        final GitflowPlan plan;
+        if (gitflowCause instanceof StartReleaseCause) {
+            plan = planFactory.planStartRelease((StartReleaseCause) gitflowCause);
+        } else if (gitflowCause instanceof TestReleaseCause) {
+            plan = planFactory.planTestRelease((TestReleaseCause) gitflowCause);
+        } else if (gitflowCause instanceof PublishReleaseCause) {
+            final PublishReleaseCause publishReleaseCause = (PublishReleaseCause) gitflowCause;
+            plan = planFactory.planPublish("Publish Release", publishReleaseCause, publishReleaseCause.getReleaseBranch(),
+                                           publishReleaseCause.getLastPatchReleaseVersion(), publishReleaseCause.getLastPatchReleaseCommit());
+        } else if (gitflowCause instanceof FinishReleaseCause) {
+            plan = planFactory.planFinish("Finish Release", gitflowCause, ((FinishReleaseCause) gitflowCause).getReleaseBranch());
+        } else if (gitflowCause instanceof StartHotfixCause) {
+            plan = planFactory.planStartHotfix((StartHotfixCause) gitflowCause);
+        } else if (gitflowCause instanceof TestHotfixCause) {
+            plan = planFactory.planTestHotfix((TestHotfixCause) gitflowCause);
+        } else if (gitflowCause instanceof PublishHotfixCause) {
+            final PublishHotfixCause publishHotfixCause = (PublishHotfixCause) gitflowCause;
+            plan = planFactory.planPublish("Publish Hotfix", publishHotfixCause, publishHotfixCause.getHotfixBranch(),
+                                           publishHotfixCause.getLastPatchReleaseVersion(), publishHotfixCause.getLastPatchReleaseCommit());
+        } else if (gitflowCause instanceof FinishHotfixCause) {
+            plan = planFactory.planFinish("Finish Hotfix", gitflowCause, ((FinishHotfixCause) gitflowCause).getHotfixBranch());
+        } else {
+            throw new IOException("Unknown Gitflow cause " + gitflowCause.getClass().getName());
+        }
+
+        if (remoteRefSnapshot == null) {
+            plan.addWarning("The remote branches haven't been checked yet - the plan is based on the recorded branch data only.");
+        }
+
+        return plan;
+    }
+
+    private GitflowPlan planStartRelease(final StartReleaseCause gitflowCause) {
+        final GitflowPlan plan = new GitflowPlan("Start Release", gitflowCause.isDryRun());
+        final String developBranch = this.buildWrapperDescriptor.getDevelopBranch();
+        final String releaseBranch = gitflowCause.getReleaseBranch();
+        final String releaseVersion = gitflowCause.getReleaseVersion();
+        final String tagName = this.buildWrapperDescriptor.getVersionTagPrefix() + releaseVersion;
+        this.checkExisting(plan, developBranch);
+        this.checkNotExisting(plan, releaseBranch);
+
+        plan.addStep(BRANCH, "Create branch %s from %s", releaseBranch, this.describeRemoteHead(developBranch));
+        plan.addStep(VERSION, "%s: %s -> %s", releaseBranch, this.getRecordedVersion(developBranch), releaseVersion);
+        this.addMainBuildStep(plan, gitflowCause, releaseBranch, true);
+
+        plan.afterSuccessfulMainBuild();
+        plan.addStep(TAG, "Create tag %s", tagName);
+        plan.addStep(VERSION, "%s: %s -> %s", releaseBranch, releaseVersion, gitflowCause.getNextPatchDevelopmentVersion());
+        plan.addStep(VERSION, "%s: %s -> %s", developBranch, this.getRecordedVersion(developBranch), gitflowCause.getNextReleaseDevelopmentVersion());
+        plan.addStep(PUSH, "refs/tags/%s, refs/heads/%s, refs/heads/%s", tagName, releaseBranch, developBranch);
+        plan.addStep(RECORD, "%s: version %s, release %s", releaseBranch, gitflowCause.getNextPatchDevelopmentVersion(), releaseVersion);
+        plan.addStep(RECORD, "%s: version %s", developBranch, gitflowCause.getNextReleaseDevelopmentVersion());
+        return plan;
+    }
+
+    private GitflowPlan planTestRelease(final TestReleaseCause gitflowCause) {
+        final GitflowPlan plan = new GitflowPlan("Test Release", gitflowCause.isDryRun());
+        this.planTest(plan, gitflowCause, gitflowCause.getReleaseBranch(), gitflowCause.getPatchReleaseVersion(), gitflowCause.getNextPatchDevelopmentVersion());
+        return plan;
+    }
+
+    private GitflowPlan planStartHotfix(final StartHotfixCause gitflowCause) {
+        final GitflowPlan plan = new GitflowPlan("Start Hotfix", gitflowCause.isDryRun());
+        final String masterBranch = this.buildWrapperDescriptor.getMasterBranch();
+        final String hotfixBranch = gitflowCause.getHotfixBranch();
+        this.checkExisting(plan, masterBranch);
+        this.checkNotExisting(plan, hotfixBranch);
+
+        plan.addStep(BRANCH, "Create branch %s from %s", hotfixBranch, this.describeRemoteHead(masterBranch));
+        plan.addStep(VERSION, "%s: %s -> %s", hotfixBranch, this.getRecordedVersion(masterBranch), gitflowCause.getNextPatchDevelopmentVersion());
+        plan.addStep(PUSH, "refs/heads/%s", hotfixBranch);
+        this.addMainBuildStep(plan, gitflowCause, hotfixBranch, false);
+        plan.addStep(RECORD, "%s: version %s, release %s", hotfixBranch, gitflowCause.getNextPatchDevelopmentVersion(), gitflowCause.getPublishedPatchReleaseVersion());
+        return plan;
+    }
+
+    private GitflowPlan planTestHotfix(final TestHotfixCause gitflowCause) {
+        final GitflowPlan plan = new GitflowPlan("Test Hotfix", gitflowCause.isDryRun());
+        this.planTest(plan, gitflowCause, gitflowCause.getHotfixBranch(), gitflowCause.getPatchReleaseVersion(), gitflowCause.getNextPatchDevelopmentVersion());
+        return plan;
+    }
+
+    private void planTest(final GitflowPlan plan, final AbstractGitflowCause gitflowCause, final String branch, final String patchReleaseVersion,
+                          final String nextPatchDevelopmentVersion) {
+        final String tagName = this.buildWrapperDescriptor.getVersionTagPrefix() + patchReleaseVersion;
+        this.checkExisting(plan, branch);
+
+        final RemoteBranch remoteBranch = this.gitflowPluginData == null ? null : this.gitflowPluginData.getRemoteBranch(branch);
+        plan.addStep(BRANCH, "Check out %s", this.describeRemoteHead(branch));
+        if (AbstractGitflowAction.isChangeAwareRelease(remoteBranch)) {
+            plan.addStep(VERSION, "%s: %s -> %s (only the modules that changed since release %s)", branch, this.getRecordedVersion(branch), patchReleaseVersion,
+                         remoteBranch.getLastReleaseVersion());
+        } else {
+            plan.addStep(VERSION, "%s: %s -> %s", branch, this.getRecordedVersion(branch), patchReleaseVersion);
+        }
+        this.addMainBuildStep(plan, gitflowCause, branch, true);
+        if (!gitflowCause.isOmitMainBuild() && AbstractGitflowAction.hasVerifiedBuild(remoteBranch)) {
+            plan.addStep(BUILD, "Verification skipped if the sources are unchanged since the release build #%d", remoteBranch.getLastVerifiedBuildNumber());
+        }
+
+        plan.afterSuccessfulMainBuild();
+        plan.addStep(TAG, "Create tag %s", tagName);
+        plan.addStep(VERSION, "%s: %s -> %s", branch, patchReleaseVersion, nextPatchDevelopmentVersion);
+        plan.addStep(PUSH, "refs/tags/%s, refs/heads/%s", tagName, branch);
+        plan.addStep(RECORD, "%s: version %s, release %s", branch, nextPatchDevelopmentVersion, patchReleaseVersion);
+    }
+
+    private GitflowPlan planPublish(final String actionName, final AbstractGitflowCause gitflowCause, final String branch, final String lastPatchReleaseVersion,
+                                    final ObjectId lastPatchReleaseCommit) {
+        final GitflowPlan plan = new GitflowPlan(actionName, gitflowCause.isDryRun());
+        final String masterBranch = this.buildWrapperDescriptor.getMasterBranch();
+        this.checkExisting(plan, masterBranch);
+
+        plan.addStep(MERGE, "Merge release %s (%s) from %s into %s", lastPatchReleaseVersion, abbreviate(lastPatchReleaseCommit), branch,
+                     this.describeRemoteHead(masterBranch));
+        plan.addStep(PUSH, "refs/heads/%s", masterBranch);
+        this.addMainBuildStep(plan, gitflowCause, masterBranch, false);
+        plan.addStep(RECORD, "%s: version %s, release %s", masterBranch, lastPatchReleaseVersion, lastPatchReleaseVersion);
+        return plan;
+    }
+
+    private GitflowPlan planFinish(final String actionName, final AbstractGitflowCause gitflowCause, final String branch) {
+        final GitflowPlan plan = new GitflowPlan(actionName, gitflowCause.isDryRun());
+        this.checkExisting(plan, branch);
+
+        plan.addStep(DELETE, "Delete branch %s", this.describeRemoteHead(branch));
+        plan.addStep(PUSH, ":refs/heads/%s", branch);
+        if (WorkspaceLessFinisher.isApplicable(gitflowCause)) {
+            plan.addStep(BUILD, "No build - executed on the master, logged to %s", WorkspaceLessFinishTask.LOG_FILE_NAME);
+        } else {
+            this.addMainBuildStep(plan, gitflowCause, branch, false);
+        }
+        plan.addStep(RECORD, "Remove %s", branch);
+        return plan;
+    }
+
+    private void addMainBuildStep(final GitflowPlan plan, final AbstractGitflowCause gitflowCause, final String branch, final boolean releaseBuild) {
+        if (gitflowCause.isOmitMainBuild() && GitflowFlyweightTask.isApplicable(gitflowCause, this.job)) {
+            plan.addStep(BUILD, "Main build omitted (executed on a flyweight executor)");
+        } else if (gitflowCause.isOmitMainBuild()) {
+            plan.addStep(BUILD, "Main build omitted");
+        } else if (gitflowCause.isDryRun()) {
+            plan.addStep(BUILD, "%s main build of %s (archives are not published on Dry Run)", releaseBuild ? "Release" : "Snapshot", branch);
+        } else {
+            plan.addStep(BUILD, "%s main build of %s", releaseBuild ? "Release" : "Snapshot", branch);
+        }
+    }
+
+    private void checkExisting(final GitflowPlan plan, final String branch) {
+        if (this.remoteRefSnapshot != null && this.remoteRefSnapshot.covers(branch) && this.remoteRefSnapshot.getHeadRev(branch) == null) {
+            plan.addWarning("Branch %s doesn't exist on the remote repository.", branch);
+        }
+    }
+
+    private void checkNotExisting(final GitflowPlan plan, final String branch) {
+        if (this.remoteRefSnapshot != null && this.remoteRefSnapshot.getHeadRev(branch) != null) {
+            plan.addWarning("Branch %s already exists on the remote repository.", branch);
+        }
+    }
+
+    private String describeRemoteHead(final String branch) {
+        final ObjectId headRev = this.remoteRefSnapshot == null ? null : this.remoteRefSnapshot.getHeadRev(branch);
+        return headRev == null ? "origin/" + branch : "origin/" + branch + " (" + abbreviate(headRev) + ")";
+    }
+
+    private String getRecordedVersion(final String branch) {
+        final RemoteBranch remoteBranch = this.gitflowPluginData == null ? null : this.gitflowPluginData.getRemoteBranch(branch);
+        return remoteBranch == null || remoteBranch.getLastBuildVersion() == null ? UNKNOWN_VERSION : remoteBranch.getLastBuildVersion();
+    }
+
+    private static String abbreviate(final ObjectId objectId) {
+        return objectId == null ? "unknown commit" : objectId.abbreviate(7).name();
+    }
+}
@@ -1,11 +1,15 @@
 package de.silpion.jenkins.plugins.gitflow.proxy.git;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.FilePath;
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
 import hudson.plugins.git.GitSCM;
+import hudson.plugins.git.UserRemoteConfig;
 import hudson.util.VersionNumber;
 import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.gitclient.GitClient;
 
 import java.io.IOException;
@@ -53,6 +57,43 @@ public class GitSCMProxy {
      * @throws InterruptedException if the build is interrupted during execution.
      */
     public GitClient createClient(final AbstractBuild<?, ?> build, final BuildListener listener) throws IOException, InterruptedException {
-        return this.gitSCM.createClient(listener, build.getEnvironment(listener), build, build.getWorkspace());
+        return this.createClient(build, listener, build.getWorkspace());
+    }
+
+    /**
+     * Creates and returns a new {@link GitClient} instance that works on the given directory instead of the workspace.
+     * The client is configured like the one for the workspace (e.g. with the credentials of the job).
+     *
+     * @param build the build that is in progress.
+     * @param listener can be used to send any message.
+     * @param directory the directory the client works on.
+     * @return the new {@link GitClient} instance.
+     * @throws IOException if an error occurs that causes/should cause the build to fail.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public GitClient createClient(final AbstractBuild<?, ?> build, final BuildListener listener, final FilePath directory) throws IOException, InterruptedException {
+        return this.gitSCM.createClient(listener, build.getEnvironment(listener), build, directory);
+    }
+
+    /**
+     * Returns the URL of the remote repository {@code origin} as configured for the given job, without accessing the workspace.
+     * When no remote name is configured, the Git plugin uses {@code origin} as default.
+     *
+     * @param job the job to get the remote URL for.
+     * @return the configured URL of the remote repository {@code origin} or {@code null} if the job doesn't use a Git SCM with such a remote.
+     */
+    public static String getConfiguredRemoteUrl(final AbstractProject<?, ?> job) {
+        String remoteUrl = null;
+
+        if (job.getScm() instanceof GitSCM) {
+            for (final UserRemoteConfig userRemoteConfig : ((GitSCM) job.getScm()).getUserRemoteConfigs()) {
+                if (StringUtils.isBlank(userRemoteConfig.getName()) || "origin".equals(userRemoteConfig.getName())) {
+                    remoteUrl = userRemoteConfig.getUrl();
+                    break;
+                }
+            }
+        }
+
+        return remoteUrl;
     }
 }
@@ -0,0 +1,443 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.git;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.Node;
+import hudson.plugins.git.GitException;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.URIish;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A node-local cache of bare mirror repositories - one per remote URL - that are used as object stores for the Git
+ * workspaces on the node: Before the checkout of a build, the mirror of the remote repository is fetched incrementally and
+ * the workspace repository borrows its objects (using {@code objects/info/alternates}). Thus the Git plugin only needs to
+ * fetch the objects that are not in the mirror yet, even when the workspace is empty.
+ * <p>
+ * The mirrors are stored in the directory {@code gitflow-mirrors} in the root directory of the node. The operations on a
+ * mirror are serialized by a lock per mirror, so builds for different repositories don't wait for each other. The sizes
+ * and last usages of the mirrors are kept in an index file, so that only the mirror that has just been fetched is measured.
+ * When the mirrors exceed the configured size limit, the least recently used mirrors that aren't in use are evicted - the
+ * workspaces that borrow objects from an evicted mirror get copies of the objects before.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class ObjectMirrorCache {
+
+    static final String MIRRORS_DIR_NAME = "gitflow-mirrors";
+    static final String INDEX_FILE_NAME = "gitflow-mirrors.index";
+    static final String BORROWERS_FILE_NAME = "gitflow-borrowers";
+
+    // Touched by older plugin versions - only read for mirrors that aren't in the index yet.
+    static final String LAST_USED_FILE_NAME = "gitflow-last-used";
+
+    private static final String ALTERNATES_PATH = "info/alternates";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final List<RefSpec> MIRROR_REFSPECS = Collections.singletonList(new RefSpec("+refs/heads/*:refs/heads/*"));
+
+    private static final String MSG_PATTERN_UPDATED_MIRROR = "Gitflow - Object mirror cache: Updated the mirror of %s in %s%n";
+    private static final String MSG_PATTERN_EVICTED_MIRRORS = "Gitflow - Object mirror cache: Evicted %d mirror(s) on %s%n";
+
+    // The locks for the single mirrors and for the index of each node.
+    private static final ConcurrentMap<String, ReentrantLock> MIRROR_LOCKS = new ConcurrentHashMap<String, ReentrantLock>();
+    private static final ConcurrentMap<String, ReentrantLock> INDEX_LOCKS = new ConcurrentHashMap<String, ReentrantLock>();
+
+    private final GitSCMProxy gitSCMProxy;
+    private final long sizeLimit;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param gitSCMProxy the proxy for the Git SCM of the job, used to create the clients that fetch the mirrors.
+     * @param sizeLimitInMegabytes the maximal size of all mirrors on a node.
+     */
+    public ObjectMirrorCache(final GitSCMProxy gitSCMProxy, final long sizeLimitInMegabytes) {
+        this.gitSCMProxy = gitSCMProxy;
+        this.sizeLimit = sizeLimitInMegabytes * FileUtils.ONE_MB;
+    }
+
+    /**
+     * Updates the mirror of the remote repository {@code origin} on the node of the build and lets the workspace of the
+     * build borrow the objects of the mirror. When the workspace doesn't contain a Git repository yet, an empty one is
+     * initialized, so the Git plugin fetches into it instead of cloning.
+     *
+     * @param build the build that is in progress (before the checkout).
+     * @param listener can be used to send any message.
+     * @throws IOException if the mirror cannot be created, updated or borrowed.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public void prepareWorkspace(final AbstractBuild<?, ?> build, final BuildListener listener) throws IOException, InterruptedException {
+        final Node node = build.getBuiltOn();
+        final FilePath nodeRootPath = node == null ? null : node.getRootPath();
+        final FilePath workspace = build.getWorkspace();
+        final String remoteUrl = GitSCMProxy.getConfiguredRemoteUrl(build.getProject());
+        if (nodeRootPath == null || workspace == null || remoteUrl == null) {
+            return;
+        }
+
+        final FilePath mirrorsDir = nodeRootPath.child(MIRRORS_DIR_NAME);
+        final FilePath mirror = mirrorsDir.child(Util.getDigestOf(remoteUrl));
+
+        final Map<String, Long> mirrorSizes;
+        final ReentrantLock mirrorLock = getLock(MIRROR_LOCKS, node.getNodeName() + '/' + mirror.getName());
+        mirrorLock.lockInterruptibly();
+        try {
+            mirror.act(new InitMirrorCallable(remoteUrl));
+            try {
+                this.gitSCMProxy.createClient(build, listener, mirror).fetch_().from(new URIish(remoteUrl), MIRROR_REFSPECS).prune().execute();
+            } catch (final URISyntaxException | GitException e) {
+                throw new IOException("Cannot fetch " + remoteUrl + " into the mirror " + mirror.getRemote(), e);
+            }
+            listener.getLogger().printf(MSG_PATTERN_UPDATED_MIRROR, remoteUrl, mirror.getRemote());
+
+            workspace.act(new BorrowObjectsCallable(mirror.getRemote(), remoteUrl));
+
+            final ReentrantLock indexLock = getLock(INDEX_LOCKS, node.getNodeName());
+            indexLock.lockInterruptibly();
+            try {
+                mirrorSizes = mirrorsDir.act(new UpdateIndexCallable(mirror.getName(), System.currentTimeMillis()));
+            } finally {
+                indexLock.unlock();
+            }
+        } finally {
+            mirrorLock.unlock();
+        }
+
+        final int evictedMirrors = this.evictMirrors(node, mirrorsDir, mirror.getName(), mirrorSizes);
+        if (evictedMirrors > 0) {
+            listener.getLogger().printf(MSG_PATTERN_EVICTED_MIRRORS, evictedMirrors, node.getDisplayName());
+        }
+    }
+
+    /**
+     * Evicts the least recently used mirrors until the size of all mirrors doesn't exceed the size limit anymore. The
+     * current mirror and the mirrors that are in use by other builds are never evicted.
+     */
+    private int evictMirrors(final Node node, final FilePath mirrorsDir, final String currentMirrorName, final Map<String, Long> mirrorSizes)
+            throws IOException, InterruptedException {
+        int evictedMirrors = 0;
+
+        long totalSize = 0L;
+        for (final Long mirrorSize : mirrorSizes.values()) {
+            totalSize += mirrorSize;
+        }
+        for (final Map.Entry<String, Long> mirrorSize : mirrorSizes.entrySet()) {
+            if (totalSize <= this.sizeLimit) {
+                break;
+            } else if (!mirrorSize.getKey().equals(currentMirrorName)) {
+                final ReentrantLock mirrorLock = getLock(MIRROR_LOCKS, node.getNodeName() + '/' + mirrorSize.getKey());
+                if (mirrorLock.tryLock()) {
+                    try {
+                        mirrorsDir.child(mirrorSize.getKey()).act(new EvictMirrorCallable());
+                    } finally {
+                        mirrorLock.unlock();
+                    }
+                    totalSize -= mirrorSize.getValue();
+                    evictedMirrors++;
+                }
+            }
+        }
+
+        return evictedMirrors;
+    }
+
+    private static ReentrantLock getLock(final ConcurrentMap<String, ReentrantLock> locks, final String key) {
+        final ReentrantLock newLock = new ReentrantLock();
+        final ReentrantLock existingLock = locks.putIfAbsent(key, newLock);
+        return existingLock == null ? newLock : existingLock;
+    }
+
+    private static File getAlternatesFile(final File objectsDir) {
+        return new File(objectsDir, ALTERNATES_PATH);
+    }
+
+    private static List<String> readLines(final File file) throws IOException {
+        return file.isFile() ? FileUtils.readLines(file, UTF_8) : new ArrayList<String>();
+    }
+
+    /** Initializes a bare mirror repository, if it doesn't exist yet. Garbage collection is disabled, because workspaces rely on the objects. */
+    static class InitMirrorCallable extends MasterToSlaveFileCallable<Void> {
+
+        private static final long serialVersionUID = -3381286473925462412L;
+
+        private final String remoteUrl;
+
+        InitMirrorCallable(final String remoteUrl) {
+            this.remoteUrl = remoteUrl;
+        }
+
+        /** {@inheritDoc} */
+        public Void invoke(final File mirrorDir, final VirtualChannel channel) throws IOException, InterruptedException {
+            if (!new File(mirrorDir, Constants.OBJECTS).isDirectory()) {
+                try {
+                    final Git git = Git.init().setBare(true).setDirectory(mirrorDir).call();
+                    try {
+                        final StoredConfig config = git.getRepository().getConfig();
+                        config.setString(ConfigConstants.CONFIG_REMOTE_SECTION, Constants.DEFAULT_REMOTE_NAME, "url", this.remoteUrl);
+                        config.setInt("gc", null, "auto", 0);
+                        config.save();
+                    } finally {
+                        git.getRepository().close();
+                    }
+                } catch (final GitAPIException gae) {
+                    throw new IOException("Cannot initialize the mirror " + mirrorDir, gae);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Lets a workspace borrow the objects of a mirror. When the workspace doesn't contain a Git repository, an empty one is
+     * initialized. The workspace is registered as borrower of the mirror.
+     */
+    static class BorrowObjectsCallable extends MasterToSlaveFileCallable<Void> {
+
+        private static final long serialVersionUID = 2709745962147208452L;
+
+        private final String mirrorPath;
+        private final String remoteUrl;
+
+        BorrowObjectsCallable(final String mirrorPath, final String remoteUrl) {
+            this.mirrorPath = mirrorPath;
+            this.remoteUrl = remoteUrl;
+        }
+
+        /** {@inheritDoc} */
+        public Void invoke(final File workspace, final VirtualChannel channel) throws IOException, InterruptedException {
+            final File gitDir = new File(workspace, Constants.DOT_GIT);
+            if (!new File(gitDir, Constants.OBJECTS).isDirectory()) {
+                try {
+                    final Git git = Git.init().setDirectory(workspace).call();
+                    try {
+                        final StoredConfig config = git.getRepository().getConfig();
+                        config.setString(ConfigConstants.CONFIG_REMOTE_SECTION, Constants.DEFAULT_REMOTE_NAME, "url", this.remoteUrl);
+                        config.save();
+                    } finally {
+                        git.getRepository().close();
+                    }
+                } catch (final GitAPIException gae) {
+                    throw new IOException("Cannot initialize the repository in " + workspace, gae);
+                }
+            }
+
+            // Add the objects of the mirror as alternate object store.
+            final String mirrorObjectsPath = new File(this.mirrorPath, Constants.OBJECTS).getAbsolutePath();
+            final File alternatesFile = getAlternatesFile(new File(gitDir, Constants.OBJECTS));
+            final List<String> alternates = readLines(alternatesFile);
+            if (!alternates.contains(mirrorObjectsPath)) {
+                alternates.add(mirrorObjectsPath);
+                FileUtils.writeLines(alternatesFile, UTF_8.name(), alternates, "\n");
+            }
+
+            // Register the workspace, so it can be dissociated when the mirror is evicted.
+            final File borrowersFile = new File(this.mirrorPath, BORROWERS_FILE_NAME);
+            final Set<String> borrowers = new LinkedHashSet<String>(readLines(borrowersFile));
+            if (borrowers.add(gitDir.getAbsolutePath())) {
+                FileUtils.writeLines(borrowersFile, UTF_8.name(), borrowers, "\n");
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Records the size and the last usage of a mirror in the index of the mirrors directory. Only the given mirror is
+     * measured - the other sizes are taken from the index. Mirrors that aren't in the index yet (e.g. created by an older
+     * plugin version) are measured once, entries of mirrors that don't exist anymore are dropped.
+     */
+    static class UpdateIndexCallable extends MasterToSlaveFileCallable<LinkedHashMap<String, Long>> {
+
+        private static final long serialVersionUID = 8813079542361924035L;
+
+        private final String currentMirrorName;
+        private final long lastUsed;
+
+        UpdateIndexCallable(final String currentMirrorName, final long lastUsed) {
+            this.currentMirrorName = currentMirrorName;
+            this.lastUsed = lastUsed;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return the sizes of all mirrors, least recently used first.
+         */
+        public LinkedHashMap<String, Long> invoke(final File mirrorsDir, final VirtualChannel channel) throws IOException, InterruptedException {
+            final File indexFile = new File(mirrorsDir, INDEX_FILE_NAME);
+            final Properties index = new Properties();
+            if (indexFile.isFile()) {
+                final InputStream in = new FileInputStream(indexFile);
+                try {
+                    index.load(in);
+                } finally {
+                    in.close();
+                }
+            }
+
+            // Rebuild the index from the existing mirror directories.
+            final List<IndexEntry> entries = new ArrayList<IndexEntry>();
+            final File[] mirrors = mirrorsDir.listFiles();
+            if (mirrors != null) {
+                for (final File mirror : mirrors) {
+                    if (mirror.isDirectory()) {
+                        final String name = mirror.getName();
+                        final IndexEntry entry = IndexEntry.parse(name, index.getProperty(name));
+                        if (name.equals(this.currentMirrorName)) {
+                            entries.add(new IndexEntry(name, FileUtils.sizeOfDirectory(mirror), this.lastUsed));
+                        } else if (entry == null) {
+                            entries.add(new IndexEntry(name, FileUtils.sizeOfDirectory(mirror), new File(mirror, LAST_USED_FILE_NAME).lastModified()));
+                        } else {
+                            entries.add(entry);
+                        }
+                    }
+                }
+            }
+
+            // Least recently used first.
+            Collections.sort(entries, new Comparator<IndexEntry>() {
+
+                /** {@inheritDoc} */
+                @Override
+                public int compare(final IndexEntry entry1, final IndexEntry entry2) {
+                    return entry1.lastUsed < entry2.lastUsed ? -1 : (entry1.lastUsed == entry2.lastUsed ? 0 : 1);
+                }
+            });
+
+            final Properties updatedIndex = new Properties();
+            final LinkedHashMap<String, Long> mirrorSizes = new LinkedHashMap<String, Long>();
+            for (final IndexEntry entry : entries) {
+                updatedIndex.setProperty(entry.name, entry.size + "," + entry.lastUsed);
+                mirrorSizes.put(entry.name, entry.size);
+            }
+            final File tempFile = new File(mirrorsDir, INDEX_FILE_NAME + ".tmp");
+            final OutputStream out = new FileOutputStream(tempFile);
+            try {
+                updatedIndex.store(out, null);
+            } finally {
+                out.close();
+            }
+            FileUtils.deleteQuietly(indexFile);
+            if (!tempFile.renameTo(indexFile)) {
+                throw new IOException("Cannot write " + indexFile);
+            }
+
+            return mirrorSizes;
+        }
+    }
+
+    /** An entry of the index: the size and the last usage of a mirror. */
+    private static class IndexEntry {
+
+        private final String name;
+        private final long size;
+        private final long lastUsed;
+
+        IndexEntry(final String name, final long size, final long lastUsed) {
+            this.name = name;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+
+        static IndexEntry parse(final String name, final String value) {
+            final String[] values = StringUtils.split(value, ',');
+            if (values == null || values.length != 2 || !NumberUtils.isDigits(values[0]) || !NumberUtils.isDigits(values[1])) {
+                return null;
+            }
+            return new IndexEntry(name, Long.parseLong(values[0]), Long.parseLong(values[1]));
+        }
+    }
+
+    /**
+     * Evicts a mirror: The workspaces that borrow objects from the mirror get copies of the objects, then the mirror is
+     * deleted. Its entry is dropped from the index with the next update.
+     */
+    static class EvictMirrorCallable extends MasterToSlaveFileCallable<Void> {
+
+        private static final long serialVersionUID = 4627083149180658317L;
+
+        /** {@inheritDoc} */
+        public Void invoke(final File mirror, final VirtualChannel channel) throws IOException, InterruptedException {
+            dissociateBorrowers(mirror);
+            FileUtils.deleteDirectory(mirror);
+            return null;
+        }
+
+        private static void dissociateBorrowers(final File mirror) throws IOException {
+            final File mirrorObjectsDir = new File(mirror, Constants.OBJECTS);
+            final String mirrorObjectsPath = mirrorObjectsDir.getAbsolutePath();
+
+            for (final String borrower : readLines(new File(mirror, BORROWERS_FILE_NAME))) {
+                final File borrowerObjectsDir = new File(borrower, Constants.OBJECTS);
+                final File alternatesFile = getAlternatesFile(borrowerObjectsDir);
+                final List<String> alternates = readLines(alternatesFile);
+                if (alternates.remove(mirrorObjectsPath)) {
+
+                    // Copy the objects first, the pack indexes last - Git only uses packs with an index.
+                    copyMissingObjects(mirrorObjectsDir, borrowerObjectsDir, false);
+                    copyMissingObjects(mirrorObjectsDir, borrowerObjectsDir, true);
+                    if (alternates.isEmpty()) {
+                        FileUtils.forceDelete(alternatesFile);
+                    } else {
+                        FileUtils.writeLines(alternatesFile, UTF_8.name(), alternates, "\n");
+                    }
+                }
+            }
+        }
+
+        private static void copyMissingObjects(final File sourceDir, final File targetDir, final boolean packIndexes) throws IOException {
+            final File[] sourceFiles = sourceDir.listFiles();
+            if (sourceFiles == null) {
+                return;
+            }
+
+            Arrays.sort(sourceFiles);
+            for (final File sourceFile : sourceFiles) {
+                final File targetFile = new File(targetDir, sourceFile.getName());
+                if (sourceFile.isDirectory()) {
+                    if (!"info".equals(sourceFile.getName())) {
+                        copyMissingObjects(sourceFile, targetFile, packIndexes);
+                    }
+                } else if (sourceFile.getName().endsWith(".idx") == packIndexes && !targetFile.exists()) {
+                    final File tempFile = new File(targetDir, sourceFile.getName() + ".tmp");
+                    FileUtils.copyFile(sourceFile, tempFile);
+                    if (!tempFile.renameTo(targetFile)) {
+                        throw new IOException("Cannot copy " + sourceFile + " to " + targetFile);
+                    }
+                }
+            }
+        }
+    }
+}
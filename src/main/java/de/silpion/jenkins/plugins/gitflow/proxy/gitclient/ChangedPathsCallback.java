@@ -0,0 +1,102 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import hudson.remoting.VirtualChannel;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.jenkinsci.plugins.gitclient.RepositoryCallback;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Determines the paths of the files that differ between the trees of two commits. Changes of the project files that only
+ * consist of version updates are ignored: The versions in these files are normalised by a {@link FileContentRewriter} (that
+ * replaces them with a placeholder) before their contents are compared.
+ * <p>
+ * The trees are compared in the object database - the working tree isn't read.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class ChangedPathsCallback implements RepositoryCallback<List<String>> {
+
+    private static final long serialVersionUID = -3079566180420415532L;
+
+    private final String fromRev;
+    private final String toRev;
+    private final FileContentRewriter versionNormalizer;
+
+    /**
+     * Creates a new callback.
+     *
+     * @param fromRev the revision to compare from.
+     * @param toRev the revision to compare to.
+     * @param versionNormalizer normalises the versions in the project files.
+     */
+    ChangedPathsCallback(final String fromRev, final String toRev, final FileContentRewriter versionNormalizer) {
+        this.fromRev = fromRev;
+        this.toRev = toRev;
+        this.versionNormalizer = versionNormalizer;
+    }
+
+    /**
+     * Returns the paths of the changed files.
+     *
+     * @return the sorted paths of the added, modified and deleted files, relative to the root of the repository.
+     */
+    public List<String> invoke(final Repository repository, final VirtualChannel channel) throws IOException, InterruptedException {
+        final List<String> changedPaths = new ArrayList<String>();
+        final Set<String> versionFilePaths = new HashSet<String>(this.versionNormalizer.getFilePaths());
+
+        final ObjectReader reader = repository.newObjectReader();
+        final RevWalk revWalk = new RevWalk(reader);
+        final TreeWalk treeWalk = new TreeWalk(reader);
+        try {
+            treeWalk.addTree(revWalk.parseCommit(this.resolve(repository, this.fromRev)).getTree());
+            treeWalk.addTree(revWalk.parseCommit(this.resolve(repository, this.toRev)).getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+
+            while (treeWalk.next()) {
+                final String path = treeWalk.getPathString();
+                final ObjectId fromBlobId = treeWalk.getObjectId(0);
+                final ObjectId toBlobId = treeWalk.getObjectId(1);
+                if (versionFilePaths.contains(path) && !ObjectId.zeroId().equals(fromBlobId) && !ObjectId.zeroId().equals(toBlobId)
+                    && Arrays.equals(this.readNormalized(reader, path, fromBlobId), this.readNormalized(reader, path, toBlobId))) {
+                    continue;
+                }
+                changedPaths.add(path);
+            }
+        } finally {
+            treeWalk.release();
+            revWalk.release();
+            reader.release();
+        }
+
+        Collections.sort(changedPaths);
+        return changedPaths;
+    }
+
+    private ObjectId resolve(final Repository repository, final String rev) throws IOException {
+        final ObjectId commitId = repository.resolve(rev);
+        if (commitId == null) {
+            throw new IOException("Cannot resolve " + rev);
+        }
+        return commitId;
+    }
+
+    private byte[] readNormalized(final ObjectReader reader, final String path, final ObjectId blobId) throws IOException {
+        final byte[] content = reader.open(blobId, Constants.OBJ_BLOB).getBytes();
+        final byte[] normalizedContent = this.versionNormalizer.rewrite(path, content);
+        return normalizedContent == null ? content : normalizedContent;
+    }
+}
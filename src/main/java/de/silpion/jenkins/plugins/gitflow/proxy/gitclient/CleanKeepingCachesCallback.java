@@ -0,0 +1,123 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import hudson.remoting.VirtualChannel;
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.ignore.IgnoreNode;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.FileUtils;
+import org.jenkinsci.plugins.gitclient.RepositoryCallback;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Removes the untracked and ignored files and directories from the working tree (like {@code git clean -fdx}), but keeps
+ * the ignored directories matching the cache directory patterns (e.g. {@code target/} or {@code node_modules/}).
+ * <p>
+ * Untracked files that are not ignored are always removed, even if they match a cache directory pattern. Thus the sources
+ * in the working tree are the same as after a full clean.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class CleanKeepingCachesCallback implements RepositoryCallback<List<String>> {
+
+    private static final long serialVersionUID = -2486113706390457818L;
+
+    private final List<String> cacheDirectoryPatterns;
+
+    /**
+     * Creates a new callback.
+     *
+     * @param cacheDirectoryPatterns the patterns for the ignored directories to be kept (using the {@code .gitignore} syntax).
+     */
+    CleanKeepingCachesCallback(final List<String> cacheDirectoryPatterns) {
+        this.cacheDirectoryPatterns = new ArrayList<String>(cacheDirectoryPatterns);
+    }
+
+    /**
+     * Removes the untracked and ignored files and directories.
+     *
+     * @return the paths of the kept cache directories.
+     */
+    public List<String> invoke(final Repository repository, final VirtualChannel channel) throws IOException, InterruptedException {
+        final List<String> keptPaths = new ArrayList<String>();
+
+        final IgnoreNode cacheDirectories = new IgnoreNode();
+        cacheDirectories.parse(new ByteArrayInputStream(Constants.encode(StringUtils.join(this.cacheDirectoryPatterns, "\n"))));
+
+        final Status status;
+        try {
+            status = Git.wrap(repository).status().call();
+        } catch (final GitAPIException gae) {
+            throw new IOException("Cannot determine the untracked files of " + repository.getWorkTree(), gae);
+        }
+
+        // Ignored directories are reported without their contents, untracked directories are reported with their contents.
+        final Set<String> removedPaths = new TreeSet<String>();
+        removedPaths.addAll(status.getUntrackedFolders());
+        removedPaths.addAll(status.getUntracked());
+        for (final String ignoredPath : status.getIgnoredNotInIndex()) {
+            final String path = StringUtils.removeEnd(ignoredPath, "/");
+            if (isCacheDirectory(cacheDirectories, path, new File(repository.getWorkTree(), path).isDirectory())) {
+                keptPaths.add(path);
+            } else {
+                removedPaths.add(path);
+            }
+        }
+
+        for (final String removedPath : removedPaths) {
+            delete(new File(repository.getWorkTree(), removedPath), removedPath, keptPaths);
+        }
+
+        return keptPaths;
+    }
+
+    /**
+     * Deletes the file or directory. Untracked directories may contain kept cache directories - then only the other contents are deleted.
+     */
+    private static void delete(final File file, final String path, final List<String> keptPaths) throws IOException {
+        if (keptPaths.contains(path)) {
+            return;
+        }
+
+        boolean containsKeptPath = false;
+        for (final String keptPath : keptPaths) {
+            if (keptPath.startsWith(path + "/")) {
+                containsKeptPath = true;
+                break;
+            }
+        }
+
+        final File[] children = containsKeptPath ? file.listFiles() : null;
+        if (children == null) {
+            FileUtils.delete(file, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+        } else {
+            for (final File child : children) {
+                delete(child, path + "/" + child.getName(), keptPaths);
+            }
+        }
+    }
+
+    /**
+     * Checks if the path or one of its parent directories is a cache directory.
+     */
+    private static boolean isCacheDirectory(final IgnoreNode cacheDirectories, final String path, final boolean directory) {
+        int separatorIndex = path.indexOf('/');
+        while (separatorIndex > 0) {
+            if (cacheDirectories.isIgnored(path.substring(0, separatorIndex), true) == IgnoreNode.MatchResult.IGNORED) {
+                return true;
+            }
+            separatorIndex = path.indexOf('/', separatorIndex + 1);
+        }
+        return directory && cacheDirectories.isIgnored(path, true) == IgnoreNode.MatchResult.IGNORED;
+    }
+}
@@ -0,0 +1,108 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import hudson.plugins.git.GitException;
+import hudson.util.ArgumentListBuilder;
+import org.eclipse.jgit.transport.URIish;
+import org.jenkinsci.plugins.gitclient.CliGitAPIImpl;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Launches Git commands that access a remote repository with the credentials of a Git command line client.
+ * <p>
+ * The Git Client plugin doesn't offer an API to launch arbitrary remote commands, so its private method to launch commands
+ * with credentials is invoked using <i>Reflections</i>.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class CliGitCommandLauncher {
+
+    private static final String LAUNCH_COMMAND_WITH_CREDENTIALS = "launchCommandWithCredentials";
+
+    private final CliGitAPIImpl gitClient;
+    private final Method launchMethod;
+
+    private CliGitCommandLauncher(final CliGitAPIImpl gitClient, final Method launchMethod) {
+        this.gitClient = gitClient;
+        this.launchMethod = launchMethod;
+    }
+
+    /**
+     * Creates a launcher for the given Git command line client.
+     *
+     * @param gitClient the Git command line client.
+     * @return the launcher or {@code null} if the installed Git Client plugin doesn't provide the required method.
+     */
+    public static CliGitCommandLauncher forClient(final CliGitAPIImpl gitClient) {
+        for (final Method method : CliGitAPIImpl.class.getDeclaredMethods()) {
+            if (LAUNCH_COMMAND_WITH_CREDENTIALS.equals(method.getName()) && method.getParameterTypes().length == 4) {
+                method.setAccessible(true);
+                return new CliGitCommandLauncher(gitClient, method);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Launches the Git command in the work tree of the client.
+     *
+     * @param arguments the arguments for the Git command (without the Git executable).
+     * @param remote the URL of the remote repository the command accesses.
+     * @return the standard output of the command.
+     * @throws GitException if the command fails.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    @SuppressWarnings("ThrowsRuntimeException")
+    public String launch(final ArgumentListBuilder arguments, final URIish remote) throws GitException, InterruptedException {
+        try {
+            final File workDir = new File(this.gitClient.getWorkTree().getRemote());
+            final Object url = this.launchMethod.getParameterTypes()[3] == String.class ? remote.toPrivateString() : remote;
+            return (String) this.launchMethod.invoke(this.gitClient, arguments, workDir, this.getCredentials(remote), url);
+        } catch (final InvocationTargetException ite) {
+            final Throwable cause = ite.getCause();
+            if (cause instanceof GitException) {
+                throw (GitException) cause;
+            } else if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            } else {
+                throw new GitException("Could not execute git " + arguments, cause);
+            }
+        } catch (final IllegalAccessException iae) {
+            throw new GitException("Could not execute git " + arguments, iae);
+        }
+    }
+
+    /**
+     * Returns the credentials the Git client would use for the remote - the ones registered for the remote URL or the default credentials.
+     */
+    private Object getCredentials(final URIish remote) throws IllegalAccessException {
+        Object credentials = null;
+
+        final Field credentialsField = findField("credentials");
+        if (credentialsField != null) {
+            credentials = ((Map<?, ?>) credentialsField.get(this.gitClient)).get(remote.toPrivateString());
+        }
+        if (credentials == null) {
+            final Field defaultCredentialsField = findField("defaultCredentials");
+            if (defaultCredentialsField != null) {
+                credentials = defaultCredentialsField.get(this.gitClient);
+            }
+        }
+
+        return credentials;
+    }
+
+    private static Field findField(final String name) {
+        try {
+            final Field field = CliGitAPIImpl.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (final NoSuchFieldException nsfe) {
+            return null;
+        }
+    }
+}
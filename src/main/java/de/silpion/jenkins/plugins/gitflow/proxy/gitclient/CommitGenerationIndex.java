@@ -0,0 +1,156 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent index of the generation numbers of the commits in a repository. The generation of a root commit is 1, the
+ * generation of any other commit is 1 + the maximum generation of its parents. Thus a commit can only reach commits with
+ * lower generation numbers, which allows to prune reachability walks.
+ * <p>
+ * The index is stored in the Git directory of the repository and it's updated incrementally: only the commits that are not
+ * indexed yet are walked.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class CommitGenerationIndex {
+
+    static final String FILE_NAME = "gitflow-commit-generations";
+
+    private static final int FILE_MAGIC = 0x47464347;
+    private static final int FILE_VERSION = 1;
+
+    private final File file;
+    private final Map<ObjectId, Integer> generations;
+    private boolean modified;
+
+    private CommitGenerationIndex(final File file, final Map<ObjectId, Integer> generations) {
+        this.file = file;
+        this.generations = generations;
+    }
+
+    /**
+     * Loads the index of the given repository. When the index file doesn't exist or can't be read, an empty index is returned.
+     *
+     * @param repository the repository to load the index for.
+     * @return the index of the given repository.
+     */
+    static CommitGenerationIndex load(final Repository repository) {
+        final File file = new File(repository.getDirectory(), FILE_NAME);
+        Map<ObjectId, Integer> generations = new HashMap<ObjectId, Integer>();
+
+        if (file.isFile()) {
+            try {
+                final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                try {
+                    if (in.readInt() == FILE_MAGIC && in.readInt() == FILE_VERSION) {
+                        final int size = in.readInt();
+                        generations = new HashMap<ObjectId, Integer>(size * 4 / 3 + 1);
+                        final byte[] rawId = new byte[20];
+                        for (int i = 0; i < size; i++) {
+                            in.readFully(rawId);
+                            generations.put(ObjectId.fromRaw(rawId), in.readInt());
+                        }
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (final IOException ignore) {
+                // A broken index is rebuilt.
+                generations = new HashMap<ObjectId, Integer>();
+            }
+        }
+
+        return new CommitGenerationIndex(file, generations);
+    }
+
+    /**
+     * Returns the generation number of the given commit. When the commit isn't indexed yet, the generation numbers of the
+     * commit and its not yet indexed ancestors are calculated and added to the index.
+     *
+     * @param revWalk the walk used to parse the commits.
+     * @param commit the commit.
+     * @return the generation number of the given commit.
+     * @throws IOException if a commit cannot be parsed.
+     */
+    int getGeneration(final RevWalk revWalk, final ObjectId commit) throws IOException {
+        Integer generation = this.generations.get(commit);
+
+        if (generation == null) {
+            final Deque<RevCommit> unindexedCommits = new ArrayDeque<RevCommit>();
+            unindexedCommits.push(revWalk.parseCommit(commit));
+            while (!unindexedCommits.isEmpty()) {
+                final RevCommit unindexedCommit = unindexedCommits.peek();
+                if (this.generations.containsKey(unindexedCommit)) {
+                    unindexedCommits.pop();
+                    continue;
+                }
+
+                // The generation can be calculated when all parents are indexed - otherwise the parents are indexed first.
+                int maxParentGeneration = 0;
+                boolean parentsIndexed = true;
+                for (final RevCommit parent : unindexedCommit.getParents()) {
+                    final Integer parentGeneration = this.generations.get(parent);
+                    if (parentGeneration == null) {
+                        unindexedCommits.push(revWalk.parseCommit(parent));
+                        parentsIndexed = false;
+                    } else {
+                        maxParentGeneration = Math.max(maxParentGeneration, parentGeneration);
+                    }
+                }
+                if (parentsIndexed) {
+                    unindexedCommits.pop();
+                    this.generations.put(unindexedCommit.copy(), maxParentGeneration + 1);
+                    this.modified = true;
+                }
+            }
+            generation = this.generations.get(commit);
+        }
+
+        return generation;
+    }
+
+    /**
+     * Writes the index to its file, if it has been modified.
+     *
+     * @throws IOException if the index cannot be written.
+     */
+    void save() throws IOException {
+        if (this.modified) {
+            final File tempFile = new File(this.file.getPath() + ".tmp");
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(this.generations.size());
+                final byte[] rawId = new byte[20];
+                for (final Map.Entry<ObjectId, Integer> generation : this.generations.entrySet()) {
+                    generation.getKey().copyRawTo(rawId, 0);
+                    out.write(rawId);
+                    out.writeInt(generation.getValue());
+                }
+            } finally {
+                out.close();
+            }
+            if (!tempFile.renameTo(this.file) && !(this.file.delete() && tempFile.renameTo(this.file))) {
+                throw new IOException("Cannot replace " + this.file);
+            }
+            this.modified = false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * The author and committer for commits that are written directly to the object database. They are taken from the Git
+ * environment variables of the build ({@code GIT_AUTHOR_NAME}, {@code GIT_COMMITTER_EMAIL}, etc.), which the Git plugin sets
+ * from the configured user name and e-mail address - so the commits get the same identity as the ones created by
+ * {@link GitClientProxy#commit(String)}. Values that aren't set are taken from the configuration of the repository.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class CommitIdentity implements Serializable {
+
+    private static final long serialVersionUID = 4390562236618117925L;
+
+    private final String authorName;
+    private final String authorEmail;
+    private final String committerName;
+    private final String committerEmail;
+
+    /**
+     * Creates a new identity.
+     *
+     * @param authorName the name of the author or {@code null}.
+     * @param authorEmail the e-mail address of the author or {@code null}.
+     * @param committerName the name of the committer or {@code null}.
+     * @param committerEmail the e-mail address of the committer or {@code null}.
+     */
+    CommitIdentity(final String authorName, final String authorEmail, final String committerName, final String committerEmail) {
+        this.authorName = StringUtils.trimToNull(authorName);
+        this.authorEmail = StringUtils.trimToNull(authorEmail);
+        this.committerName = StringUtils.trimToNull(committerName);
+        this.committerEmail = StringUtils.trimToNull(committerEmail);
+    }
+
+    /**
+     * Creates the identity from the Git environment variables of a build.
+     *
+     * @param environment the environment variables of the build.
+     * @return the identity.
+     */
+    static CommitIdentity fromEnvironment(final Map<String, String> environment) {
+        return new CommitIdentity(environment.get("GIT_AUTHOR_NAME"), environment.get("GIT_AUTHOR_EMAIL"),
+                                  environment.get("GIT_COMMITTER_NAME"), environment.get("GIT_COMMITTER_EMAIL"));
+    }
+
+    /**
+     * Returns the author for a new commit.
+     *
+     * @param repository the repository that provides the missing values.
+     * @return the author with the current time.
+     */
+    PersonIdent getAuthor(final Repository repository) {
+        return createPersonIdent(repository, this.authorName, this.authorEmail);
+    }
+
+    /**
+     * Returns the committer for a new commit.
+     *
+     * @param repository the repository that provides the missing values.
+     * @return the committer with the current time.
+     */
+    PersonIdent getCommitter(final Repository repository) {
+        return createPersonIdent(repository, this.committerName, this.committerEmail);
+    }
+
+    private static PersonIdent createPersonIdent(final Repository repository, final String name, final String email) {
+        final PersonIdent defaultIdent = new PersonIdent(repository);
+        return new PersonIdent(name == null ? defaultIdent.getName() : name, email == null ? defaultIdent.getEmailAddress() : email);
+    }
+}
@@ -0,0 +1,132 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import hudson.remoting.VirtualChannel;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jenkinsci.plugins.gitclient.RepositoryCallback;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Determines the remote branches that contain a commit, using the {@link CommitGenerationIndex} of the repository:
+ * A branch head can only reach the commit when its generation is higher, and the walks from the branch heads are pruned at
+ * commits with a generation lower than the one of the commit. The results of the walks are shared between the branches.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class ContainingBranchesCallback implements RepositoryCallback<List<String>> {
+
+    private static final long serialVersionUID = 4236541285064917254L;
+
+    private final String revspec;
+
+    /**
+     * Creates a new callback.
+     *
+     * @param revspec the commit to find the containing remote branches for.
+     */
+    ContainingBranchesCallback(final String revspec) {
+        this.revspec = revspec;
+    }
+
+    /**
+     * Returns the names of the remote branches that contain the commit.
+     *
+     * @return the sorted names of the remote branches (including the remote alias, e.g. {@code origin/develop}) that contain the commit.
+     */
+    public List<String> invoke(final Repository repository, final VirtualChannel channel) throws IOException, InterruptedException {
+        final List<String> remoteBranchNamesContaining = new ArrayList<String>();
+
+        final RevWalk revWalk = new RevWalk(repository);
+        try {
+            final ObjectId commitId = repository.resolve(this.revspec);
+            if (commitId == null) {
+                throw new IOException("Cannot resolve " + this.revspec);
+            }
+            final RevCommit commit = revWalk.parseCommit(commitId);
+
+            final CommitGenerationIndex generationIndex = CommitGenerationIndex.load(repository);
+            final int commitGeneration = generationIndex.getGeneration(revWalk, commit);
+
+            final Map<ObjectId, Boolean> reachesCommit = new HashMap<ObjectId, Boolean>();
+            for (final Ref remoteRef : repository.getRefDatabase().getRefs(Constants.R_REMOTES).values()) {
+                if (remoteRef.isSymbolic() || remoteRef.getObjectId() == null) {
+                    continue;
+                }
+
+                final RevCommit head;
+                try {
+                    head = revWalk.parseCommit(remoteRef.getObjectId());
+                } catch (final IncorrectObjectTypeException ignore) {
+                    continue;
+                }
+                if (generationIndex.getGeneration(revWalk, head) >= commitGeneration
+                    && this.reaches(revWalk, generationIndex, head, commit, commitGeneration, reachesCommit)) {
+                    remoteBranchNamesContaining.add(remoteRef.getName().substring(Constants.R_REMOTES.length()));
+                }
+            }
+
+            generationIndex.save();
+        } finally {
+            revWalk.release();
+        }
+
+        Collections.sort(remoteBranchNamesContaining);
+        return remoteBranchNamesContaining;
+    }
+
+    private boolean reaches(final RevWalk revWalk, final CommitGenerationIndex generationIndex, final RevCommit head, final RevCommit commit,
+                            final int commitGeneration, final Map<ObjectId, Boolean> reachesCommit) throws IOException {
+        final Deque<RevCommit> pendingCommits = new ArrayDeque<RevCommit>();
+        pendingCommits.push(head);
+
+        while (!pendingCommits.isEmpty()) {
+            final RevCommit pendingCommit = pendingCommits.peek();
+            if (reachesCommit.containsKey(pendingCommit)) {
+                pendingCommits.pop();
+            } else if (pendingCommit.equals(commit)) {
+                reachesCommit.put(pendingCommit, Boolean.TRUE);
+                pendingCommits.pop();
+            } else if (generationIndex.getGeneration(revWalk, pendingCommit) <= commitGeneration) {
+                reachesCommit.put(pendingCommit, Boolean.FALSE);
+                pendingCommits.pop();
+            } else {
+
+                // Decide when the results for the parents are known - otherwise the parents are walked first.
+                boolean parentReachesCommit = false;
+                final List<RevCommit> unknownParents = new ArrayList<RevCommit>();
+                for (final RevCommit parent : revWalk.parseCommit(pendingCommit).getParents()) {
+                    final Boolean parentResult = reachesCommit.get(parent);
+                    if (parentResult == null) {
+                        unknownParents.add(parent);
+                    } else if (parentResult) {
+                        parentReachesCommit = true;
+                        break;
+                    }
+                }
+                if (parentReachesCommit || unknownParents.isEmpty()) {
+                    reachesCommit.put(pendingCommit, parentReachesCommit);
+                    pendingCommits.pop();
+                } else {
+                    for (final RevCommit unknownParent : unknownParents) {
+                        pendingCommits.push(unknownParent);
+                    }
+                }
+            }
+        }
+
+        return reachesCommit.get(head);
+    }
+}
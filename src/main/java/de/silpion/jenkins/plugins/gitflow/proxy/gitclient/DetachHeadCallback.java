@@ -0,0 +1,44 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import hudson.remoting.VirtualChannel;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.jenkinsci.plugins.gitclient.RepositoryCallback;
+
+import java.io.IOException;
+
+/**
+ * Detaches {@code HEAD} of a repository from the checked out branch at its current commit. Only {@code HEAD} is rewritten -
+ * the index and the working tree stay as they are. Afterwards the branch can be moved in the object database (see
+ * {@link RewriteCommitCallback}) without leaving the working tree behind its head.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class DetachHeadCallback implements RepositoryCallback<ObjectId> {
+
+    private static final long serialVersionUID = 4518396025273851617L;
+
+    /**
+     * Returns the commit {@code HEAD} has been detached at.
+     *
+     * @return the commit {@code HEAD} has been detached at.
+     */
+    public ObjectId invoke(final Repository repository, final VirtualChannel channel) throws IOException, InterruptedException {
+        final ObjectId headCommit = repository.resolve(Constants.HEAD);
+        if (headCommit == null) {
+            throw new IOException("Cannot resolve " + Constants.HEAD);
+        }
+
+        final RefUpdate refUpdate = repository.updateRef(Constants.HEAD, true);
+        refUpdate.setNewObjectId(headCommit);
+        refUpdate.setRefLogMessage("checkout: detaching HEAD at " + headCommit.getName(), false);
+        final RefUpdate.Result result = refUpdate.forceUpdate();
+        if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED && result != RefUpdate.Result.NO_CHANGE) {
+            throw new IOException("Cannot detach " + Constants.HEAD + " at " + headCommit.getName() + ": " + result);
+        }
+
+        return headCommit.copy();
+    }
+}
@@ -0,0 +1,44 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites the content of files in memory, e.g. to update version numbers without touching the working tree.
+ * <p>
+ * Implementations must be serializable, because the rewriting is executed where the Git repository is located (which might be a remote agent).
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public interface FileContentRewriter extends Serializable {
+
+    /**
+     * Returns the paths of the files to be rewritten.
+     *
+     * @return the paths of the files to be rewritten, relative to the root of the repository.
+     */
+    List<String> getFilePaths();
+
+    /**
+     * Prepares the rewriter for the current contents of the files, before they are rewritten. A rewriter might depend on
+     * information from other files than the one being rewritten (e.g. the current versions of the modules a POM depends on),
+     * so the files must be rewritten with the rewriter that is returned by this method.
+     *
+     * @param contents the current contents of the existing files, mapped by their paths (relative to the root of the repository).
+     * @return the rewriter to be used for the given contents (might be this rewriter).
+     * @throws IOException if the contents cannot be read.
+     */
+    FileContentRewriter prepare(Map<String, byte[]> contents) throws IOException;
+
+    /**
+     * Rewrites the content of the file with the given path.
+     *
+     * @param path the path of the file, relative to the root of the repository.
+     * @param content the current content of the file.
+     * @return the rewritten content of the file or {@code null} if the file doesn't need to be changed.
+     * @throws IOException if the content cannot be rewritten.
+     */
+    byte[] rewrite(String path, byte[] content) throws IOException;
+}
@@ -1,11 +1,18 @@
 package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
 
 import de.silpion.jenkins.plugins.gitflow.proxy.git.GitSCMProxy;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.lsremote.CliGitLsRemoteCommand;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.lsremote.GenericLsRemoteCommand;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.lsremote.JGitLsRemoteCommand;
 import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.merge.CliGitMergeCommand;
 import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.merge.GenericMergeCommand;
 import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.merge.GenericMergeCommand.StrategyOption;
 import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.merge.JGitMergeCommand;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.push.CliGitPushCommand;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.push.GenericPushCommand;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.push.JGitPushCommand;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.FilePath;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
 import hudson.plugins.git.Branch;
@@ -24,12 +31,15 @@ import org.jenkinsci.plugins.gitclient.MergeCommand.Strategy;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.Formatter;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper.getGitflowBuildWrapperDescriptor;
+
 /**
  * Proxy implementation for the Jenkins {@link GitClient}. Uses <i>Reflections</i> to
  * implement version-dependant functions without causing compiler and/or runtime errors.
@@ -42,9 +52,13 @@ public class GitClientProxy {
 
     private static final String MSG_PATTERN_PUSHED_TO_REMOTE = "Gitflow - %s: Pushed to %s using refspec %s%n";
     private static final String MSG_PATTERN_PUSH_OMITTED_DUE_TO_DRY_RUN = "Gitflow - %s (dry run): Omitted push to %s using refspec %s%n";
+    private static final String MSG_PATTERN_CONTAINING_BRANCHES_FALLBACK = "Gitflow - %s: Cannot use the commit generation index (%s) - executing 'git branch --contains'%n";
+    private static final String MSG_PATTERN_CLEAN_KEEPING_CACHES_FALLBACK = "Gitflow - %s: Cannot keep the cache directories (%s) - cleaning the working directory completely%n";
+    private static final String MSG_PATTERN_FILTERED_LISTING_FALLBACK = "Gitflow - %s: Cannot list the Gitflow branches only (%s) - listing all remote heads%n";
     private static final String MSG_PATTERN_UNSUPPORTED_PLUGIN_VERSION = "Gitflow plugin requires at least Git Client plugin version %s. Currently installed version is %s%n";
 
     private static final String REMOTES_PREFIX = "remotes/";
+    private static final String HEADS_PREFIX = "refs/heads/";
 
     private final GitClient gitClient;
 
@@ -52,6 +66,10 @@ public class GitClientProxy {
 
     private String gitflowActionName = "unknown action";
     private final boolean dryRun;
+    private final CommitIdentity commitIdentity;
+
+    private RemoteRefSnapshot remoteRefSnapshot;
+    private boolean remoteRefSnapshotListed;
 
     /**
      * Creates a new instance.
@@ -62,11 +80,28 @@ public class GitClientProxy {
      * @throws IOException if the version of the Git or the Git Client plugin is not supported.
      * @throws InterruptedException if the build is interrupted during execution.
      */
-    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
     public GitClientProxy(final AbstractBuild<?, ?> build, final BuildListener listener, final boolean dryRun) throws IOException, InterruptedException {
-        this.gitClient = new GitSCMProxy(build).createClient(build, listener);
+        this(build, listener, build.getWorkspace(), dryRun);
+    }
+
+    /**
+     * Creates a new instance that works on the given directory instead of the workspace of the build. The client is
+     * configured like the one for the workspace (e.g. with the credentials of the job).
+     *
+     * @param build the build that provides the configuration of the job.
+     * @param listener can be used to send any message.
+     * @param directory the directory the client works on.
+     * @param dryRun is the build dryRun or not.
+     * @throws IOException if the version of the Git or the Git Client plugin is not supported.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+    public GitClientProxy(final AbstractBuild<?, ?> build, final BuildListener listener, final FilePath directory, final boolean dryRun)
+            throws IOException, InterruptedException {
+        this.gitClient = new GitSCMProxy(build).createClient(build, listener, directory);
         this.consoleLogger = listener.getLogger();
         this.dryRun = dryRun;
+        this.commitIdentity = CommitIdentity.fromEnvironment(build.getEnvironment(listener));
 
         // Verify that the minimal required version of the Git Client plugin is installed.
         final VersionNumber gitClientPluginVersion = Jenkins.getInstance().getPlugin("git-client").getWrapper().getVersionNumber();
@@ -76,6 +111,21 @@ public class GitClientProxy {
         }
     }
 
+    /**
+     * Initialises an empty repository in the directory of the client (unless there is one already) and sets the URL of
+     * its remote repository {@code origin}. Such a repository can be used to push refspecs that don't require local objects
+     * (e.g. to delete remote branches).
+     *
+     * @param remoteUrl the URL of the remote repository {@code origin}.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public void initRepository(final String remoteUrl) throws InterruptedException {
+        if (!this.gitClient.hasGitRepo()) {
+            this.gitClient.init();
+        }
+        this.gitClient.setRemoteUrl("origin", remoteUrl);
+    }
+
     /**
      * Stage files for commit.
      *
@@ -96,6 +146,115 @@ public class GitClientProxy {
         this.gitClient.commit(message);
     }
 
+    /**
+     * Creates a commit directly in the object database, without touching the index or the working tree: The files of the
+     * start point are rewritten in memory, then the new tree and commit are written and the branch is set to the new commit.
+     * When the rewriter doesn't modify any file, the branch is set to the start point without creating a commit.
+     * <p>
+     * The commit gets the same author and committer as the commits created with {@link #commit(String)}. The branch must
+     * not be the checked out branch.
+     *
+     * @param branch the simple name of the branch to be set to the new commit (it's created when it doesn't exist).
+     * @param startPoint the parent for the new commit - either a commit ref or a branch.
+     * @param rewriter rewrites the files for the new commit.
+     * @param message the commit message.
+     * @return the new commit (or the start point commit, when no file has been modified).
+     * @throws IOException if the commit cannot be created or if the branch is checked out.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public ObjectId commitRewrittenFiles(final String branch, final String startPoint, final FileContentRewriter rewriter, final String message)
+            throws IOException, InterruptedException {
+        return this.gitClient.withRepository(new RewriteCommitCallback(branch, startPoint, rewriter, message, this.commitIdentity));
+    }
+
+    /**
+     * Detaches {@code HEAD} from the checked out branch at its current commit, without touching the index or the working tree.
+     * Afterwards the branch can be updated with {@link #commitRewrittenFiles(String, String, FileContentRewriter, String)},
+     * while other processes read the working tree.
+     *
+     * @return the commit {@code HEAD} has been detached at.
+     * @throws IOException if {@code HEAD} cannot be resolved or detached.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public ObjectId detachHead() throws IOException, InterruptedException {
+        return this.gitClient.withRepository(new DetachHeadCallback());
+    }
+
+    /**
+     * Computes the hash of the tree of the given revision with the versions normalised in the project files, so that trees
+     * that only differ in their versions have the same hash. Neither the object database nor the working tree are modified.
+     *
+     * @param rev the revision to compute the normalised tree hash for - either a commit ref or a branch.
+     * @param versionNormalizer replaces the versions in the project files with a placeholder.
+     * @return the normalised tree hash.
+     * @throws IOException if the revision cannot be resolved or read.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public ObjectId getNormalizedTreeHash(final String rev, final FileContentRewriter versionNormalizer) throws IOException, InterruptedException {
+        return this.gitClient.withRepository(new NormalizedTreeHashCallback(rev, versionNormalizer));
+    }
+
+    /**
+     * Returns the paths of the files that differ between two revisions. Changes of the project files that only consist of
+     * version updates are ignored. Neither the object database nor the working tree are modified.
+     *
+     * @param fromRev the revision to compare from - either a commit ref or a branch.
+     * @param toRev the revision to compare to - either a commit ref or a branch.
+     * @param versionNormalizer replaces the versions in the project files with a placeholder.
+     * @return the sorted paths of the changed files, relative to the root of the repository.
+     * @throws IOException if a revision cannot be resolved or read.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public List<String> getChangedPaths(final String fromRev, final String toRev, final FileContentRewriter versionNormalizer)
+            throws IOException, InterruptedException {
+        return this.gitClient.withRepository(new ChangedPathsCallback(fromRev, toRev, versionNormalizer));
+    }
+
+    /**
+     * Checks if the given commit only updates the versions in the project files, i.e. if it has a single parent and its diff
+     * against that parent only consists of version updates. Merge commits are never version updates.
+     *
+     * @param rev the commit to be checked - either a commit ref or a branch.
+     * @param versionNormalizer replaces the versions in the project files with a placeholder.
+     * @return {@code true} if the commit only updates versions.
+     * @throws IOException if the commit or its parent cannot be resolved or read.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public boolean isVersionUpdateCommit(final String rev, final FileContentRewriter versionNormalizer) throws IOException, InterruptedException {
+        return this.gitClient.withRepository(new VersionUpdateCommitCallback(rev, versionNormalizer)).booleanValue();
+    }
+
+    /**
+     * Reads the contents of the given files in the given revision from the object database, without checking them out.
+     *
+     * @param rev the revision to read the files from - either a commit ref or a branch.
+     * @param paths the paths of the files, relative to the root of the repository.
+     * @return the contents of the files that exist in the revision, mapped by their paths.
+     * @throws IOException if the revision cannot be resolved or read.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public Map<String, byte[]> readFiles(final String rev, final List<String> paths) throws IOException, InterruptedException {
+        return this.gitClient.withRepository(new ReadFilesCallback(rev, paths));
+    }
+
+    /**
+     * Creates a merge commit directly in the object database, without touching the index or the working tree: The merge is
+     * computed in memory and conflicts are resolved in favour of the merged revision (like the {@code recursive} strategy with
+     * the {@code theirs} option). Then the branch is set to the merge commit. The result doesn't depend on the Git client implementation.
+     *
+     * @param branch the simple name of the branch to be set to the merge commit (it's created when it doesn't exist).
+     * @param startPoint the commit to merge into - the first parent of the merge commit.
+     * @param rev the revision to be merged - the second parent of the merge commit.
+     * @param message the commit message.
+     * @return the merge commit.
+     * @throws UnsupportedMergeException if the merge cannot be computed in memory (e.g. for histories with multiple merge bases).
+     * @throws IOException if the commits cannot be read or the merge commit cannot be written.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public ObjectId mergeInCore(final String branch, final ObjectId startPoint, final ObjectId rev, final String message) throws IOException, InterruptedException {
+        return this.gitClient.withRepository(new MergeCommitCallback(branch, startPoint, rev, message, this.commitIdentity));
+    }
+
     /**
      * Regardless of the current state of the workspace (whether there is some dirty files, etc)
      * and the state of the repository (whether the branch of the specified name exists or not),
@@ -127,16 +286,46 @@ public class GitClientProxy {
      * @throws InterruptedException if the build is interrupted during execution.
      */
     public void push(final String remoteAlias, final String refspec) throws InterruptedException {
-        final Object[] messageArguments = new String[] { this.gitflowActionName, remoteAlias, refspec };
+        this.push(remoteAlias, Collections.singletonList(refspec));
+    }
+
+    /**
+     * Push local objects to a remote repository using several refspecs at once. When supported by the Git client
+     * implementation and the remote repository, all refspecs are pushed in one atomic operation.
+     *
+     * @param remoteAlias the alias for the remote repository.
+     * @param refspecs specify what local source refs to push to what remote target refs.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public void push(final String remoteAlias, final List<String> refspecs) throws InterruptedException {
         if (this.dryRun) {
-            this.consoleLogger.printf(MSG_PATTERN_PUSH_OMITTED_DUE_TO_DRY_RUN, messageArguments);
+            for (final String refspec : refspecs) {
+                this.consoleLogger.printf(MSG_PATTERN_PUSH_OMITTED_DUE_TO_DRY_RUN, this.gitflowActionName, remoteAlias, refspec);
+            }
         } else {
-            this.pushInternal(remoteAlias, refspec);
-            this.consoleLogger.printf(MSG_PATTERN_PUSHED_TO_REMOTE, messageArguments);
+            this.pushInternal(remoteAlias, refspecs);
+            for (final String refspec : refspecs) {
+                this.consoleLogger.printf(MSG_PATTERN_PUSHED_TO_REMOTE, this.gitflowActionName, remoteAlias, refspec);
+                this.updateRemoteRefSnapshot(refspec);
+            }
         }
     }
 
-    private void pushInternal(final String remoteAlias, final String refspec) throws InterruptedException {
+    private void updateRemoteRefSnapshot(final String refspec) throws InterruptedException {
+
+        // Only heads are contained in the snapshots.
+        final String source = StringUtils.removeStart(StringUtils.substringBefore(refspec, ":"), "+");
+        final String destination = StringUtils.contains(refspec, ':') ? StringUtils.substringAfter(refspec, ":") : source;
+        if (destination.startsWith(HEADS_PREFIX)) {
+            final ObjectId headRev = StringUtils.isEmpty(source) ? null : this.gitClient.revParse(source);
+            RemoteHeadsCache.updateHeadRev(this.gitClient.getRemoteUrl("origin"), destination, headRev);
+            if (this.remoteRefSnapshot != null) {
+                this.remoteRefSnapshot = this.remoteRefSnapshot.withHeadRev(destination, headRev);
+            }
+        }
+    }
+
+    private void pushInternal(final String remoteAlias, final List<String> refspecs) throws InterruptedException {
 
         // Create remote URL.
         final URIish remoteUrl;
@@ -146,7 +335,27 @@ public class GitClientProxy {
             throw new GitException("Cannot create remote URL", urise);
         }
 
-        this.gitClient.push().to(remoteUrl).ref(refspec).execute();
+        // Create push command object regarding to the underlying (configured) Git client implementation.
+        final GenericPushCommand<? extends GitClient> pushCommand;
+        if (refspecs.size() > 1 && this.gitClient instanceof CliGitAPIImpl) {
+            pushCommand = new CliGitPushCommand<CliGitAPIImpl>((CliGitAPIImpl) this.gitClient, this.consoleLogger);
+        } else if (refspecs.size() > 1 && this.gitClient instanceof JGitAPIImpl) {
+            pushCommand = new JGitPushCommand<JGitAPIImpl>((JGitAPIImpl) this.gitClient, this.consoleLogger);
+        } else {
+            pushCommand = new GenericPushCommand<GitClient>(this.gitClient, this.consoleLogger);
+        }
+
+        pushCommand.setRemote(remoteUrl).addRefspecs(refspecs).execute();
+    }
+
+    /**
+     * Tells if the Git client implementation supports merge strategy options (e.g. {@code theirs}) in
+     * {@link #merge(ObjectId, FastForwardMode, Strategy, StrategyOption, boolean)}. Only the command line Git client does.
+     *
+     * @return {@code true} if the Git client supports merge strategy options.
+     */
+    public boolean isMergeStrategyOptionSupported() {
+        return this.gitClient instanceof CliGitAPIImpl;
     }
 
     /**
@@ -196,6 +405,35 @@ public class GitClientProxy {
         this.gitClient.clean();
     }
 
+    /**
+     * Reverts the working copy to a clean state like {@link #clean()}, but keeps the ignored directories matching the
+     * given cache directory patterns (e.g. {@code target/} or {@code node_modules/}). Tracked files are restored and all
+     * untracked files that are not ignored are removed, so the sources match a fresh clone.
+     * <p>
+     * When the cache directories cannot be determined, the working copy is cleaned completely.
+     *
+     * @param cacheDirectoryPatterns the patterns for the ignored directories to be kept (using the {@code .gitignore} syntax).
+     * @return the paths of the kept cache directories.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public List<String> clean(final List<String> cacheDirectoryPatterns) throws InterruptedException {
+        List<String> keptPaths = Collections.emptyList();
+
+        if (cacheDirectoryPatterns.isEmpty()) {
+            this.gitClient.clean();
+        } else {
+            this.gitClient.reset(true);
+            try {
+                keptPaths = this.gitClient.withRepository(new CleanKeepingCachesCallback(cacheDirectoryPatterns));
+            } catch (final IOException ioe) {
+                this.consoleLogger.printf(MSG_PATTERN_CLEAN_KEEPING_CACHES_FALLBACK, this.gitflowActionName, ioe.getMessage());
+                this.gitClient.clean();
+            }
+        }
+
+        return keptPaths;
+    }
+
     /**
      * Delete a local branch.
      *
@@ -237,28 +475,105 @@ public class GitClientProxy {
      * method: When the {@code branch} is provided with a simple branch name that contains
      * slashes, the original method might mix up branches. E.g.: When looking for branch
      * {@code release/1.0}, the head rev of {@code hotfix/1.0} may be returned.
+     * <p>
+     * Simple branch names and {@code refs/heads/} refs are resolved against a snapshot of the remote heads that has been listed
+     * by this client - the {@link RemoteHeadsCache} might be outdated, so the remote heads are listed once when a head is
+     * requested for the first time (unless they have already been listed, see {@link #refreshRemoteRefSnapshot()}). Branches
+     * that are not covered by a filtered snapshot are looked up on the remote repository.
      *
      * @param branch the name of the branch.
      * @return the ref for the head commit of the specified branch or {@code null}.
      * @throws InterruptedException if the build is interrupted during execution.
      */
     public ObjectId getHeadRev(final String branch) throws InterruptedException {
-        ObjectId headRev = null;
-
-        final String remoteUrl = this.gitClient.getRemoteUrl("origin");
-        if (branch.startsWith("remotes/") || branch.startsWith("refs/heads/")) {
-            headRev = this.gitClient.getHeadRev(remoteUrl, branch);
+        final ObjectId headRev;
+        if (branch.startsWith(REMOTES_PREFIX)) {
+            headRev = this.gitClient.getHeadRev(this.gitClient.getRemoteUrl("origin"), branch);
+        } else if (this.getListedRemoteRefSnapshot().covers(branch)) {
+            headRev = this.remoteRefSnapshot.getHeadRev(branch);
         } else {
-            for (final Map.Entry<String, ObjectId> branchHeadRev : this.gitClient.getHeadRev(remoteUrl).entrySet()) {
-                final String branchName = StringUtils.removeStart(branchHeadRev.getKey(), "refs/heads/");
-                if (branchName.equals(branch)) {
-                    headRev = branchHeadRev.getValue();
-                    break;
+            headRev = this.gitClient.getHeadRev(this.gitClient.getRemoteUrl("origin"), HEADS_PREFIX + StringUtils.removeStart(branch, HEADS_PREFIX));
+        }
+        return headRev;
+    }
+
+    private RemoteRefSnapshot getListedRemoteRefSnapshot() throws InterruptedException {
+        return this.remoteRefSnapshotListed ? this.remoteRefSnapshot : this.refreshRemoteRefSnapshot();
+    }
+
+    /**
+     * Returns the snapshot of the remote branch heads. The snapshot is taken from the {@link RemoteHeadsCache} when it's
+     * requested for the first time and updated for each branch pushed afterwards. It may be outdated, so it should only be
+     * used where that's acceptable (e.g. to find branches that might have been deleted) - the heads of the branches to be
+     * built or merged are resolved with {@link #getHeadRev(String)}.
+     *
+     * @return the snapshot of the remote branch heads.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public RemoteRefSnapshot getRemoteRefSnapshot() throws InterruptedException {
+        if (this.remoteRefSnapshot == null) {
+            final String remoteUrl = this.gitClient.getRemoteUrl("origin");
+            this.remoteRefSnapshot = RemoteHeadsCache.get(remoteUrl, new RemoteHeadsCache.Loader() {
+
+                @Override
+                public RemoteRefSnapshot load() throws InterruptedException {
+                    return GitClientProxy.this.listRemoteHeads(remoteUrl);
                 }
-            }
+            });
         }
+        return this.remoteRefSnapshot;
+    }
 
-        return headRev;
+    /**
+     * Lists the remote heads (regardless of any cached snapshot) and stores the new snapshot in the {@link RemoteHeadsCache}.
+     *
+     * @return the new snapshot of the remote branch heads.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public RemoteRefSnapshot refreshRemoteRefSnapshot() throws InterruptedException {
+        return this.refreshRemoteRefSnapshot(this.gitClient.getRemoteUrl("origin"));
+    }
+
+    /**
+     * Lists the heads of the specified remote repository (regardless of any cached snapshot) and stores the new snapshot in
+     * the {@link RemoteHeadsCache}.
+     *
+     * @param remoteUrl the URL of the remote repository (e.g. as configured for the job).
+     * @return the new snapshot of the remote branch heads.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    public RemoteRefSnapshot refreshRemoteRefSnapshot(final String remoteUrl) throws InterruptedException {
+        this.remoteRefSnapshot = this.listRemoteHeads(remoteUrl);
+        this.remoteRefSnapshotListed = true;
+        RemoteHeadsCache.put(remoteUrl, this.remoteRefSnapshot);
+        return this.remoteRefSnapshot;
+    }
+
+    /**
+     * Lists the remote heads. When the filtered remote listing is enabled in the global configuration, only the heads of
+     * the <i>Gitflow</i> branch families are requested from the server. When the filtered listing fails, all remote heads are listed.
+     */
+    private RemoteRefSnapshot listRemoteHeads(final String remoteUrl) throws InterruptedException {
+        final RemoteHeadsFilter filter = getGitflowBuildWrapperDescriptor().getRemoteHeadsFilter();
+        if (filter != null) {
+
+            // Create ls-remote command object regarding to the underlying (configured) Git client implementation.
+            final GenericLsRemoteCommand<? extends GitClient> lsRemoteCommand;
+            if (this.gitClient instanceof CliGitAPIImpl) {
+                lsRemoteCommand = new CliGitLsRemoteCommand<CliGitAPIImpl>((CliGitAPIImpl) this.gitClient, this.consoleLogger);
+            } else if (this.gitClient instanceof JGitAPIImpl) {
+                lsRemoteCommand = new JGitLsRemoteCommand<JGitAPIImpl>((JGitAPIImpl) this.gitClient, this.consoleLogger);
+            } else {
+                lsRemoteCommand = new GenericLsRemoteCommand<GitClient>(this.gitClient, this.consoleLogger);
+            }
+
+            try {
+                return new RemoteRefSnapshot(lsRemoteCommand.setRemoteUrl(remoteUrl).setFilter(filter).execute(), filter);
+            } catch (final GitException ge) {
+                this.consoleLogger.printf(MSG_PATTERN_FILTERED_LISTING_FALLBACK, this.gitflowActionName, ge.getMessage());
+            }
+        }
+        return new RemoteRefSnapshot(this.gitClient.getHeadRev(remoteUrl));
     }
 
     /**
@@ -275,6 +590,9 @@ public class GitClientProxy {
 
     /**
      * Find all the remote branches that include the given commit.
+     * <p>
+     * The branches are determined using an incremental index of commit generation numbers in the local repository (only
+     * commits that haven't been indexed yet are walked). When the index cannot be used, {@code git branch --contains} is executed.
      *
      * @param revspec commit id to query for
      * @return list of branches the specified commit belongs to
@@ -283,12 +601,18 @@ public class GitClientProxy {
      * @see GitClient#getBranchesContaining(String, boolean)
      */
     public List<String> getRemoteBranchNamesContaining(final String revspec) throws GitException, InterruptedException {
-        final List<String> remoteBranchNamesContaining = new LinkedList<String>();
+        List<String> remoteBranchNamesContaining;
 
-        for (final Branch branch : this.gitClient.getBranchesContaining(revspec, true)) {
-            final String branchName = branch.getName();
-            if (StringUtils.startsWith(branchName, REMOTES_PREFIX)) {
-                remoteBranchNamesContaining.add(branchName.substring(REMOTES_PREFIX.length()));
+        try {
+            remoteBranchNamesContaining = this.gitClient.withRepository(new ContainingBranchesCallback(revspec));
+        } catch (final IOException ioe) {
+            this.consoleLogger.printf(MSG_PATTERN_CONTAINING_BRANCHES_FALLBACK, this.gitflowActionName, ioe.getMessage());
+            remoteBranchNamesContaining = new LinkedList<String>();
+            for (final Branch branch : this.gitClient.getBranchesContaining(revspec, true)) {
+                final String branchName = branch.getName();
+                if (StringUtils.startsWith(branchName, REMOTES_PREFIX)) {
+                    remoteBranchNamesContaining.add(branchName.substring(REMOTES_PREFIX.length()));
+                }
             }
         }
 
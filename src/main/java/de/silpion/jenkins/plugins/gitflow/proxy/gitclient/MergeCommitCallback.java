@@ -0,0 +1,251 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import hudson.remoting.VirtualChannel;
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeAlgorithm;
+import org.eclipse.jgit.merge.MergeChunk;
+import org.eclipse.jgit.merge.MergeResult;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.jenkinsci.plugins.gitclient.RepositoryCallback;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Creates a merge commit directly in the object database of a repository, without checking out the target branch: The
+ * trees of the merge base, the target branch ("ours") and the merged commit ("theirs") are merged in memory, conflicts are
+ * resolved in favour of the merged commit (like the {@code recursive} strategy with the {@code theirs} option). Finally the
+ * target branch is set to the merge commit. The commit gets the same author and committer as the commits created in the workspace.
+ * <p>
+ * Conflicts that the {@code theirs} option doesn't resolve either are not supported: histories with multiple merge bases,
+ * modify/delete conflicts, directory/file conflicts and conflicting changes of symlinks or submodules. An
+ * {@link UnsupportedMergeException} is thrown then, so that the caller can decide whether to fall back to a merge in the workspace.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class MergeCommitCallback implements RepositoryCallback<ObjectId> {
+
+    private static final long serialVersionUID = 6151924618457063302L;
+
+    private static final int BASE = 0;
+    private static final int OURS = 1;
+    private static final int THEIRS = 2;
+
+    private final String branch;
+    private final ObjectId startPoint;
+    private final ObjectId mergedCommit;
+    private final String message;
+    private final CommitIdentity identity;
+
+    /**
+     * Creates a new callback.
+     *
+     * @param branch the simple name of the branch to be set to the merge commit.
+     * @param startPoint the commit to merge into (the first parent of the merge commit).
+     * @param mergedCommit the commit to be merged (the second parent of the merge commit).
+     * @param message the commit message.
+     * @param identity the author and committer of the merge commit.
+     */
+    MergeCommitCallback(final String branch, final ObjectId startPoint, final ObjectId mergedCommit, final String message, final CommitIdentity identity) {
+        this.branch = branch;
+        this.startPoint = startPoint.copy();
+        this.mergedCommit = mergedCommit.copy();
+        this.message = message;
+        this.identity = identity;
+    }
+
+    /** {@inheritDoc} */
+    public ObjectId invoke(final Repository repository, final VirtualChannel channel) throws IOException, InterruptedException {
+        if ((Constants.R_HEADS + this.branch).equals(repository.getFullBranch())) {
+            throw new UnsupportedMergeException("Cannot merge into the checked out branch " + this.branch + " in memory");
+        }
+
+        final ObjectInserter inserter = repository.newObjectInserter();
+        final ObjectReader reader = repository.newObjectReader();
+        final RevWalk revWalk = new RevWalk(reader);
+        try {
+            final RevCommit oursCommit = revWalk.parseCommit(this.startPoint);
+            final RevCommit theirsCommit = revWalk.parseCommit(this.mergedCommit);
+            final RevCommit baseCommit = findMergeBase(revWalk, oursCommit, theirsCommit);
+
+            // Merge the trees path by path into an in-core index.
+            final TreeWalk treeWalk = new TreeWalk(reader);
+            treeWalk.setRecursive(true);
+            if (baseCommit == null) {
+                treeWalk.addTree(new EmptyTreeIterator());
+            } else {
+                treeWalk.addTree(baseCommit.getTree());
+            }
+            treeWalk.addTree(oursCommit.getTree());
+            treeWalk.addTree(theirsCommit.getTree());
+
+            final DirCache dirCache = DirCache.newInCore();
+            final DirCacheBuilder dirCacheBuilder = dirCache.builder();
+            final Set<String> paths = new HashSet<String>();
+            while (treeWalk.next()) {
+                final int resultTree = this.resolveResultTree(treeWalk);
+                if (resultTree < 0 || treeWalk.getFileMode(resultTree) != FileMode.MISSING) {
+                    paths.add(treeWalk.getPathString());
+                }
+                if (resultTree >= 0) {
+                    addEntry(dirCacheBuilder, treeWalk.getPathString(), treeWalk.getFileMode(resultTree), treeWalk.getObjectId(resultTree));
+                } else {
+                    final FileMode fileMode = treeWalk.getFileMode(THEIRS) == treeWalk.getFileMode(BASE) ? treeWalk.getFileMode(OURS) : treeWalk.getFileMode(THEIRS);
+                    final byte[] mergedContent = mergeContent(reader, treeWalk);
+                    addEntry(dirCacheBuilder, treeWalk.getPathString(), fileMode, inserter.insert(Constants.OBJ_BLOB, mergedContent));
+                }
+            }
+            this.checkDirectoryFileConflicts(paths);
+            try {
+                dirCacheBuilder.finish();
+            } catch (final IllegalStateException ise) {
+                throw new UnsupportedMergeException("Cannot merge " + this.mergedCommit.getName() + " in memory: " + ise.getMessage(), ise);
+            }
+
+            // Write the tree and the merge commit.
+            final CommitBuilder commitBuilder = new CommitBuilder();
+            commitBuilder.setTreeId(dirCache.writeTree(inserter));
+            commitBuilder.setParentIds(oursCommit, theirsCommit);
+            commitBuilder.setAuthor(this.identity.getAuthor(repository));
+            commitBuilder.setCommitter(this.identity.getCommitter(repository));
+            commitBuilder.setMessage(this.message);
+            final ObjectId commitId = inserter.insert(commitBuilder);
+            inserter.flush();
+
+            // Set the branch to the merge commit.
+            final RefUpdate refUpdate = repository.updateRef(Constants.R_HEADS + this.branch);
+            refUpdate.setNewObjectId(commitId);
+            refUpdate.setRefLogMessage("merge " + this.mergedCommit.getName() + ": " + StringUtils.substringBefore(StringUtils.trim(this.message), "\n"), false);
+            final RefUpdate.Result result = refUpdate.forceUpdate();
+            if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED && result != RefUpdate.Result.FAST_FORWARD) {
+                throw new IOException("Cannot update branch " + this.branch + " to " + commitId.getName() + ": " + result);
+            }
+
+            return commitId.copy();
+        } finally {
+            revWalk.release();
+            reader.release();
+            inserter.release();
+        }
+    }
+
+    private static RevCommit findMergeBase(final RevWalk revWalk, final RevCommit oursCommit, final RevCommit theirsCommit) throws IOException {
+        revWalk.reset();
+        revWalk.setRevFilter(RevFilter.MERGE_BASE);
+        revWalk.markStart(oursCommit);
+        revWalk.markStart(theirsCommit);
+        final RevCommit baseCommit = revWalk.next();
+        if (baseCommit != null && revWalk.next() != null) {
+            throw new UnsupportedMergeException("Cannot merge " + theirsCommit.getName() + " in memory: multiple merge bases found");
+        }
+        revWalk.reset();
+        revWalk.setRevFilter(RevFilter.ALL);
+        return baseCommit == null ? null : revWalk.parseCommit(baseCommit);
+    }
+
+    /**
+     * Decides which tree provides the result for the current path of the tree walk.
+     *
+     * @param treeWalk the tree walk.
+     * @return the index of the tree that provides the result, or {@code -1} if the contents must be merged.
+     * @throws UnsupportedMergeException if both sides changed the entry in a way that cannot be merged.
+     */
+    private int resolveResultTree(final TreeWalk treeWalk) throws IOException {
+        final int resultTree;
+
+        if (isSameEntry(treeWalk, OURS, THEIRS) || isSameEntry(treeWalk, BASE, THEIRS)) {
+            resultTree = OURS;
+        } else if (isSameEntry(treeWalk, BASE, OURS)) {
+            resultTree = THEIRS;
+        } else if ((isFile(treeWalk, BASE) || treeWalk.getFileMode(BASE) == FileMode.MISSING) && isFile(treeWalk, OURS) && isFile(treeWalk, THEIRS)) {
+            // Changed on both sides or added on both sides.
+            resultTree = -1;
+        } else if (treeWalk.getFileMode(OURS) == FileMode.MISSING || treeWalk.getFileMode(THEIRS) == FileMode.MISSING) {
+            throw new UnsupportedMergeException("Cannot merge " + this.mergedCommit.getName() + " in memory: modify/delete conflict in " + treeWalk.getPathString());
+        } else {
+            throw new UnsupportedMergeException("Cannot merge " + this.mergedCommit.getName() + " in memory: conflicting changes of " + treeWalk.getPathString());
+        }
+
+        return resultTree;
+    }
+
+    /**
+     * Checks that no path of the merge result is a file and the parent directory of another path at the same time, which
+     * happens when a file is replaced by a directory (or vice versa) on one side and the other side changes the same path.
+     */
+    private void checkDirectoryFileConflicts(final Set<String> paths) throws IOException {
+        for (final String path : paths) {
+            for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+                if (paths.contains(path.substring(0, slash))) {
+                    throw new UnsupportedMergeException("Cannot merge " + this.mergedCommit.getName() + " in memory: directory/file conflict in " + path.substring(0, slash));
+                }
+            }
+        }
+    }
+
+    private static boolean isSameEntry(final TreeWalk treeWalk, final int tree1, final int tree2) {
+        return treeWalk.getRawMode(tree1) == treeWalk.getRawMode(tree2) && treeWalk.idEqual(tree1, tree2);
+    }
+
+    private static boolean isFile(final TreeWalk treeWalk, final int tree) {
+        return FileMode.REGULAR_FILE.equals(treeWalk.getRawMode(tree)) || FileMode.EXECUTABLE_FILE.equals(treeWalk.getRawMode(tree));
+    }
+
+    private static void addEntry(final DirCacheBuilder dirCacheBuilder, final String path, final FileMode fileMode, final ObjectId objectId) {
+        if (fileMode != FileMode.MISSING) {
+            final DirCacheEntry entry = new DirCacheEntry(path);
+            entry.setFileMode(fileMode);
+            entry.setObjectId(objectId);
+            dirCacheBuilder.add(entry);
+        }
+    }
+
+    /**
+     * Merges the contents of a file that has been changed (or added) on both sides. Conflicting hunks are taken from the
+     * merged commit. Binary files are not merged, the version of the merged commit is taken then.
+     */
+    private static byte[] mergeContent(final ObjectReader reader, final TreeWalk treeWalk) throws IOException {
+        final byte[] baseContent = treeWalk.getFileMode(BASE) == FileMode.MISSING ? new byte[0] : reader.open(treeWalk.getObjectId(BASE), Constants.OBJ_BLOB).getCachedBytes();
+        final byte[] oursContent = reader.open(treeWalk.getObjectId(OURS), Constants.OBJ_BLOB).getCachedBytes();
+        final byte[] theirsContent = reader.open(treeWalk.getObjectId(THEIRS), Constants.OBJ_BLOB).getCachedBytes();
+        if (RawText.isBinary(baseContent) || RawText.isBinary(oursContent) || RawText.isBinary(theirsContent)) {
+            return theirsContent;
+        }
+
+        final MergeResult<RawText> mergeResult = new MergeAlgorithm().merge(RawTextComparator.DEFAULT, new RawText(baseContent), new RawText(oursContent),
+                                                                            new RawText(theirsContent));
+        final ByteArrayOutputStream mergedContent = new ByteArrayOutputStream(Math.max(oursContent.length, theirsContent.length));
+        for (final MergeChunk chunk : mergeResult) {
+            final MergeChunk.ConflictState conflictState = chunk.getConflictState();
+            if (conflictState == MergeChunk.ConflictState.NO_CONFLICT || conflictState == MergeChunk.ConflictState.NEXT_CONFLICTING_RANGE) {
+                final RawText sequence = mergeResult.getSequences().get(chunk.getSequenceIndex());
+                for (int line = chunk.getBegin(); line < chunk.getEnd(); line++) {
+                    sequence.writeLine(mergedContent, line);
+                    if (line < sequence.size() - 1 || !sequence.isMissingNewlineAtEnd()) {
+                        mergedContent.write('\n');
+                    }
+                }
+            }
+        }
+        return mergedContent.toByteArray();
+    }
+}
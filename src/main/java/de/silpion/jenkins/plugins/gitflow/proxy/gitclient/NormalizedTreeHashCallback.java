@@ -0,0 +1,98 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import hudson.remoting.VirtualChannel;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jenkinsci.plugins.gitclient.RepositoryCallback;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Computes the hash of the tree of a commit with the versions normalised in the project files: The versions of the
+ * project (and its modules) are replaced with a placeholder by a {@link FileContentRewriter} before the tree hash is
+ * computed. Hence the trees of two commits that only differ in their versions have the same normalised hash - while other
+ * version changes in the project files (e.g. of third-party dependencies) still change the hash.
+ * <p>
+ * The hashes are computed in memory - neither the object database nor the working tree are modified.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class NormalizedTreeHashCallback implements RepositoryCallback<ObjectId> {
+
+    private static final long serialVersionUID = 5830215633912485503L;
+
+    private final String rev;
+    private final FileContentRewriter versionNormalizer;
+
+    /**
+     * Creates a new callback.
+     *
+     * @param rev the revision to compute the normalised tree hash for.
+     * @param versionNormalizer replaces the versions in the project files with a placeholder.
+     */
+    NormalizedTreeHashCallback(final String rev, final FileContentRewriter versionNormalizer) {
+        this.rev = rev;
+        this.versionNormalizer = versionNormalizer;
+    }
+
+    /** {@inheritDoc} */
+    public ObjectId invoke(final Repository repository, final VirtualChannel channel) throws IOException, InterruptedException {
+        final ObjectInserter formatter = new IdFormatter();
+        final ObjectReader reader = repository.newObjectReader();
+        final RevWalk revWalk = new RevWalk(reader);
+        try {
+            final ObjectId commitId = repository.resolve(this.rev);
+            if (commitId == null) {
+                throw new IOException("Cannot resolve " + this.rev);
+            }
+            final RevCommit commit = revWalk.parseCommit(commitId);
+
+            // Read the tree of the commit into an in-core index.
+            final DirCache dirCache = DirCache.newInCore();
+            final DirCacheBuilder dirCacheBuilder = dirCache.builder();
+            dirCacheBuilder.addTree(new byte[0], DirCacheEntry.STAGE_0, reader, commit.getTree());
+            dirCacheBuilder.finish();
+
+            // Normalise the versions in the project files and compute the IDs of the normalised blobs.
+            final DirCacheEditor dirCacheEditor = dirCache.editor();
+            for (final String path : this.versionNormalizer.getFilePaths()) {
+                final DirCacheEntry entry = dirCache.getEntry(path);
+                final byte[] normalizedContent = entry == null ? null
+                        : this.versionNormalizer.rewrite(path, reader.open(entry.getObjectId(), Constants.OBJ_BLOB).getBytes());
+                if (normalizedContent != null) {
+                    dirCacheEditor.add(new RewriteCommitCallback.BlobPathEdit(path, entry.getFileMode(), formatter.idFor(Constants.OBJ_BLOB, normalizedContent)));
+                }
+            }
+            dirCacheEditor.finish();
+
+            // The formatter only computes the IDs of the trees, without writing them.
+            return dirCache.writeTree(formatter).copy();
+        } finally {
+            revWalk.release();
+            reader.release();
+            formatter.release();
+        }
+    }
+
+    /**
+     * Computes the IDs of the inserted objects, without writing them to an object database.
+     */
+    private static class IdFormatter extends ObjectInserter.Formatter {
+
+        /** {@inheritDoc} */
+        @Override
+        public ObjectId insert(final int objectType, final long length, final InputStream in) throws IOException {
+            return this.idFor(objectType, length, in);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import hudson.remoting.VirtualChannel;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.jenkinsci.plugins.gitclient.RepositoryCallback;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the contents of files in a commit from the object database of a repository, without checking them out.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class ReadFilesCallback implements RepositoryCallback<Map<String, byte[]>> {
+
+    private static final long serialVersionUID = 6127783318950148367L;
+
+    private final String rev;
+    private final List<String> paths;
+
+    /**
+     * Creates a new callback.
+     *
+     * @param rev the revision to read the files from.
+     * @param paths the paths of the files, relative to the root of the repository.
+     */
+    ReadFilesCallback(final String rev, final List<String> paths) {
+        this.rev = rev;
+        this.paths = new ArrayList<String>(paths);
+    }
+
+    /**
+     * Returns the contents of the files.
+     *
+     * @return the contents of the files that exist in the revision, mapped by their paths.
+     */
+    public Map<String, byte[]> invoke(final Repository repository, final VirtualChannel channel) throws IOException, InterruptedException {
+        final Map<String, byte[]> contents = new HashMap<String, byte[]>(this.paths.size() * 4 / 3 + 1);
+
+        final ObjectReader reader = repository.newObjectReader();
+        final RevWalk revWalk = new RevWalk(reader);
+        try {
+            final ObjectId commitId = repository.resolve(this.rev);
+            if (commitId == null) {
+                throw new IOException("Cannot resolve " + this.rev);
+            }
+            final RevCommit commit = revWalk.parseCommit(commitId);
+
+            for (final String path : this.paths) {
+                final TreeWalk treeWalk = TreeWalk.forPath(reader, path, commit.getTree());
+                if (treeWalk != null) {
+                    try {
+                        contents.put(path, reader.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).getBytes());
+                    } finally {
+                        treeWalk.release();
+                    }
+                }
+            }
+        } finally {
+            revWalk.release();
+            reader.release();
+        }
+
+        return contents;
+    }
+}
@@ -0,0 +1,188 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller-wide cache for the {@link RemoteRefSnapshot snapshots} of remote heads, keyed by the remote URL. The URLs are
+ * normalised (trailing slashes and {@code .git} suffixes are ignored), so that the URL from the job configuration and the URL
+ * of the {@code origin} remote in a workspace refer to the same entry.
+ * <p>
+ * Cached snapshots expire after a TTL and the number of cached remote URLs is bounded (least recently used entries are evicted).
+ * Concurrent requests for the same remote URL are coalesced, so that jobs sharing a repository reuse one listing.
+ * The TTL and the maximum size can be configured with the system properties {@code <class name>.ttlSeconds} and
+ * {@code <class name>.maxEntries}.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public final class RemoteHeadsCache {
+
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(Long.getLong(RemoteHeadsCache.class.getName() + ".ttlSeconds", 120L));
+    private static final int MAX_ENTRIES = Integer.getInteger(RemoteHeadsCache.class.getName() + ".maxEntries", 100);
+
+    private static final Map<String, RemoteRefSnapshot> SNAPSHOTS = new LinkedHashMap<String, RemoteRefSnapshot>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, RemoteRefSnapshot> eldest) {
+            return this.size() > MAX_ENTRIES;
+        }
+    };
+
+    private static final ConcurrentMap<String, Object> LOAD_LOCKS = new ConcurrentHashMap<String, Object>();
+
+    private RemoteHeadsCache() {
+        // Static cache - no instances.
+    }
+
+    /**
+     * Loads a new snapshot of the remote heads.
+     */
+    public interface Loader {
+
+        /**
+         * Lists the remote heads and creates a new snapshot from them.
+         *
+         * @return the new snapshot of the remote heads.
+         * @throws InterruptedException if the listing is interrupted.
+         */
+        RemoteRefSnapshot load() throws InterruptedException;
+    }
+
+    /**
+     * Returns the cached snapshot for the specified remote URL. When there is no snapshot or when it has expired, a new one is
+     * loaded. Only one snapshot is loaded at a time per remote URL; concurrent callers wait and reuse it.
+     *
+     * @param remoteUrl the URL of the remote repository.
+     * @param loader loads a new snapshot when required.
+     * @return the snapshot of the remote heads.
+     * @throws InterruptedException if the listing is interrupted.
+     */
+    public static RemoteRefSnapshot get(final String remoteUrl, final Loader loader) throws InterruptedException {
+        final String key = toKey(remoteUrl);
+        RemoteRefSnapshot snapshot = getValid(key);
+        if (snapshot == null) {
+            final Object newLoadLock = new Object();
+            final Object existingLoadLock = LOAD_LOCKS.putIfAbsent(key, newLoadLock);
+            final Object loadLock = existingLoadLock == null ? newLoadLock : existingLoadLock;
+            synchronized (loadLock) {
+                try {
+
+                    // Another thread might have loaded the snapshot in the meantime.
+                    snapshot = getValid(key);
+                    if (snapshot == null) {
+                        snapshot = loader.load();
+                        put(key, snapshot);
+                    }
+                } finally {
+
+                    // Waiting callers still hold the lock object and find the loaded snapshot - the lock isn't needed anymore.
+                    LOAD_LOCKS.remove(key, loadLock);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the cached snapshot for the specified remote URL, regardless of its age.
+     *
+     * @param remoteUrl the URL of the remote repository.
+     * @return the cached snapshot or {@code null} if there is none.
+     */
+    public static RemoteRefSnapshot peek(final String remoteUrl) {
+        synchronized (SNAPSHOTS) {
+            return SNAPSHOTS.get(toKey(remoteUrl));
+        }
+    }
+
+    /**
+     * Caches the snapshot for the specified remote URL (replacing the existing one).
+     *
+     * @param remoteUrl the URL of the remote repository.
+     * @param snapshot the snapshot of the remote heads.
+     */
+    public static void put(final String remoteUrl, final RemoteRefSnapshot snapshot) {
+        synchronized (SNAPSHOTS) {
+            SNAPSHOTS.put(toKey(remoteUrl), snapshot);
+        }
+    }
+
+    /**
+     * Updates the head of a branch in the cached snapshot for the specified remote URL (if there is one).
+     *
+     * @param remoteUrl the URL of the remote repository.
+     * @param branch the simple name of the branch or its full ref name (starting with {@code refs/heads/}).
+     * @param headRev the new head commit of the branch, or {@code null} if the branch has been deleted.
+     */
+    public static void updateHeadRev(final String remoteUrl, final String branch, final ObjectId headRev) {
+        synchronized (SNAPSHOTS) {
+            final String key = toKey(remoteUrl);
+            final RemoteRefSnapshot snapshot = SNAPSHOTS.get(key);
+            if (snapshot != null) {
+                SNAPSHOTS.put(key, snapshot.withHeadRev(branch, headRev));
+            }
+        }
+    }
+
+    /**
+     * Removes the cached snapshot for the specified remote URL.
+     *
+     * @param remoteUrl the URL of the remote repository.
+     */
+    public static void invalidate(final String remoteUrl) {
+        synchronized (SNAPSHOTS) {
+            SNAPSHOTS.remove(toKey(remoteUrl));
+        }
+    }
+
+    /**
+     * Tells if the snapshot for the specified remote URL is cached and not expired.
+     *
+     * @param remoteUrl the URL of the remote repository.
+     * @return {@code true} if the snapshot is cached and not expired.
+     */
+    public static boolean isValid(final String remoteUrl) {
+        return getValid(remoteUrl) != null;
+    }
+
+    /**
+     * Returns the time after which cached snapshots expire.
+     *
+     * @return the TTL of the cached snapshots in milliseconds.
+     */
+    public static long getTtlMillis() {
+        return TTL_MILLIS;
+    }
+
+    /**
+     * Returns the number of remote URLs for which a snapshot is being loaded.
+     *
+     * @return the number of current load locks.
+     */
+    static int getLoadLockCount() {
+        return LOAD_LOCKS.size();
+    }
+
+    private static RemoteRefSnapshot getValid(final String remoteUrl) {
+        final RemoteRefSnapshot snapshot = peek(remoteUrl);
+        return snapshot == null || snapshot.getAge() > TTL_MILLIS ? null : snapshot;
+    }
+
+    /**
+     * Normalises the specified remote URL to the key of its cache entries.
+     *
+     * @param remoteUrl the URL of the remote repository.
+     * @return the URL without surrounding whitespace, trailing slashes and {@code .git} suffix.
+     */
+    static String toKey(final String remoteUrl) {
+        return StringUtils.removeEnd(StringUtils.stripEnd(StringUtils.trim(remoteUrl), "/"), ".git");
+    }
+}
@@ -0,0 +1,112 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Restricts the listing of the remote heads to the branch families the <i>Gitflow</i> plugin cares about: single branches
+ * (like {@code master} and {@code develop}) and branches with a common prefix (like {@code release/}).
+ * <p>
+ * The filter provides the ref prefixes to be sent to the server (Git protocol v2 {@code ls-refs}) and the patterns for
+ * {@code git ls-remote}. Since servers and clients may ignore them, the listed heads are always filtered again.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public final class RemoteHeadsFilter {
+
+    private static final String HEADS_PREFIX = "refs/heads/";
+
+    private final Set<String> branchNames;
+    private final Set<String> branchPrefixes;
+
+    /**
+     * Creates a new filter.
+     *
+     * @param branchNames the simple names of the single branches to be listed.
+     * @param branchPrefixes the prefixes of the simple names of the branches to be listed (must not be empty).
+     */
+    public RemoteHeadsFilter(final Collection<String> branchNames, final Collection<String> branchPrefixes) {
+        this.branchNames = Collections.unmodifiableSet(new LinkedHashSet<String>(branchNames));
+        this.branchPrefixes = Collections.unmodifiableSet(new LinkedHashSet<String>(branchPrefixes));
+        if (this.branchPrefixes.contains("")) {
+            throw new IllegalArgumentException("Empty branch prefixes are not supported");
+        }
+    }
+
+    /**
+     * Tells if the specified branch is matched by this filter.
+     *
+     * @param branch the simple name of the branch or its full ref name (starting with {@code refs/heads/}).
+     * @return {@code true} if the specified branch is matched by this filter.
+     */
+    public boolean matches(final String branch) {
+        final String branchName = StringUtils.removeStart(branch, HEADS_PREFIX);
+        if (this.branchNames.contains(branchName)) {
+            return true;
+        }
+        for (final String branchPrefix : this.branchPrefixes) {
+            if (branchName.startsWith(branchPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the prefixes of the full ref names to be requested from the server. The prefixes for single branches may
+     * match further branches (e.g. {@code refs/heads/master} matches {@code refs/heads/master-old}).
+     *
+     * @return the prefixes of the full ref names to be requested from the server.
+     */
+    public List<String> getRefPrefixes() {
+        final List<String> refPrefixes = new ArrayList<String>(this.branchNames.size() + this.branchPrefixes.size());
+        for (final String branchName : this.branchNames) {
+            refPrefixes.add(HEADS_PREFIX + branchName);
+        }
+        for (final String branchPrefix : this.branchPrefixes) {
+            refPrefixes.add(HEADS_PREFIX + branchPrefix);
+        }
+        return refPrefixes;
+    }
+
+    /**
+     * Returns the patterns for {@code git ls-remote} that match the full ref names of the branches.
+     *
+     * @return the patterns for {@code git ls-remote}.
+     */
+    public List<String> getRefPatterns() {
+        final List<String> refPatterns = new ArrayList<String>(this.branchNames.size() + this.branchPrefixes.size());
+        for (final String branchName : this.branchNames) {
+            refPatterns.add(HEADS_PREFIX + branchName);
+        }
+        for (final String branchPrefix : this.branchPrefixes) {
+            refPatterns.add(HEADS_PREFIX + branchPrefix + "*");
+        }
+        return refPatterns;
+    }
+
+    /**
+     * Returns the remote heads that are matched by this filter.
+     *
+     * @param remoteHeads the remote heads, mapped by their ref names (with or without the {@code refs/heads/} prefix).
+     * @return the matching remote heads.
+     */
+    public Map<String, ObjectId> filter(final Map<String, ObjectId> remoteHeads) {
+        final Map<String, ObjectId> matchingRemoteHeads = new HashMap<String, ObjectId>();
+        for (final Map.Entry<String, ObjectId> remoteHead : remoteHeads.entrySet()) {
+            if (this.matches(remoteHead.getKey())) {
+                matchingRemoteHeads.put(remoteHead.getKey(), remoteHead.getValue());
+            }
+        }
+        return matchingRemoteHeads;
+    }
+}
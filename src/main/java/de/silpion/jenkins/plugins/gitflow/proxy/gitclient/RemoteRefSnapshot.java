@@ -0,0 +1,124 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the branch heads of a remote repository, taken with a single listing and indexed by the simple branch name.
+ * <p>
+ * Changes to the remote branches (e.g. after a push) don't modify a snapshot, they create an updated copy of it.
+ * <p>
+ * A snapshot may be taken from a {@link RemoteHeadsFilter filtered} listing. Then it only {@link #covers(String) covers}
+ * the branches matched by the filter - for other branches it doesn't tell if they exist.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class RemoteRefSnapshot {
+
+    private static final String HEADS_PREFIX = "refs/heads/";
+
+    private final Map<String, ObjectId> headRevsByBranchName;
+
+    private final RemoteHeadsFilter filter;
+
+    private final long timestamp;
+
+    /**
+     * Creates a new snapshot from the result of a remote heads listing.
+     *
+     * @param remoteHeads the remote heads, mapped by their ref names (with or without the {@code refs/heads/} prefix).
+     */
+    public RemoteRefSnapshot(final Map<String, ObjectId> remoteHeads) {
+        this(remoteHeads, null);
+    }
+
+    /**
+     * Creates a new snapshot from the result of a filtered remote heads listing.
+     *
+     * @param remoteHeads the remote heads, mapped by their ref names (with or without the {@code refs/heads/} prefix).
+     * @param filter the filter used for the listing, or {@code null} if all remote heads have been listed.
+     */
+    public RemoteRefSnapshot(final Map<String, ObjectId> remoteHeads, final RemoteHeadsFilter filter) {
+        this(remoteHeads, filter, System.currentTimeMillis());
+    }
+
+    private RemoteRefSnapshot(final Map<String, ObjectId> remoteHeads, final RemoteHeadsFilter filter, final long timestamp) {
+        this.filter = filter;
+        this.timestamp = timestamp;
+        final Map<String, ObjectId> headRevs = new HashMap<String, ObjectId>(remoteHeads.size() * 4 / 3 + 1);
+        for (final Map.Entry<String, ObjectId> remoteHead : remoteHeads.entrySet()) {
+            headRevs.put(StringUtils.removeStart(remoteHead.getKey(), HEADS_PREFIX), remoteHead.getValue());
+        }
+        this.headRevsByBranchName = Collections.unmodifiableMap(headRevs);
+    }
+
+    /**
+     * Returns the ref for the head commit of the specified branch.
+     *
+     * @param branch the simple name of the branch or its full ref name (starting with {@code refs/heads/}).
+     * @return the ref for the head commit of the specified branch or {@code null} if the branch doesn't exist.
+     */
+    public ObjectId getHeadRev(final String branch) {
+        return this.headRevsByBranchName.get(StringUtils.removeStart(branch, HEADS_PREFIX));
+    }
+
+    /**
+     * Tells if this snapshot covers the specified branch, i.e. if it has been listed (regardless of whether it exists).
+     *
+     * @param branch the simple name of the branch or its full ref name (starting with {@code refs/heads/}).
+     * @return {@code true} if the snapshot has been taken from an unfiltered listing or if the filter matches the branch.
+     */
+    public boolean covers(final String branch) {
+        return this.filter == null || this.filter.matches(branch);
+    }
+
+    /**
+     * Returns the simple names of all branches contained in this snapshot.
+     *
+     * @return the simple names of all branches contained in this snapshot.
+     */
+    public Set<String> getBranchNames() {
+        return this.headRevsByBranchName.keySet();
+    }
+
+    /**
+     * Returns a copy of this snapshot where the head of the specified branch is replaced.
+     *
+     * @param branch the simple name of the branch or its full ref name (starting with {@code refs/heads/}).
+     * @param headRev the new head commit of the branch, or {@code null} if the branch has been deleted.
+     * @return the updated copy of this snapshot.
+     */
+    public RemoteRefSnapshot withHeadRev(final String branch, final ObjectId headRev) {
+        final Map<String, ObjectId> headRevs = new HashMap<String, ObjectId>(this.headRevsByBranchName);
+        final String branchName = StringUtils.removeStart(branch, HEADS_PREFIX);
+        if (headRev == null) {
+            headRevs.remove(branchName);
+        } else {
+            headRevs.put(branchName, headRev);
+        }
+        return new RemoteRefSnapshot(headRevs, this.filter, this.timestamp);
+    }
+
+    /**
+     * Returns the time when the remote heads for this snapshot have been listed. Updated copies of a snapshot keep the original timestamp.
+     *
+     * @return the time when the remote heads for this snapshot have been listed (in milliseconds since the epoch).
+     */
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * Returns the age of this snapshot.
+     *
+     * @return the age of this snapshot in milliseconds.
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - this.timestamp;
+    }
+}
@@ -0,0 +1,164 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import hudson.remoting.VirtualChannel;
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jenkinsci.plugins.gitclient.RepositoryCallback;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates a commit directly in the object database of a repository: The tree of a start point commit is read into an in-core
+ * index, the files are rewritten by a {@link FileContentRewriter} and the new tree and commit are written without touching
+ * the working tree. Finally the branch is set to the new commit.
+ * <p>
+ * The branch must not be the checked out branch, because moving it would leave the index and the working tree behind its
+ * head - an {@link IOException} is thrown then.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class RewriteCommitCallback implements RepositoryCallback<ObjectId> {
+
+    private static final long serialVersionUID = -3012554874425716442L;
+
+    private final String branch;
+    private final String startPoint;
+    private final FileContentRewriter rewriter;
+    private final String message;
+    private final CommitIdentity identity;
+
+    /**
+     * Creates a new callback.
+     *
+     * @param branch the simple name of the branch to be set to the new commit.
+     * @param startPoint the parent commit (a commit ref or a branch).
+     * @param rewriter rewrites the files for the new commit.
+     * @param message the commit message.
+     * @param identity the author and committer of the new commit.
+     */
+    RewriteCommitCallback(final String branch, final String startPoint, final FileContentRewriter rewriter, final String message,
+                          final CommitIdentity identity) {
+        this.branch = branch;
+        this.startPoint = startPoint;
+        this.rewriter = rewriter;
+        this.message = message;
+        this.identity = identity;
+    }
+
+    /** {@inheritDoc} */
+    public ObjectId invoke(final Repository repository, final VirtualChannel channel) throws IOException, InterruptedException {
+        if ((Constants.R_HEADS + this.branch).equals(repository.getFullBranch())) {
+            throw new IOException("Cannot commit to the checked out branch " + this.branch + " in memory");
+        }
+
+        final ObjectInserter inserter = repository.newObjectInserter();
+        final ObjectReader reader = repository.newObjectReader();
+        final RevWalk revWalk = new RevWalk(reader);
+        try {
+            final ObjectId startPointId = repository.resolve(this.startPoint);
+            if (startPointId == null) {
+                throw new IOException("Cannot resolve " + this.startPoint);
+            }
+            final RevCommit parentCommit = revWalk.parseCommit(startPointId);
+
+            // Read the tree of the parent commit into an in-core index.
+            final DirCache dirCache = DirCache.newInCore();
+            final DirCacheBuilder dirCacheBuilder = dirCache.builder();
+            dirCacheBuilder.addTree(new byte[0], DirCacheEntry.STAGE_0, reader, parentCommit.getTree());
+            dirCacheBuilder.finish();
+
+            // Read the files and prepare the rewriter with their current contents.
+            final Map<String, byte[]> contents = new LinkedHashMap<String, byte[]>();
+            for (final String path : this.rewriter.getFilePaths()) {
+                final DirCacheEntry entry = dirCache.getEntry(path);
+                if (entry != null) {
+                    contents.put(path, reader.open(entry.getObjectId(), Constants.OBJ_BLOB).getBytes());
+                }
+            }
+            final FileContentRewriter preparedRewriter = this.rewriter.prepare(contents);
+
+            // Rewrite the files and replace their blobs in the index.
+            boolean modified = false;
+            final DirCacheEditor dirCacheEditor = dirCache.editor();
+            for (final Map.Entry<String, byte[]> content : contents.entrySet()) {
+                final String path = content.getKey();
+                final byte[] rewrittenContent = preparedRewriter.rewrite(path, content.getValue());
+                if (rewrittenContent != null && !Arrays.equals(content.getValue(), rewrittenContent)) {
+                    final FileMode fileMode = dirCache.getEntry(path).getFileMode();
+                    dirCacheEditor.add(new BlobPathEdit(path, fileMode, inserter.insert(Constants.OBJ_BLOB, rewrittenContent)));
+                    modified = true;
+                }
+            }
+            dirCacheEditor.finish();
+
+            // Write the new tree and the commit (when nothing has been modified, the branch is just set to the start point).
+            final ObjectId commitId;
+            if (modified) {
+                final CommitBuilder commitBuilder = new CommitBuilder();
+                commitBuilder.setTreeId(dirCache.writeTree(inserter));
+                commitBuilder.setParentId(parentCommit);
+                commitBuilder.setAuthor(this.identity.getAuthor(repository));
+                commitBuilder.setCommitter(this.identity.getCommitter(repository));
+                commitBuilder.setMessage(this.message);
+                commitId = inserter.insert(commitBuilder);
+                inserter.flush();
+            } else {
+                commitId = parentCommit;
+            }
+
+            // Set the branch to the new commit.
+            final RefUpdate refUpdate = repository.updateRef(Constants.R_HEADS + this.branch);
+            refUpdate.setNewObjectId(commitId);
+            refUpdate.setRefLogMessage("commit: " + StringUtils.substringBefore(StringUtils.trim(this.message), "\n"), false);
+            final RefUpdate.Result result = refUpdate.forceUpdate();
+            if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED && result != RefUpdate.Result.FAST_FORWARD
+                && result != RefUpdate.Result.NO_CHANGE) {
+                throw new IOException("Cannot update branch " + this.branch + " to " + commitId.getName() + ": " + result);
+            }
+
+            return commitId.copy();
+        } finally {
+            revWalk.release();
+            reader.release();
+            inserter.release();
+        }
+    }
+
+    /**
+     * Replaces the blob of an index entry.
+     */
+    static class BlobPathEdit extends DirCacheEditor.PathEdit {
+
+        private final FileMode fileMode;
+        private final ObjectId blobId;
+
+        BlobPathEdit(final String path, final FileMode fileMode, final ObjectId blobId) {
+            super(path);
+            this.fileMode = fileMode;
+            this.blobId = blobId;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void apply(final DirCacheEntry entry) {
+            entry.setFileMode(this.fileMode);
+            entry.setObjectId(this.blobId);
+        }
+    }
+}
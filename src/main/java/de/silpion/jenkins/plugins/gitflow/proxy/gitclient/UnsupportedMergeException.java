@@ -0,0 +1,34 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import java.io.IOException;
+
+/**
+ * Signals that a merge cannot be computed in memory (see {@link GitClientProxy#mergeInCore(String, org.eclipse.jgit.lib.ObjectId,
+ * org.eclipse.jgit.lib.ObjectId, String)}), because its conflicts are not resolved by the {@code theirs} option. The branch
+ * hasn't been touched then. Other failures of the merge (e.g. unreadable objects) are signalled by plain {@link IOException}s.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class UnsupportedMergeException extends IOException {
+
+    private static final long serialVersionUID = -2847561390284756013L;
+
+    /**
+     * Creates a new exception.
+     *
+     * @param message the description of the unsupported merge.
+     */
+    public UnsupportedMergeException(final String message) {
+        super(message);
+    }
+
+    /**
+     * Creates a new exception.
+     *
+     * @param message the description of the unsupported merge.
+     * @param cause the cause of the exception.
+     */
+    public UnsupportedMergeException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,62 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import hudson.remoting.VirtualChannel;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jenkinsci.plugins.gitclient.RepositoryCallback;
+
+import java.io.IOException;
+
+/**
+ * Checks if a commit only updates the versions in the project files: It must have a single parent, and its diff against
+ * that parent must be empty after the versions have been normalised (see {@link ChangedPathsCallback}). Merge commits
+ * never qualify, because they may bring in changes that haven't been built on the target branch.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+class VersionUpdateCommitCallback implements RepositoryCallback<Boolean> {
+
+    private static final long serialVersionUID = 6239078174640536817L;
+
+    private final String rev;
+    private final FileContentRewriter versionNormalizer;
+
+    /**
+     * Creates a new callback.
+     *
+     * @param rev the commit to be checked.
+     * @param versionNormalizer normalises the versions in the project files.
+     */
+    VersionUpdateCommitCallback(final String rev, final FileContentRewriter versionNormalizer) {
+        this.rev = rev;
+        this.versionNormalizer = versionNormalizer;
+    }
+
+    /**
+     * Returns if the commit only updates versions.
+     *
+     * @return {@code true} if the commit has a single parent and only changes the versions in the project files.
+     */
+    public Boolean invoke(final Repository repository, final VirtualChannel channel) throws IOException, InterruptedException {
+        final ObjectId commitId = repository.resolve(this.rev);
+        if (commitId == null) {
+            throw new IOException("Cannot resolve " + this.rev);
+        }
+
+        final RevWalk revWalk = new RevWalk(repository);
+        final RevCommit commit;
+        try {
+            commit = revWalk.parseCommit(commitId);
+        } finally {
+            revWalk.release();
+        }
+        if (commit.getParentCount() != 1) {
+            return Boolean.FALSE;
+        }
+
+        final ChangedPathsCallback changedPathsCallback = new ChangedPathsCallback(commit.getParent(0).getName(), commit.getName(), this.versionNormalizer);
+        return Boolean.valueOf(changedPathsCallback.invoke(repository, channel).isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient.lsremote;
+
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.CliGitCommandLauncher;
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.transport.URIish;
+import org.jenkinsci.plugins.gitclient.CliGitAPIImpl;
+
+import hudson.plugins.git.GitException;
+import hudson.util.ArgumentListBuilder;
+
+/**
+ * The ls-remote command implementation for Git command line clients. Executes {@code git ls-remote --heads} with the
+ * patterns of the filter, requesting Git protocol v2: The server then only advertises the heads (not the tags and other
+ * refs), and Git only outputs the heads matching the patterns. Git versions that don't support protocol v2 ignore the request.
+ * <p>
+ * The command is launched with the {@link CliGitCommandLauncher}. When that's not possible, all remote heads are listed
+ * and filtered afterwards.
+ *
+ * @param <C> the Git command line client type used to exectue the command.
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class CliGitLsRemoteCommand<C extends CliGitAPIImpl> extends GenericLsRemoteCommand<C> {
+
+    /**
+     * Contructs a new ls-remote command for Git command line clients.
+     *
+     * @param gitClient the Git command line client used to excute the command.
+     * @param consoleLogger the logger instance, used to print messages to the Jenkins console.
+     */
+    public CliGitLsRemoteCommand(final C gitClient, final PrintStream consoleLogger) {
+        super(gitClient, consoleLogger);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("ThrowsRuntimeException")
+    public Map<String, ObjectId> execute() throws GitException, InterruptedException {
+        final CliGitCommandLauncher launcher = CliGitCommandLauncher.forClient(this.gitClient);
+        if (launcher == null) {
+            this.consoleLogger.println("[WARNING] Installed Git Client plugin doesn't support filtered remote listings. All remote heads will be listed.");
+            return super.execute();
+        }
+
+        final URIish remote;
+        try {
+            remote = new URIish(this.remoteUrl);
+        } catch (final URISyntaxException urise) {
+            throw new GitException("Cannot create remote URL", urise);
+        }
+
+        final ArgumentListBuilder argumentListBuilder = new ArgumentListBuilder("-c", "protocol.version=2", "ls-remote", "--heads");
+        argumentListBuilder.add(remote.toPrivateASCIIString());
+        argumentListBuilder.add(this.filter.getRefPatterns());
+        final String output = launcher.launch(argumentListBuilder, remote);
+
+        final Map<String, ObjectId> remoteHeads = new HashMap<String, ObjectId>();
+        for (final String line : StringUtils.split(output, '\n')) {
+            final String refName = StringUtils.trim(StringUtils.substringAfter(line, "\t"));
+            if (refName.startsWith(HEADS_PREFIX)) {
+                remoteHeads.put(refName, ObjectId.fromString(StringUtils.substringBefore(line, "\t")));
+            }
+        }
+        return this.filter.filter(remoteHeads);
+    }
+}
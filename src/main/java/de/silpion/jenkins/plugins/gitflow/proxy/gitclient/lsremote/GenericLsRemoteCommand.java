@@ -0,0 +1,62 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient.lsremote;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteHeadsFilter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.jenkinsci.plugins.gitclient.GitClient;
+
+import hudson.plugins.git.GitException;
+
+/**
+ * The generic command to list the heads of a remote repository, restricted by a {@link RemoteHeadsFilter}, for unknown
+ * {@link GitClient} implementations. It lists all remote heads and filters them on the client side. Its subclasses ask
+ * the server only for the refs matching the filter (when supported).
+ *
+ * @param <C> the {@link GitClient} type used to exectue the command.
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GenericLsRemoteCommand<C extends GitClient> {
+
+    protected static final String HEADS_PREFIX = "refs/heads/";
+
+    protected final C gitClient;
+    protected final PrintStream consoleLogger;
+
+    protected String remoteUrl;
+    protected RemoteHeadsFilter filter;
+
+    /**
+     * Contructs a new generic ls-remote command.
+     *
+     * @param gitClient the Git client used to excute the command.
+     * @param consoleLogger the logger instance, used to print messages to the Jenkins console.
+     */
+    public GenericLsRemoteCommand(final C gitClient, final PrintStream consoleLogger) {
+        this.gitClient = gitClient;
+        this.consoleLogger = consoleLogger;
+    }
+
+    /**
+     * Lists the remote heads matching the filter.
+     *
+     * @return the matching remote heads, mapped by their full ref names.
+     * @throws GitException if the remote heads cannot be listed.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    @SuppressWarnings("ThrowsRuntimeException")
+    public Map<String, ObjectId> execute() throws GitException, InterruptedException {
+        return this.filter.filter(this.gitClient.getHeadRev(this.remoteUrl));
+    }
+
+    public GenericLsRemoteCommand<C> setRemoteUrl(final String remoteUrl) {
+        this.remoteUrl = remoteUrl;
+        return this;
+    }
+
+    public GenericLsRemoteCommand<C> setFilter(final RemoteHeadsFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+}
@@ -0,0 +1,117 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient.lsremote;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.FetchConnection;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.URIish;
+import org.jenkinsci.plugins.gitclient.JGitAPIImpl;
+
+import hudson.plugins.git.GitException;
+
+/**
+ * The ls-remote command implementation for <i>JGit</i> clients. Newer <i>JGit</i> versions send the ref prefixes of the
+ * filter to the server when Git protocol v2 is used, so the server only advertises the matching refs. Older versions list
+ * all remote refs - then the heads are filtered afterwards.
+ * <p>
+ * <i>Reflections</i> are used to access the credentials of the Git client and to pass the ref prefixes without causing
+ * compiler and/or runtime errors. When the credentials are not accessible, all remote heads are listed by the Git client
+ * (like the {@link GenericLsRemoteCommand} does), which uses its credentials itself.
+ *
+ * @param <C> the <i>JGit</i> type used to exectue the command.
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class JGitLsRemoteCommand<C extends JGitAPIImpl> extends GenericLsRemoteCommand<C> {
+
+    /**
+     * Contructs a new ls-remote command for <i>JGit</i> clients.
+     *
+     * @param gitClient the <i>JGit</i> client used to excute the command.
+     * @param consoleLogger the logger instance, used to print messages to the Jenkins console.
+     */
+    public JGitLsRemoteCommand(final C gitClient, final PrintStream consoleLogger) {
+        super(gitClient, consoleLogger);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("ThrowsRuntimeException")
+    public Map<String, ObjectId> execute() throws GitException, InterruptedException {
+        final CredentialsProvider credentialsProvider = this.getCredentialsProvider();
+        if (credentialsProvider == null) {
+            return super.execute();
+        }
+
+        final Map<String, ObjectId> remoteHeads = new HashMap<String, ObjectId>();
+        try {
+            final Transport transport = Transport.open(this.gitClient.getRepository(), new URIish(this.remoteUrl));
+            try {
+                transport.setCredentialsProvider(credentialsProvider);
+
+                final FetchConnection fetchConnection = this.openFetch(transport);
+                try {
+                    for (final Ref ref : fetchConnection.getRefs()) {
+                        if (ref.getName().startsWith(HEADS_PREFIX) && ref.getObjectId() != null) {
+                            remoteHeads.put(ref.getName(), ref.getObjectId());
+                        }
+                    }
+                } finally {
+                    fetchConnection.close();
+                }
+            } finally {
+                transport.close();
+            }
+        } catch (final URISyntaxException | IOException e) {
+            throw new GitException("Could not list the remote heads of " + this.remoteUrl, e);
+        }
+
+        return this.filter.filter(remoteHeads);
+    }
+
+    /**
+     * Opens the fetch connection - passing the ref prefixes of the filter, when supported by the installed <i>JGit</i> version.
+     */
+    private FetchConnection openFetch(final Transport transport) throws IOException {
+        final Method openFetchMethod;
+        try {
+            openFetchMethod = Transport.class.getMethod("openFetch", Collection.class, String[].class);
+        } catch (final NoSuchMethodException nsme) {
+            return transport.openFetch();
+        }
+
+        try {
+            final String[] refPrefixes = this.filter.getRefPrefixes().toArray(new String[0]);
+            return (FetchConnection) openFetchMethod.invoke(transport, Collections.<RefSpec> emptyList(), refPrefixes);
+        } catch (final InvocationTargetException ite) {
+            if (ite.getCause() instanceof IOException) {
+                throw (IOException) ite.getCause();
+            }
+            throw new GitException("Could not list the remote heads of " + this.remoteUrl, ite.getCause());
+        } catch (final IllegalAccessException iae) {
+            return transport.openFetch();
+        }
+    }
+
+    private CredentialsProvider getCredentialsProvider() {
+        try {
+            final Method getProviderMethod = JGitAPIImpl.class.getDeclaredMethod("getProvider");
+            getProviderMethod.setAccessible(true);
+            return (CredentialsProvider) getProviderMethod.invoke(this.gitClient);
+        } catch (final Exception ignored) {
+            this.consoleLogger.println("[WARNING] Credentials of the JGit client are not accessible. Listing all remote heads with the Git client.");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient.push;
+
+import java.io.PrintStream;
+
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.CliGitCommandLauncher;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.gitclient.CliGitAPIImpl;
+
+import hudson.plugins.git.GitException;
+import hudson.util.ArgumentListBuilder;
+
+/**
+ * The push command implementation for Git command line clients. Pushes all refspecs with a single {@code git push --atomic}.
+ * <p>
+ * The Git Client plugin doesn't offer an API to push several refspecs at once, so the push is launched with the
+ * {@link CliGitCommandLauncher}. When that's not possible, the refspecs are pushed one after another.
+ *
+ * @param <C> the Git command line client type used to exectue the push command.
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class CliGitPushCommand<C extends CliGitAPIImpl> extends GenericPushCommand<C> {
+
+    private static final String[] ATOMIC_PUSH_UNSUPPORTED_MESSAGES = {
+        "unknown option `atomic'", "unknown option 'atomic'", "does not support --atomic push"
+    };
+
+    /**
+     * Contructs a new push command for Git command line clients.
+     *
+     * @param gitClient the Git command line client used to excute the push.
+     * @param consoleLogger the logger instance, used to print messages to the Jenkins console.
+     */
+    public CliGitPushCommand(final C gitClient, final PrintStream consoleLogger) {
+        super(gitClient, consoleLogger);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("ThrowsRuntimeException")
+    public void execute() throws GitException, InterruptedException {
+        final CliGitCommandLauncher launcher = CliGitCommandLauncher.forClient(this.gitClient);
+        if (launcher == null) {
+            this.consoleLogger.println("[WARNING] Installed Git Client plugin doesn't support pushing several refspecs at once. Refspecs will be pushed one by one.");
+            super.execute();
+        } else {
+            try {
+                this.push(launcher, true);
+            } catch (final GitException ge) {
+
+                // The installed Git version or the remote repository may not support atomic pushes. Nothing has been pushed then.
+                // Other failures (e.g. a ref rejected by the remote, which aborts the whole atomic push) must not be retried non-atomically.
+                if (isAtomicPushUnsupported(ge.getMessage())) {
+                    this.consoleLogger.println("[WARNING] Atomic push is not supported by Git or the remote repository. Refspecs will be pushed non-atomically.");
+                    this.push(launcher, false);
+                } else {
+                    throw ge;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells if the specified error message reports that atomic pushes are not supported - either by the installed Git version
+     * (unknown option) or by the remote repository (missing capability).
+     *
+     * @param message the message of the failed push.
+     * @return {@code true} if the push failed, because atomic pushes are not supported.
+     */
+    static boolean isAtomicPushUnsupported(final String message) {
+        for (final String unsupportedMessage : ATOMIC_PUSH_UNSUPPORTED_MESSAGES) {
+            if (StringUtils.containsIgnoreCase(message, unsupportedMessage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void push(final CliGitCommandLauncher launcher, final boolean atomic) throws GitException, InterruptedException {
+        final ArgumentListBuilder argumentListBuilder = new ArgumentListBuilder("push");
+        if (atomic) {
+            argumentListBuilder.add("--atomic");
+        }
+        argumentListBuilder.add(this.remote.toPrivateASCIIString());
+        for (final String refspec : this.refspecs) {
+            argumentListBuilder.add(refspec);
+        }
+
+        launcher.launch(argumentListBuilder, this.remote);
+    }
+}
@@ -0,0 +1,60 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient.push;
+
+import java.io.PrintStream;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.eclipse.jgit.transport.URIish;
+import org.jenkinsci.plugins.gitclient.GitClient;
+
+import hudson.plugins.git.GitException;
+
+/**
+ * The generic push command for unknown {@link GitClient} implementations. It pushes the refspecs one after another.
+ * Its subclasses push all refspecs at once (and atomically, when supported).
+ *
+ * @param <C> the {@link GitClient} type used to exectue the push command.
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GenericPushCommand<C extends GitClient> {
+
+    protected final C gitClient;
+    protected final PrintStream consoleLogger;
+
+    protected URIish remote;
+    protected final List<String> refspecs = new LinkedList<String>();
+
+    /**
+     * Contructs a new generic push command.
+     *
+     * @param gitClient the Git client used to excute the push.
+     * @param consoleLogger the logger instance, used to print messages to the Jenkins console.
+     */
+    public GenericPushCommand(final C gitClient, final PrintStream consoleLogger) {
+        this.gitClient = gitClient;
+        this.consoleLogger = consoleLogger;
+    }
+
+    /**
+     * Pushes the refspecs to the remote repository.
+     *
+     * @throws GitException if the push fails.
+     * @throws InterruptedException if the build is interrupted during execution.
+     */
+    @SuppressWarnings("ThrowsRuntimeException")
+    public void execute() throws GitException, InterruptedException {
+        for (final String refspec : this.refspecs) {
+            this.gitClient.push().to(this.remote).ref(refspec).execute();
+        }
+    }
+
+    public GenericPushCommand<C> setRemote(final URIish remote) {
+        this.remote = remote;
+        return this;
+    }
+
+    public GenericPushCommand<C> addRefspecs(final List<String> refspecs) {
+        this.refspecs.addAll(refspecs);
+        return this;
+    }
+}
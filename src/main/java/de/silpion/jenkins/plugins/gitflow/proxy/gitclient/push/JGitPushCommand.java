@@ -0,0 +1,92 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient.push;
+
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.PushCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.jenkinsci.plugins.gitclient.JGitAPIImpl;
+
+import hudson.plugins.git.GitException;
+
+/**
+ * The push command implementation for <i>JGit</i> clients. Pushes all refspecs with a single connection and pack.
+ * <p>
+ * The push is atomic when the installed <i>JGit</i> version supports it. <i>Reflections</i> are used to access the
+ * credentials of the Git client and to enable atomic pushes without causing compiler and/or runtime errors. When the
+ * credentials are not accessible, the refspecs are pushed one after another by the Git client (like the
+ * {@link GenericPushCommand} does), which uses its credentials itself.
+ *
+ * @param <C> the <i>JGit</i> type used to exectue the push command.
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class JGitPushCommand<C extends JGitAPIImpl> extends GenericPushCommand<C> {
+
+    /**
+     * Contructs a new push command for <i>JGit</i> clients.
+     *
+     * @param gitClient the <i>JGit</i> client used to excute the push.
+     * @param consoleLogger the logger instance, used to print messages to the Jenkins console.
+     */
+    public JGitPushCommand(final C gitClient, final PrintStream consoleLogger) {
+        super(gitClient, consoleLogger);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("ThrowsRuntimeException")
+    public void execute() throws GitException, InterruptedException {
+        final CredentialsProvider credentialsProvider = this.getCredentialsProvider();
+        if (credentialsProvider == null) {
+            super.execute();
+            return;
+        }
+
+        final List<RefSpec> refSpecs = new ArrayList<RefSpec>(this.refspecs.size());
+        for (final String refspec : this.refspecs) {
+            refSpecs.add(new RefSpec(refspec));
+        }
+
+        final PushCommand jgitPushCommand = Git.wrap(this.gitClient.getRepository()).push();
+        jgitPushCommand.setRemote(this.remote.toPrivateString()).setRefSpecs(refSpecs).setCredentialsProvider(credentialsProvider);
+
+        try {
+            jgitPushCommand.getClass().getMethod("setAtomic", boolean.class).invoke(jgitPushCommand, true);
+        } catch (final Exception ignored) {
+            this.consoleLogger.println("[WARNING] JGit implementation doesn't support atomic pushes. Refspecs will be pushed non-atomically.");
+        }
+
+        final Iterable<PushResult> pushResults;
+        try {
+            pushResults = jgitPushCommand.call();
+        } catch (final GitAPIException gae) {
+            throw new GitException("Could not push " + this.refspecs, gae);
+        }
+        for (final PushResult pushResult : pushResults) {
+            for (final RemoteRefUpdate remoteRefUpdate : pushResult.getRemoteUpdates()) {
+                final RemoteRefUpdate.Status status = remoteRefUpdate.getStatus();
+                if (status != RemoteRefUpdate.Status.OK && status != RemoteRefUpdate.Status.UP_TO_DATE) {
+                    throw new GitException("Could not push " + remoteRefUpdate.getRemoteName() + ": " + status + " " + remoteRefUpdate.getMessage());
+                }
+            }
+        }
+    }
+
+    private CredentialsProvider getCredentialsProvider() {
+        try {
+            final Method getProviderMethod = JGitAPIImpl.class.getDeclaredMethod("getProvider");
+            getProviderMethod.setAccessible(true);
+            return (CredentialsProvider) getProviderMethod.invoke(this.gitClient);
+        } catch (final Exception ignored) {
+            this.consoleLogger.println("[WARNING] Credentials of the JGit client are not accessible. Pushing the refspecs one after another.");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.silpion.jenkins.plugins.gitflow.data.GitflowJobState;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
+import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.util.NullStream;
+
+/**
+ * Unit tests for the {@link GitflowBranchLocks} class, including a stress test for concurrent Gitflow actions.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitflowBranchLocksTest {
+
+    private static final List<String> BRANCHES = Arrays.asList("develop", "hotfix/1.3.2", "master", "release/1.4", "release/1.5");
+
+    private static final int THREADS = 8;
+    private static final int ACTIONS_PER_THREAD = 250;
+
+    private final PrintStream consoleLogger = new PrintStream(new NullStream());
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @SuppressWarnings("rawtypes")
+    private final AbstractProject job = mock(AbstractProject.class);
+
+    @SuppressWarnings("rawtypes")
+    private final AbstractBuild build = mock(AbstractBuild.class);
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        when(this.job.getRootDir()).thenReturn(this.folder.getRoot());
+        when(this.build.getProject()).thenReturn(this.job);
+        when(this.build.getNumber()).thenReturn(1);
+    }
+
+    @Test
+    public void testTryAcquire() throws Exception {
+        assertTrue(GitflowBranchLocks.tryAcquire("build-1", "job", Arrays.asList("master", "release/1.4")));
+
+        // Another holder cannot lock any of the branches - and doesn't keep the free locks.
+        assertFalse(GitflowBranchLocks.tryAcquire("build-2", "job", Arrays.asList("develop", "release/1.4")));
+        assertTrue(GitflowBranchLocks.tryAcquire("build-3", "job", Collections.singletonList("develop")));
+
+        // The same branch of another job can be locked.
+        assertTrue(GitflowBranchLocks.tryAcquire("build-4", "other-job", Collections.singletonList("master")));
+
+        GitflowBranchLocks.release("build-1");
+        GitflowBranchLocks.release("build-3");
+        GitflowBranchLocks.release("build-4");
+        assertTrue(GitflowBranchLocks.tryAcquire("build-2", "job", Arrays.asList("develop", "release/1.4")));
+        GitflowBranchLocks.release("build-2");
+
+        // The locks are dropped when they aren't held anymore.
+        assertEquals(0, GitflowBranchLocks.getLockCount());
+        assertTrue(GitflowBranchLocks.tryAcquire("build-5", "job", Collections.singletonList("master")));
+        assertFalse(GitflowBranchLocks.tryAcquire("build-6", "job", Collections.singletonList("master")));
+        GitflowBranchLocks.release("build-5");
+    }
+
+    @Test
+    public void testIsLocked() throws Exception {
+        assertFalse(GitflowBranchLocks.isLocked("job", Collections.singletonList("release/1.4")));
+
+        assertTrue(GitflowBranchLocks.tryAcquire("build-1", "job", Collections.singletonList("release/1.4")));
+        assertTrue(GitflowBranchLocks.isLocked("job", Arrays.asList("master", "release/1.4")));
+        assertFalse(GitflowBranchLocks.isLocked("job", Collections.singletonList("master")));
+        assertFalse(GitflowBranchLocks.isLocked("other-job", Collections.singletonList("release/1.4")));
+
+        // Checking a lock doesn't keep it.
+        GitflowBranchLocks.release("build-1");
+        assertFalse(GitflowBranchLocks.isLocked("job", Collections.singletonList("release/1.4")));
+        assertEquals(0, GitflowBranchLocks.getLockCount());
+    }
+
+    @Test
+    public void testConcurrentActionsDontLoseUpdates() throws Exception {
+        final ConcurrentMap<String, AtomicInteger> expectedUpdates = new ConcurrentHashMap<String, AtomicInteger>();
+        for (final String branch : BRANCHES) {
+            expectedUpdates.put(branch, new AtomicInteger());
+        }
+
+        // Each thread executes actions on one or two random branches, like concurrent builds of the same job would do.
+        final List<Callable<Void>> threads = new ArrayList<Callable<Void>>(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            final int threadNumber = t;
+            threads.add(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    final Random random = new Random(threadNumber);
+                    for (int a = 0; a < ACTIONS_PER_THREAD; a++) {
+                        final List<String> branches = new ArrayList<String>(BRANCHES);
+                        Collections.shuffle(branches, random);
+                        final List<String> affectedBranches = branches.subList(0, 1 + random.nextInt(2));
+                        GitflowBranchLocksTest.this.executeAction("thread-" + threadNumber + "-action-" + a, affectedBranches, a % 2 == 0);
+                        for (final String affectedBranch : affectedBranches) {
+                            expectedUpdates.get(affectedBranch).incrementAndGet();
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (final Future<Void> future : executorService.invokeAll(threads, 2, TimeUnit.MINUTES)) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // Every single update must have been recorded - and no lock is left.
+        final GitflowPluginData recordedData = GitflowJobState.loadLatest(this.job);
+        for (final String branch : BRANCHES) {
+            final RemoteBranch remoteBranch = recordedData.getRemoteBranch(branch);
+            final int recordedUpdates = remoteBranch == null ? 0 : Integer.parseInt(remoteBranch.getLastBuildVersion());
+            assertEquals("Updates of " + branch, expectedUpdates.get(branch).get(), recordedUpdates);
+        }
+        assertEquals(0, GitflowBranchLocks.getLockCount());
+    }
+
+    /**
+     * Executes the steps of a Gitflow build: lock the branches, load the latest data of the job, modify the branches,
+     * record the changes in the state of the job when the build completes and release the locks. Every other action
+     * records its changes like a workspace-less <i>Finish</i> action (without a build).
+     */
+    @SuppressWarnings("unchecked")
+    private void executeAction(final String holder, final List<String> affectedBranches, final boolean withBuild) throws Exception {
+        GitflowBranchLocks.acquire(holder, "job", affectedBranches, this.consoleLogger);
+        try {
+            final GitflowPluginData startData = GitflowJobState.loadLatest(this.job);
+            final GitflowPluginData gitflowPluginData = startData == null ? new GitflowPluginData() : startData.clone();
+            gitflowPluginData.recordStartState(startData);
+
+            for (final String affectedBranch : affectedBranches) {
+                final RemoteBranch remoteBranch = gitflowPluginData.getOrAddRemoteBranch(affectedBranch);
+                final int updates = remoteBranch.getLastBuildVersion() == null ? 0 : Integer.parseInt(remoteBranch.getLastBuildVersion());
+                Thread.yield();
+                remoteBranch.setLastBuildVersion(String.valueOf(updates + 1));
+            }
+
+            if (withBuild) {
+                GitflowJobState.save(this.build, gitflowPluginData);
+            } else {
+                GitflowJobState.update(this.job, gitflowPluginData);
+            }
+        } finally {
+            GitflowBranchLocks.release(holder);
+        }
+    }
+}
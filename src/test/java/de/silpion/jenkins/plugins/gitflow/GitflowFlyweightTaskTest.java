@@ -0,0 +1,66 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.acegisecurity.Authentication;
+import org.junit.Test;
+
+import hudson.model.AbstractProject;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.labels.LabelAtom;
+
+/**
+ * Unit tests for the {@link GitflowFlyweightTask} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+@SuppressWarnings("rawtypes")
+public class GitflowFlyweightTaskTest {
+
+    private final AbstractProject job = mock(AbstractProject.class);
+
+    @SuppressWarnings("unchecked")
+    private final GitflowFlyweightTask task = new GitflowFlyweightTask(this.job);
+
+    @Test
+    public void testOwnerTaskAndAuthenticationOfJob() throws Exception {
+        final Authentication authentication = mock(Authentication.class);
+        final Queue.Item item = mock(Queue.Item.class);
+        when(this.job.getDefaultAuthentication()).thenReturn(authentication);
+        when(this.job.getDefaultAuthentication(item)).thenReturn(authentication);
+
+        // The task is authenticated like the builds of the job (e.g. by a QueueItemAuthenticator).
+        assertSame(this.job, this.task.getOwnerTask());
+        assertSame(authentication, this.task.getDefaultAuthentication());
+        assertSame(authentication, this.task.getDefaultAuthentication(item));
+    }
+
+    @Test
+    public void testAssignedLabelOfJob() throws Exception {
+        final Label label = mock(Label.class);
+        when(this.job.getAssignedLabel()).thenReturn(label);
+
+        assertSame(label, this.task.getAssignedLabel());
+    }
+
+    @Test
+    public void testAssignedLabelOfLastBuiltOn() throws Exception {
+        final Node node = mock(Node.class);
+        final LabelAtom nodeLabel = mock(LabelAtom.class);
+        when(node.getSelfLabel()).thenReturn(nodeLabel);
+        when(this.job.getLastBuiltOn()).thenReturn(node);
+
+        // Without label restriction the task must not run on the master (where flyweight tasks are preferred).
+        assertSame(nodeLabel, this.task.getAssignedLabel());
+    }
+
+    @Test
+    public void testAssignedLabelOfNewJob() throws Exception {
+        assertNull(this.task.getAssignedLabel());
+    }
+}
@@ -0,0 +1,134 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+
+/**
+ * Unit tests for the {@link GitflowHistoryCompactor} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitflowHistoryCompactorTest {
+
+    private final List<AbstractBuild<?, ?>> builds = new ArrayList<AbstractBuild<?, ?>>();
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void testCompact() throws Exception {
+
+        // Prepare a history recorded by an older plugin version, where each build persisted the full data.
+        final GitflowPluginData data1 = this.createData("develop", "master", "release/1.0", "release/1.1");
+        final GitflowPluginData data2 = this.createData("develop", "master", "release/1.0", "release/1.1");
+        data2.getRemoteBranch("develop").setLastBuildResult(Result.UNSTABLE);
+        final GitflowPluginData data3 = this.createData("develop", "master", "release/1.0", "release/1.1");
+        data3.getRemoteBranch("develop").setLastBuildResult(Result.UNSTABLE);
+        data3.getRemoteBranch("release/1.0").setLastBuildResult(Result.FAILURE);
+        data3.getRemoteBranch("release/1.1").setLastBuildResult(Result.FAILURE);
+        final GitflowPluginData data4 = this.createData("develop", "master", "release/1.0", "release/1.1");
+        final GitflowPluginData data5 = this.createData("develop", "master", "release/1.0", "release/1.1");
+        this.addBuild(data1);
+        this.addBuild(data2);
+        this.addBuild(null);
+        this.addBuild(data3);
+        this.addBuild(data4);
+        this.addBuild(data5);
+
+        final AbstractProject job = mock(AbstractProject.class);
+        when(job.getFirstBuild()).thenReturn(this.builds.get(0));
+        assertEquals(5, GitflowHistoryCompactor.compact(job));
+
+        // The first build becomes a checkpoint. A new checkpoint is created when the delta becomes larger than half of the branches.
+        assertEquals(Integer.valueOf(1), data1.getCheckpointBuildNumber());
+        assertEquals(Integer.valueOf(1), data2.getCheckpointBuildNumber());
+        assertEquals(Integer.valueOf(1), data3.getCheckpointBuildNumber());
+        assertEquals(Integer.valueOf(5), data4.getCheckpointBuildNumber());
+        assertEquals(Integer.valueOf(5), data5.getCheckpointBuildNumber());
+        verify(this.builds.get(0)).save();
+        verify(this.builds.get(2), never()).save();
+        verify(this.builds.get(5)).save();
+
+        // Compacted builds aren't rewritten again.
+        assertEquals(0, GitflowHistoryCompactor.compact(job));
+    }
+
+    @Test
+    public void testRewriteDeltasOf() throws Exception {
+
+        // Prepare a checkpoint, two deltas against it and a subsequent checkpoint.
+        final GitflowPluginData data1 = this.createData("develop", "master");
+        data1.trackDeltaAgainst(1, null);
+        final GitflowPluginData data2 = data1.clone();
+        data2.trackDeltaAgainst(2, data1);
+        data2.getOrAddRemoteBranch("release/1.0");
+        final GitflowPluginData data3 = data2.clone();
+        data3.trackDeltaAgainst(3, data2);
+        final GitflowPluginData data4 = this.createData("develop", "master");
+        data4.trackDeltaAgainst(4, null);
+        this.addBuild(data1);
+        this.addBuild(data2);
+        this.addBuild(data3);
+        this.addBuild(data4);
+
+        // The first delta becomes the new checkpoint, the following deltas are rewritten against it.
+        assertEquals(2, GitflowHistoryCompactor.rewriteDeltasOf(this.builds.get(0)));
+        assertEquals(Integer.valueOf(2), data2.getCheckpointBuildNumber());
+        assertEquals(Integer.valueOf(2), data3.getCheckpointBuildNumber());
+        assertEquals(Integer.valueOf(4), data4.getCheckpointBuildNumber());
+        assertEquals(3, data3.getRemoteBranches().size());
+        verify(this.builds.get(1)).save();
+        verify(this.builds.get(2)).save();
+        verify(this.builds.get(3), never()).save();
+    }
+
+    @Test
+    public void testOnDeletedRewritesDeltasOfCheckpoint() throws Exception {
+        final GitflowPluginData data1 = this.createData("develop");
+        data1.trackDeltaAgainst(1, null);
+        final GitflowPluginData data2 = data1.clone();
+        data2.trackDeltaAgainst(2, data1);
+        this.addBuild(data1);
+        this.addBuild(data2);
+
+        // Deleting a delta doesn't rewrite other builds.
+        new GitflowRunListener().onDeleted(this.builds.get(1));
+        assertEquals(Integer.valueOf(1), data2.getCheckpointBuildNumber());
+
+        new GitflowRunListener().onDeleted(this.builds.get(0));
+        assertEquals(Integer.valueOf(2), data2.getCheckpointBuildNumber());
+        verify(this.builds.get(1)).save();
+    }
+
+    private GitflowPluginData createData(final String... branchNames) {
+        final GitflowPluginData gitflowPluginData = new GitflowPluginData();
+        for (final String branchName : branchNames) {
+            gitflowPluginData.getOrAddRemoteBranch(branchName).setLastBuildResult(Result.SUCCESS);
+        }
+        assertNull(gitflowPluginData.getCheckpointBuildNumber());
+        return gitflowPluginData;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void addBuild(final GitflowPluginData gitflowPluginData) {
+        final AbstractBuild build = mock(AbstractBuild.class);
+        when(build.getNumber()).thenReturn(this.builds.size() + 1);
+        when(build.getAction(GitflowPluginData.class)).thenReturn(gitflowPluginData);
+        if (!this.builds.isEmpty()) {
+            when(this.builds.get(this.builds.size() - 1).getNextBuild()).thenReturn(build);
+        }
+        this.builds.add(build);
+    }
+}
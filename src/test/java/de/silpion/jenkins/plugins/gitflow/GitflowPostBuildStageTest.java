@@ -0,0 +1,232 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.silpion.jenkins.plugins.gitflow.action.AbstractGitflowAction;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.Descriptor;
+import hudson.model.Result;
+import hudson.model.Saveable;
+import hudson.model.StreamBuildListener;
+import hudson.tasks.Notifier;
+import hudson.tasks.Publisher;
+import hudson.tasks.Recorder;
+import hudson.util.DescribableList;
+
+/**
+ * Unit tests for the {@link GitflowPostBuildStage} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(AbstractGitflowAction.class)
+@SuppressWarnings("rawtypes")
+public class GitflowPostBuildStageTest {
+
+    private final ByteArrayOutputStream console = new ByteArrayOutputStream();
+    private final PrintStream consoleLogger = new PrintStream(this.console, true);
+
+    @Test
+    public void testJoinWaitsForStage() throws Exception {
+        final CountDownLatch stageStarted = new CountDownLatch(1);
+        final AtomicBoolean stageCompleted = new AtomicBoolean();
+        GitflowPostBuildStage.start("job#1", "Test Release", new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                stageStarted.countDown();
+                Thread.sleep(200);
+                stageCompleted.set(true);
+                return null;
+            }
+        }, this.consoleLogger);
+
+        // The stage runs concurrently with the build thread.
+        assertTrue(stageStarted.await(10, TimeUnit.SECONDS));
+        assertFalse(stageCompleted.get());
+
+        assertNull(GitflowPostBuildStage.join("job#1", this.consoleLogger));
+        assertTrue(stageCompleted.get());
+        assertTrue(this.console.toString().contains("Gitflow - Test Release: Waiting for the actions after the main build to complete"));
+
+        // A stage is joined only once.
+        assertNull(GitflowPostBuildStage.join("job#1", this.consoleLogger));
+    }
+
+    @Test
+    public void testJoinFailedStage() throws Exception {
+        GitflowPostBuildStage.start("job#2", "Test Release", new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                throw new IOException("Pushing failed");
+            }
+        }, this.consoleLogger);
+
+        assertSame(Result.FAILURE, GitflowPostBuildStage.join("job#2", this.consoleLogger));
+        assertTrue(this.console.toString().contains("Gitflow - Test Release: The actions after the main build failed - Pushing failed"));
+    }
+
+    @Test
+    public void testJoinInterruptedStage() throws Exception {
+        GitflowPostBuildStage.start("job#3", "Test Release", new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                throw new InterruptedException();
+            }
+        }, this.consoleLogger);
+
+        assertSame(Result.ABORTED, GitflowPostBuildStage.join("job#3", this.consoleLogger));
+    }
+
+    @Test
+    public void testJoinAbortedBuild() throws Exception {
+        final CountDownLatch stageStarted = new CountDownLatch(1);
+        final AtomicBoolean stageInterrupted = new AtomicBoolean();
+        GitflowPostBuildStage.start("job#8", "Test Release", new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                stageStarted.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (final InterruptedException ie) {
+                    stageInterrupted.set(true);
+                    throw ie;
+                }
+                return null;
+            }
+        }, this.consoleLogger);
+        assertTrue(stageStarted.await(10, TimeUnit.SECONDS));
+
+        // The stage of an aborted build is cancelled instead of waiting for it.
+        assertSame(Result.ABORTED, GitflowPostBuildStage.join("job#8", true, this.consoleLogger));
+        assertTrue(this.console.toString().contains("Gitflow - Test Release: Cancelled the actions after the main build, because the build has been aborted"));
+        for (int i = 0; i < 100 && !stageInterrupted.get(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(stageInterrupted.get());
+    }
+
+    @Test
+    public void testJoinWithoutStage() throws Exception {
+        assertNull(GitflowPostBuildStage.join("job#4", this.consoleLogger));
+    }
+
+    @Test
+    public void testIsIndependent() throws Exception {
+        final Recorder recorder = mock(Recorder.class);
+        assertTrue(GitflowPostBuildStage.isIndependent(recorder));
+
+        final Recorder finalizedRecorder = mock(Recorder.class);
+        when(finalizedRecorder.needsToRunAfterFinalized()).thenReturn(true);
+        assertFalse(GitflowPostBuildStage.isIndependent(finalizedRecorder));
+
+        assertFalse(GitflowPostBuildStage.isIndependent(mock(Notifier.class)));
+    }
+
+    @Test
+    public void testAfterMainBuildJoinedByLastPublisher() throws Exception {
+        final Recorder recorder = mock(Recorder.class);
+        final Notifier finalizedNotifier = mock(Notifier.class);
+        when(finalizedNotifier.needsToRunAfterFinalized()).thenReturn(true);
+        final AbstractBuild build = this.mockBuild("job#5", recorder, finalizedNotifier);
+
+        final AbstractGitflowAction gitflowAction = mock(AbstractGitflowAction.class);
+        when(gitflowAction.getActionName()).thenReturn("Test Release");
+        when(gitflowAction.prepareConcurrentAfterMainBuild()).thenReturn(true);
+        doThrow(new IOException("Pushing failed")).when(gitflowAction).afterMainBuild();
+
+        // The actions are started asynchronously - based on the result of the main build.
+        GitflowPostBuildStage.afterMainBuild(build, gitflowAction, true, this.consoleLogger);
+        verify(gitflowAction).recordMainBuildResult();
+
+        // The stage is joined after the last publisher before the finalisation - while the build is still in progress.
+        final GitflowBuildStepListener buildStepListener = new GitflowBuildStepListener();
+        final BuildListener listener = new StreamBuildListener(this.consoleLogger);
+        buildStepListener.started(build, recorder, listener);
+        verify(build, never()).setResult(any(Result.class));
+        buildStepListener.finished(build, recorder, listener, true);
+        verify(gitflowAction).afterMainBuild();
+        verify(build).setResult(Result.FAILURE);
+
+        // The publishers after the finalisation don't join the stage again.
+        buildStepListener.started(build, finalizedNotifier, listener);
+        buildStepListener.finished(build, finalizedNotifier, listener, true);
+        verify(build).setResult(any(Result.class));
+    }
+
+    @Test
+    public void testAfterMainBuildWithoutIndependentPublisher() throws Exception {
+        final AbstractBuild build = this.mockBuild("job#6", mock(Notifier.class));
+        final AbstractGitflowAction gitflowAction = mock(AbstractGitflowAction.class);
+
+        // There's nothing to overlap with, so the actions are executed synchronously.
+        GitflowPostBuildStage.afterMainBuild(build, gitflowAction, true, this.consoleLogger);
+        verify(gitflowAction).afterMainBuild();
+        verify(gitflowAction, never()).recordMainBuildResult();
+        assertNull(GitflowPostBuildStage.join("job#6", this.consoleLogger));
+    }
+
+    @Test
+    public void testAfterMainBuildInWorkingTree() throws Exception {
+        final AbstractBuild build = this.mockBuild("job#9", mock(Recorder.class));
+        final AbstractGitflowAction gitflowAction = mock(AbstractGitflowAction.class);
+        when(gitflowAction.prepareConcurrentAfterMainBuild()).thenReturn(false);
+
+        // The recorders read the working tree, so the actions that write to it are executed synchronously.
+        GitflowPostBuildStage.afterMainBuild(build, gitflowAction, true, this.consoleLogger);
+        verify(gitflowAction).afterMainBuild();
+        verify(gitflowAction, never()).recordMainBuildResult();
+        assertNull(GitflowPostBuildStage.join("job#9", this.consoleLogger));
+    }
+
+    @Test
+    public void testIsLastPublisherBeforeFinalization() throws Exception {
+        final Recorder recorder = mock(Recorder.class);
+        final Notifier notifier = mock(Notifier.class);
+        final Recorder finalizedRecorder = mock(Recorder.class);
+        when(finalizedRecorder.needsToRunAfterFinalized()).thenReturn(true);
+        final AbstractProject job = this.mockBuild("job#7", recorder, notifier, finalizedRecorder).getProject();
+
+        assertFalse(GitflowPostBuildStage.isLastPublisherBeforeFinalization(job, recorder));
+        assertTrue(GitflowPostBuildStage.isLastPublisherBeforeFinalization(job, notifier));
+        assertFalse(GitflowPostBuildStage.isLastPublisherBeforeFinalization(job, finalizedRecorder));
+    }
+
+    @SuppressWarnings("unchecked")
+    private AbstractBuild mockBuild(final String buildId, final Publisher... publishers) {
+        final AbstractProject job = mock(AbstractProject.class);
+        when(job.getPublishersList()).thenReturn(new DescribableList<Publisher, Descriptor<Publisher>>(Saveable.NOOP, Arrays.asList(publishers)));
+        final AbstractBuild build = mock(AbstractBuild.class);
+        when(build.getExternalizableId()).thenReturn(buildId);
+        when(build.getProject()).thenReturn(job);
+        return build;
+    }
+}
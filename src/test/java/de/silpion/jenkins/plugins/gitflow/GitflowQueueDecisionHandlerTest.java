@@ -0,0 +1,138 @@
+package de.silpion.jenkins.plugins.gitflow;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.silpion.jenkins.plugins.gitflow.data.GitflowCommitLedger;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteHeadsCache;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteHeadsFilter;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteRefSnapshot;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Cause;
+import hudson.model.CauseAction;
+import hudson.model.Queue;
+import hudson.model.Result;
+import hudson.plugins.git.Branch;
+import hudson.plugins.git.BranchSpec;
+import hudson.plugins.git.GitSCM;
+import hudson.plugins.git.Revision;
+import hudson.plugins.git.UserRemoteConfig;
+import hudson.plugins.git.util.Build;
+import hudson.plugins.git.util.BuildData;
+
+/**
+ * Unit tests for the {@link GitflowQueueDecisionHandler} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitflowQueueDecisionHandlerTest {
+
+    private static final String REMOTE_URL = "https://git.example.org/queue-decision.git";
+
+    private static final ObjectId MASTER_HEAD = ObjectId.fromString("1111111111111111111111111111111111111111");
+    private static final ObjectId DEVELOP_BUILT = ObjectId.fromString("2222222222222222222222222222222222222222");
+    private static final ObjectId DEVELOP_HEAD = ObjectId.fromString("3333333333333333333333333333333333333333");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final GitSCM gitSCM = mock(GitSCM.class);
+    private final BuildData buildData = new BuildData();
+    private final Map<String, ObjectId> remoteHeads = new HashMap<String, ObjectId>();
+
+    private AbstractProject<?, ?> job;
+
+    @Before
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void setUp() throws Exception {
+        this.job = mock(AbstractProject.class);
+        when(this.job.getRootDir()).thenReturn(this.folder.newFolder("job"));
+        when(this.job.getScm()).thenReturn(this.gitSCM);
+        when(this.gitSCM.getUserRemoteConfigs()).thenReturn(Collections.singletonList(new UserRemoteConfig(REMOTE_URL, "origin", null, null)));
+        when(this.gitSCM.getBranches()).thenReturn(Arrays.asList(new BranchSpec("*/master"), new BranchSpec("*/develop")));
+
+        final AbstractBuild lastBuild = mock(AbstractBuild.class);
+        when(this.job.getLastBuild()).thenReturn(lastBuild);
+        when(lastBuild.getAction(BuildData.class)).thenReturn(this.buildData);
+        this.markAsBuilt("master", MASTER_HEAD);
+        this.markAsBuilt("develop", DEVELOP_BUILT);
+
+        this.remoteHeads.put("refs/heads/master", MASTER_HEAD);
+        this.remoteHeads.put("refs/heads/develop", DEVELOP_HEAD);
+    }
+
+    @After
+    public void tearDown() {
+        RemoteHeadsCache.invalidate(REMOTE_URL);
+    }
+
+    @Test
+    public void testUnbuiltVersionUpdate() throws Exception {
+        RemoteHeadsCache.put(REMOTE_URL, new RemoteRefSnapshot(this.remoteHeads));
+
+        GitflowCommitLedger.record(this.job, "develop", DEVELOP_HEAD, 5, true);
+        assertTrue(GitflowQueueDecisionHandler.hasOnlyUnbuiltVersionUpdates(this.job));
+
+        // Nothing to be vetoed when all heads have been built.
+        this.markAsBuilt("develop", DEVELOP_HEAD);
+        assertFalse(GitflowQueueDecisionHandler.hasOnlyUnbuiltVersionUpdates(this.job));
+    }
+
+    @Test
+    public void testUnbuiltOtherCommits() throws Exception {
+        RemoteHeadsCache.put(REMOTE_URL, new RemoteRefSnapshot(this.remoteHeads));
+
+        // Commits that haven't been pushed by a Gitflow action must be built.
+        assertFalse(GitflowQueueDecisionHandler.hasOnlyUnbuiltVersionUpdates(this.job));
+
+        // Merge commits pushed by Gitflow actions must be built as well.
+        GitflowCommitLedger.record(this.job, "develop", DEVELOP_HEAD, 5, false);
+        assertFalse(GitflowQueueDecisionHandler.hasOnlyUnbuiltVersionUpdates(this.job));
+    }
+
+    @Test
+    public void testUncoveredBranches() throws Exception {
+        GitflowCommitLedger.record(this.job, "develop", DEVELOP_HEAD, 5, true);
+
+        // Without a valid snapshot, the unbuilt heads are unknown.
+        assertFalse(GitflowQueueDecisionHandler.hasOnlyUnbuiltVersionUpdates(this.job));
+
+        // The snapshot doesn't tell about the feature branches that the job builds, too.
+        final RemoteHeadsFilter filter = new RemoteHeadsFilter(Arrays.asList("master", "develop"), Collections.singletonList("release/"));
+        RemoteHeadsCache.put(REMOTE_URL, new RemoteRefSnapshot(this.remoteHeads, filter));
+        assertTrue(GitflowQueueDecisionHandler.hasOnlyUnbuiltVersionUpdates(this.job));
+        when(this.gitSCM.getBranches()).thenReturn(Arrays.asList(new BranchSpec("*/develop"), new BranchSpec("*/feature/*")));
+        assertFalse(GitflowQueueDecisionHandler.hasOnlyUnbuiltVersionUpdates(this.job));
+    }
+
+    @Test
+    public void testShouldScheduleOtherTriggers() throws Exception {
+        RemoteHeadsCache.put(REMOTE_URL, new RemoteRefSnapshot(this.remoteHeads));
+        GitflowCommitLedger.record(this.job, "develop", DEVELOP_HEAD, 5, true);
+
+        // Only the builds scheduled by SCM polling are vetoed.
+        final CauseAction causeAction = new CauseAction(new Cause.RemoteCause("ci.example.org", "pushed"));
+        assertTrue(new GitflowQueueDecisionHandler().shouldSchedule((Queue.Task) this.job, Collections.<Action>singletonList(causeAction)));
+    }
+
+    private void markAsBuilt(final String branch, final ObjectId commit) {
+        final Revision revision = new Revision(commit, Collections.singletonList(new Branch("origin/" + branch, commit)));
+        this.buildData.getBuildsByBranchName().put("origin/" + branch, new Build(revision, 1, Result.SUCCESS));
+    }
+}
@@ -2,6 +2,7 @@ package de.silpion.jenkins.plugins.gitflow.action;
 
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasKey;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -21,6 +22,7 @@ import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
+import hudson.model.Result;
 import hudson.model.StreamBuildListener;
 import hudson.util.NullStream;
 
@@ -95,6 +97,19 @@ public abstract class AbstractGitflowActionTest<A extends AbstractGitflowAction<
         }
     }
 
+    @Test
+    public void testRecordMainBuildResult() throws Exception {
+        final A testAction = this.getTestAction();
+
+        when(this.build.getResult()).thenReturn(Result.SUCCESS);
+        assertSame(Result.SUCCESS, testAction.getBuildResult());
+        testAction.recordMainBuildResult();
+
+        // Results that are set by publishers running concurrently with the actions after the main build are ignored.
+        when(this.build.getResult()).thenReturn(Result.FAILURE);
+        assertSame(Result.SUCCESS, testAction.getBuildResult());
+    }
+
     /**
      * Mocks the relevant method calls for the {@link #testGetAdditionalBuildEnvVars()}
      * test and returns a map containing the expected build environment variables.
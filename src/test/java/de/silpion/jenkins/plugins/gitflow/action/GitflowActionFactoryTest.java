@@ -15,6 +15,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import hudson.EnvVars;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
@@ -41,6 +42,7 @@ public class GitflowActionFactoryTest extends AbstractGitflowPluginTest {
         AbstractProject project = mock(AbstractProject.class);
         when(project.getScm()).thenReturn(mock(GitSCM.class));
         when(build.getProject()).thenReturn(project);
+        when(build.getEnvironment(listener)).thenReturn(new EnvVars());
 
     }
 
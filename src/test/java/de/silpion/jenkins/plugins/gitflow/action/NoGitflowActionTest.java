@@ -1,6 +1,9 @@
 package de.silpion.jenkins.plugins.gitflow.action;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 import java.io.IOException;
@@ -9,14 +12,20 @@ import java.util.HashMap;
 import java.util.Map;
 
 import de.silpion.jenkins.plugins.gitflow.cause.NoGitflowCause;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowCommitLedger;
 import org.eclipse.jgit.lib.ObjectId;
 import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import hudson.EnvVars;
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.plugins.git.util.BuildData;
 
 /**
  * Unit tests for the {@link NoGitflowAction} class.
@@ -24,6 +33,9 @@ import hudson.model.AbstractBuild;
 @RunWith(PowerMockRunner.class)
 public class NoGitflowActionTest extends AbstractGitflowActionTest<NoGitflowAction<AbstractBuild<?, ?>>, NoGitflowCause> {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Mock
     private NoGitflowCause cause;
 
@@ -64,4 +76,28 @@ public class NoGitflowActionTest extends AbstractGitflowActionTest<NoGitflowActi
 
         return expectedAdditionalBuildEnvVars;
     }
+
+    @Test
+    public void testBeforeMainBuildInternalMarksVersionUpdatesAsBuilt() throws Exception {
+        final ObjectId versionUpdateCommit = ObjectId.fromString("1111111111111111111111111111111111111111");
+        final ObjectId mergeCommit = ObjectId.fromString("2222222222222222222222222222222222222222");
+        this.setUpTestGetAdditionalBuildEnvVars();
+
+        // Record the commits pushed by Gitflow actions in the ledger of the job.
+        final AbstractProject<?, ?> project = mock(AbstractProject.class);
+        when(project.getRootDir()).thenReturn(this.folder.newFolder("job"));
+        when(this.build.getProject()).thenReturn(project);
+        GitflowCommitLedger.record(project, "develop", versionUpdateCommit, 3, true);
+        GitflowCommitLedger.record(project, "master", mergeCommit, 4, false);
+
+        final BuildData buildData = new BuildData();
+        when(this.build.getAction(BuildData.class)).thenReturn(buildData);
+        when(this.gitflowBuildWrapperDescriptor.isSkipPluginCommits()).thenReturn(true);
+
+        this.testAction.beforeMainBuildInternal();
+
+        // Only the version updates are ignored by SCM polling - merge commits must be built.
+        assertTrue(buildData.hasBeenBuilt(versionUpdateCommit));
+        assertFalse(buildData.hasBeenBuilt(mergeCommit));
+    }
 }
@@ -1,5 +1,6 @@
 package de.silpion.jenkins.plugins.gitflow.action;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.startsWith;
 import static org.powermock.api.mockito.PowerMockito.mock;
@@ -54,6 +55,7 @@ public class PublishHotfixActionTest extends AbstractGitflowActionTest<PublishHo
         when(this.gitflowBuildWrapperDescriptor.getMasterBranch()).thenReturn("master");
         when(this.cause.getLastPatchReleaseCommit()).thenReturn(ObjectId.zeroId());
         when(this.git.getHeadRev(anyString())).thenReturn(ObjectId.zeroId());
+        when(this.git.mergeInCore(anyString(), any(ObjectId.class), any(ObjectId.class), anyString())).thenReturn(ObjectId.zeroId());
         when(this.cause.getHotfixBranch()).thenReturn("hotfix/1.0");
         when(this.gitflowBuildWrapperDescriptor.getBranchType(startsWith("hotfix/"))).thenReturn("hotfix");
         when(this.gitflowBuildWrapperDescriptor.getBranchType("master")).thenReturn("master");
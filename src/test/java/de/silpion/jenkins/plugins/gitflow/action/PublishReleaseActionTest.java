@@ -1,19 +1,32 @@
 package de.silpion.jenkins.plugins.gitflow.action;
 
 import de.silpion.jenkins.plugins.gitflow.cause.PublishReleaseCause;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.UnsupportedMergeException;
 import hudson.model.AbstractBuild;
 import hudson.plugins.git.util.Build;
 import hudson.plugins.git.util.BuildData;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.junit.Before;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import static de.silpion.jenkins.plugins.gitflow.proxy.gitclient.merge.GenericMergeCommand.StrategyOption.THEIRS;
+import static org.eclipse.jgit.api.MergeCommand.FastForwardMode.NO_FF;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.jenkinsci.plugins.gitclient.MergeCommand.Strategy.RECURSIVE;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.when;
 
@@ -50,6 +63,7 @@ public class PublishReleaseActionTest extends AbstractGitflowActionTest<PublishR
         when(this.gitflowBuildWrapperDescriptor.getMasterBranch()).thenReturn("master");
         when(this.cause.getLastPatchReleaseCommit()).thenReturn(ObjectId.zeroId());
         when(this.git.getHeadRev(anyString())).thenReturn(ObjectId.zeroId());
+        when(this.git.mergeInCore(anyString(), any(ObjectId.class), any(ObjectId.class), anyString())).thenReturn(ObjectId.zeroId());
         when(this.cause.getReleaseBranch()).thenReturn("release/1.0");
         when(this.gitflowBuildWrapperDescriptor.getBranchType("master")).thenReturn("master");
 
@@ -65,4 +79,35 @@ public class PublishReleaseActionTest extends AbstractGitflowActionTest<PublishR
 
         return expectedAdditionalBuildEnvVars;
     }
+
+    @Test
+    public void testMergeInWorkingTree() throws Exception {
+        this.setUpTestGetAdditionalBuildEnvVars();
+        when(this.git.mergeInCore(anyString(), any(ObjectId.class), any(ObjectId.class), anyString())).thenThrow(new UnsupportedMergeException("multiple merge bases found"));
+        when(this.git.isMergeStrategyOptionSupported()).thenReturn(true);
+        when(this.git.revParse(Constants.HEAD)).thenReturn(ObjectId.zeroId());
+
+        this.testAction.beforeMainBuildInternal();
+
+        // The command line Git client resolves the conflicts in favour of the release, like the in-memory merge.
+        verify(this.git).checkoutBranch("master", ObjectId.zeroId().getName());
+        verify(this.git).merge(ObjectId.zeroId(), NO_FF, RECURSIVE, THEIRS, false);
+    }
+
+    @Test
+    public void testMergeInWorkingTreeWithoutStrategyOption() throws Exception {
+        this.setUpTestGetAdditionalBuildEnvVars();
+        when(this.git.mergeInCore(anyString(), any(ObjectId.class), any(ObjectId.class), anyString())).thenThrow(new UnsupportedMergeException("multiple merge bases found"));
+        when(this.git.isMergeStrategyOptionSupported()).thenReturn(false);
+
+        // The other Git clients would ignore the strategy option, so the merge must fail instead.
+        try {
+            this.testAction.beforeMainBuildInternal();
+            fail("The merge must fail when the Git client doesn't support the strategy option.");
+        } catch (final IOException ioe) {
+            assertThat(ioe.getMessage(), containsString("multiple merge bases found"));
+            assertThat(ioe.getMessage(), containsString("strategy option 'theirs'"));
+        }
+        verify(this.git, never()).checkoutBranch(anyString(), anyString());
+    }
 }
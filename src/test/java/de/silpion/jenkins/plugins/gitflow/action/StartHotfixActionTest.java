@@ -1,5 +1,7 @@
 package de.silpion.jenkins.plugins.gitflow.action;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.startsWith;
@@ -17,17 +19,21 @@ import java.util.Map;
 import de.silpion.jenkins.plugins.gitflow.action.buildtype.AbstractBuildTypeAction;
 import de.silpion.jenkins.plugins.gitflow.action.buildtype.BuildTypeActionFactory;
 import de.silpion.jenkins.plugins.gitflow.cause.StartHotfixCause;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowCommitLedger;
 import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
 import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
 import org.eclipse.jgit.lib.ObjectId;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
 import hudson.model.Result;
 import hudson.plugins.git.GitSCM;
 
@@ -35,6 +41,11 @@ import hudson.plugins.git.GitSCM;
 @RunWith(PowerMockRunner.class)
 public class StartHotfixActionTest extends AbstractGitflowActionTest<StartHotfixAction<AbstractBuild<?, ?>>, StartHotfixCause> {
 
+    private static final ObjectId HOTFIX_COMMIT = ObjectId.fromString("1111111111111111111111111111111111111111");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private StartHotfixAction<AbstractBuild<?, ?>> testAction;
 
     @Mock
@@ -117,6 +128,12 @@ public class StartHotfixActionTest extends AbstractGitflowActionTest<StartHotfix
     @Test
     public void testBeforeMainBuildInternal() throws Exception {
 
+        //Setup
+        final AbstractProject<?, ?> project = this.build.getProject();
+        when(project.getRootDir()).thenReturn(this.folder.getRoot());
+        when(this.build.getNumber()).thenReturn(7);
+        when(this.git.revParse("refs/heads/hotfix/1.0")).thenReturn(HOTFIX_COMMIT);
+
         //Run
         this.testAction.beforeMainBuildInternal();
 
@@ -129,6 +146,7 @@ public class StartHotfixActionTest extends AbstractGitflowActionTest<StartHotfix
         verify(this.git).add("child3/pom.xml");
         verify(this.git).commit(any(String.class));
         verify(this.git, atLeastOnce()).push(anyString(), anyString());
+        verify(this.git).revParse("refs/heads/hotfix/1.0");
 
         verify(this.gitflowPluginData).setDryRun(false);
         verify(this.gitflowPluginData).getRemoteBranch("master");
@@ -138,5 +156,24 @@ public class StartHotfixActionTest extends AbstractGitflowActionTest<StartHotfix
         verify(this.remoteBranchHotfix, atLeastOnce()).setLastBuildVersion("1.0.2-SNAPSHOT");
 
         verifyNoMoreInteractions(this.git, this.gitflowPluginData);
+
+        // The pushed commit is recorded in the ledger of the job.
+        final GitflowCommitLedger.Entry ledgerEntry = GitflowCommitLedger.get(project, HOTFIX_COMMIT.getName());
+        assertEquals("hotfix/1.0", ledgerEntry.getBranch());
+        assertEquals(7, ledgerEntry.getBuildNumber());
+    }
+
+    @Test
+    public void testBeforeMainBuildInternalOnDryRun() throws Exception {
+        final AbstractProject<?, ?> project = this.build.getProject();
+        when(project.getRootDir()).thenReturn(this.folder.getRoot());
+        when(this.git.revParse("refs/heads/hotfix/1.0")).thenReturn(HOTFIX_COMMIT);
+        final StartHotfixCause cause = new StartHotfixCause(createRemoteBranch("master", "1.0", "1.0.1"));
+        cause.setDryRun(true);
+
+        new StartHotfixAction<AbstractBuild<?, ?>>(this.build, this.launcher, this.listener, this.git, cause).beforeMainBuildInternal();
+
+        // Nothing has been pushed on Dry Run, so nothing is recorded.
+        assertNull(GitflowCommitLedger.get(project, HOTFIX_COMMIT.getName()));
     }
 }
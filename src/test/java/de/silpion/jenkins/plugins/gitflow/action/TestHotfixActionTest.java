@@ -1,10 +1,15 @@
 package de.silpion.jenkins.plugins.gitflow.action;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.matches;
-import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -15,27 +20,42 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import de.silpion.jenkins.plugins.gitflow.GitflowProvenanceAction;
 import de.silpion.jenkins.plugins.gitflow.cause.TestHotfixCause;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowCommitLedger;
 import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
 import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
 import org.eclipse.jgit.lib.ObjectId;
 import de.silpion.jenkins.plugins.gitflow.action.buildtype.AbstractBuildTypeAction;
 import de.silpion.jenkins.plugins.gitflow.action.buildtype.BuildTypeActionFactory;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.FileContentRewriter;
+import org.eclipse.jgit.lib.Constants;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
 import hudson.model.Result;
 import hudson.plugins.git.GitSCM;
+import hudson.plugins.git.util.BuildData;
 
 @PrepareForTest(BuildTypeActionFactory.class)
 @RunWith(PowerMockRunner.class)
 public class TestHotfixActionTest extends AbstractGitflowActionTest<TestHotfixAction<AbstractBuild<?, ?>>, TestHotfixCause> {
 
+    private static final ObjectId HOTFIX_COMMIT = ObjectId.fromString("1111111111111111111111111111111111111111");
+    private static final ObjectId VERIFIED_TREE = ObjectId.fromString("2222222222222222222222222222222222222222");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private TestHotfixAction<AbstractBuild<?, ?>> testAction;
 
     @Mock
@@ -148,6 +168,18 @@ public class TestHotfixActionTest extends AbstractGitflowActionTest<TestHotfixAc
         List<String> changeFiles = Arrays.asList("pom.xml", "child1/pom.xml", "child2/pom.xml", "child3/pom.xml");
         when(buildTypeAction.updateVersion(nextHotfixVersion)).thenReturn(changeFiles);
 
+        // The pushed version update is recorded in the ledger of the job and marked as built.
+        final AbstractProject<?, ?> project = this.build.getProject();
+        final BuildData buildData = new BuildData();
+        final FileContentRewriter versionNormalizer = mock(FileContentRewriter.class);
+        when(this.buildTypeAction.createVersionNormalizer()).thenReturn(versionNormalizer);
+        when(this.git.isVersionUpdateCommit(HOTFIX_COMMIT.getName(), versionNormalizer)).thenReturn(true);
+        when(project.getRootDir()).thenReturn(this.folder.getRoot());
+        when(this.build.getNumber()).thenReturn(42);
+        when(this.build.getAction(BuildData.class)).thenReturn(buildData);
+        when(this.git.revParse("refs/heads/" + hotfixBranch)).thenReturn(HOTFIX_COMMIT);
+        when(this.gitflowBuildWrapperDescriptor.isSkipPluginCommits()).thenReturn(true);
+
         //Run
         this.testAction.afterMainBuildInternal();
 
@@ -155,20 +187,28 @@ public class TestHotfixActionTest extends AbstractGitflowActionTest<TestHotfixAc
         verify(this.gitflowPluginData).setDryRun(false);
         verify(this.gitflowPluginData).getRemoteBranch(hotfixBranch);
         verify(this.git).setGitflowActionName(this.testAction.getActionName());
-        verify(this.git, atLeast(2)).push(anyString(), anyString());
+        verify(this.git).push("origin", Arrays.asList("refs/tags/version/1.2.3:refs/tags/version/1.2.3", "refs/heads/hotfix/1.2:refs/heads/hotfix/1.2"));
 
         verify(this.git).add("pom.xml");
         verify(this.git).add("child1/pom.xml");
         verify(this.git).add("child2/pom.xml");
         verify(this.git).add("child3/pom.xml");
         verify(this.git).commit(any(String.class));
-        verify(this.git).revParse(any(String.class));
+        verify(this.git).revParse("version/1.2.3");
+        verify(this.git).revParse("refs/heads/" + hotfixBranch);
+        verify(this.git).isVersionUpdateCommit(HOTFIX_COMMIT.getName(), versionNormalizer);
         verify(this.git).tag(any(String.class), any(String.class));
 
         verify(this.remoteBranchHotfix, atLeastOnce()).setLastBuildResult(Result.SUCCESS);
         verify(this.remoteBranchHotfix).setLastBuildVersion(nextHotfixVersion);
 
         verifyNoMoreInteractions(this.git, this.gitflowPluginData);
+
+        final GitflowCommitLedger.Entry ledgerEntry = GitflowCommitLedger.get(project, HOTFIX_COMMIT.getName());
+        assertEquals(hotfixBranch, ledgerEntry.getBranch());
+        assertEquals(42, ledgerEntry.getBuildNumber());
+        assertTrue(ledgerEntry.isVersionUpdate());
+        assertEquals(HOTFIX_COMMIT, buildData.getLastBuildOfBranch(hotfixBranch).getSHA1());
     }
 
     @Test
@@ -189,4 +229,67 @@ public class TestHotfixActionTest extends AbstractGitflowActionTest<TestHotfixAc
 
         verifyNoMoreInteractions(this.git, this.gitflowPluginData, this.remoteBranchHotfix);
     }
+
+    @Test
+    public void testReuseVerifiedBuildForUnchangedSources() throws Exception {
+        this.setUpVerifiedBuild(VERIFIED_TREE);
+
+        //Run
+        this.testAction.reuseVerifiedBuild("hotfix/1.2", "1.2.3");
+        this.testAction.recordVerifiedBuild("hotfix/1.2");
+
+        //Check - the verification of the release build #5 is reused and recorded again.
+        final GitflowProvenanceAction provenanceAction = this.captureProvenanceAction();
+        assertEquals(VERIFIED_TREE.getName(), provenanceAction.getTreeHash());
+        assertEquals(HOTFIX_COMMIT.getName(), provenanceAction.getBuiltCommit());
+        assertEquals(5, provenanceAction.getVerifiedBuildNumber());
+        verify(this.remoteBranchHotfix).setLastVerifiedTree(VERIFIED_TREE, 5);
+    }
+
+    @Test
+    public void testReuseVerifiedBuildForChangedSources() throws Exception {
+        final ObjectId changedTree = ObjectId.fromString("3333333333333333333333333333333333333333");
+        this.setUpVerifiedBuild(changedTree);
+
+        //Run
+        this.testAction.reuseVerifiedBuild("hotfix/1.2", "1.2.3");
+        this.testAction.recordVerifiedBuild("hotfix/1.2");
+
+        //Check - the sources are verified by this build.
+        assertEquals(42, this.captureProvenanceAction().getVerifiedBuildNumber());
+        verify(this.buildTypeAction, never()).skipVerification(anyMapOf(String.class, String.class));
+        verify(this.remoteBranchHotfix).setLastVerifiedTree(changedTree, 42);
+    }
+
+    @Test
+    public void testReuseVerifiedBuildDisabled() throws Exception {
+
+        //Run
+        this.testAction.reuseVerifiedBuild("hotfix/1.2", "1.2.3");
+        this.testAction.recordVerifiedBuild("hotfix/1.2");
+
+        //Check
+        verify(this.build, never()).addAction(any(GitflowProvenanceAction.class));
+        verify(this.git, never()).getNormalizedTreeHash(anyString(), any(FileContentRewriter.class));
+        verify(this.remoteBranchHotfix, never()).setLastVerifiedTree(any(ObjectId.class), anyInt());
+    }
+
+    private void setUpVerifiedBuild(final ObjectId normalizedTree) throws Exception {
+        final FileContentRewriter versionNormalizer = mock(FileContentRewriter.class);
+        when(this.gitflowBuildWrapperDescriptor.isReuseVerifiedReleaseBuilds()).thenReturn(true);
+        when(this.buildTypeAction.createVersionNormalizer()).thenReturn(versionNormalizer);
+        when(this.buildTypeAction.skipVerification(anyMapOf(String.class, String.class))).thenReturn(true);
+        when(this.git.getNormalizedTreeHash(Constants.HEAD, versionNormalizer)).thenReturn(normalizedTree);
+        when(this.git.revParse(Constants.HEAD)).thenReturn(HOTFIX_COMMIT);
+        when(this.gitflowPluginData.getOrAddRemoteBranch("hotfix/1.2")).thenReturn(this.remoteBranchHotfix);
+        when(this.remoteBranchHotfix.getLastVerifiedTreeHash()).thenReturn(VERIFIED_TREE);
+        when(this.remoteBranchHotfix.getLastVerifiedBuildNumber()).thenReturn(5);
+        when(this.build.getNumber()).thenReturn(42);
+    }
+
+    private GitflowProvenanceAction captureProvenanceAction() {
+        final ArgumentCaptor<GitflowProvenanceAction> provenanceActionCaptor = ArgumentCaptor.forClass(GitflowProvenanceAction.class);
+        verify(this.build).addAction(provenanceActionCaptor.capture());
+        return provenanceActionCaptor.getValue();
+    }
 }
@@ -0,0 +1,74 @@
+package de.silpion.jenkins.plugins.gitflow.action.buildtype;
+
+import static org.junit.Assert.assertTrue;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import hudson.Plugin;
+import hudson.model.BuildListener;
+import hudson.model.Descriptor;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Saveable;
+import hudson.model.StreamBuildListener;
+import hudson.plugins.gradle.Gradle;
+import hudson.tasks.Builder;
+import hudson.util.DescribableList;
+import hudson.util.NullStream;
+import jenkins.model.Jenkins;
+
+/**
+ * Unit tests for the {@link BuildTypeActionFactory} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+@PrepareForTest(Jenkins.class)
+@RunWith(PowerMockRunner.class)
+public class BuildTypeActionFactoryTest {
+
+    private final BuildListener listener = new StreamBuildListener(new NullStream());
+
+    private final Jenkins jenkins = mock(Jenkins.class);
+    private final FreeStyleBuild build = mock(FreeStyleBuild.class);
+    private final DescribableList<Builder, Descriptor<Builder>> builders = new DescribableList<Builder, Descriptor<Builder>>(Saveable.NOOP);
+
+    @Before
+    public void setUp() throws Exception {
+        mockStatic(Jenkins.class);
+        when(Jenkins.getInstance()).thenReturn(this.jenkins);
+
+        final FreeStyleProject project = mock(FreeStyleProject.class);
+        when(project.getBuildersList()).thenReturn(this.builders);
+        when(this.build.getProject()).thenReturn(project);
+    }
+
+    @Test
+    public void testNewInstanceForGradleBuild() throws Exception {
+        when(this.jenkins.getPlugin("gradle")).thenReturn(mock(Plugin.class));
+        this.builders.add(mock(Gradle.class));
+
+        assertTrue(BuildTypeActionFactory.newInstance(this.build, null, this.listener, "Test Release") instanceof GradleBuildTypeAction);
+    }
+
+    @Test
+    public void testNewInstanceForFreestyleBuild() throws Exception {
+        when(this.jenkins.getPlugin("gradle")).thenReturn(mock(Plugin.class));
+
+        assertTrue(BuildTypeActionFactory.newInstance(this.build, null, this.listener, "Test Release") instanceof UnknownBuildTypeAction);
+    }
+
+    @Test
+    public void testNewInstanceWithoutGradlePlugin() throws Exception {
+        this.builders.add(mock(Gradle.class));
+
+        // The Gradle build step isn't considered when the Gradle plugin isn't installed.
+        assertTrue(BuildTypeActionFactory.newInstance(this.build, null, this.listener, "Test Release") instanceof UnknownBuildTypeAction);
+    }
+}
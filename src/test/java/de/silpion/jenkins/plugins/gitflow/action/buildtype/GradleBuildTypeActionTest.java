@@ -0,0 +1,139 @@
+package de.silpion.jenkins.plugins.gitflow.action.buildtype;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.silpion.jenkins.plugins.gitflow.cause.AbstractGitflowCause;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.Descriptor;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Saveable;
+import hudson.model.StreamBuildListener;
+import hudson.plugins.gradle.Gradle;
+import hudson.tasks.Builder;
+import hudson.util.DescribableList;
+import hudson.util.NullStream;
+
+/**
+ * Unit tests for the {@link GradleBuildTypeAction} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+@PrepareForTest(AbstractBuild.class)
+@RunWith(PowerMockRunner.class)
+public class GradleBuildTypeActionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BuildListener listener = new StreamBuildListener(new NullStream());
+
+    private final FreeStyleBuild build = mock(FreeStyleBuild.class);
+    private final Gradle gradleBuilder = mock(Gradle.class);
+
+    private File workspace;
+    private GradleBuildTypeAction buildTypeAction;
+
+    @Before
+    public void setUp() throws Exception {
+        final FreeStyleProject project = mock(FreeStyleProject.class);
+        final DescribableList<Builder, Descriptor<Builder>> builders = new DescribableList<Builder, Descriptor<Builder>>(Saveable.NOOP);
+        builders.add(this.gradleBuilder);
+        when(project.getBuildersList()).thenReturn(builders);
+        when(this.build.getProject()).thenReturn(project);
+
+        this.workspace = this.folder.newFolder("workspace");
+        when(this.build.getWorkspace()).thenReturn(new FilePath(this.workspace));
+
+        this.buildTypeAction = new GradleBuildTypeAction(this.build, null, this.listener, "Test Release");
+    }
+
+    @Test
+    public void testIsGradleBuild() throws Exception {
+        assertTrue(GradleBuildTypeAction.isGradleBuild(this.build));
+    }
+
+    @Test
+    public void testGetVersionFilePaths() throws Exception {
+        assertEquals(Arrays.asList("gradle.properties", "build.gradle", "build.gradle.kts"), this.buildTypeAction.getVersionFilePaths());
+
+        when(this.gradleBuilder.getRootBuildScriptDir()).thenReturn("/app/");
+        when(this.gradleBuilder.getBuildFile()).thenReturn("release.gradle");
+        assertEquals(Arrays.asList("app/gradle.properties", "app/release.gradle"), this.buildTypeAction.getVersionFilePaths());
+    }
+
+    @Test
+    public void testUpdateVersion() throws Exception {
+        final File gradleProperties = new File(this.workspace, "gradle.properties");
+        FileUtils.writeStringToFile(gradleProperties, "group=org.example\nversion=1.2-SNAPSHOT\n", "UTF-8");
+        FileUtils.writeStringToFile(new File(this.workspace, "build.gradle"), "dependencies { compile 'org.other:library:1.2-SNAPSHOT' }\n", "UTF-8");
+        assertEquals("1.2-SNAPSHOT", this.buildTypeAction.getCurrentVersion());
+
+        // Only the version of the project is updated.
+        assertEquals(Arrays.asList("gradle.properties"), this.buildTypeAction.updateVersion("1.2.0"));
+        assertEquals("group=org.example\nversion=1.2.0\n", FileUtils.readFileToString(gradleProperties, "UTF-8"));
+        assertEquals("1.2.0", this.buildTypeAction.getCurrentVersion());
+    }
+
+    @Test
+    public void testPreventArchivePublication() throws Exception {
+        when(this.gradleBuilder.getSwitches()).thenReturn("--info --init-script ${GITFLOW_SKIP_PUBLICATION_INIT_SCRIPT}");
+
+        final Map<String, String> buildEnvVars = new HashMap<String, String>();
+        this.buildTypeAction.preventArchivePublication(buildEnvVars);
+
+        // The init script is provided outside of the workspace, so that it isn't committed.
+        final File initScript = new File(buildEnvVars.get(GradleBuildTypeAction.ENV_VAR_SKIP_PUBLICATION_INIT_SCRIPT));
+        assertEquals(new File(this.workspace.getPath() + "@tmp"), initScript.getParentFile());
+        assertThat(FileUtils.readFileToString(initScript, "UTF-8"), containsString("task.enabled = false"));
+        assertEquals("true", buildEnvVars.get("ORG_GRADLE_PROJECT_skipPublication"));
+    }
+
+    @Test
+    public void testPreventArchivePublicationWithoutInitScript() throws Exception {
+        when(this.gradleBuilder.getSwitches()).thenReturn("--info");
+
+        // The build must fail when the publishing tasks cannot be disabled.
+        try {
+            this.buildTypeAction.preventArchivePublication(new HashMap<String, String>());
+            fail("Dry Run must fail when the init script isn't applied by the Gradle build step.");
+        } catch (final IOException ioe) {
+            assertThat(ioe.getMessage(), containsString("--init-script ${GITFLOW_SKIP_PUBLICATION_INIT_SCRIPT}"));
+        }
+    }
+
+    @Test
+    public void testPreventArchivePublicationWithoutMainBuild() throws Exception {
+        final AbstractGitflowCause gitflowCause = mock(AbstractGitflowCause.class);
+        when(gitflowCause.isOmitMainBuild()).thenReturn(true);
+        when(this.build.getCause(AbstractGitflowCause.class)).thenReturn(gitflowCause);
+
+        // Nothing is published when the Gradle build step isn't executed.
+        final Map<String, String> buildEnvVars = new HashMap<String, String>();
+        this.buildTypeAction.preventArchivePublication(buildEnvVars);
+        assertTrue(buildEnvVars.isEmpty());
+    }
+}
@@ -0,0 +1,72 @@
+package de.silpion.jenkins.plugins.gitflow.action.buildtype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link GradleVersionRewriter} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GradleVersionRewriterTest {
+
+    private static final String GRADLE_PROPERTIES = "# version=0.1\r\n"
+                                                    + "group=de.example\r\n"
+                                                    + "version = 1.0-SNAPSHOT\r\n"
+                                                    + "versionCode=7\r\n";
+
+    private static final String BUILD_GRADLE = "plugins {\n"
+                                               + "    id 'org.example.plugin' version '2.1'\n"
+                                               + "}\n"
+                                               + "version = '1.0-SNAPSHOT'\n"
+                                               + "allprojects {\n"
+                                               + "    version \"1.0-SNAPSHOT\"\n"
+                                               + "}\n"
+                                               + "project.version = \"${baseVersion}-SNAPSHOT\"\n"
+                                               + "jacoco {\n"
+                                               + "    toolVersion = '0.7.9'\n"
+                                               + "}\n";
+
+    private final GradleVersionRewriter rewriter = new GradleVersionRewriter(Arrays.asList("gradle.properties", "build.gradle"), "1.1-SNAPSHOT");
+
+    @Test
+    public void testRewriteGradleProperties() throws Exception {
+        final byte[] rewrittenProperties = this.rewriter.rewrite("gradle.properties", GRADLE_PROPERTIES.getBytes("ISO-8859-1"));
+
+        assertEquals(GRADLE_PROPERTIES.replace("version = 1.0-SNAPSHOT", "version = 1.1-SNAPSHOT"), new String(rewrittenProperties, "ISO-8859-1"));
+    }
+
+    @Test
+    public void testRewriteBuildScript() throws Exception {
+        final byte[] rewrittenScript = this.rewriter.rewrite("build.gradle", BUILD_GRADLE.getBytes("UTF-8"));
+
+        final String expectedScript = BUILD_GRADLE.replace("version = '1.0-SNAPSHOT'", "version = '1.1-SNAPSHOT'")
+                                                  .replace("version \"1.0-SNAPSHOT\"", "version \"1.1-SNAPSHOT\"");
+        assertEquals(expectedScript, new String(rewrittenScript, "UTF-8"));
+    }
+
+    @Test
+    public void testRewriteKotlinBuildScript() throws Exception {
+        final String script = "plugins {\n    kotlin(\"jvm\") version \"1.3.0\"\n}\nversion = \"1.0-SNAPSHOT\"\n";
+        final byte[] rewrittenScript = this.rewriter.rewrite("build.gradle.kts", script.getBytes("UTF-8"));
+
+        assertEquals(script.replace("version = \"1.0-SNAPSHOT\"", "version = \"1.1-SNAPSHOT\""), new String(rewrittenScript, "UTF-8"));
+    }
+
+    @Test
+    public void testRewriteUnchanged() throws Exception {
+        assertNull(this.rewriter.rewrite("build.gradle", "version = '1.1-SNAPSHOT'\n".getBytes("UTF-8")));
+        assertNull(this.rewriter.rewrite("build.gradle", "apply plugin: 'java'\n".getBytes("UTF-8")));
+    }
+
+    @Test
+    public void testGetVersion() throws Exception {
+        assertEquals("1.0-SNAPSHOT", GradleVersionRewriter.getVersion("gradle.properties", GRADLE_PROPERTIES.getBytes("ISO-8859-1")));
+        assertEquals("1.0-SNAPSHOT", GradleVersionRewriter.getVersion("build.gradle", BUILD_GRADLE.getBytes("UTF-8")));
+        assertNull(GradleVersionRewriter.getVersion("build.gradle", "apply plugin: 'java'\n".getBytes("UTF-8")));
+    }
+}
@@ -0,0 +1,69 @@
+package de.silpion.jenkins.plugins.gitflow.action.buildtype;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link MavenBuildTypeAction} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class MavenBuildTypeActionTest {
+
+    private final Map<String, Set<String>> relatedModules = new HashMap<String, Set<String>>();
+    private final Map<String, String> versionParents = new HashMap<String, String>();
+
+    @Test
+    public void testAddAffectedModulesOfChangedChild() throws Exception {
+        this.createReactor();
+
+        // The parent gets the new version of the changed child, but the sibling that inherits from the parent isn't affected.
+        assertEquals(modules("app", "child", "parent", "root"), this.addAffectedModules("child"));
+    }
+
+    @Test
+    public void testAddAffectedModulesOfChangedParent() throws Exception {
+        this.createReactor();
+
+        // The modules inheriting from a changed parent are affected - and the modules depending on them.
+        assertEquals(modules("app", "child", "parent", "root", "sibling"), this.addAffectedModules("parent"));
+    }
+
+    @Test
+    public void testAddAffectedModulesOfChangedDependent() throws Exception {
+        this.createReactor();
+
+        assertEquals(modules("app"), this.addAffectedModules("app"));
+    }
+
+    /**
+     * Creates a reactor where {@code child} and {@code sibling} inherit their versions from {@code parent}, which inherits its
+     * version from {@code root}. The {@code app} declares its own version and depends on {@code child}.
+     */
+    private void createReactor() {
+        this.relatedModules.put("root", modules("parent"));
+        this.relatedModules.put("parent", modules("child", "sibling"));
+        this.relatedModules.put("child", modules("app"));
+        this.versionParents.put("parent", "root");
+        this.versionParents.put("child", "parent");
+        this.versionParents.put("sibling", "parent");
+    }
+
+    private Set<String> addAffectedModules(final String... changedModules) {
+        final Set<String> buildModules = new TreeSet<String>(Arrays.asList(changedModules));
+        MavenBuildTypeAction.addAffectedModules(buildModules, this.relatedModules, this.versionParents);
+        return buildModules;
+    }
+
+    private static Set<String> modules(final String... modules) {
+        return new HashSet<String>(Arrays.asList(modules));
+    }
+}
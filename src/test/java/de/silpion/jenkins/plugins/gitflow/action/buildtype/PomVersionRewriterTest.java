@@ -0,0 +1,170 @@
+package de.silpion.jenkins.plugins.gitflow.action.buildtype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PomVersionRewriter} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class PomVersionRewriterTest {
+
+    private static final String POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                                      + "<!-- <version>1.0-SNAPSHOT</version> -->\n"
+                                      + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                                      + "  <parent>\n"
+                                      + "    <groupId>de.example</groupId>\n"
+                                      + "    <artifactId>parent</artifactId>\n"
+                                      + "    <version> 1.0-SNAPSHOT </version>\n"
+                                      + "  </parent>\n"
+                                      + "  <artifactId>module</artifactId>\n"
+                                      + "  <version>1.0-SNAPSHOT</version>\n"
+                                      + "  <dependencies>\n"
+                                      + "    <dependency>\n"
+                                      + "      <groupId>de.example</groupId>\n"
+                                      + "      <artifactId>other</artifactId>\n"
+                                      + "      <version>1.0-SNAPSHOT</version>\n"
+                                      + "    </dependency>\n"
+                                      + "    <dependency>\n"
+                                      + "      <groupId>de.example</groupId>\n"
+                                      + "      <artifactId>sibling</artifactId>\n"
+                                      + "      <version>${project.version}</version>\n"
+                                      + "    </dependency>\n"
+                                      + "    <dependency>\n"
+                                      + "      <groupId>org.external</groupId>\n"
+                                      + "      <artifactId>library</artifactId>\n"
+                                      + "      <version>1.0-SNAPSHOT</version>\n"
+                                      + "    </dependency>\n"
+                                      + "  </dependencies>\n"
+                                      + "  <build><plugins><plugin><artifactId>x</artifactId><version>2.1</version></plugin></plugins></build>\n"
+                                      + "</project>\n";
+
+    @Test
+    public void testRewritePom() throws Exception {
+        final String rewrittenPom = this.createRewriter().rewritePom(POM);
+
+        final String expectedPom = POM.replace("<version> 1.0-SNAPSHOT </version>", "<version> 1.1-SNAPSHOT </version>")
+                                      .replace("<artifactId>module</artifactId>\n  <version>1.0-SNAPSHOT</version>",
+                                               "<artifactId>module</artifactId>\n  <version>1.1-SNAPSHOT</version>")
+                                      .replace("<artifactId>other</artifactId>\n      <version>1.0-SNAPSHOT</version>",
+                                               "<artifactId>other</artifactId>\n      <version>1.1-SNAPSHOT</version>");
+        assertEquals(expectedPom, rewrittenPom);
+    }
+
+    @Test
+    public void testPrepareWithCurrentVersions() throws Exception {
+
+        // The reactor versions are outdated (e.g. the POMs have been updated since they were parsed by Jenkins).
+        final Map<String, String> outdatedReactorVersions = new HashMap<String, String>();
+        outdatedReactorVersions.put("de.example:parent", "0.9-SNAPSHOT");
+        outdatedReactorVersions.put("de.example:module", "0.9-SNAPSHOT");
+        outdatedReactorVersions.put("de.example:other", "0.9-SNAPSHOT");
+        final PomVersionRewriter rewriter = new PomVersionRewriter(Collections.singletonList("pom.xml"), outdatedReactorVersions, "1.1-SNAPSHOT");
+
+        // The dependency on 'other' is only rewritten with the current version from the POM of that module.
+        assertEquals(POM.replace("<version> 1.0-SNAPSHOT </version>", "<version> 1.1-SNAPSHOT </version>")
+                        .replace("<artifactId>module</artifactId>\n  <version>1.0-SNAPSHOT</version>", "<artifactId>module</artifactId>\n  <version>1.1-SNAPSHOT</version>"),
+                     rewriter.rewritePom(POM));
+
+        final Map<String, byte[]> contents = new HashMap<String, byte[]>();
+        contents.put("pom.xml", POM.getBytes("UTF-8"));
+        contents.put("other/pom.xml", ("<project><parent><groupId>de.example</groupId><artifactId>parent</artifactId><version>1.0-SNAPSHOT</version></parent>"
+                                       + "<artifactId>other</artifactId></project>").getBytes("UTF-8"));
+        assertEquals(this.createRewriter().rewritePom(POM), rewriter.prepare(contents).rewritePom(POM));
+    }
+
+    @Test
+    public void testRewriteExternalParent() throws Exception {
+        final String pom = "<project><parent><groupId>org.external</groupId><artifactId>parent</artifactId><version>5</version></parent>"
+                           + "<artifactId>module</artifactId></project>";
+        assertEquals(pom, this.createRewriter().rewritePom(pom));
+    }
+
+    @Test
+    public void testRewriteUnchanged() throws Exception {
+        final PomVersionRewriter rewriter = new PomVersionRewriter(Collections.singletonList("pom.xml"), this.createReactorVersions(), "1.0-SNAPSHOT");
+        assertNull(rewriter.rewrite("pom.xml", POM.getBytes("UTF-8")));
+    }
+
+    @Test
+    public void testRewriteModuleVersions() throws Exception {
+        final Map<String, String> newModuleVersions = new HashMap<String, String>();
+        newModuleVersions.put("de.example:module", "1.0.2");
+        newModuleVersions.put("de.example:parent", "1.0.1");
+        final PomVersionRewriter rewriter = new PomVersionRewriter(Collections.singletonMap("module/pom.xml", "de.example:module"),
+                                                                   this.createReactorVersions(), newModuleVersions);
+
+        // The dependency on the module without a new version is left untouched.
+        final String expectedPom = POM.replace("<version> 1.0-SNAPSHOT </version>", "<version> 1.0.1 </version>")
+                                      .replace("<artifactId>module</artifactId>\n  <version>1.0-SNAPSHOT</version>",
+                                               "<artifactId>module</artifactId>\n  <version>1.0.2</version>");
+        assertEquals(expectedPom, new String(rewriter.rewrite("module/pom.xml", POM.getBytes("UTF-8")), "UTF-8"));
+    }
+
+    @Test
+    public void testRewriteModuleVersionsOfInheritingModules() throws Exception {
+        final Map<String, String> pomModules = new HashMap<String, String>();
+        pomModules.put("changed/pom.xml", "de.example:changed");
+        pomModules.put("unchanged/pom.xml", "de.example:unchanged");
+        final Map<String, String> newModuleVersions = new HashMap<String, String>();
+        newModuleVersions.put("de.example:parent", "1.0.1");
+        newModuleVersions.put("de.example:changed", "1.0.1");
+        newModuleVersions.put("de.example:unchanged", "1.0.0");
+        final PomVersionRewriter rewriter = new PomVersionRewriter(pomModules, this.createReactorVersions(), newModuleVersions);
+
+        // The parent is only built for the changed module - the unchanged module keeps referring to the released parent.
+        final String pom = "<project><parent><groupId>de.example</groupId><artifactId>parent</artifactId><version>1.0-SNAPSHOT</version></parent>"
+                           + "<artifactId>%s</artifactId></project>";
+        assertEquals(String.format(pom, "changed").replace("1.0-SNAPSHOT", "1.0.1"),
+                     new String(rewriter.rewrite("changed/pom.xml", String.format(pom, "changed").getBytes("UTF-8")), "UTF-8"));
+        assertEquals(String.format(pom, "unchanged").replace("1.0-SNAPSHOT", "1.0.0"),
+                     new String(rewriter.rewrite("unchanged/pom.xml", String.format(pom, "unchanged").getBytes("UTF-8")), "UTF-8"));
+    }
+
+    @Test
+    public void testVersionNormalizer() throws Exception {
+        final PomVersionRewriter normalizer = PomVersionRewriter.newVersionNormalizer(Collections.singletonList("pom.xml"),
+                                                                                      this.createReactorVersions().keySet(), "@v@");
+
+        // The versions of the reactor dependencies are normalised even if they don't match the current versions.
+        final String pom = POM.replace("<artifactId>other</artifactId>\n      <version>1.0-SNAPSHOT</version>",
+                                       "<artifactId>other</artifactId>\n      <version>0.9</version>");
+        final String expectedPom = POM.replace("<version> 1.0-SNAPSHOT </version>", "<version> @v@ </version>")
+                                      .replace("<artifactId>module</artifactId>\n  <version>1.0-SNAPSHOT</version>",
+                                               "<artifactId>module</artifactId>\n  <version>@v@</version>")
+                                      .replace("<artifactId>other</artifactId>\n      <version>1.0-SNAPSHOT</version>",
+                                               "<artifactId>other</artifactId>\n      <version>@v@</version>");
+        assertEquals(expectedPom, normalizer.rewritePom(pom));
+    }
+
+    @Test
+    public void testProjectVersionAndVersionParent() throws Exception {
+        assertEquals("1.0-SNAPSHOT", PomVersionRewriter.getProjectVersion(POM.getBytes("UTF-8")));
+        assertNull(PomVersionRewriter.getVersionParent(POM.getBytes("UTF-8")));
+
+        final byte[] inheritingPom = ("<project><parent><groupId>de.example</groupId><artifactId>parent</artifactId><version>1.0.1</version></parent>"
+                                      + "<artifactId>child</artifactId></project>").getBytes("UTF-8");
+        assertEquals("1.0.1", PomVersionRewriter.getProjectVersion(inheritingPom));
+        assertEquals("de.example:parent", PomVersionRewriter.getVersionParent(inheritingPom));
+    }
+
+    private PomVersionRewriter createRewriter() {
+        return new PomVersionRewriter(Collections.singletonList("pom.xml"), this.createReactorVersions(), "1.1-SNAPSHOT");
+    }
+
+    private Map<String, String> createReactorVersions() {
+        final Map<String, String> reactorVersions = new HashMap<String, String>();
+        reactorVersions.put("de.example:parent", "1.0-SNAPSHOT");
+        reactorVersions.put("de.example:module", "1.0-SNAPSHOT");
+        reactorVersions.put("de.example:other", "1.0-SNAPSHOT");
+        reactorVersions.put("de.example:sibling", "1.0-SNAPSHOT");
+        return reactorVersions;
+    }
+}
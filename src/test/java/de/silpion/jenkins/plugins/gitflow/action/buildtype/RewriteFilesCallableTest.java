@@ -0,0 +1,64 @@
+package de.silpion.jenkins.plugins.gitflow.action.buildtype;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the {@link RewriteFilesCallable} and {@link MavenBuildTypeAction.VersionParentsCallable} classes.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class RewriteFilesCallableTest {
+
+    private static final String ROOT_POM = "<project><groupId>de.example</groupId><artifactId>root</artifactId><version>1.0-SNAPSHOT</version></project>";
+    private static final String CHILD_POM = "<project><parent><groupId>de.example</groupId><artifactId>root</artifactId><version>1.0-SNAPSHOT</version></parent>"
+                                            + "<artifactId>child</artifactId></project>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRewriteFiles() throws Exception {
+        final File workspace = this.createWorkspace();
+        final Map<String, String> reactorVersions = new HashMap<String, String>();
+        reactorVersions.put("de.example:root", "1.0-SNAPSHOT");
+        reactorVersions.put("de.example:child", "1.0-SNAPSHOT");
+        final PomVersionRewriter rewriter = new PomVersionRewriter(Arrays.asList("pom.xml", "child/pom.xml", "missing/pom.xml"),
+                                                                   reactorVersions, "1.0");
+
+        // Only the modified files are returned - missing files are ignored.
+        assertEquals(Arrays.asList("pom.xml", "child/pom.xml"), new RewriteFilesCallable(rewriter).invoke(workspace, null));
+        assertEquals(ROOT_POM.replace("1.0-SNAPSHOT", "1.0"), FileUtils.readFileToString(new File(workspace, "pom.xml"), "UTF-8"));
+        assertEquals(CHILD_POM.replace("1.0-SNAPSHOT", "1.0"), FileUtils.readFileToString(new File(workspace, "child/pom.xml"), "UTF-8"));
+
+        // Unchanged files are neither written nor returned.
+        final PomVersionRewriter unchangedRewriter = new PomVersionRewriter(Collections.singletonList("pom.xml"), reactorVersions, "1.0");
+        assertEquals(Collections.emptyList(), new RewriteFilesCallable(unchangedRewriter).invoke(workspace, null));
+    }
+
+    @Test
+    public void testVersionParents() throws Exception {
+        final File workspace = this.createWorkspace();
+
+        final Map<String, String> versionParents = new MavenBuildTypeAction.VersionParentsCallable(Arrays.asList("pom.xml", "child/pom.xml", "missing/pom.xml"))
+                .invoke(workspace, null);
+        assertEquals(Collections.singletonMap("child/pom.xml", "de.example:root"), versionParents);
+    }
+
+    private File createWorkspace() throws Exception {
+        final File workspace = this.folder.newFolder("workspace");
+        FileUtils.writeStringToFile(new File(workspace, "pom.xml"), ROOT_POM, "UTF-8");
+        FileUtils.writeStringToFile(new File(workspace, "child/pom.xml"), CHILD_POM, "UTF-8");
+        return workspace;
+    }
+}
@@ -0,0 +1,82 @@
+package de.silpion.jenkins.plugins.gitflow.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.model.AbstractProject;
+
+/**
+ * Unit tests for the {@link GitflowCommitLedger} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitflowCommitLedgerTest {
+
+    private static final ObjectId COMMIT_1 = ObjectId.fromString("1111111111111111111111111111111111111111");
+    private static final ObjectId COMMIT_2 = ObjectId.fromString("2222222222222222222222222222222222222222");
+    private static final ObjectId COMMIT_3 = ObjectId.fromString("3333333333333333333333333333333333333333");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AbstractProject<?, ?> job;
+
+    @Before
+    public void setUp() throws Exception {
+        this.job = mock(AbstractProject.class);
+        when(this.job.getRootDir()).thenReturn(this.folder.newFolder("job"));
+    }
+
+    @Test
+    public void testRecordAndGet() throws Exception {
+        GitflowCommitLedger.record(this.job, "develop", COMMIT_1, 7, true);
+        GitflowCommitLedger.record(this.job, "master", COMMIT_2, 7, false);
+
+        final GitflowCommitLedger.Entry entry = GitflowCommitLedger.get(this.job, COMMIT_1.getName());
+        assertNotNull(entry);
+        assertEquals(COMMIT_1, entry.getCommit());
+        assertEquals("develop", entry.getBranch());
+        assertEquals(7, entry.getBuildNumber());
+        assertTrue(entry.isVersionUpdate());
+        assertFalse(GitflowCommitLedger.get(this.job, COMMIT_2.getName()).isVersionUpdate());
+
+        assertNull(GitflowCommitLedger.get(this.job, COMMIT_3.getName()));
+        assertNull(GitflowCommitLedger.get(this.job, null));
+    }
+
+    @Test
+    public void testGetLatestEntriesByBranch() throws Exception {
+        GitflowCommitLedger.record(this.job, "develop", COMMIT_1, 7, true);
+        GitflowCommitLedger.record(this.job, "master", COMMIT_2, 8, false);
+        GitflowCommitLedger.record(this.job, "develop", COMMIT_3, 9, true);
+
+        final Map<String, GitflowCommitLedger.Entry> latestEntries = GitflowCommitLedger.getLatestEntriesByBranch(this.job);
+        assertEquals(2, latestEntries.size());
+        assertEquals(COMMIT_3, latestEntries.get("develop").getCommit());
+        assertEquals(COMMIT_2, latestEntries.get("master").getCommit());
+    }
+
+    @Test
+    public void testEvictOldestEntries() throws Exception {
+        for (int i = 0; i <= GitflowCommitLedger.MAX_ENTRIES; i++) {
+            GitflowCommitLedger.record(this.job, "develop", ObjectId.fromString(String.format("%040x", i + 1)), i, true);
+        }
+
+        assertNull(GitflowCommitLedger.get(this.job, String.format("%040x", 1)));
+        assertNotNull(GitflowCommitLedger.get(this.job, String.format("%040x", 2)));
+        assertEquals(GitflowCommitLedger.MAX_ENTRIES, GitflowCommitLedger.getLatestEntriesByBranch(this.job).get("develop").getBuildNumber());
+    }
+}
@@ -2,8 +2,15 @@ package de.silpion.jenkins.plugins.gitflow.data;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -11,7 +18,9 @@ import java.util.Map;
 
 import org.junit.Test;
 
+import hudson.model.Job;
 import hudson.model.Result;
+import hudson.model.Run;
 
 /**
  * Unit tests for the {@link GitflowPluginData} class.
@@ -25,13 +34,12 @@ public class GitflowPluginDataTest {
 
         // Prepare test data.
         final GitflowPluginData gitflowPluginData = new GitflowPluginData();
-        final List<RemoteBranch> remoteBranches = gitflowPluginData.getRemoteBranches();
-        remoteBranches.add(this.createRemoteBranch("success", Result.SUCCESS));
-        remoteBranches.add(this.createRemoteBranch("unstable", Result.UNSTABLE));
-        remoteBranches.add(this.createRemoteBranch("failure", Result.FAILURE));
-        remoteBranches.add(this.createRemoteBranch("aborted", Result.ABORTED));
-        remoteBranches.add(this.createRemoteBranch("not-built", Result.NOT_BUILT));
-        remoteBranches.add(this.createRemoteBranch("null", null));
+        this.addRemoteBranch(gitflowPluginData, "success", Result.SUCCESS);
+        this.addRemoteBranch(gitflowPluginData, "unstable", Result.UNSTABLE);
+        this.addRemoteBranch(gitflowPluginData, "failure", Result.FAILURE);
+        this.addRemoteBranch(gitflowPluginData, "aborted", Result.ABORTED);
+        this.addRemoteBranch(gitflowPluginData, "not-built", Result.NOT_BUILT);
+        this.addRemoteBranch(gitflowPluginData, "null", null);
 
         // Execute the method and verify the results.
         final Iterator<Map.Entry<Result, Collection<RemoteBranch>>> unstableRemoteBranchesGroupedByResultIterator = gitflowPluginData.getUnstableRemoteBranchesGroupedByResult().entrySet().iterator();
@@ -46,10 +54,120 @@ public class GitflowPluginDataTest {
         assertFalse(unstableRemoteBranchesGroupedByResultIterator.hasNext());
     }
 
-    private RemoteBranch createRemoteBranch(final String branchName, final Result lastBuildResult) {
-        final RemoteBranch remoteBranch = new RemoteBranch(branchName);
-        remoteBranch.setLastBuildResult(lastBuildResult);
-        return remoteBranch;
+    @Test
+    public void testRemoteBranchesStaySortedAndIndexed() throws Exception {
+
+        // Prepare test data.
+        final GitflowPluginData gitflowPluginData = new GitflowPluginData();
+        this.addRemoteBranch(gitflowPluginData, "release/1.1", Result.SUCCESS);
+        this.addRemoteBranch(gitflowPluginData, "develop", Result.SUCCESS);
+        this.addRemoteBranch(gitflowPluginData, "master", Result.SUCCESS);
+        this.addRemoteBranch(gitflowPluginData, "hotfix/1.0", Result.FAILURE);
+
+        // Verify the sort order and the lookup.
+        assertEquals(Arrays.asList("develop", "hotfix/1.0", "master", "release/1.1"), this.getBranchNames(gitflowPluginData.getRemoteBranches()));
+        assertSame(gitflowPluginData.getRemoteBranch("master"), gitflowPluginData.getOrAddRemoteBranch("master"));
+        assertEquals(Result.FAILURE, gitflowPluginData.getRemoteBranch("hotfix/1.0").getLastBuildResult());
+        assertNull(gitflowPluginData.getRemoteBranch("feature/x"));
+
+        // Remove branches and verify that the remaining branches are still sorted and found.
+        gitflowPluginData.removeRemoteBranches(Arrays.asList(new RemoteBranch("hotfix/1.0"), new RemoteBranch("develop")), false);
+        assertEquals(Arrays.asList("master", "release/1.1"), this.getBranchNames(gitflowPluginData.getRemoteBranches()));
+        assertNull(gitflowPluginData.getRemoteBranch("develop"));
+        assertNotNull(gitflowPluginData.getRemoteBranch("release/1.1"));
+
+        // The clone must have its own index.
+        final GitflowPluginData clone = gitflowPluginData.clone();
+        clone.getOrAddRemoteBranch("feature/x");
+        assertNotNull(clone.getRemoteBranch("feature/x"));
+        assertNull(gitflowPluginData.getRemoteBranch("feature/x"));
+        assertEquals(Arrays.asList("feature/x", "master", "release/1.1"), this.getBranchNames(clone.getRemoteBranches()));
+    }
+
+    @Test
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testPersistDeltaAgainstCheckpoint() throws Exception {
+
+        // Prepare the checkpoint data.
+        final Run checkpointBuild = mock(Run.class);
+        when(checkpointBuild.getNumber()).thenReturn(1);
+        final GitflowPluginData checkpoint = new GitflowPluginData();
+        checkpoint.trackDeltaAgainst(1, null);
+        checkpoint.onAttached(checkpointBuild);
+        this.addRemoteBranch(checkpoint, "develop", Result.SUCCESS);
+        this.addRemoteBranch(checkpoint, "master", Result.SUCCESS);
+        this.addRemoteBranch(checkpoint, "release/1.0", Result.SUCCESS);
+        assertSame(checkpoint, checkpoint.writeReplace());
+
+        // Prepare the data of a subsequent build that changes, adds and removes a branch.
+        final Run deltaBuild = mock(Run.class);
+        when(deltaBuild.getNumber()).thenReturn(2);
+        final GitflowPluginData gitflowPluginData = checkpoint.clone();
+        gitflowPluginData.trackDeltaAgainst(2, checkpoint);
+        gitflowPluginData.onAttached(deltaBuild);
+        this.addRemoteBranch(gitflowPluginData, "develop", Result.UNSTABLE);
+        this.addRemoteBranch(gitflowPluginData, "release/1.1", Result.SUCCESS);
+        gitflowPluginData.removeRemoteBranch(gitflowPluginData.getRemoteBranch("release/1.0"), false);
+        assertEquals(Integer.valueOf(1), gitflowPluginData.getCheckpointBuildNumber());
+
+        // Only the changed branches are persisted.
+        final GitflowPluginData delta = (GitflowPluginData) gitflowPluginData.writeReplace();
+        assertEquals(Arrays.asList("develop", "release/1.1"), this.getBranchNames(delta.getRemoteBranches()));
+
+        // The full view is rebuilt from the checkpoint when the delta is loaded.
+        final Job job = mock(Job.class);
+        when(deltaBuild.getParent()).thenReturn(job);
+        when(job.getBuildByNumber(1)).thenReturn(checkpointBuild);
+        when(checkpointBuild.getAction(GitflowPluginData.class)).thenReturn(checkpoint);
+        delta.onLoad(deltaBuild);
+        assertEquals(Arrays.asList("develop", "master", "release/1.1"), this.getBranchNames(delta.getRemoteBranches()));
+        assertEquals(Result.UNSTABLE, delta.getRemoteBranch("develop").getLastBuildResult());
+    }
+
+    @Test
+    public void testMergeChangesInto() throws Exception {
+
+        // Prepare the data two concurrent builds start with.
+        final GitflowPluginData startData = new GitflowPluginData();
+        this.addRemoteBranch(startData, "develop", Result.SUCCESS);
+        this.addRemoteBranch(startData, "hotfix/1.3", Result.SUCCESS);
+        this.addRemoteBranch(startData, "release/1.4", Result.SUCCESS);
+        final GitflowPluginData data1 = startData.clone();
+        data1.recordStartState(startData);
+        final GitflowPluginData data2 = startData.clone();
+        data2.recordStartState(startData);
+
+        // The builds change, add and remove different branches. The first build completes first.
+        this.addRemoteBranch(data1, "release/1.4", Result.UNSTABLE);
+        this.addRemoteBranch(data1, "release/1.5", Result.SUCCESS);
+        this.addRemoteBranch(data2, "hotfix/1.3", Result.FAILURE);
+        data2.removeRemoteBranch(data2.getRemoteBranch("develop"), false);
+        final GitflowPluginData latestData = data1.mergeChangesInto(startData);
+
+        // The changes of the first build are retained when the second build completes.
+        final GitflowPluginData mergedData = data2.mergeChangesInto(latestData);
+        assertEquals(Arrays.asList("hotfix/1.3", "release/1.4", "release/1.5"), this.getBranchNames(mergedData.getRemoteBranches()));
+        assertEquals(Result.FAILURE, mergedData.getRemoteBranch("hotfix/1.3").getLastBuildResult());
+        assertEquals(Result.UNSTABLE, mergedData.getRemoteBranch("release/1.4").getLastBuildResult());
+        assertEquals(Result.SUCCESS, mergedData.getRemoteBranch("release/1.5").getLastBuildResult());
+        assertEquals(Result.SUCCESS, latestData.getRemoteBranch("hotfix/1.3").getLastBuildResult());
+
+        // Data without a recorded start state cannot be merged.
+        final GitflowPluginData unmergeableData = startData.clone();
+        assertFalse(unmergeableData.isMergeable());
+        assertSame(unmergeableData, unmergeableData.mergeChangesInto(latestData));
+    }
+
+    private void addRemoteBranch(final GitflowPluginData gitflowPluginData, final String branchName, final Result lastBuildResult) {
+        gitflowPluginData.getOrAddRemoteBranch(branchName).setLastBuildResult(lastBuildResult);
+    }
+
+    private List<String> getBranchNames(final List<RemoteBranch> remoteBranches) {
+        final List<String> branchNames = new ArrayList<String>(remoteBranches.size());
+        for (final RemoteBranch remoteBranch : remoteBranches) {
+            branchNames.add(remoteBranch.getBranchName());
+        }
+        return branchNames;
     }
 
     private void assertRemoteBranchesGroupedByResultEntry(final Map.Entry<Result, Collection<RemoteBranch>> assertEntry, final Result expectedResult, final int expectedNumberOfRemoteBranches) {
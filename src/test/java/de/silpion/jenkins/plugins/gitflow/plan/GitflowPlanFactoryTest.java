@@ -0,0 +1,183 @@
+package de.silpion.jenkins.plugins.gitflow.plan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.silpion.jenkins.plugins.gitflow.AbstractGitflowPluginTest;
+import de.silpion.jenkins.plugins.gitflow.GitflowBuildWrapper;
+import de.silpion.jenkins.plugins.gitflow.cause.FinishReleaseCause;
+import de.silpion.jenkins.plugins.gitflow.cause.StartReleaseCause;
+import de.silpion.jenkins.plugins.gitflow.cause.TestReleaseCause;
+import de.silpion.jenkins.plugins.gitflow.data.GitflowPluginData;
+import de.silpion.jenkins.plugins.gitflow.data.RemoteBranch;
+import de.silpion.jenkins.plugins.gitflow.proxy.gitclient.RemoteRefSnapshot;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import hudson.model.AbstractProject;
+import hudson.model.Descriptor;
+import hudson.model.Label;
+
+/**
+ * Unit tests for the {@link GitflowPlanFactory} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+@RunWith(PowerMockRunner.class)
+public class GitflowPlanFactoryTest extends AbstractGitflowPluginTest {
+
+    private static final ObjectId DEVELOP_HEAD = ObjectId.fromString("1111111111111111111111111111111111111111");
+    private static final ObjectId RELEASE_HEAD = ObjectId.fromString("2222222222222222222222222222222222222222");
+
+    @Mock
+    private GitflowBuildWrapper.DescriptorImpl gitflowBuildWrapperDescriptor;
+
+    @Mock
+    private AbstractProject<?, ?> job;
+
+    private GitflowPluginData gitflowPluginData;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        when(this.gitflowBuildWrapperDescriptor.getDevelopBranch()).thenReturn("develop");
+        when(this.gitflowBuildWrapperDescriptor.getMasterBranch()).thenReturn("master");
+        when(this.gitflowBuildWrapperDescriptor.getReleaseBranchPrefix()).thenReturn("release/");
+        when(this.gitflowBuildWrapperDescriptor.getVersionTagPrefix()).thenReturn("v");
+        when(this.gitflowBuildWrapperDescriptor.getBranchType("develop")).thenReturn("develop");
+        when(this.gitflowBuildWrapperDescriptor.getBranchType("release/1.2")).thenReturn("release");
+
+        this.gitflowPluginData = new GitflowPluginData();
+        this.gitflowPluginData.getOrAddRemoteBranch("develop").setLastBuildVersion("1.2-SNAPSHOT");
+        this.gitflowPluginData.getOrAddRemoteBranch("release/1.2").setLastBuildVersion("1.2.1-SNAPSHOT");
+    }
+
+    @Override
+    protected Descriptor<?> getGitflowBuildWrapperDescriptor() {
+        return this.gitflowBuildWrapperDescriptor;
+    }
+
+    @Test
+    public void testStartReleasePlan() throws Exception {
+        final StartReleaseCause startReleaseCause = new StartReleaseCause(this.gitflowPluginData.getRemoteBranch("develop"));
+        final Map<String, ObjectId> remoteHeads = new HashMap<String, ObjectId>();
+        remoteHeads.put("refs/heads/develop", DEVELOP_HEAD);
+
+        final GitflowPlan plan = GitflowPlanFactory.newInstance(this.job, startReleaseCause, this.gitflowPluginData, new RemoteRefSnapshot(remoteHeads));
+
+        assertEquals("Start Release", plan.getActionName());
+        assertEquals(Collections.emptyList(), plan.getWarnings());
+        assertEquals(Arrays.asList("Branch: Create branch release/1.2 from origin/develop (1111111)",
+                                   "Version: release/1.2: 1.2-SNAPSHOT -> 1.2.0",
+                                   "Build: Release main build of release/1.2",
+                                   "Tag: Create tag v1.2.0",
+                                   "Version: release/1.2: 1.2.0 -> 1.2.1-SNAPSHOT",
+                                   "Version: develop: 1.2-SNAPSHOT -> 1.3.0-SNAPSHOT",
+                                   "Push: refs/tags/v1.2.0, refs/heads/release/1.2, refs/heads/develop",
+                                   "Record: release/1.2: version 1.2.1-SNAPSHOT, release 1.2.0",
+                                   "Record: develop: version 1.3.0-SNAPSHOT"), toStrings(plan.getSteps()));
+
+        // Tagging and updating the versions only happens after a successful main build.
+        assertFalse(plan.getSteps().get(2).isAfterSuccessfulMainBuild());
+        assertTrue(plan.getSteps().get(3).isAfterSuccessfulMainBuild());
+    }
+
+    @Test
+    public void testTestReleasePlanOnDryRun() throws Exception {
+        final TestReleaseCause testReleaseCause = new TestReleaseCause(this.gitflowPluginData.getRemoteBranch("release/1.2"));
+        testReleaseCause.setDryRun(true);
+        final Map<String, ObjectId> remoteHeads = new HashMap<String, ObjectId>();
+        remoteHeads.put("refs/heads/release/1.2", RELEASE_HEAD);
+
+        final GitflowPlan plan = GitflowPlanFactory.newInstance(this.job, testReleaseCause, this.gitflowPluginData, new RemoteRefSnapshot(remoteHeads));
+
+        assertTrue(plan.isDryRun());
+        for (final GitflowPlan.Step step : plan.getSteps()) {
+            final boolean pushOrRecord = step.getKind() == GitflowPlan.StepKind.PUSH || step.getKind() == GitflowPlan.StepKind.RECORD;
+            assertEquals(step.toString(), pushOrRecord, step.isSkipped());
+        }
+        assertEquals("Branch: Check out origin/release/1.2 (2222222)", plan.getSteps().get(0).toString());
+        assertEquals("Version: release/1.2: 1.2.1-SNAPSHOT -> 1.2.1", plan.getSteps().get(1).toString());
+    }
+
+    @Test
+    public void testFinishReleasePlanWarnings() throws Exception {
+        final FinishReleaseCause finishReleaseCause = new FinishReleaseCause(this.gitflowPluginData.getRemoteBranch("release/1.2"));
+
+        // The release branch has been deleted on the remote repository in the meantime.
+        final GitflowPlan plan = GitflowPlanFactory.newInstance(this.job, finishReleaseCause, this.gitflowPluginData, new RemoteRefSnapshot(new HashMap<String, ObjectId>()));
+        assertEquals(Collections.singletonList("Branch release/1.2 doesn't exist on the remote repository."), plan.getWarnings());
+
+        // Without a snapshot of the remote branch heads, the plan is based on the recorded data only.
+        final GitflowPlan planWithoutSnapshot = GitflowPlanFactory.newInstance(this.job, finishReleaseCause, this.gitflowPluginData, null);
+        assertEquals(1, planWithoutSnapshot.getWarnings().size());
+        assertEquals("Delete: Delete branch origin/release/1.2", planWithoutSnapshot.getSteps().get(0).toString());
+        assertEquals("Push: :refs/heads/release/1.2", planWithoutSnapshot.getSteps().get(1).toString());
+    }
+
+    @Test
+    public void testFinishReleasePlanWithoutBuild() throws Exception {
+        final FinishReleaseCause finishReleaseCause = new FinishReleaseCause(this.gitflowPluginData.getRemoteBranch("release/1.2"));
+        assertEquals("Build: Main build omitted", GitflowPlanFactory.newInstance(this.job, finishReleaseCause, this.gitflowPluginData, null).getSteps().get(2).toString());
+
+        // The plan follows the decisions that are made when the action is submitted.
+        when(this.gitflowBuildWrapperDescriptor.isLightweightOmitMainBuild()).thenReturn(true);
+        when(this.job.getAssignedLabel()).thenReturn(mock(Label.class));
+        assertEquals("Build: Main build omitted (executed on a flyweight executor)",
+                     GitflowPlanFactory.newInstance(this.job, finishReleaseCause, this.gitflowPluginData, null).getSteps().get(2).toString());
+
+        when(this.gitflowBuildWrapperDescriptor.isWorkspaceLessFinish()).thenReturn(true);
+        assertEquals("Build: No build - executed on the master, logged to gitflow-workspace-less-finish.log",
+                     GitflowPlanFactory.newInstance(this.job, finishReleaseCause, this.gitflowPluginData, null).getSteps().get(2).toString());
+
+        // Finish actions on Dry Run are always executed as builds.
+        finishReleaseCause.setDryRun(true);
+        assertEquals("Build: Main build omitted (executed on a flyweight executor)",
+                     GitflowPlanFactory.newInstance(this.job, finishReleaseCause, this.gitflowPluginData, null).getSteps().get(2).toString());
+    }
+
+    @Test
+    public void testTestReleasePlanForReleasedBranch() throws Exception {
+        final RemoteBranch releaseBranch = this.gitflowPluginData.getRemoteBranch("release/1.2");
+        releaseBranch.setLastReleaseVersion("1.2.0");
+        releaseBranch.setLastReleaseVersionCommit(RELEASE_HEAD);
+        releaseBranch.setLastVerifiedTree(DEVELOP_HEAD, 7);
+        final TestReleaseCause testReleaseCause = new TestReleaseCause(releaseBranch);
+
+        // Without the change-aware reactor and the reuse of verified builds, all modules are released and verified.
+        final List<String> steps = toStrings(GitflowPlanFactory.newInstance(this.job, testReleaseCause, this.gitflowPluginData, null).getSteps());
+        assertEquals("Version: release/1.2: 1.2.1-SNAPSHOT -> 1.2.1", steps.get(1));
+        assertEquals("Build: Release main build of release/1.2", steps.get(2));
+        assertEquals("Tag: Create tag v1.2.1", steps.get(3));
+
+        when(this.gitflowBuildWrapperDescriptor.isChangeAwareReactor()).thenReturn(true);
+        when(this.gitflowBuildWrapperDescriptor.isReuseVerifiedReleaseBuilds()).thenReturn(true);
+        final List<String> optimisedSteps = toStrings(GitflowPlanFactory.newInstance(this.job, testReleaseCause, this.gitflowPluginData, null).getSteps());
+        assertEquals("Version: release/1.2: 1.2.1-SNAPSHOT -> 1.2.1 (only the modules that changed since release 1.2.0)", optimisedSteps.get(1));
+        assertEquals("Build: Release main build of release/1.2", optimisedSteps.get(2));
+        assertEquals("Build: Verification skipped if the sources are unchanged since the release build #7", optimisedSteps.get(3));
+        assertEquals("Tag: Create tag v1.2.1", optimisedSteps.get(4));
+    }
+
+    private static List<String> toStrings(final List<GitflowPlan.Step> steps) {
+        final List<String> strings = new ArrayList<String>(steps.size());
+        for (final GitflowPlan.Step step : steps) {
+            strings.add(step.toString());
+        }
+        return strings;
+    }
+}
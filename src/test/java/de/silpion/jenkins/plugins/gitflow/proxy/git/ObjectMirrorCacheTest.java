@@ -0,0 +1,117 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.RefSpec;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the node-side operations of the {@link ObjectMirrorCache} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class ObjectMirrorCacheTest {
+
+    private static final String REMOTE_URL = "https://git.example.com/project.git";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File mirrorsDir;
+    private File mirrorDir;
+    private File workspace;
+
+    private RevCommit commit;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mirrorsDir = this.folder.newFolder(ObjectMirrorCache.MIRRORS_DIR_NAME);
+        this.mirrorDir = new File(this.mirrorsDir, "mirror");
+        this.workspace = this.folder.newFolder("workspace");
+
+        // Create an origin repository with a commit and fill the mirror from it.
+        final Git origin = Git.init().setDirectory(this.folder.newFolder("origin")).call();
+        this.commit = origin.commit().setMessage("initial").call();
+        new ObjectMirrorCache.InitMirrorCallable(REMOTE_URL).invoke(this.mirrorDir, null);
+        final Git mirror = Git.open(this.mirrorDir);
+        try {
+            mirror.fetch().setRemote(origin.getRepository().getDirectory().getAbsolutePath()).setRefSpecs(new RefSpec("+refs/heads/*:refs/heads/*")).call();
+        } finally {
+            mirror.getRepository().close();
+        }
+        origin.getRepository().close();
+    }
+
+    @Test
+    public void testBorrowObjects() throws Exception {
+        new ObjectMirrorCache.BorrowObjectsCallable(this.mirrorDir.getAbsolutePath(), REMOTE_URL).invoke(this.workspace, null);
+
+        // The workspace repository is initialized and contains the objects of the mirror.
+        final Repository repository = new FileRepositoryBuilder().setWorkTree(this.workspace).build();
+        try {
+            assertEquals(REMOTE_URL, repository.getConfig().getString("remote", "origin", "url"));
+            assertTrue(repository.getObjectDatabase().has(this.commit));
+        } finally {
+            repository.close();
+        }
+
+        // Borrowing again doesn't duplicate the alternates and borrowers.
+        new ObjectMirrorCache.BorrowObjectsCallable(this.mirrorDir.getAbsolutePath(), REMOTE_URL).invoke(this.workspace, null);
+        assertEquals(1, FileUtils.readLines(new File(this.workspace, ".git/objects/info/alternates"), "UTF-8").size());
+        assertEquals(Collections.singletonList(new File(this.workspace, ".git").getAbsolutePath()),
+                     FileUtils.readLines(new File(this.mirrorDir, ObjectMirrorCache.BORROWERS_FILE_NAME), "UTF-8"));
+    }
+
+    @Test
+    public void testUpdateIndex() throws Exception {
+        final File otherMirrorDir = new File(this.mirrorsDir, "other");
+        assertTrue(otherMirrorDir.mkdir());
+        FileUtils.writeStringToFile(new File(this.mirrorsDir, ObjectMirrorCache.INDEX_FILE_NAME), "other=5,1000\nremoved=7,2000\n", "UTF-8");
+
+        // Only the current mirror is measured, the other sizes are taken from the index. Removed mirrors are dropped.
+        final Map<String, Long> mirrorSizes = new ObjectMirrorCache.UpdateIndexCallable("mirror", 3000L).invoke(this.mirrorsDir, null);
+        assertEquals(Arrays.asList("other", "mirror"), new ArrayList<String>(mirrorSizes.keySet()));
+        assertEquals(Long.valueOf(5L), mirrorSizes.get("other"));
+        assertEquals(Long.valueOf(FileUtils.sizeOfDirectory(this.mirrorDir)), mirrorSizes.get("mirror"));
+
+        // The mirrors are ordered by their last usage.
+        final Map<String, Long> updatedMirrorSizes = new ObjectMirrorCache.UpdateIndexCallable("other", 4000L).invoke(this.mirrorsDir, null);
+        assertEquals(Arrays.asList("mirror", "other"), new ArrayList<String>(updatedMirrorSizes.keySet()));
+        assertEquals(Long.valueOf(0L), updatedMirrorSizes.get("other"));
+    }
+
+    @Test
+    public void testEvictMirror() throws Exception {
+        new ObjectMirrorCache.BorrowObjectsCallable(this.mirrorDir.getAbsolutePath(), REMOTE_URL).invoke(this.workspace, null);
+
+        // The evicted mirror is deleted, the borrowing workspace keeps the objects.
+        new ObjectMirrorCache.EvictMirrorCallable().invoke(this.mirrorDir, null);
+        assertFalse(this.mirrorDir.exists());
+        assertFalse(new File(this.workspace, ".git/objects/info/alternates").exists());
+        final Repository repository = new FileRepositoryBuilder().setWorkTree(this.workspace).build();
+        try {
+            assertTrue(repository.getObjectDatabase().has(this.commit));
+        } finally {
+            repository.close();
+        }
+
+        // The entry of the evicted mirror is dropped from the index.
+        assertTrue(new ObjectMirrorCache.UpdateIndexCallable("other", 1000L).invoke(this.mirrorsDir, null).isEmpty());
+    }
+}
@@ -0,0 +1,127 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.silpion.jenkins.plugins.gitflow.action.buildtype.PomVersionRewriter;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ChangedPathsCallback}, {@link VersionUpdateCommitCallback} and {@link ReadFilesCallback} classes.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class ChangedPathsCallbackTest {
+
+    private static final List<String> VERSION_FILE_PATHS = Arrays.asList("pom.xml", "a/pom.xml", "b/pom.xml");
+
+    @Rule
+    public GitRepositoryRule gitRepository = new GitRepositoryRule();
+
+    private Git git;
+    private Repository repository;
+
+    private FileContentRewriter versionNormalizer;
+
+    @Before
+    public void setUp() throws Exception {
+        this.git = this.gitRepository.getGit();
+        this.repository = this.gitRepository.getRepository();
+        this.versionNormalizer = PomVersionRewriter.newVersionNormalizer(VERSION_FILE_PATHS, Arrays.asList("de.example:root", "de.example:a", "de.example:b"), "@v@");
+    }
+
+    @Test
+    public void testVersionUpdatesAreIgnored() throws Exception {
+        final RevCommit releaseCommit = this.commit("1.2.0", "1.2.0", "class A {}\n", "class B {}\n");
+        final RevCommit developmentCommit = this.commit("1.2.1-SNAPSHOT", "1.2.1-SNAPSHOT", "class A {}\n", "class B { int fixed; }\n");
+
+        assertEquals(Collections.singletonList("b/B.java"), this.invoke(releaseCommit, developmentCommit));
+    }
+
+    @Test
+    public void testMixedReleasedVersionsAreIgnored() throws Exception {
+
+        // Module 'a' has been released with an older version, because it didn't change in the last release.
+        final RevCommit releaseCommit = this.commit("1.2.1", "1.2.0", "class A {}\n", "class B {}\n");
+        final RevCommit developmentCommit = this.commit("1.2.2-SNAPSHOT", "1.2.2-SNAPSHOT", "class A { int fixed; }\n", "class B {}\n");
+
+        assertEquals(Collections.singletonList("a/A.java"), this.invoke(releaseCommit, developmentCommit));
+    }
+
+    @Test
+    public void testChangesOfVersionFiles() throws Exception {
+        final RevCommit releaseCommit = this.commit("1.2.0", "1.2.0", "class A {}\n", "class B {}\n");
+        this.gitRepository.writeFile("a/pom.xml", "<project><groupId>de.example</groupId><artifactId>a</artifactId><version>1.2.1-SNAPSHOT</version>"
+                                                  + "<packaging>war</packaging></project>");
+        final RevCommit developmentCommit = this.gitRepository.commitAll("packaging");
+
+        assertEquals(Collections.singletonList("a/pom.xml"), this.invoke(releaseCommit, developmentCommit));
+    }
+
+    @Test
+    public void testVersionUpdateCommit() throws Exception {
+        this.commit("1.2.0", "1.2.0", "class A {}\n", "class B {}\n");
+        final RevCommit developmentCommit = this.commit("1.2.1-SNAPSHOT", "1.2.1-SNAPSHOT", "class A {}\n", "class B {}\n");
+        final RevCommit fixCommit = this.commit("1.2.2-SNAPSHOT", "1.2.2-SNAPSHOT", "class A {}\n", "class B { int fixed; }\n");
+
+        assertTrue(new VersionUpdateCommitCallback(developmentCommit.getName(), this.versionNormalizer).invoke(this.repository, null));
+        assertFalse(new VersionUpdateCommitCallback(fixCommit.getName(), this.versionNormalizer).invoke(this.repository, null));
+    }
+
+    @Test
+    public void testMergeCommitIsNoVersionUpdate() throws Exception {
+        final RevCommit releaseCommit = this.commit("1.2.0", "1.2.0", "class A {}\n", "class B {}\n");
+        this.git.branchCreate().setName("release").call();
+        final RevCommit developmentCommit = this.commit("1.3.0-SNAPSHOT", "1.3.0-SNAPSHOT", "class A {}\n", "class B {}\n");
+
+        // Even a merge that only brings in version changes must be built.
+        this.git.checkout().setName("release").call();
+        final MergeResult mergeResult = this.git.merge().include(developmentCommit).setFastForward(MergeCommand.FastForwardMode.NO_FF).call();
+        assertTrue(new VersionUpdateCommitCallback(developmentCommit.getName(), this.versionNormalizer).invoke(this.repository, null));
+        assertFalse(new VersionUpdateCommitCallback(mergeResult.getNewHead().getName(), this.versionNormalizer).invoke(this.repository, null));
+
+        // The root commit has no parent to compare with.
+        assertFalse(new VersionUpdateCommitCallback(releaseCommit.getName(), this.versionNormalizer).invoke(this.repository, null));
+    }
+
+    @Test
+    public void testReadFiles() throws Exception {
+        final RevCommit releaseCommit = this.commit("1.2.0", "1.2.0", "class A {}\n", "class B {}\n");
+        this.commit("1.2.1-SNAPSHOT", "1.2.1-SNAPSHOT", "class A {}\n", "class B {}\n");
+
+        final Map<String, byte[]> files = new ReadFilesCallback(releaseCommit.getName(), Arrays.asList("a/A.java", "missing.txt")).invoke(this.repository, null);
+        assertEquals(1, files.size());
+        assertArrayEquals(Constants.encode("class A {}\n"), files.get("a/A.java"));
+        assertFalse(files.containsKey("missing.txt"));
+    }
+
+    private RevCommit commit(final String version, final String versionA, final String sourceA, final String sourceB) throws Exception {
+        this.gitRepository.writeFile("pom.xml", "<project><groupId>de.example</groupId><artifactId>root</artifactId><version>" + version + "</version></project>");
+        this.gitRepository.writeFile("a/pom.xml", "<project><groupId>de.example</groupId><artifactId>a</artifactId><version>" + versionA + "</version></project>");
+        this.gitRepository.writeFile("b/pom.xml", "<project><parent><groupId>de.example</groupId><artifactId>root</artifactId><version>" + version
+                                                  + "</version></parent><artifactId>b</artifactId><dependencies><dependency><groupId>de.example</groupId>"
+                                                  + "<artifactId>a</artifactId><version>" + versionA + "</version></dependency></dependencies></project>");
+        this.gitRepository.writeFile("a/A.java", sourceA);
+        this.gitRepository.writeFile("b/B.java", sourceB);
+        return this.gitRepository.commitAll("version " + version);
+    }
+
+    private List<String> invoke(final RevCommit fromCommit, final RevCommit toCommit) throws Exception {
+        return new ChangedPathsCallback(fromCommit.getName(), toCommit.getName(), this.versionNormalizer).invoke(this.repository, null);
+    }
+}
@@ -0,0 +1,60 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link CleanKeepingCachesCallback} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class CleanKeepingCachesCallbackTest {
+
+    @Rule
+    public GitRepositoryRule gitRepository = new GitRepositoryRule();
+
+    private Git git;
+
+    @Before
+    public void setUp() throws Exception {
+        this.git = this.gitRepository.getGit();
+        this.gitRepository.writeFile(".gitignore", "target/\nnode_modules/\n*.log\n");
+        this.gitRepository.writeFile("pom.xml", "<project/>\n");
+        this.gitRepository.commitAll("initial");
+
+        // Ignored cache directories, ignored files and untracked sources.
+        this.gitRepository.writeFile("target/classes/A.class", "A");
+        this.gitRepository.writeFile("module/target/classes/B.class", "B");
+        this.gitRepository.writeFile("node_modules/lib/index.js", "lib");
+        this.gitRepository.writeFile("build.log", "log");
+        this.gitRepository.writeFile("src/Untracked.java", "class Untracked {}");
+        this.gitRepository.writeFile("cache/data", "data");
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        final List<String> keptPaths = new CleanKeepingCachesCallback(Arrays.asList("target/", "node_modules/", "cache/")).invoke(this.git.getRepository(), null);
+
+        // Only ignored directories matching the patterns are kept - untracked sources are removed, even if they match.
+        Collections.sort(keptPaths);
+        assertEquals(Arrays.asList("module/target", "node_modules", "target"), keptPaths);
+        assertTrue(this.gitRepository.getFile("target/classes/A.class").isFile());
+        assertTrue(this.gitRepository.getFile("module/target/classes/B.class").isFile());
+        assertTrue(this.gitRepository.getFile("node_modules/lib/index.js").isFile());
+        assertFalse(this.gitRepository.getFile("build.log").exists());
+        assertFalse(this.gitRepository.getFile("src").exists());
+        assertFalse(this.gitRepository.getFile("cache").exists());
+        assertTrue(this.gitRepository.getFile("pom.xml").isFile());
+        assertTrue(this.git.status().call().isClean());
+    }
+}
@@ -0,0 +1,95 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand.FastForwardMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ContainingBranchesCallback} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class ContainingBranchesCallbackTest {
+
+    @Rule
+    public GitRepositoryRule gitRepository = new GitRepositoryRule();
+
+    private Git git;
+    private Repository repository;
+
+    private RevCommit initialCommit;
+    private RevCommit masterCommit;
+    private RevCommit featureCommit;
+    private RevCommit mergeCommit;
+
+    @Before
+    public void setUp() throws Exception {
+        this.git = this.gitRepository.getGit();
+        this.repository = this.gitRepository.getRepository();
+
+        // Create the history: initial <- master <- merge, initial <- feature <- merge
+        this.initialCommit = this.git.commit().setMessage("initial").call();
+        this.masterCommit = this.git.commit().setMessage("master").call();
+        this.git.branchCreate().setName("feature").setStartPoint(this.initialCommit).call();
+        this.git.checkout().setName("feature").call();
+        this.featureCommit = this.git.commit().setMessage("feature").call();
+        this.git.checkout().setName("master").call();
+        final ObjectId mergeCommitId = this.git.merge().include(this.featureCommit).setFastForward(FastForwardMode.NO_FF).call().getNewHead();
+        final RevWalk revWalk = new RevWalk(this.repository);
+        try {
+            this.mergeCommit = revWalk.parseCommit(mergeCommitId);
+        } finally {
+            revWalk.release();
+        }
+
+        this.setRemoteBranch("develop", this.mergeCommit);
+        this.setRemoteBranch("feature/a", this.featureCommit);
+        this.setRemoteBranch("master", this.masterCommit);
+        this.setRemoteBranch("release/1.0", this.initialCommit);
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        assertEquals(Arrays.asList("origin/develop", "origin/feature/a"), this.invoke(this.featureCommit));
+        assertEquals(Arrays.asList("origin/develop", "origin/master"), this.invoke(this.masterCommit));
+        assertEquals(Arrays.asList("origin/develop", "origin/feature/a", "origin/master", "origin/release/1.0"), this.invoke(this.initialCommit));
+        assertEquals(Collections.singletonList("origin/develop"), this.invoke(this.mergeCommit));
+        assertTrue(new File(this.repository.getDirectory(), CommitGenerationIndex.FILE_NAME).isFile());
+    }
+
+    @Test
+    public void testInvokeWithUpdatedIndex() throws Exception {
+        assertEquals(Collections.singletonList("origin/develop"), this.invoke(this.mergeCommit));
+
+        // New commits are added to the persisted index.
+        final RevCommit newCommit = this.git.commit().setMessage("new").call();
+        this.setRemoteBranch("release/1.0", newCommit);
+        assertEquals(Arrays.asList("origin/develop", "origin/release/1.0"), this.invoke(this.mergeCommit));
+        assertEquals(Collections.singletonList("origin/release/1.0"), this.invoke(newCommit));
+    }
+
+    private List<String> invoke(final RevCommit commit) throws Exception {
+        return new ContainingBranchesCallback(commit.getName()).invoke(this.repository, null);
+    }
+
+    private void setRemoteBranch(final String branchName, final ObjectId commit) throws Exception {
+        final RefUpdate refUpdate = this.repository.updateRef("refs/remotes/origin/" + branchName);
+        refUpdate.setNewObjectId(commit);
+        refUpdate.forceUpdate();
+    }
+}
@@ -0,0 +1,99 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link DetachHeadCallback} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class DetachHeadCallbackTest {
+
+    private static final CommitIdentity IDENTITY = new CommitIdentity("Gitflow", "gitflow@example.org", "Gitflow", "gitflow@example.org");
+
+    @Rule
+    public GitRepositoryRule gitRepository = new GitRepositoryRule();
+
+    private Repository repository;
+
+    private RevCommit releaseCommit;
+
+    @Before
+    public void setUp() throws Exception {
+        this.repository = this.gitRepository.getRepository();
+
+        this.gitRepository.writeFile("pom.xml", "version 1.0\n");
+        this.releaseCommit = this.gitRepository.commitAll("Updated version to 1.0");
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        assertEquals(this.releaseCommit, new DetachHeadCallback().invoke(this.repository, null));
+
+        // Only HEAD is detached - the branch, the index and the working tree stay as they are.
+        assertEquals(this.releaseCommit.getName(), this.repository.getFullBranch());
+        assertEquals(this.releaseCommit, this.repository.resolve(Constants.R_HEADS + Constants.MASTER));
+        assertTrue(this.gitRepository.getGit().status().call().isClean());
+    }
+
+    @Test
+    public void testVersionUpdateConcurrentlyWithReader() throws Exception {
+        new DetachHeadCallback().invoke(this.repository, null);
+
+        // Commit the next development version while a recorder reads the file that is rewritten.
+        final File pomFile = this.gitRepository.getFile("pom.xml");
+        final CountDownLatch readerStarted = new CountDownLatch(1);
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        final Future<ObjectId> stage;
+        try {
+            stage = executorService.submit(new Callable<ObjectId>() {
+
+                public ObjectId call() throws Exception {
+                    readerStarted.await();
+                    return new RewriteCommitCallback(Constants.MASTER, Constants.HEAD, new RewriteCommitCallbackTest.VersionRewriter("1.1-SNAPSHOT"),
+                                                     "Updated version to 1.1-SNAPSHOT", IDENTITY).invoke(DetachHeadCallbackTest.this.repository, null);
+                }
+            });
+
+            readerStarted.countDown();
+            do {
+                assertEquals("version 1.0\n", FileUtils.readFileToString(pomFile, "UTF-8"));
+            } while (!stage.isDone());
+        } finally {
+            executorService.shutdown();
+        }
+        final ObjectId developmentCommit = stage.get(10, TimeUnit.SECONDS);
+
+        // The branch has the new version, the working tree still contains the released files.
+        assertEquals(developmentCommit, this.repository.resolve(Constants.R_HEADS + Constants.MASTER));
+        assertEquals(this.releaseCommit, this.repository.resolve(Constants.HEAD));
+        assertEquals("version 1.0\n", FileUtils.readFileToString(pomFile, "UTF-8"));
+        assertTrue(this.gitRepository.getGit().status().call().isClean());
+
+        final RevWalk revWalk = new RevWalk(this.repository);
+        try {
+            assertEquals("version 1.1-SNAPSHOT\n", this.gitRepository.readFile(revWalk.parseCommit(developmentCommit), "pom.xml"));
+        } finally {
+            revWalk.release();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A test rule that provides a Git repository with a working tree in a temporary folder. The repository is initialised
+ * before each test and deleted afterwards.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class GitRepositoryRule extends TemporaryFolder {
+
+    private Git git;
+
+    /** {@inheritDoc} */
+    @Override
+    protected void before() throws Throwable {
+        super.before();
+        this.git = Git.init().setDirectory(this.getRoot()).call();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void after() {
+        this.git.getRepository().close();
+        super.after();
+    }
+
+    public Git getGit() {
+        return this.git;
+    }
+
+    public Repository getRepository() {
+        return this.git.getRepository();
+    }
+
+    /**
+     * Returns a file in the working tree.
+     *
+     * @param path the path of the file, relative to the root of the working tree.
+     * @return the file.
+     */
+    public File getFile(final String path) {
+        return new File(this.getRoot(), path);
+    }
+
+    /**
+     * Writes a file to the working tree - missing parent directories are created.
+     *
+     * @param path the path of the file, relative to the root of the working tree.
+     * @param content the content of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeFile(final String path, final String content) throws IOException {
+        final File file = this.getFile(path);
+        file.getParentFile().mkdirs();
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(Constants.encode(content));
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Stages all files of the working tree and commits them to the checked out branch.
+     *
+     * @param message the commit message.
+     * @return the new commit.
+     * @throws Exception if the files cannot be staged or committed.
+     */
+    public RevCommit commitAll(final String message) throws Exception {
+        this.git.add().addFilepattern(".").call();
+        return this.git.commit().setMessage(message).call();
+    }
+
+    /**
+     * Reads the content of a file from the given commit.
+     *
+     * @param commit the commit that contains the file.
+     * @param path the path of the file, relative to the root of the repository.
+     * @return the content of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public String readFile(final RevCommit commit, final String path) throws IOException {
+        final TreeWalk treeWalk = TreeWalk.forPath(this.getRepository(), path, commit.getTree());
+        try {
+            return new String(this.getRepository().open(treeWalk.getObjectId(0)).getBytes(), "UTF-8");
+        } finally {
+            treeWalk.release();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link MergeCommitCallback} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class MergeCommitCallbackTest {
+
+    private static final CommitIdentity IDENTITY = new CommitIdentity("Gitflow Author", "author@example.org", null, "committer@example.org");
+
+    @Rule
+    public GitRepositoryRule gitRepository = new GitRepositoryRule();
+
+    private Git git;
+    private Repository repository;
+
+    private RevCommit masterCommit;
+    private RevCommit releaseCommit;
+
+    @Before
+    public void setUp() throws Exception {
+        this.git = this.gitRepository.getGit();
+        this.repository = this.gitRepository.getRepository();
+        this.repository.getConfig().setString("user", null, "name", "Config User");
+
+        // Create the history: initial <- master, initial <- release/1.1 (with a conflicting version in the POM).
+        this.gitRepository.writeFile("pom.xml", "a\nversion 1.0\nb\nc\n");
+        this.gitRepository.writeFile("master.txt", "master\n");
+        final RevCommit initialCommit = this.gitRepository.commitAll("initial");
+
+        this.gitRepository.writeFile("pom.xml", "a\nversion 1.0-hotfix\nb\nc-master\n");
+        this.masterCommit = this.gitRepository.commitAll("master");
+
+        this.git.checkout().setCreateBranch(true).setName("release/1.1").setStartPoint(initialCommit).call();
+        this.gitRepository.writeFile("pom.xml", "a\nversion 1.1\nb\nc\n");
+        this.gitRepository.writeFile("release.txt", "release\n");
+        this.releaseCommit = this.gitRepository.commitAll("release");
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        final ObjectId mergeCommitId = new MergeCommitCallback("master", this.masterCommit, this.releaseCommit, "Merge release/1.1", IDENTITY).invoke(this.repository, null);
+
+        // The branch is set to the merge commit, the working tree isn't touched.
+        assertEquals(mergeCommitId, this.repository.resolve(Constants.R_HEADS + "master"));
+        assertEquals("release/1.1", this.repository.getBranch());
+
+        final RevWalk revWalk = new RevWalk(this.repository);
+        try {
+            final RevCommit mergeCommit = revWalk.parseCommit(mergeCommitId);
+            assertEquals("Merge release/1.1", mergeCommit.getFullMessage());
+            assertArrayEquals(new RevCommit[] { this.masterCommit, this.releaseCommit }, mergeCommit.getParents());
+
+            // Conflicts are resolved in favour of the merged commit, non-conflicting changes of both sides are kept.
+            assertEquals("a\nversion 1.1\nb\nc-master\n", this.gitRepository.readFile(mergeCommit, "pom.xml"));
+            assertEquals("master\n", this.gitRepository.readFile(mergeCommit, "master.txt"));
+            assertEquals("release\n", this.gitRepository.readFile(mergeCommit, "release.txt"));
+
+            // The configured identity is used - missing values are taken from the repository configuration.
+            assertEquals("Gitflow Author", mergeCommit.getAuthorIdent().getName());
+            assertEquals("author@example.org", mergeCommit.getAuthorIdent().getEmailAddress());
+            assertEquals("Config User", mergeCommit.getCommitterIdent().getName());
+            assertEquals("committer@example.org", mergeCommit.getCommitterIdent().getEmailAddress());
+        } finally {
+            revWalk.release();
+        }
+    }
+
+    @Test
+    public void testInvokeWithModifyDeleteConflict() throws Exception {
+        this.git.rm().addFilepattern("pom.xml").call();
+        final RevCommit deleteCommit = this.git.commit().setMessage("delete").call();
+
+        this.assertMergeFails("master", this.masterCommit, deleteCommit, "modify/delete conflict in pom.xml");
+    }
+
+    @Test
+    public void testInvokeWithDirectoryFileConflict() throws Exception {
+
+        // Add a directory 'docs' on the release branch, while master adds a file with the same name.
+        this.gitRepository.writeFile("docs/index.txt", "index\n");
+        final RevCommit directoryCommit = this.gitRepository.commitAll("directory");
+
+        this.git.checkout().setName("master").call();
+        this.gitRepository.writeFile("docs", "docs\n");
+        final RevCommit fileCommit = this.gitRepository.commitAll("file");
+        this.git.checkout().setName("release/1.1").call();
+
+        this.assertMergeFails("master", fileCommit, directoryCommit, "directory/file conflict in docs");
+    }
+
+    @Test
+    public void testInvokeOnCheckedOutBranch() throws Exception {
+        this.assertMergeFails("release/1.1", this.releaseCommit, this.masterCommit, "checked out branch");
+    }
+
+    private void assertMergeFails(final String branch, final RevCommit startPoint, final RevCommit mergedCommit, final String expectedMessage) throws Exception {
+        final ObjectId branchCommit = this.repository.resolve(Constants.R_HEADS + branch);
+        try {
+            new MergeCommitCallback(branch, startPoint, mergedCommit, "Merge", IDENTITY).invoke(this.repository, null);
+            fail("The merge must not be done in memory.");
+        } catch (final UnsupportedMergeException ume) {
+            assertTrue(ume.getMessage(), ume.getMessage().contains(expectedMessage));
+        }
+
+        // The branch isn't touched.
+        assertEquals(branchCommit, this.repository.resolve(Constants.R_HEADS + branch));
+    }
+}
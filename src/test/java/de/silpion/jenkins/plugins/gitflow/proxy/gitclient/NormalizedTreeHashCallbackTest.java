@@ -0,0 +1,98 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.silpion.jenkins.plugins.gitflow.action.buildtype.PomVersionRewriter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link NormalizedTreeHashCallback} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class NormalizedTreeHashCallbackTest {
+
+    private static final List<String> VERSION_FILE_PATHS = Arrays.asList("pom.xml", "module/pom.xml");
+    private static final FileContentRewriter VERSION_NORMALIZER = PomVersionRewriter.newVersionNormalizer(VERSION_FILE_PATHS,
+                                                                                                         Arrays.asList("org.example:parent",
+                                                                                                                       "org.example:module"),
+                                                                                                         "@gitflow.version@");
+
+    @Rule
+    public GitRepositoryRule gitRepository = new GitRepositoryRule();
+
+    private Repository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        this.repository = this.gitRepository.getRepository();
+    }
+
+    @Test
+    public void testVersionUpdateHasSameHash() throws Exception {
+        final RevCommit releaseCommit = this.commit("1.2.0", "class A {}\n");
+        final RevCommit patchReleaseCommit = this.commit("1.2.1", "class A {}\n");
+        assertFalse(releaseCommit.getTree().getId().equals(patchReleaseCommit.getTree().getId()));
+
+        final ObjectId releaseHash = this.invoke(releaseCommit);
+        assertEquals(releaseHash, this.invoke(patchReleaseCommit));
+
+        // The hash is computed in memory, without writing the normalised tree.
+        assertFalse(this.repository.hasObject(releaseHash));
+    }
+
+    @Test
+    public void testSourceChangeHasDifferentHash() throws Exception {
+        final RevCommit releaseCommit = this.commit("1.2.0", "class A {}\n");
+        final RevCommit fixCommit = this.commit("1.2.1", "class A { int fixed; }\n");
+
+        assertFalse(this.invoke(releaseCommit).equals(this.invoke(fixCommit)));
+    }
+
+    @Test
+    public void testVersionOutsideVersionFilesIsNotNormalised() throws Exception {
+        final RevCommit releaseCommit = this.commit("1.2.0", "String VERSION = \"1.2.0\";\n");
+        final RevCommit patchReleaseCommit = this.commit("1.2.1", "String VERSION = \"1.2.1\";\n");
+
+        assertFalse(this.invoke(releaseCommit).equals(this.invoke(patchReleaseCommit)));
+    }
+
+    @Test
+    public void testThirdPartyVersionUpdateHasDifferentHash() throws Exception {
+        final RevCommit releaseCommit = this.commit("1.2.0", "1.2.0", "class A {}\n");
+        final RevCommit patchReleaseCommit = this.commit("1.2.1", "1.2.0", "class A {}\n");
+        final RevCommit dependencyUpdateCommit = this.commit("1.2.1", "1.2.1", "class A {}\n");
+
+        // Only the versions of the reactor modules are normalised - not a dependency that happens to have the same version.
+        assertEquals(this.invoke(releaseCommit), this.invoke(patchReleaseCommit));
+        assertFalse(this.invoke(releaseCommit).equals(this.invoke(dependencyUpdateCommit)));
+    }
+
+    private RevCommit commit(final String version, final String source) throws Exception {
+        return this.commit(version, "3.0", source);
+    }
+
+    private RevCommit commit(final String version, final String dependencyVersion, final String source) throws Exception {
+        this.gitRepository.writeFile("pom.xml", "<project>\n  <groupId>org.example</groupId>\n  <artifactId>parent</artifactId>\n  <version>" + version
+                                                + "</version>\n</project>\n");
+        this.gitRepository.writeFile("module/pom.xml", "<project>\n  <parent><groupId>org.example</groupId><artifactId>parent</artifactId><version>" + version
+                                                       + "</version></parent>\n  <artifactId>module</artifactId>\n  <dependencies>\n    <dependency>"
+                                                       + "<groupId>org.other</groupId><artifactId>library</artifactId><version>" + dependencyVersion
+                                                       + "</version></dependency>\n  </dependencies>\n</project>\n");
+        this.gitRepository.writeFile("module/A.java", source);
+        return this.gitRepository.commitAll("version " + version);
+    }
+
+    private ObjectId invoke(final RevCommit commit) throws Exception {
+        return new NormalizedTreeHashCallback(commit.getName(), VERSION_NORMALIZER).invoke(this.repository, null);
+    }
+}
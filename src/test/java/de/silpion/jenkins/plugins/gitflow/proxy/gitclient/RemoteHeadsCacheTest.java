@@ -0,0 +1,86 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link RemoteHeadsCache} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class RemoteHeadsCacheTest {
+
+    private static final ObjectId DEVELOP_HEAD = ObjectId.fromString("1111111111111111111111111111111111111111");
+
+    @Test
+    public void testGetReusesCachedSnapshot() throws Exception {
+        final String remoteUrl = "https://git.example.org/reuse.git";
+        final CountingLoader loader = new CountingLoader();
+
+        final RemoteRefSnapshot snapshot = RemoteHeadsCache.get(remoteUrl, loader);
+        assertSame(snapshot, RemoteHeadsCache.get(remoteUrl, loader));
+        assertEquals(1, loader.loadCount.get());
+
+        RemoteHeadsCache.invalidate(remoteUrl);
+        RemoteHeadsCache.get(remoteUrl, loader);
+        assertEquals(2, loader.loadCount.get());
+    }
+
+    @Test
+    public void testRemoteUrlsAreNormalized() throws Exception {
+        final RemoteRefSnapshot snapshot = RemoteHeadsCache.get("https://git.example.org/normalized.git", new CountingLoader());
+
+        assertSame(snapshot, RemoteHeadsCache.peek("https://git.example.org/normalized"));
+        assertSame(snapshot, RemoteHeadsCache.peek(" https://git.example.org/normalized.git/ "));
+    }
+
+    @Test
+    public void testLoadLocksAreRemoved() throws Exception {
+        RemoteHeadsCache.get("https://git.example.org/locks.git", new CountingLoader());
+        assertEquals(0, RemoteHeadsCache.getLoadLockCount());
+
+        try {
+            RemoteHeadsCache.get("https://git.example.org/failing.git", new RemoteHeadsCache.Loader() {
+
+                @Override
+                public RemoteRefSnapshot load() {
+                    throw new IllegalStateException("listing failed");
+                }
+            });
+            fail("The failing listing should be propagated.");
+        } catch (final IllegalStateException ise) {
+            assertEquals(0, RemoteHeadsCache.getLoadLockCount());
+        }
+    }
+
+    @Test
+    public void testUpdateHeadRev() throws Exception {
+        final String remoteUrl = "https://git.example.org/update.git";
+        RemoteHeadsCache.get(remoteUrl, new CountingLoader());
+
+        RemoteHeadsCache.updateHeadRev(remoteUrl, "refs/heads/release/1.0", DEVELOP_HEAD);
+        assertEquals(DEVELOP_HEAD, RemoteHeadsCache.peek(remoteUrl).getHeadRev("release/1.0"));
+
+        RemoteHeadsCache.updateHeadRev(remoteUrl, "refs/heads/develop", null);
+        assertNull(RemoteHeadsCache.peek(remoteUrl).getHeadRev("develop"));
+    }
+
+    private static class CountingLoader implements RemoteHeadsCache.Loader {
+
+        private final AtomicInteger loadCount = new AtomicInteger();
+
+        @Override
+        public RemoteRefSnapshot load() {
+            this.loadCount.incrementAndGet();
+            return new RemoteRefSnapshot(Collections.singletonMap("refs/heads/develop", DEVELOP_HEAD));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link RemoteHeadsFilter} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class RemoteHeadsFilterTest {
+
+    private final RemoteHeadsFilter filter = new RemoteHeadsFilter(Arrays.asList("master", "develop"), Arrays.asList("release/", "hotfix/"));
+
+    @Test
+    public void testMatches() throws Exception {
+        assertTrue(this.filter.matches("master"));
+        assertTrue(this.filter.matches("refs/heads/develop"));
+        assertTrue(this.filter.matches("release/1.0"));
+        assertTrue(this.filter.matches("refs/heads/hotfix/1.0.1"));
+        assertFalse(this.filter.matches("master-old"));
+        assertFalse(this.filter.matches("feature/release/1.0"));
+        assertFalse(this.filter.matches("refs/tags/release/1.0"));
+    }
+
+    @Test
+    public void testGetRefPrefixesAndPatterns() throws Exception {
+        assertEquals(Arrays.asList("refs/heads/master", "refs/heads/develop", "refs/heads/release/", "refs/heads/hotfix/"), this.filter.getRefPrefixes());
+        assertEquals(Arrays.asList("refs/heads/master", "refs/heads/develop", "refs/heads/release/*", "refs/heads/hotfix/*"), this.filter.getRefPatterns());
+    }
+
+    @Test
+    public void testFilter() throws Exception {
+        final Map<String, ObjectId> remoteHeads = new HashMap<String, ObjectId>();
+        remoteHeads.put("refs/heads/master", ObjectId.zeroId());
+        remoteHeads.put("refs/heads/master-old", ObjectId.zeroId());
+        remoteHeads.put("refs/heads/release/1.0", ObjectId.zeroId());
+        remoteHeads.put("refs/heads/feature/a", ObjectId.zeroId());
+
+        final Map<String, ObjectId> filteredRemoteHeads = this.filter.filter(remoteHeads);
+        assertEquals(2, filteredRemoteHeads.size());
+        assertTrue(filteredRemoteHeads.containsKey("refs/heads/master"));
+        assertTrue(filteredRemoteHeads.containsKey("refs/heads/release/1.0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPrefix() throws Exception {
+        new RemoteHeadsFilter(Arrays.asList("master"), Arrays.asList(""));
+    }
+}
@@ -0,0 +1,76 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link RemoteRefSnapshot} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class RemoteRefSnapshotTest {
+
+    private static final ObjectId RELEASE_HEAD = ObjectId.fromString("1111111111111111111111111111111111111111");
+    private static final ObjectId HOTFIX_HEAD = ObjectId.fromString("2222222222222222222222222222222222222222");
+
+    @Test
+    public void testGetHeadRev() throws Exception {
+        final RemoteRefSnapshot snapshot = this.createSnapshot();
+
+        // Simple and full ref names must be resolved without mixing up branches with similar names.
+        assertEquals(RELEASE_HEAD, snapshot.getHeadRev("release/1.0"));
+        assertEquals(RELEASE_HEAD, snapshot.getHeadRev("refs/heads/release/1.0"));
+        assertEquals(HOTFIX_HEAD, snapshot.getHeadRev("hotfix/1.0"));
+        assertNull(snapshot.getHeadRev("1.0"));
+        assertNull(snapshot.getHeadRev("feature/1.0"));
+    }
+
+    @Test
+    public void testWithHeadRev() throws Exception {
+        final RemoteRefSnapshot snapshot = this.createSnapshot();
+
+        final RemoteRefSnapshot updatedSnapshot = snapshot.withHeadRev("refs/heads/release/1.0", HOTFIX_HEAD).withHeadRev("hotfix/1.0", null);
+        assertEquals(HOTFIX_HEAD, updatedSnapshot.getHeadRev("release/1.0"));
+        assertNull(updatedSnapshot.getHeadRev("hotfix/1.0"));
+        assertEquals(1, updatedSnapshot.getBranchNames().size());
+
+        // The original snapshot must not be modified.
+        assertEquals(RELEASE_HEAD, snapshot.getHeadRev("release/1.0"));
+        assertEquals(HOTFIX_HEAD, snapshot.getHeadRev("hotfix/1.0"));
+        assertTrue(snapshot.getBranchNames().contains("hotfix/1.0"));
+    }
+
+    @Test
+    public void testCovers() throws Exception {
+        assertTrue(this.createSnapshot().covers("feature/1.0"));
+
+        // A filtered snapshot only covers the matching branches - also after updates.
+        final RemoteHeadsFilter filter = new RemoteHeadsFilter(Collections.singletonList("master"), Collections.singletonList("release/"));
+        final RemoteRefSnapshot snapshot = new RemoteRefSnapshot(filter.filter(this.createSnapshotHeads()), filter).withHeadRev("master", HOTFIX_HEAD);
+        assertTrue(snapshot.covers("refs/heads/release/1.0"));
+        assertTrue(snapshot.covers("master"));
+        assertFalse(snapshot.covers("hotfix/1.0"));
+        assertEquals(RELEASE_HEAD, snapshot.getHeadRev("release/1.0"));
+        assertNull(snapshot.getHeadRev("hotfix/1.0"));
+    }
+
+    private RemoteRefSnapshot createSnapshot() {
+        return new RemoteRefSnapshot(this.createSnapshotHeads());
+    }
+
+    private Map<String, ObjectId> createSnapshotHeads() {
+        final Map<String, ObjectId> remoteHeads = new HashMap<String, ObjectId>();
+        remoteHeads.put("refs/heads/release/1.0", RELEASE_HEAD);
+        remoteHeads.put("refs/heads/hotfix/1.0", HOTFIX_HEAD);
+        return remoteHeads;
+    }
+}
@@ -0,0 +1,128 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link RewriteCommitCallback} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class RewriteCommitCallbackTest {
+
+    private static final CommitIdentity IDENTITY = new CommitIdentity("Gitflow Author", "author@example.org", "Gitflow Committer", null);
+
+    @Rule
+    public GitRepositoryRule gitRepository = new GitRepositoryRule();
+
+    private Git git;
+    private Repository repository;
+
+    private RevCommit developCommit;
+
+    @Before
+    public void setUp() throws Exception {
+        this.git = this.gitRepository.getGit();
+        this.repository = this.gitRepository.getRepository();
+        this.repository.getConfig().setString("user", null, "email", "config@example.org");
+
+        this.gitRepository.writeFile("pom.xml", "version 1.0-SNAPSHOT\n");
+        this.gitRepository.writeFile("README.txt", "version 1.0-SNAPSHOT\n");
+        this.developCommit = this.gitRepository.commitAll("initial");
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        final RewriteCommitCallback callback = new RewriteCommitCallback("release/1.0", this.developCommit.getName(), new VersionRewriter("1.0"),
+                                                                         "Updated version to 1.0", IDENTITY);
+        final ObjectId commitId = callback.invoke(this.repository, null);
+
+        // The branch is set to the new commit, the working tree and the checked out branch aren't touched.
+        assertEquals(commitId, this.repository.resolve(Constants.R_HEADS + "release/1.0"));
+        assertEquals(this.developCommit, this.repository.resolve(Constants.HEAD));
+        assertEquals(Constants.MASTER, this.repository.getBranch());
+
+        final RevWalk revWalk = new RevWalk(this.repository);
+        try {
+            final RevCommit commit = revWalk.parseCommit(commitId);
+            assertEquals("Updated version to 1.0", commit.getFullMessage());
+            assertArrayEquals(new RevCommit[] { this.developCommit }, commit.getParents());
+
+            // Only the files of the rewriter are rewritten.
+            assertEquals("version 1.0\n", this.gitRepository.readFile(commit, "pom.xml"));
+            assertEquals("version 1.0-SNAPSHOT\n", this.gitRepository.readFile(commit, "README.txt"));
+
+            // The configured identity is used - missing values are taken from the repository configuration.
+            assertEquals("Gitflow Author", commit.getAuthorIdent().getName());
+            assertEquals("author@example.org", commit.getAuthorIdent().getEmailAddress());
+            assertEquals("Gitflow Committer", commit.getCommitterIdent().getName());
+            assertEquals("config@example.org", commit.getCommitterIdent().getEmailAddress());
+        } finally {
+            revWalk.release();
+        }
+    }
+
+    @Test
+    public void testInvokeUnchanged() throws Exception {
+        final ObjectId commitId = new RewriteCommitCallback("release/1.0", this.developCommit.getName(), new VersionRewriter("1.0-SNAPSHOT"), "unchanged", IDENTITY)
+                .invoke(this.repository, null);
+
+        // The branch is set to the start point when no file is modified.
+        assertEquals(this.developCommit, commitId);
+        assertEquals(this.developCommit, this.repository.resolve(Constants.R_HEADS + "release/1.0"));
+    }
+
+    @Test
+    public void testInvokeOnCheckedOutBranch() throws Exception {
+        try {
+            new RewriteCommitCallback(Constants.MASTER, this.developCommit.getName(), new VersionRewriter("1.0"), "Updated version to 1.0", IDENTITY)
+                    .invoke(this.repository, null);
+            fail("The checked out branch must not be moved in memory.");
+        } catch (final IOException ioe) {
+            assertEquals(this.developCommit, this.repository.resolve(Constants.R_HEADS + Constants.MASTER));
+        }
+    }
+
+    /**
+     * Replaces the version in the {@code pom.xml}.
+     */
+    static class VersionRewriter implements FileContentRewriter {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String version;
+
+        VersionRewriter(final String version) {
+            this.version = version;
+        }
+
+        public List<String> getFilePaths() {
+            return Arrays.asList("pom.xml", "missing.xml");
+        }
+
+        public FileContentRewriter prepare(final Map<String, byte[]> contents) {
+            return this;
+        }
+
+        public byte[] rewrite(final String path, final byte[] content) throws IOException {
+            final String rewrittenContent = "version " + this.version + "\n";
+            return rewrittenContent.equals(new String(content, "UTF-8")) ? null : Constants.encode(rewrittenContent);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package de.silpion.jenkins.plugins.gitflow.proxy.gitclient.push;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link CliGitPushCommand} class.
+ *
+ * @author Marc Rohlfs, Silpion IT-Solutions GmbH - rohlfs@silpion.de
+ */
+public class CliGitPushCommandTest {
+
+    @Test
+    public void testAtomicPushUnsupported() throws Exception {
+        assertTrue(CliGitPushCommand.isAtomicPushUnsupported("Command \"git push --atomic origin develop\" returned status code 129:\n"
+                                                             + "stderr: error: unknown option `atomic'"));
+        assertTrue(CliGitPushCommand.isAtomicPushUnsupported("Command \"git push --atomic origin develop\" returned status code 128:\n"
+                                                             + "stderr: fatal: the receiving end does not support --atomic push"));
+    }
+
+    @Test
+    public void testAtomicPushRejected() throws Exception {
+        assertFalse(CliGitPushCommand.isAtomicPushUnsupported("Command \"git push --atomic origin develop master\" returned status code 1:\n"
+                                                              + "stderr: ! [rejected] master -> master (non-fast-forward)\n"
+                                                              + "error: atomic push failed for ref refs/heads/master. status: 2"));
+        assertFalse(CliGitPushCommand.isAtomicPushUnsupported(" ! [remote rejected] develop -> develop (atomic push failed)"));
+        assertFalse(CliGitPushCommand.isAtomicPushUnsupported(null));
+    }
+}